@@ -25,12 +25,13 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
-import java.util.Enumeration;
 import java.util.logging.Level;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import edu.uci.ics.sourcerer.services.file.adapter.FileContentCache.CachedFile;
 import edu.uci.ics.sourcerer.tools.core.repo.model.ContentFile;
 import edu.uci.ics.sourcerer.tools.core.repo.model.RepoFile;
 import edu.uci.ics.sourcerer.tools.java.db.schema.CommentsTable;
@@ -48,9 +49,11 @@ import edu.uci.ics.sourcerer.tools.java.repo.model.JavaFileSet;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaProject;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepository;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
-import edu.uci.ics.sourcerer.util.TimeoutManager;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.utils.db.DatabaseAccessorPool;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnection;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
 import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
@@ -62,20 +65,36 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class FileAdapter {
-  private static TimeoutManager<FileDatabaseAccessor> accessorManager = 
-      new TimeoutManager<FileDatabaseAccessor>(new TimeoutManager.Instantiator<FileDatabaseAccessor>() {
+  public static final Argument<Integer> FILE_CACHE_SIZE = new IntegerArgument("file-cache-size", 64, "Megabytes of file contents to cache.").permit();
+  public static final Argument<Integer> JAR_INDEX_CACHE_SIZE = new IntegerArgument("jar-index-cache-size", 256, "Number of jars whose entry names are cached.").permit();
+  
+  private static DatabaseAccessorPool<FileDatabaseAccessor> accessorPool = 
+      DatabaseAccessorPool.create(new DatabaseAccessorPool.Instantiator<FileDatabaseAccessor>() {
         @Override
         public FileDatabaseAccessor create() {
-          return new FileDatabaseAccessor();
+          return FileDatabaseAccessor.create();
+        }
+        
+        @Override
+        public boolean isValid(FileDatabaseAccessor accessor) {
+          return accessor.conn.isValid();
         }
-      }, 10 * 60 * 1000);
+      });
   
   private static class FileDatabaseAccessor implements Closeable {
     private DatabaseConnection conn;
     
     private FileDatabaseAccessor() {
       conn = DatabaseConnectionFactory.INSTANCE.create();
-      conn.open();
+    }
+    
+    private static FileDatabaseAccessor create() {
+      FileDatabaseAccessor acc = new FileDatabaseAccessor();
+      if (acc.conn.open()) {
+        return acc;
+      } else {
+        return null;
+      }
     }
     
     private SelectQuery selectByProjectID = null;
@@ -189,6 +208,9 @@ public class FileAdapter {
   
   private static JavaRepository repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(JavaRepositoryFactory.INPUT_REPO);
   
+  private static FileContentCache contentCache = new FileContentCache(FILE_CACHE_SIZE.getValue() * 1024l * 1024l);
+  private static JarEntryIndex entryIndex = new JarEntryIndex(JAR_INDEX_CACHE_SIZE.getValue());
+  
   private static byte[] convertResult(Result result) {
     if (result.success()) {
       return result.getResult();
@@ -203,22 +225,28 @@ public class FileAdapter {
   }
   
   public static Result lookupResultByProjectID(Integer projectID) {
-    FileDatabaseAccessor db = accessorManager.get();
-
-    TypedQueryResult result = db.selectByProjectID(projectID);
-    if (result.next()) {
-      Project type = result.getResult(ProjectsTable.PROJECT_TYPE);
-      if (type == Project.SYSTEM) {
-        return new Result(projectID + " is a SYSTEM project");
-      } else if (type == Project.JAR || type == Project.MAVEN || type == Project.JAVA_LIBRARY) {
-        return getJarFile(projectID, null, result.getResult(ProjectsTable.HASH));
-      } else if (type == Project.CRAWLED) {
-        return new Result("Crawled projects not supported: " + projectID);
+    FileDatabaseAccessor db = accessorPool.acquire();
+    if (db == null) {
+      return new Result("Unable to obtain a database connection");
+    }
+    try {
+      TypedQueryResult result = db.selectByProjectID(projectID);
+      if (result.next()) {
+        Project type = result.getResult(ProjectsTable.PROJECT_TYPE);
+        if (type == Project.SYSTEM) {
+          return new Result(projectID + " is a SYSTEM project");
+        } else if (type == Project.JAR || type == Project.MAVEN || type == Project.JAVA_LIBRARY) {
+          return getJarFile(projectID, null, result.getResult(ProjectsTable.HASH));
+        } else if (type == Project.CRAWLED) {
+          return new Result("Crawled projects not supported: " + projectID);
+        } else {
+          return new Result("Unknown project type: " + type + " for " + projectID);
+        }
       } else {
-        return new Result("Unknown project type: " + type + " for " + projectID);
+        return new Result("Unable to find project: " + projectID);
       }
-    } else {
-      return new Result("Unable to find project: " + projectID);
+    } finally {
+      accessorPool.release(db);
     }
   }
   
@@ -227,20 +255,26 @@ public class FileAdapter {
   }
   
   public static Result lookupResultByFileID(Integer fileID) { 
-    FileDatabaseAccessor db = accessorManager.get();
-    
-    TypedQueryResult result = db.selectByFileID(fileID);
-    if (result.next()) {
-      File type = result.getResult(FilesTable.FILE_TYPE);
-      if (type == File.JAR) {
-        return getJarFile(null, fileID, result.getResult(FilesTable.HASH));
-      } else if (type == File.SOURCE) {
-        return getSourceFile(db, result.getResult(FilesTable.PROJECT_ID), fileID, result.getResult(FilesTable.PATH), null, null);
+    FileDatabaseAccessor db = accessorPool.acquire();
+    if (db == null) {
+      return new Result("Unable to obtain a database connection");
+    }
+    try {
+      TypedQueryResult result = db.selectByFileID(fileID);
+      if (result.next()) {
+        File type = result.getResult(FilesTable.FILE_TYPE);
+        if (type == File.JAR) {
+          return getJarFile(null, fileID, result.getResult(FilesTable.HASH));
+        } else if (type == File.SOURCE) {
+          return getSourceFile(db, result.getResult(FilesTable.PROJECT_ID), fileID, result.getResult(FilesTable.PATH), null, null);
+        } else {
+          return new Result("file " + fileID + " is a class file with no corresponding source");
+        }
       } else {
-        return new Result("file " + fileID + " is a class file with no corresponding source");
+        return new Result("Unable to find file: " + fileID);
       }
-    } else {
-      return new Result("Unable to find file: " + fileID);
+    } finally {
+      accessorPool.release(db);
     }
   }
   
@@ -249,23 +283,29 @@ public class FileAdapter {
   }
   
   public static Result lookupResultByEntityID(Integer entityID) {
-    FileDatabaseAccessor db = accessorManager.get();
-    
-    TypedQueryResult result = db.selectByEntityID(entityID);
-    if (result.next()) {
-      Integer fileID = result.getResult(EntitiesTable.FILE_ID);
-      if (fileID == null) {
-        return new Result("Entity " + entityID + " has no associated file"); 
-      } else {
-        TypedQueryResult fileInfo = db.selectByFileID(fileID);
-        if (fileInfo.next()) {
-          return getSourceFile(db, result.getResult(EntitiesTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(EntitiesTable.OFFSET), result.getResult(EntitiesTable.LENGTH));
+    FileDatabaseAccessor db = accessorPool.acquire();
+    if (db == null) {
+      return new Result("Unable to obtain a database connection");
+    }
+    try {
+      TypedQueryResult result = db.selectByEntityID(entityID);
+      if (result.next()) {
+        Integer fileID = result.getResult(EntitiesTable.FILE_ID);
+        if (fileID == null) {
+          return new Result("Entity " + entityID + " has no associated file"); 
         } else {
-          return new Result("File " + fileID + " does not exist for entity " + entityID);
+          TypedQueryResult fileInfo = db.selectByFileID(fileID);
+          if (fileInfo.next()) {
+            return getSourceFile(db, result.getResult(EntitiesTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(EntitiesTable.OFFSET), result.getResult(EntitiesTable.LENGTH));
+          } else {
+            return new Result("File " + fileID + " does not exist for entity " + entityID);
+          }
         }
+      } else {
+        return new Result("Entity " + entityID + " does not exist");
       }
-    } else {
-      return new Result("Entity " + entityID + " does not exist");
+    } finally {
+      accessorPool.release(db);
     }
   }
   
@@ -274,19 +314,25 @@ public class FileAdapter {
   }
   
   public static Result lookupResultByRelationID(Integer relationID) {
-    FileDatabaseAccessor db = accessorManager.get();
-    
-    TypedQueryResult result = db.selectByRelationID(relationID);
-    if (result.next()) {
-      Integer fileID = result.getResult(RelationsTable.FILE_ID);
-      if (fileID == null) {
-        return new Result("Relation " + relationID + " has no associated file"); 
+    FileDatabaseAccessor db = accessorPool.acquire();
+    if (db == null) {
+      return new Result("Unable to obtain a database connection");
+    }
+    try {
+      TypedQueryResult result = db.selectByRelationID(relationID);
+      if (result.next()) {
+        Integer fileID = result.getResult(RelationsTable.FILE_ID);
+        if (fileID == null) {
+          return new Result("Relation " + relationID + " has no associated file"); 
+        } else {
+          TypedQueryResult fileInfo = db.selectByFileID(fileID);
+          return getSourceFile(db, result.getResult(RelationsTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(RelationsTable.OFFSET), result.getResult(RelationsTable.LENGTH));
+        }
       } else {
-        TypedQueryResult fileInfo = db.selectByFileID(fileID);
-        return getSourceFile(db, result.getResult(RelationsTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(RelationsTable.OFFSET), result.getResult(RelationsTable.LENGTH));
+        return new Result("Relation " + relationID + " does not exist");
       }
-    } else {
-      return new Result("Relation " + relationID + " does not exist");
+    } finally {
+      accessorPool.release(db);
     }
   }
   
@@ -295,19 +341,25 @@ public class FileAdapter {
   }
   
   public static Result lookupResultByCommentID(Integer commentID) {
-    FileDatabaseAccessor db = accessorManager.get();
-    
-    TypedQueryResult result = db.selectByCommentID(commentID);
-    if (result.next()) {
-      Integer fileID = result.getResult(RelationsTable.FILE_ID);
-      if (fileID == null) {
-        return new Result("Comment " + commentID + " has no associated file"); 
+    FileDatabaseAccessor db = accessorPool.acquire();
+    if (db == null) {
+      return new Result("Unable to obtain a database connection");
+    }
+    try {
+      TypedQueryResult result = db.selectByCommentID(commentID);
+      if (result.next()) {
+        Integer fileID = result.getResult(RelationsTable.FILE_ID);
+        if (fileID == null) {
+          return new Result("Comment " + commentID + " has no associated file"); 
+        } else {
+          TypedQueryResult fileInfo = db.selectByFileID(fileID);
+          return getSourceFile(db, result.getResult(CommentsTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(CommentsTable.OFFSET), result.getResult(CommentsTable.LENGTH));
+        }
       } else {
-        TypedQueryResult fileInfo = db.selectByFileID(fileID);
-        return getSourceFile(db, result.getResult(CommentsTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(CommentsTable.OFFSET), result.getResult(CommentsTable.LENGTH));
+        return new Result("Comment " + commentID + " does not exist");
       }
-    } else {
-      return new Result("Comment " + commentID + " does not exist");
+    } finally {
+      accessorPool.release(db);
     }
   }
   
@@ -325,110 +377,135 @@ public class FileAdapter {
   }
   
   private static Result getSourceFile(FileDatabaseAccessor db, Integer projectID, Integer fileID, String path, Integer offset, Integer length) {
-    TypedQueryResult projectInfo = db.selectByProjectID(projectID);
-    if (projectInfo.next()) {
-      Project type = projectInfo.getResult(ProjectsTable.PROJECT_TYPE);
-      if (type == Project.CRAWLED) {
-        String projectPath = projectInfo.getResult(ProjectsTable.PATH);
-        JavaProject project = repo.getProject(projectPath);
-        if (project == null) {
-          return new Result("Unable to find project path " + projectPath + " for project " + projectID);
-        } else {
-          JavaFileSet files = project.getContent();
-          ContentFile file = files.getFile(path);
-          byte[] contents = FileUtils.getFileAsByteArray(file.getFile().toFile());
-          if (contents == null) {
-              return new Result("Unable to find " + path + " for " + fileID);
+    CachedFile cached = contentCache.get(projectID, fileID);
+    if (cached == null) {
+      TypedQueryResult projectInfo = db.selectByProjectID(projectID);
+      if (projectInfo.next()) {
+        Project type = projectInfo.getResult(ProjectsTable.PROJECT_TYPE);
+        if (type == Project.CRAWLED) {
+          String projectPath = projectInfo.getResult(ProjectsTable.PATH);
+          JavaProject project = repo.getProject(projectPath);
+          if (project == null) {
+            return new Result("Unable to find project path " + projectPath + " for project " + projectID);
           } else {
-            if (offset == null) {
-              return new Result(file.getFile().getName(), fileID, contents);
+            JavaFileSet files = project.getContent();
+            ContentFile file = files.getFile(path);
+            byte[] contents = FileUtils.getFileAsByteArray(file.getFile().toFile());
+            if (contents == null) {
+              return new Result("Unable to find " + path + " for " + fileID);
             } else {
               String name = file.getFile().getName();
-              name = name.substring(0, name.indexOf('.')) + "-" + offset + "-" + length + ".java";
-              return new Result(name, fileID, contents, offset, length);
+              cached = contentCache.put(projectID, fileID, name, name.substring(0, name.indexOf('.')), contents);
             }
           }
-        }
-      } else if (type == Project.JAR || type == Project.JAVA_LIBRARY || type == Project.MAVEN) {
-        String hash = projectInfo.getResult(ProjectsTable.HASH);
-        JarFile jar = repo.getJarFile(hash);
-        if (jar == null) {
-          return new Result("Unable to find project " + projectID + " for class file " + fileID + " with hash " + hash);
-        } else {
-          RepoFile file = null;
-          if (jar.getSourceFile().exists()) {
-            file = jar.getSourceFile();
+        } else if (type == Project.JAR || type == Project.JAVA_LIBRARY || type == Project.MAVEN) {
+          String hash = projectInfo.getResult(ProjectsTable.HASH);
+          JarFile jar = repo.getJarFile(hash);
+          if (jar == null) {
+            return new Result("Unable to find project " + projectID + " for class file " + fileID + " with hash " + hash);
           } else {
-            file = jar.getFile();
-          }
-          try (ZipFile zip = new ZipFile(file.toFile())) {
-            String minusClass = path.substring(0, path.lastIndexOf('.'));
-            String entryName = minusClass.replace('.', '/') + ".java";
-            ZipEntry entry = zip.getEntry(entryName);
-            if (entry == null) {
-              Enumeration<? extends ZipEntry> entries = zip.entries();
-              for (ZipEntry possibleEntry = entries.nextElement(); entries.hasMoreElements(); possibleEntry = entries.nextElement()) {
-                if (possibleEntry.getName().endsWith(entryName)) {
-                  entry = possibleEntry;
-                  break;
-                }
-              }
-            }
-            if (entry == null) {
-              return new Result("Unable to find entry " + entryName + " in " + jar + " for file " + fileID + " and project " + projectID);
+            RepoFile file = null;
+            if (jar.getSourceFile().exists()) {
+              file = jar.getSourceFile();
             } else {
-              if (offset == null) {
-                return new Result(entry.getName(), fileID, IOUtils.getInputStreamAsByteArray(zip.getInputStream(entry), (int)entry.getSize()));
+              file = jar.getFile();
+            }
+            try (ZipFile zip = new ZipFile(file.toFile())) {
+              String minusClass = path.substring(0, path.lastIndexOf('.'));
+              String entryName = minusClass.replace('.', '/') + ".java";
+              ZipEntry entry = entryIndex.findEntry(file.toFile(), zip, entryName);
+              if (entry == null) {
+                return new Result("Unable to find entry " + entryName + " in " + jar + " for file " + fileID + " and project " + projectID);
               } else {
                 String name = entry.getName();
-                name = name.substring(0, name.lastIndexOf('.')) + "-" + offset + "-" + length + ".java";
-                return new Result(name, fileID, IOUtils.getInputStreamAsByteArray(zip.getInputStream(entry), (int)entry.getSize()), offset, length);
+                cached = contentCache.put(projectID, fileID, name, name.substring(0, name.lastIndexOf('.')), IOUtils.getInputStreamAsByteArray(zip.getInputStream(entry), (int)entry.getSize()));
               }
+            } catch (Exception e) {
+              logger.log(Level.SEVERE, "Unable to read jar file", e);
+              return new Result("Unable to read jar file");
             }
-          } catch (Exception e) {
-            logger.log(Level.SEVERE, "Unable to read jar file", e);
-            return new Result("Unable to read jar file");
           }
+        } else {
+          return new Result("Invalid project type: " + type + " for project " + projectID + " and file " + fileID);
         }
       } else {
-        return new Result("Invalid project type: " + type + " for project " + projectID + " and file " + fileID);
+        return new Result("No match for project " + projectID + " and file " + fileID);
       }
+    }
+    if (offset == null) {
+      return new Result(cached.getName(), fileID, cached.getContents());
     } else {
-      return new Result("No match for project " + projectID + " and file " + fileID);
+      return new Result(cached.getStem() + "-" + offset + "-" + length + ".java", fileID, cached.getContents(), offset, length);
     }
   }
   
   public static Collection<Link> getImportsByFileID(Integer fileID) {
-    FileDatabaseAccessor db = accessorManager.get();
-    
-    ArrayList<Link> links = new ArrayList<>();
-    TypedQueryResult result = db.selectImportLinks(fileID);
-    while (result.next()) {
-      links.add(new Link(result.getResult(ImportsTable.EID), result.getResult(ImportsTable.OFFSET), result.getResult(ImportsTable.LENGTH)));
+    FileDatabaseAccessor db = accessorPool.acquire();
+    if (db == null) {
+      return Collections.emptyList();
+    }
+    try {
+      ArrayList<Link> links = new ArrayList<>();
+      TypedQueryResult result = db.selectImportLinks(fileID);
+      while (result.next()) {
+        links.add(new Link(result.getResult(ImportsTable.EID), result.getResult(ImportsTable.OFFSET), result.getResult(ImportsTable.LENGTH)));
+      }
+      return links;
+    } finally {
+      accessorPool.release(db);
     }
-    return links;
   }
   
   public static Collection<Link> getFieldsByFileID(Integer fileID) {
-    FileDatabaseAccessor db = accessorManager.get();
-    
-    ArrayList<Link> links = new ArrayList<>();
-    TypedQueryResult result = db.selectFields(fileID);
-    while (result.next()) {
-      links.add(new Link(result.getResult(EntitiesTable.OFFSET), result.getResult(EntitiesTable.LENGTH)));
+    FileDatabaseAccessor db = accessorPool.acquire();
+    if (db == null) {
+      return Collections.emptyList();
+    }
+    try {
+      ArrayList<Link> links = new ArrayList<>();
+      TypedQueryResult result = db.selectFields(fileID);
+      while (result.next()) {
+        links.add(new Link(result.getResult(EntitiesTable.OFFSET), result.getResult(EntitiesTable.LENGTH)));
+      }
+      return links;
+    } finally {
+      accessorPool.release(db);
     }
-    return links;
   }
   
   public static Collection<Link> getRelationLinksByFileID(Integer fileID) {
-    FileDatabaseAccessor db = accessorManager.get();
-    
-    ArrayList<Link> links = new ArrayList<>();
-    TypedQueryResult result = db.selectRelationLinks(fileID);
-    while (result.next()) {
-      links.add(new Link(result.getResult(EntitiesTable.ENTITY_ID), result.getResult(EntitiesTable.FQN), result.getResult(RelationsTable.OFFSET), result.getResult(RelationsTable.LENGTH), result.getResult(RelationsTable.RELATION_TYPE)));
+    FileDatabaseAccessor db = accessorPool.acquire();
+    if (db == null) {
+      return Collections.emptyList();
     }
-    return links;
+    try {
+      ArrayList<Link> links = new ArrayList<>();
+      TypedQueryResult result = db.selectRelationLinks(fileID);
+      while (result.next()) {
+        links.add(new Link(result.getResult(EntitiesTable.ENTITY_ID), result.getResult(EntitiesTable.FQN), result.getResult(RelationsTable.OFFSET), result.getResult(RelationsTable.LENGTH), result.getResult(RelationsTable.RELATION_TYPE)));
+      }
+      return links;
+    } finally {
+      accessorPool.release(db);
+    }
+  }
+
+  /**
+   * Describes the current state of the database accessor pool.
+   */
+  public static String getPoolStatistics() {
+    return accessorPool.toString();
+  }
+  
+  /**
+   * Describes the hit rates of the file content and jar entry caches.
+   */
+  public static String getCacheStatistics() {
+    return "contents: " + contentCache.toString() + "; jar entries: " + entryIndex.toString();
+  }
+  
+  public static void close() {
+    accessorPool.destroy();
   }
 
   public static void testConsole() {
@@ -0,0 +1,132 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.services.file.adapter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Size-bounded LRU cache of file contents, keyed by project and file.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class FileContentCache {
+  private final long capacity;
+  private final LinkedHashMap<Key, CachedFile> cache;
+  
+  private long size;
+  private long hits;
+  private long misses;
+  private long evictions;
+  
+  FileContentCache(long capacity) {
+    this.capacity = capacity;
+    cache = new LinkedHashMap<>(16, .75f, true);
+  }
+  
+  synchronized CachedFile get(Integer projectID, Integer fileID) {
+    CachedFile file = cache.get(new Key(projectID, fileID));
+    if (file == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return file;
+  }
+  
+  synchronized CachedFile put(Integer projectID, Integer fileID, String name, String stem, byte[] contents) {
+    CachedFile file = new CachedFile(name, stem, contents);
+    // Files larger than the whole cache are never kept
+    if (contents.length <= capacity) {
+      CachedFile old = cache.put(new Key(projectID, fileID), file);
+      if (old != null) {
+        size -= old.contents.length;
+      }
+      size += contents.length;
+      for (Iterator<CachedFile> iter = cache.values().iterator(); size > capacity && iter.hasNext();) {
+        size -= iter.next().contents.length;
+        iter.remove();
+        evictions++;
+      }
+    }
+    return file;
+  }
+  
+  @Override
+  public synchronized String toString() {
+    long lookups = hits + misses;
+    return String.format("files %d, bytes %d/%d, hits %d, misses %d, evictions %d, hit rate %.1f%%",
+        cache.size(), size, capacity, hits, misses, evictions, lookups == 0 ? 0. : 100. * hits / lookups);
+  }
+  
+  static class CachedFile {
+    private final String name;
+    private final String stem;
+    private final byte[] contents;
+    
+    private CachedFile(String name, String stem, byte[] contents) {
+      this.name = name;
+      this.stem = stem;
+      this.contents = contents;
+    }
+    
+    /**
+     * The name used when the whole file is returned.
+     */
+    String getName() {
+      return name;
+    }
+    
+    /**
+     * The name, minus its extension, used for fragments of the file.
+     */
+    String getStem() {
+      return stem;
+    }
+    
+    byte[] getContents() {
+      return contents;
+    }
+  }
+  
+  private static class Key {
+    private final Integer projectID;
+    private final Integer fileID;
+    
+    private Key(Integer projectID, Integer fileID) {
+      this.projectID = projectID;
+      this.fileID = fileID;
+    }
+    
+    @Override
+    public int hashCode() {
+      return 31 * (projectID == null ? 0 : projectID.hashCode()) + (fileID == null ? 0 : fileID.hashCode());
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof Key) {
+        Key other = (Key) o;
+        return (projectID == null ? other.projectID == null : projectID.equals(other.projectID)) &&
+            (fileID == null ? other.fileID == null : fileID.equals(other.fileID));
+      } else {
+        return false;
+      }
+    }
+  }
+}
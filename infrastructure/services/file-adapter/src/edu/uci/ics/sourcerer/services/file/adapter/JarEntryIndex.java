@@ -0,0 +1,115 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.services.file.adapter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Caches the entry names of recently used jars, indexed by simple name, so
+ * that resolving an entry by path suffix does not scan the whole jar.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class JarEntryIndex {
+  private final Map<String, Index> indices;
+  
+  private long hits;
+  private long misses;
+  
+  @SuppressWarnings("serial")
+  JarEntryIndex(final int maxJars) {
+    indices = new LinkedHashMap<String, Index>(16, .75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Index> eldest) {
+        return size() > maxJars;
+      }
+    };
+  }
+  
+  private static class Index {
+    private final long lastModified;
+    private final Map<String, Collection<String>> entries;
+    
+    private Index(long lastModified, ZipFile zip) {
+      this.lastModified = lastModified;
+      entries = new HashMap<>();
+      Enumeration<? extends ZipEntry> iter = zip.entries();
+      while (iter.hasMoreElements()) {
+        String name = iter.nextElement().getName();
+        String simpleName = name.substring(name.lastIndexOf('/') + 1);
+        Collection<String> names = entries.get(simpleName);
+        if (names == null) {
+          names = new ArrayList<>(1);
+          entries.put(simpleName, names);
+        }
+        names.add(name);
+      }
+    }
+  }
+  
+  private Index getIndex(File file, ZipFile zip) {
+    String key = file.getAbsolutePath();
+    long lastModified = file.lastModified();
+    Index index = null;
+    synchronized (this) {
+      index = indices.get(key);
+      if (index != null && index.lastModified == lastModified) {
+        hits++;
+        return index;
+      }
+      misses++;
+    }
+    index = new Index(lastModified, zip);
+    synchronized (this) {
+      indices.put(key, index);
+    }
+    return index;
+  }
+  
+  /**
+   * Finds the entry whose name is, or ends with, <code>entryName</code>.
+   */
+  ZipEntry findEntry(File file, ZipFile zip, String entryName) {
+    ZipEntry entry = zip.getEntry(entryName);
+    if (entry == null) {
+      Index index = getIndex(file, zip);
+      String simpleName = entryName.substring(entryName.lastIndexOf('/') + 1);
+      Collection<String> names = index.entries.get(simpleName);
+      for (String name : names == null ? Collections.<String>emptyList() : names) {
+        if (name.endsWith(entryName)) {
+          return zip.getEntry(name);
+        }
+      }
+    }
+    return entry;
+  }
+  
+  @Override
+  public synchronized String toString() {
+    return String.format("jars %d, hits %d, misses %d", indices.size(), hits, misses);
+  }
+}
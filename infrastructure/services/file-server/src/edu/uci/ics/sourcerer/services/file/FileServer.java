@@ -52,10 +52,23 @@ public class FileServer extends HttpServlet {
   @Override
   public void destroy() {
     logger.log(Level.INFO, "Destroying");
+    FileAdapter.close();
   }
   
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+    // Report on the database accessor pool
+    if (request.getParameter("poolStats") != null) {
+      ServletUtils.writeString(response, null, FileAdapter.getPoolStatistics(), false);
+      return;
+    }
+    
+    // Report on the file caches
+    if (request.getParameter("cacheStats") != null) {
+      ServletUtils.writeString(response, null, FileAdapter.getCacheStatistics(), false);
+      return;
+    }
+    
     // Should the files download or be shown in browser?
     boolean download = "t".equals(request.getParameter("dl"));
     
@@ -29,6 +29,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import edu.uci.ics.sourcerer.services.slicer.SlicerFactory;
+import edu.uci.ics.sourcerer.services.slicer.internal.RelationGraph;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
 import edu.uci.ics.sourcerer.util.io.arguments.ArgumentManager;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
@@ -44,10 +45,17 @@ public class SliceServer extends HttpServlet {
     ArgumentManager.PROPERTIES_STREAM.setValue(getServletContext().getResourceAsStream("/WEB-INF/lib/slice-server.properties"));
     JavaRepositoryFactory.INPUT_REPO.permit();
     SlicerFactory.FILE_SERVER_URL.permit();
+    SlicerFactory.USE_RELATION_GRAPH.permit();
+    SlicerFactory.RELATION_GRAPH_FILE.permit();
     DatabaseConnectionFactory.DATABASE_URL.permit();
     DatabaseConnectionFactory.DATABASE_USER.permit();
     DatabaseConnectionFactory.DATABASE_PASSWORD.permit();
     ArgumentManager.initializeProperties();
+    
+    // Load the graph up front, so the first request is not held up
+    if (SlicerFactory.USE_RELATION_GRAPH.getValue()) {
+      logger.info("Relation graph loaded: " + RelationGraph.getInstance());
+    }
   }
   
   @Override
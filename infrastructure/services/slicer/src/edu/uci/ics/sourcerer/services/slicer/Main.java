@@ -17,12 +17,25 @@
  */
 package edu.uci.ics.sourcerer.services.slicer;
 
+import edu.uci.ics.sourcerer.services.slicer.internal.RelationGraph;
 import edu.uci.ics.sourcerer.util.io.arguments.Command;
+import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class Main {
+  public static final Command BUILD_RELATION_GRAPH =
+    new Command("build-relation-graph", "Loads the relations followed by the slicer and writes the relation graph snapshot.") {
+      protected void action() {
+        RelationGraph.buildSnapshot();
+      }
+    }.setProperties(
+        DatabaseConnectionFactory.DATABASE_URL, 
+        DatabaseConnectionFactory.DATABASE_USER, 
+        DatabaseConnectionFactory.DATABASE_PASSWORD,
+        SlicerFactory.RELATION_GRAPH_FILE);
+  
   public static void main(String[] args) {
     Command.execute(args, Main.class);
   }
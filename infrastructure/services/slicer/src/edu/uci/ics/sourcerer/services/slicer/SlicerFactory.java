@@ -17,9 +17,14 @@
  */
 package edu.uci.ics.sourcerer.services.slicer;
 
+import java.io.File;
+
+import edu.uci.ics.sourcerer.services.slicer.internal.RelationGraph;
 import edu.uci.ics.sourcerer.services.slicer.internal.SlicerImpl;
 import edu.uci.ics.sourcerer.services.slicer.model.Slicer;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.FileArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
 
 /**
@@ -27,8 +32,14 @@ import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
  */
 public class SlicerFactory {
   public static final Argument<String> FILE_SERVER_URL = new StringArgument("file-server-url", "URL for the file server");
+  public static final Argument<Boolean> USE_RELATION_GRAPH = new BooleanArgument("use-relation-graph", false, "Follow relations using an in-memory graph rather than the database.");
+  public static final Argument<File> RELATION_GRAPH_FILE = new FileArgument("relation-graph-file", "Snapshot of the in-memory relation graph.");
   
   public static Slicer createSlicer() {
-    return SlicerImpl.create();
+    if (USE_RELATION_GRAPH.getValue()) {
+      return SlicerImpl.create(RelationGraph.getInstance());
+    } else {
+      return SlicerImpl.create();
+    }
   }
 }
@@ -19,8 +19,15 @@ package edu.uci.ics.sourcerer.services.slicer.internal;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
 
 import edu.uci.ics.sourcerer.services.slicer.model.Slice;
@@ -37,52 +44,75 @@ public abstract class AbstractSlicerImpl implements Slicer {
   
   protected abstract SlicerDatabaseAccessor getAccessor();
   
+  protected void releaseAccessor(SlicerDatabaseAccessor db) {}
+  
   @Override
   public Slice slice(Set<Integer> seeds) {
-    return new SlicerInstance(seeds).slice();
+    SlicerDatabaseAccessor db = getAccessor();
+    if (db == null) {
+      logger.severe("Unable to obtain a database accessor");
+      return null;
+    }
+    try {
+      return new SlicerInstance(db, seeds).slice();
+    } finally {
+      releaseAccessor(db);
+    }
   }
     
   private class SlicerInstance {
     private final SlicerDatabaseAccessor db;
     private final SliceImpl slice;
     private final NovelQueue queue;
+    private final Map<Integer, Collection<Integer>> superclasses;
+    private final Map<Integer, Collection<Integer>> superInterfaces;
     
-    public SlicerInstance(Set<Integer> seeds) {
-      db = getAccessor();
+    public SlicerInstance(SlicerDatabaseAccessor db, Set<Integer> seeds) {
+      this.db = db;
       slice = new SliceImpl();
       queue = new NovelQueue(seeds);
+      superclasses = new HashMap<>();
+      superInterfaces = new HashMap<>();
     }
     
     public Slice slice() {
 //      slice.addBasicLibraryTypes(db);
       while (queue.hasMore()) {
         while (queue.hasMore()) {
-          SlicedEntityImpl entity = queue.poll();
-          
-          switch (entity.getEntityType()) {
-            case FIELD:
-            case ENUM_CONSTANT:
-            case INITIALIZER:
-            case METHOD:
-              addContainingEntity(entity.getEntityID());
-              addUsedTypes(entity.getEntityID());
-              addCalledMethods(entity.getEntityID());
-              break;
-            case CLASS:
-            case INTERFACE:
-            case ENUM:
-              addContainingEntity(entity.getEntityID());
-//              addUsedTypes(entity.getEntityID());
-              addCalledMethods(entity.getEntityID());
-              if (slice.isInternal(entity.getEntityID())) {
-                addInitializers(entity.getEntityID());
-                addConstructors(entity.getEntityID());
-              }
-              break;
-            case ANNOTATION:
-            case ANNOTATION_ELEMENT:
-              break;
+          // Expand the whole frontier at once
+          Collection<Integer> members = new ArrayList<>();
+          Collection<Integer> types = new ArrayList<>();
+          Collection<Integer> internalTypes = new ArrayList<>();
+          for (SlicedEntityImpl entity : queue.pollAll()) {
+            switch (entity.getEntityType()) {
+              case FIELD:
+              case ENUM_CONSTANT:
+              case INITIALIZER:
+              case METHOD:
+                members.add(entity.getEntityID());
+                break;
+              case CLASS:
+              case INTERFACE:
+              case ENUM:
+                types.add(entity.getEntityID());
+                if (slice.isInternal(entity.getEntityID())) {
+                  internalTypes.add(entity.getEntityID());
+                }
+                break;
+              case ANNOTATION:
+              case ANNOTATION_ELEMENT:
+                break;
+            }
           }
+          Collection<Integer> expandable = new ArrayList<>(members);
+          expandable.addAll(types);
+          
+          addContainingEntities(expandable);
+          addUsedTypes(members);
+//          addUsedTypes(types);
+          addCalledMethods(expandable);
+          addInitializers(internalTypes);
+          addConstructors(internalTypes);
         }
       }
       
@@ -95,43 +125,91 @@ public abstract class AbstractSlicerImpl implements Slicer {
 //        }
 //      }
       
-      for (SlicedEntityImpl entity : slice.getInternalEntities().toArray(new SlicedEntityImpl[slice.getInternalEntities().size()])) {
+      Collection<Integer> types = new ArrayList<>();
+      for (SlicedEntityImpl entity : slice.getInternalEntities()) {
         // Is it a type declaration?
         if (entity.getEntityType() == Entity.CLASS ||
             entity.getEntityType() == Entity.INTERFACE ||
             entity.getEntityType() == Entity.ENUM) {
-          checkTypeHierarchy(exploreTypeHierarchy(entity.getEntityID()));
-//          exploreTypeHierarchy(entity.getEntityID());
+          types.add(entity.getEntityID());
         }
       }
+      loadTypeHierarchy(types);
+      for (Integer type : types) {
+        checkTypeHierarchy(exploreTypeHierarchy(type));
+//        exploreTypeHierarchy(type);
+      }
+      // Add the subtypes found to the slice, without expanding them further
+      queue.resolvePending();
       
+      Collection<Integer> fileIDs = new ArrayList<>();
       for (SlicedFileImpl file : slice.getFiles()) {
         if (file.getImports() == null) {
-          file.setImports(db.getImports(file.getFileID()));
+          fileIDs.add(file.getFileID());
+        }
+      }
+      Map<Integer, Collection<SlicedImportImpl>> imports = db.getImports(fileIDs);
+      for (SlicedFileImpl file : slice.getFiles()) {
+        if (file.getImports() == null) {
+          file.setImports(imports.get(file.getFileID()));
         }
       }
       
       return slice;
     }
     
-    private void addContainingEntity(Integer entityID) {
-      queue.addAll(db.getRelationSourcesByTarget(Relation.CONTAINS, entityID));
+    private void addContainingEntities(Collection<Integer> entityIDs) {
+      if (!entityIDs.isEmpty()) {
+        queue.addAll(db.getRelationSourcesByTarget(Relation.CONTAINS, entityIDs));
+      }
     }
     
-    private void addUsedTypes(Integer entityID) {
-      queue.addAll(db.getRelationTargetsBySource(Relation.USES, entityID));
+    private void addUsedTypes(Collection<Integer> entityIDs) {
+      if (!entityIDs.isEmpty()) {
+        queue.addAll(db.getRelationTargetsBySource(Relation.USES, entityIDs));
+      }
+    }
+    
+    private void addCalledMethods(Collection<Integer> entityIDs) {
+      if (!entityIDs.isEmpty()) {
+        queue.addAll(db.getRelationTargetsBySource(Relation.CALLS, entityIDs));
+      }
     }
     
-    private void addCalledMethods(Integer entityID) {
-      queue.addAll(db.getRelationTargetsBySource(Relation.CALLS, entityID));
+    private void addInitializers(Collection<Integer> entityIDs) {
+      if (!entityIDs.isEmpty()) {
+        queue.addAllEntities(db.getContained(Entity.INITIALIZER, entityIDs));
+      }
     }
     
-    private void addInitializers(Integer entityID) {
-      queue.addAllEntities(db.getContained(Entity.INITIALIZER, entityID));
+    private void addConstructors(Collection<Integer> entityIDs) {
+      if (!entityIDs.isEmpty()) {
+        queue.addAllEntities(db.getContained(Entity.CONSTRUCTOR, entityIDs));
+      }
     }
     
-    private void addConstructors(Integer entityID) {
-      queue.addAllEntities(db.getContained(Entity.CONSTRUCTOR, entityID));
+    /**
+     * Loads the supertypes of every type reachable from <code>entityIDs</code>,
+     * one level of the hierarchy at a time.
+     */
+    private void loadTypeHierarchy(Collection<Integer> entityIDs) {
+      Set<Integer> frontier = new HashSet<>(entityIDs);
+      frontier.removeAll(superclasses.keySet());
+      while (!frontier.isEmpty()) {
+        Map<Integer, Collection<Integer>> extended = db.getRelationTargetsBySources(Relation.EXTENDS, frontier);
+        Map<Integer, Collection<Integer>> implemented = db.getRelationTargetsBySources(Relation.IMPLEMENTS, frontier);
+        Set<Integer> next = new HashSet<>();
+        for (Integer entityID : frontier) {
+          Collection<Integer> superTypes = extended.get(entityID);
+          superclasses.put(entityID, superTypes == null ? Collections.<Integer>emptyList() : superTypes);
+          superTypes = implemented.get(entityID);
+          superInterfaces.put(entityID, superTypes == null ? Collections.<Integer>emptyList() : superTypes);
+          next.addAll(superclasses.get(entityID));
+          next.addAll(superInterfaces.get(entityID));
+        }
+        next.removeAll(superclasses.keySet());
+        frontier = next;
+      }
     }
     
     private ModeledTypeImpl exploreTypeHierarchy(Integer entityID) {
@@ -140,8 +218,12 @@ public abstract class AbstractSlicerImpl implements Slicer {
         type = new ModeledTypeImpl(entityID);
         slice.addType(type);
         
+        if (!superclasses.containsKey(entityID)) {
+          loadTypeHierarchy(Collections.singleton(entityID));
+        }
+        
         // add the superclass
-        for (Integer superType : db.getRelationTargetsBySource(Relation.EXTENDS, entityID)) {
+        for (Integer superType : superclasses.get(entityID)) {
           if (type.getSuperclass() == null) {
             type.setSuperClass(exploreTypeHierarchy(superType));
           } else {
@@ -150,7 +232,7 @@ public abstract class AbstractSlicerImpl implements Slicer {
         }
         
         // add the super interfaces
-        for (Integer superInterface : db.getRelationTargetsBySource(Relation.IMPLEMENTS, entityID)) {
+        for (Integer superInterface : superInterfaces.get(entityID)) {
           type.addSuperInterace(exploreTypeHierarchy(superInterface));
         }
       }
@@ -163,7 +245,7 @@ public abstract class AbstractSlicerImpl implements Slicer {
         return false;
       }
       // Am I in the slice?
-      else if (slice.contains(type.getEntityID())) {
+      else if (queue.contains(type.getEntityID())) {
         return true;
       } else {
         boolean willBeInSlice = false;
@@ -203,20 +285,24 @@ public abstract class AbstractSlicerImpl implements Slicer {
     
     private class NovelQueue {
       private Deque<SlicedEntityImpl> queue;
+      private Set<Integer> pending;
       
       private NovelQueue(Set<Integer> seeds) {
         queue = new LinkedList<>();
+        pending = new HashSet<>();
         
-        LinkedList<Integer> todo = new LinkedList<>(seeds);
+        Collection<Integer> todo = seeds;
         while (!todo.isEmpty()) {
-          Integer entityID = todo.poll();
-          SlicedEntityImpl entity = db.getEntity(entityID);
-          if (entity.getEntityType() != Entity.PARAMETER && entity.getEntityType() != Entity.LOCAL_VARIABLE) {
-            slice.addProject(entity.getProjectID());
-            queue.add(entity);
-            slice.add(entity);
-            todo.addAll(db.getRelationTargetsBySource(Relation.CONTAINS, entityID));
+          Collection<Integer> added = new ArrayList<>();
+          for (SlicedEntityImpl entity : db.getEntities(todo)) {
+            if (entity.getEntityType() != Entity.PARAMETER && entity.getEntityType() != Entity.LOCAL_VARIABLE && !slice.contains(entity.getEntityID())) {
+              slice.addProject(entity.getProjectID());
+              queue.add(entity);
+              slice.add(entity);
+              added.add(entity.getEntityID());
+            }
           }
+          todo = added.isEmpty() ? added : db.getRelationTargetsBySource(Relation.CONTAINS, added);
         }
       }
       
@@ -226,11 +312,13 @@ public abstract class AbstractSlicerImpl implements Slicer {
         }
       }
       
+      /**
+       * Entities added by id are looked up together when the frontier is
+       * next polled.
+       */
       public void add(Integer entityID) {
         if (!slice.contains(entityID)) {
-          SlicedEntityImpl entity = db.getEntity(entityID);
-          queue.add(entity);
-          slice.add(entity);
+          pending.add(entityID);
         }
       }
       
@@ -247,11 +335,33 @@ public abstract class AbstractSlicerImpl implements Slicer {
         }
       }
       
-      public SlicedEntityImpl poll() {
-        return queue.poll();
+      private void resolvePending() {
+        if (!pending.isEmpty()) {
+          for (Iterator<Integer> iter = pending.iterator(); iter.hasNext();) {
+            if (slice.contains(iter.next())) {
+              iter.remove();
+            }
+          }
+          for (SlicedEntityImpl entity : db.getEntities(pending)) {
+            add(entity);
+          }
+          pending.clear();
+        }
+      }
+      
+      public boolean contains(Integer entityID) {
+        return slice.contains(entityID) || pending.contains(entityID);
+      }
+      
+      public Collection<SlicedEntityImpl> pollAll() {
+        resolvePending();
+        Collection<SlicedEntityImpl> frontier = new ArrayList<>(queue);
+        queue.clear();
+        return frontier;
       }
       
       public boolean hasMore() {
+        resolvePending();
         return !queue.isEmpty();
       }
     }
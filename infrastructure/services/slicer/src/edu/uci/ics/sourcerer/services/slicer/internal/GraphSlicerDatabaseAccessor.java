@@ -0,0 +1,127 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.services.slicer.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+
+/**
+ * Answers relation lookups from the in-memory {@link RelationGraph},
+ * leaving only entity and import lookups to the database.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class GraphSlicerDatabaseAccessor extends SlicerDatabaseAccessor {
+  private final RelationGraph graph;
+  
+  private GraphSlicerDatabaseAccessor(RelationGraph graph) {
+    this.graph = graph;
+  }
+  
+  protected static SlicerDatabaseAccessor create(RelationGraph graph) {
+    return open(new GraphSlicerDatabaseAccessor(graph));
+  }
+  
+  @Override
+  public Collection<Integer> getRelationTargetsBySource(Relation type, Integer entityID) {
+    if (graph.indexes(type)) {
+      return graph.getTargets(type, entityID);
+    } else {
+      return super.getRelationTargetsBySource(type, entityID);
+    }
+  }
+  
+  @Override
+  public Collection<Integer> getRelationSourcesByTarget(Relation type, Integer entityID) {
+    if (graph.indexes(type)) {
+      return graph.getSources(type, entityID);
+    } else {
+      return super.getRelationSourcesByTarget(type, entityID);
+    }
+  }
+  
+  @Override
+  public Map<Integer, Collection<Integer>> getRelationTargetsBySources(Relation type, Collection<Integer> entityIDs) {
+    if (graph.indexes(type)) {
+      Map<Integer, Collection<Integer>> targets = new HashMap<>();
+      for (Integer entityID : entityIDs) {
+        Collection<Integer> rhs = graph.getTargets(type, entityID);
+        if (!rhs.isEmpty()) {
+          targets.put(entityID, rhs);
+        }
+      }
+      return targets;
+    } else {
+      return super.getRelationTargetsBySources(type, entityIDs);
+    }
+  }
+  
+  @Override
+  public Collection<Integer> getRelationTargetsBySource(Relation type, Collection<Integer> entityIDs) {
+    if (graph.indexes(type)) {
+      Collection<Integer> targets = new ArrayList<>();
+      for (Integer entityID : entityIDs) {
+        graph.getTargets(type, entityID, targets);
+      }
+      return targets;
+    } else {
+      return super.getRelationTargetsBySource(type, entityIDs);
+    }
+  }
+  
+  @Override
+  public Collection<Integer> getRelationSourcesByTarget(Relation type, Collection<Integer> entityIDs) {
+    if (graph.indexes(type)) {
+      Collection<Integer> sources = new ArrayList<>();
+      for (Integer entityID : entityIDs) {
+        graph.getSources(type, entityID, sources);
+      }
+      return sources;
+    } else {
+      return super.getRelationSourcesByTarget(type, entityIDs);
+    }
+  }
+  
+  @Override
+  public Collection<SlicedEntityImpl> getContained(Entity type, Integer entityID) {
+    return filterContained(type, graph.getTargets(Relation.CONTAINS, entityID));
+  }
+  
+  @Override
+  public Collection<SlicedEntityImpl> getContained(Entity type, Collection<Integer> entityIDs) {
+    return filterContained(type, getRelationTargetsBySource(Relation.CONTAINS, entityIDs));
+  }
+  
+  private Collection<SlicedEntityImpl> filterContained(Entity type, Collection<Integer> contained) {
+    Collection<SlicedEntityImpl> result = new ArrayList<>();
+    if (!contained.isEmpty()) {
+      for (SlicedEntityImpl entity : getEntities(contained)) {
+        // Match the database query, which is also restricted to initializers
+        if (entity.getEntityType() == type && entity.getEntityType() == Entity.INITIALIZER) {
+          result.add(entity);
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -17,29 +17,42 @@
  */
 package edu.uci.ics.sourcerer.services.slicer.internal;
 
-import edu.uci.ics.sourcerer.util.TimeoutManager;
+import edu.uci.ics.sourcerer.utils.db.DatabaseAccessorPool;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class LongRunningSlicerImpl extends AbstractSlicerImpl {
-  private TimeoutManager<SlicerDatabaseAccessor> accessorManager =
-      new TimeoutManager<SlicerDatabaseAccessor>(new TimeoutManager.Instantiator<SlicerDatabaseAccessor>() {
+  private DatabaseAccessorPool<SlicerDatabaseAccessor> accessorPool =
+      DatabaseAccessorPool.create(new DatabaseAccessorPool.Instantiator<SlicerDatabaseAccessor>() {
         @Override
         public SlicerDatabaseAccessor create() {
           return SlicerDatabaseAccessor.create();
         }
-      }, 10 * 60 * 1000);
+        
+        @Override
+        public boolean isValid(SlicerDatabaseAccessor accessor) {
+          return accessor.isValid();
+        }
+      });
   
 
   @Override
   protected SlicerDatabaseAccessor getAccessor() {
-    return accessorManager.get();
+    return accessorPool.acquire();
+  }
+  
+  @Override
+  protected void releaseAccessor(SlicerDatabaseAccessor db) {
+    accessorPool.release(db);
+  }
+  
+  public String getPoolStatistics() {
+    return accessorPool.toString();
   }
   
   @Override
   public void close() {
-    accessorManager.destroy();
-
+    accessorPool.destroy();
   }
 }
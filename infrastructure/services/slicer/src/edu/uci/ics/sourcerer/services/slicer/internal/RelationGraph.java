@@ -0,0 +1,430 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.services.slicer.internal;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.services.slicer.SlicerFactory;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
+
+/**
+ * In-memory index of the relations the slicer follows. The edges of each
+ * relation type are kept in compressed sparse row form, both forward
+ * (source to targets) and reverse (target to sources).
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class RelationGraph {
+  private static final int MAGIC = 0x53524746;
+  private static final int VERSION = 2;
+  
+  static final Relation[] RELATIONS = { Relation.CONTAINS, Relation.USES, Relation.CALLS, Relation.EXTENDS, Relation.IMPLEMENTS };
+  
+  private static RelationGraph instance;
+  
+  private final Fingerprint fingerprint;
+  private final Map<Relation, Adjacency> forward;
+  private final Map<Relation, Adjacency> reverse;
+  
+  private RelationGraph(Fingerprint fingerprint) {
+    this.fingerprint = fingerprint;
+    forward = new EnumMap<>(Relation.class);
+    reverse = new EnumMap<>(Relation.class);
+  }
+  
+  /**
+   * The number of relations and the largest relation id. Adding relations
+   * moves the id, and deleting them moves the count.
+   */
+  private static class Fingerprint {
+    private final long count;
+    private final long maxID;
+    
+    private Fingerprint(long count, long maxID) {
+      this.count = count;
+      this.maxID = maxID;
+    }
+    
+    private boolean matches(long count, long maxID) {
+      return this.count == count && this.maxID == maxID;
+    }
+  }
+  
+  private static class Adjacency {
+    private final int[] nodes;
+    private final int[] offsets;
+    private final int[] edges;
+    
+    private Adjacency(int[] nodes, int[] offsets, int[] edges) {
+      this.nodes = nodes;
+      this.offsets = offsets;
+      this.edges = edges;
+    }
+    
+    /**
+     * Builds the adjacency from edges packed as (from << 32 | to).
+     */
+    private static Adjacency build(long[] packed, int count) {
+      Arrays.sort(packed, 0, count);
+      int nodeCount = 0;
+      for (int i = 0; i < count; i++) {
+        if (i == 0 || (packed[i] >>> 32) != (packed[i - 1] >>> 32)) {
+          nodeCount++;
+        }
+      }
+      int[] nodes = new int[nodeCount];
+      int[] offsets = new int[nodeCount + 1];
+      int[] edges = new int[count];
+      int node = -1;
+      for (int i = 0; i < count; i++) {
+        if (i == 0 || (packed[i] >>> 32) != (packed[i - 1] >>> 32)) {
+          nodes[++node] = (int) (packed[i] >>> 32);
+          offsets[node] = i;
+        }
+        edges[i] = (int) packed[i];
+      }
+      offsets[nodeCount] = count;
+      return new Adjacency(nodes, offsets, edges);
+    }
+    
+    private void get(int node, Collection<Integer> result) {
+      int index = Arrays.binarySearch(nodes, node);
+      if (index >= 0) {
+        for (int i = offsets[index], max = offsets[index + 1]; i < max; i++) {
+          result.add(edges[i]);
+        }
+      }
+    }
+    
+    private int size() {
+      return edges.length;
+    }
+  }
+  
+  private static class EdgeList {
+    private long[] forward = new long[1024];
+    private long[] reverse = new long[1024];
+    private int count = 0;
+    
+    private void add(int lhs, int rhs) {
+      if (count == forward.length) {
+        forward = Arrays.copyOf(forward, count * 2);
+        reverse = Arrays.copyOf(reverse, count * 2);
+      }
+      forward[count] = ((long) lhs << 32) | (rhs & 0xFFFFFFFFl);
+      reverse[count] = ((long) rhs << 32) | (lhs & 0xFFFFFFFFl);
+      count++;
+    }
+  }
+  
+  private static File getFile() {
+    if (SlicerFactory.RELATION_GRAPH_FILE.hasValue()) {
+      return SlicerFactory.RELATION_GRAPH_FILE.getValue();
+    } else {
+      throw new IllegalStateException("--" + SlicerFactory.RELATION_GRAPH_FILE.getName() + " must be set to use the relation graph");
+    }
+  }
+  
+  /**
+   * Returns the shared graph, loading it on first use.
+   * 
+   * @throws IllegalStateException if the graph cannot be loaded
+   */
+  public static synchronized RelationGraph getInstance() {
+    if (instance == null) {
+      File file = getFile();
+      Fingerprint fingerprint = computeFingerprint();
+      if (fingerprint == null) {
+        throw new IllegalStateException("Unable to reach the database to check the relation graph");
+      }
+      if (file.exists()) {
+        try {
+          instance = read(file, fingerprint);
+        } catch (IOException e) {
+          logger.log(Level.SEVERE, "Unable to read relation graph snapshot: " + file.getPath(), e);
+        }
+      }
+      if (instance == null) {
+        RelationGraph graph = load(fingerprint);
+        if (graph == null) {
+          throw new IllegalStateException("Unable to load the relation graph from the database");
+        }
+        instance = graph;
+        try {
+          instance.write(file);
+        } catch (IOException e) {
+          logger.log(Level.SEVERE, "Unable to write relation graph snapshot: " + file.getPath(), e);
+        }
+      }
+    }
+    return instance;
+  }
+  
+  /**
+   * Rebuilds the snapshot from the database.
+   */
+  public static synchronized void buildSnapshot() {
+    File file = getFile();
+    Fingerprint fingerprint = computeFingerprint();
+    RelationGraph graph = fingerprint == null ? null : load(fingerprint);
+    if (graph == null) {
+      logger.severe("Unable to load the relation graph from the database, leaving " + file.getPath() + " untouched");
+    } else {
+      instance = graph;
+      try {
+        instance.write(file);
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Unable to write relation graph snapshot: " + file.getPath(), e);
+      }
+    }
+  }
+  
+  /**
+   * Returns null if the database could not be reached.
+   */
+  private static Fingerprint computeFingerprint() {
+    final Fingerprint[] fingerprint = { null };
+    new DatabaseRunnable() {
+      @Override
+      public void action() {
+        long count = 0;
+        try (SelectQuery query = exec.createSelectQuery(RelationsTable.TABLE)) {
+          query.setCount(true);
+          count = query.select().toCount();
+        }
+        try (SelectQuery query = exec.createSelectQuery(RelationsTable.TABLE)) {
+          query.addSelect(RelationsTable.RELATION_ID);
+          query.orderBy(RelationsTable.RELATION_ID, false);
+          query.setLimit(1);
+          Integer max = query.select().toSingleton(RelationsTable.RELATION_ID, true);
+          fingerprint[0] = new Fingerprint(count, max == null ? 0 : max);
+        }
+      }
+    }.run();
+    return fingerprint[0];
+  }
+  
+  /**
+   * Returns null if the database could not be reached, or changed while
+   * the relations were being loaded.
+   */
+  private static RelationGraph load(Fingerprint fingerprint) {
+    final RelationGraph graph = new RelationGraph(fingerprint);
+    final boolean[] loaded = { false };
+    new DatabaseRunnable() {
+      @Override
+      public void action() {
+        TaskProgressLogger task = TaskProgressLogger.get();
+        task.start("Loading relation graph");
+        for (Relation type : RELATIONS) {
+          task.start("Loading " + type.name() + " relations", "relations loaded", 500000);
+          EdgeList edges = new EdgeList();
+          try (SelectQuery query = exec.createSelectQuery(RelationsTable.TABLE)) {
+            query.addSelect(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
+            query.andWhere(RelationsTable.RELATION_TYPE.compareEquals(type));
+            TypedQueryResult result = query.selectStreamed();
+            while (result.next()) {
+              Integer lhs = result.getResult(RelationsTable.LHS_EID);
+              Integer rhs = result.getResult(RelationsTable.RHS_EID);
+              if (lhs != null && rhs != null) {
+                edges.add(lhs, rhs);
+                task.progress();
+              }
+            }
+          }
+          graph.forward.put(type, Adjacency.build(edges.forward, edges.count));
+          edges.forward = null;
+          graph.reverse.put(type, Adjacency.build(edges.reverse, edges.count));
+          task.finish();
+        }
+        task.finish();
+        loaded[0] = true;
+      }
+    }.run();
+    if (!loaded[0]) {
+      return null;
+    }
+    // A query that fails part way through just ends its results early
+    Fingerprint after = computeFingerprint();
+    if (after == null || !after.matches(fingerprint.count, fingerprint.maxID)) {
+      return null;
+    }
+    long edges = 0;
+    for (Adjacency adjacency : graph.forward.values()) {
+      edges += adjacency.size();
+    }
+    // Any imported project has CONTAINS relations
+    if (edges == 0 && fingerprint.count > 0) {
+      return null;
+    }
+    return graph;
+  }
+  
+  private void write(File file) throws IOException {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Writing relation graph snapshot to " + file.getPath());
+    File tmp = new File(file.getPath() + ".tmp");
+    if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    DataOutputStream dos = null;
+    try {
+      dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+      dos.writeInt(MAGIC);
+      dos.writeInt(VERSION);
+      dos.writeLong(fingerprint.count);
+      dos.writeLong(fingerprint.maxID);
+      dos.writeInt(RELATIONS.length);
+      for (Relation type : RELATIONS) {
+        dos.writeInt(type.ordinal());
+        write(dos, forward.get(type));
+        write(dos, reverse.get(type));
+      }
+      dos.close();
+      dos = null;
+      if (file.exists() && !file.delete()) {
+        throw new IOException("Unable to replace " + file.getPath());
+      }
+      if (!tmp.renameTo(file)) {
+        throw new IOException("Unable to rename " + tmp.getPath());
+      }
+    } finally {
+      IOUtils.close(dos);
+      tmp.delete();
+      task.finish();
+    }
+  }
+  
+  private static void write(DataOutputStream dos, Adjacency adjacency) throws IOException {
+    write(dos, adjacency.nodes);
+    write(dos, adjacency.offsets);
+    write(dos, adjacency.edges);
+  }
+  
+  private static void write(DataOutputStream dos, int[] array) throws IOException {
+    dos.writeInt(array.length);
+    for (int value : array) {
+      dos.writeInt(value);
+    }
+  }
+  
+  /**
+   * Reads a snapshot, returning null if it does not match the database.
+   */
+  private static RelationGraph read(File file, Fingerprint fingerprint) throws IOException {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Reading relation graph snapshot from " + file.getPath());
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        task.report("Invalid snapshot");
+        return null;
+      }
+      if (!fingerprint.matches(buffer.getLong(), buffer.getLong())) {
+        task.report("Snapshot is stale");
+        return null;
+      }
+      RelationGraph graph = new RelationGraph(fingerprint);
+      Relation[] relations = Relation.values();
+      for (int i = buffer.getInt(); i > 0; i--) {
+        Relation type = relations[buffer.getInt()];
+        graph.forward.put(type, readAdjacency(buffer));
+        graph.reverse.put(type, readAdjacency(buffer));
+      }
+      return graph;
+    } finally {
+      task.finish();
+    }
+  }
+  
+  private static Adjacency readAdjacency(ByteBuffer buffer) {
+    return new Adjacency(readArray(buffer), readArray(buffer), readArray(buffer));
+  }
+  
+  private static int[] readArray(ByteBuffer buffer) {
+    int[] array = new int[buffer.getInt()];
+    buffer.asIntBuffer().get(array);
+    buffer.position(buffer.position() + 4 * array.length);
+    return array;
+  }
+  
+  boolean indexes(Relation type) {
+    return forward.containsKey(type);
+  }
+  
+  Collection<Integer> getTargets(Relation type, Integer source) {
+    Collection<Integer> result = new ArrayList<>();
+    getTargets(type, source, result);
+    return result;
+  }
+  
+  void getTargets(Relation type, Integer source, Collection<Integer> result) {
+    Adjacency adjacency = forward.get(type);
+    if (adjacency == null) {
+      throw new IllegalArgumentException(type + " relations are not indexed");
+    }
+    adjacency.get(source, result);
+  }
+  
+  Collection<Integer> getSources(Relation type, Integer target) {
+    Collection<Integer> result = new ArrayList<>();
+    getSources(type, target, result);
+    return result;
+  }
+  
+  void getSources(Relation type, Integer target, Collection<Integer> result) {
+    Adjacency adjacency = reverse.get(type);
+    if (adjacency == null) {
+      throw new IllegalArgumentException(type + " relations are not indexed");
+    }
+    adjacency.get(target, result);
+  }
+  
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (Relation type : RELATIONS) {
+      Adjacency adjacency = forward.get(type);
+      if (adjacency != null) {
+        builder.append(builder.length() == 0 ? "" : ", ").append(type.name()).append(' ').append(adjacency.size());
+      }
+    }
+    return builder.toString();
+  }
+}
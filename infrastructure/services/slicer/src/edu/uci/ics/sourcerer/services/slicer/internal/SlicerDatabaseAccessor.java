@@ -18,7 +18,12 @@
 package edu.uci.ics.sourcerer.services.slicer.internal;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ImportsTable;
@@ -40,14 +45,20 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 class SlicerDatabaseAccessor implements Closeable {
+  private static final int IN_LIST_SIZE = 1000;
+  
   private DatabaseConnection conn;
+  private QueryExecutor exec;
   
-  private SlicerDatabaseAccessor() {
+  SlicerDatabaseAccessor() {
     conn = DatabaseConnectionFactory.INSTANCE.create();
   }
   
   protected static SlicerDatabaseAccessor create() {
-    SlicerDatabaseAccessor acc = new SlicerDatabaseAccessor();
+    return open(new SlicerDatabaseAccessor());
+  }
+  
+  static SlicerDatabaseAccessor open(SlicerDatabaseAccessor acc) {
     if (acc.conn.open()) {
       acc.initialize();
       return acc;
@@ -90,8 +101,12 @@ class SlicerDatabaseAccessor implements Closeable {
     }
   };
 
+  boolean isValid() {
+    return conn.isValid();
+  }
+  
   private void initialize() {
-    QueryExecutor exec = conn.getExecutor();
+    exec = conn.getExecutor();
 
     Collection<Integer> libraryProjects = null;
     try (SelectQuery select = exec.createSelectQuery(ProjectsTable.TABLE)) {
@@ -167,6 +182,109 @@ class SlicerDatabaseAccessor implements Closeable {
     return getImports.select().toCollection(importConstructor);
   }
   
+  /**
+   * Splits a frontier into IN-lists of bounded size.
+   */
+  private static List<Collection<Integer>> partition(Collection<Integer> entityIDs) {
+    List<Collection<Integer>> partitions = new ArrayList<>();
+    Iterator<Integer> iter = entityIDs.iterator();
+    while (iter.hasNext()) {
+      Collection<Integer> partition = new ArrayList<>(Math.min(IN_LIST_SIZE, entityIDs.size()));
+      while (iter.hasNext() && partition.size() < IN_LIST_SIZE) {
+        partition.add(iter.next());
+      }
+      partitions.add(partition);
+    }
+    return partitions;
+  }
+  
+  public Collection<SlicedEntityImpl> getEntities(Collection<Integer> entityIDs) {
+    Collection<SlicedEntityImpl> entities = new ArrayList<>(entityIDs.size());
+    for (Collection<Integer> partition : partition(entityIDs)) {
+      try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+        query.addSelect(EntitiesTable.FQN, EntitiesTable.MODIFIERS, EntitiesTable.ENTITY_ID, EntitiesTable.PROJECT_ID, EntitiesTable.ENTITY_TYPE, EntitiesTable.FILE_ID, EntitiesTable.OFFSET, EntitiesTable.LENGTH);
+        query.andWhere(EntitiesTable.ENTITY_ID.compareIn(partition));
+        entities.addAll(query.select().toCollection(entityConstructor));
+      }
+    }
+    return entities;
+  }
+  
+  public Map<Integer, Collection<Integer>> getRelationTargetsBySources(Relation type, Collection<Integer> entityIDs) {
+    Map<Integer, Collection<Integer>> targets = new HashMap<>();
+    for (Collection<Integer> partition : partition(entityIDs)) {
+      try (SelectQuery query = exec.createSelectQuery(RelationsTable.TABLE)) {
+        query.addSelect(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
+        query.andWhere(RelationsTable.RELATION_TYPE.compareEquals(type), RelationsTable.LHS_EID.compareIn(partition));
+        TypedQueryResult result = query.select();
+        while (result.next()) {
+          Integer lhs = result.getResult(RelationsTable.LHS_EID);
+          Collection<Integer> rhs = targets.get(lhs);
+          if (rhs == null) {
+            rhs = new ArrayList<>();
+            targets.put(lhs, rhs);
+          }
+          rhs.add(result.getResult(RelationsTable.RHS_EID));
+        }
+      }
+    }
+    return targets;
+  }
+  
+  public Collection<Integer> getRelationTargetsBySource(Relation type, Collection<Integer> entityIDs) {
+    Collection<Integer> targets = new ArrayList<>();
+    for (Collection<Integer> partition : partition(entityIDs)) {
+      try (SelectQuery query = exec.createSelectQuery(RelationsTable.TABLE)) {
+        query.addSelect(RelationsTable.RHS_EID);
+        query.andWhere(RelationsTable.RELATION_TYPE.compareEquals(type), RelationsTable.LHS_EID.compareIn(partition));
+        targets.addAll(query.select().toCollection(RelationsTable.RHS_EID));
+      }
+    }
+    return targets;
+  }
+  
+  public Collection<Integer> getRelationSourcesByTarget(Relation type, Collection<Integer> entityIDs) {
+    Collection<Integer> sources = new ArrayList<>();
+    for (Collection<Integer> partition : partition(entityIDs)) {
+      try (SelectQuery query = exec.createSelectQuery(RelationsTable.TABLE)) {
+        query.addSelect(RelationsTable.LHS_EID);
+        query.andWhere(RelationsTable.RELATION_TYPE.compareEquals(type), RelationsTable.RHS_EID.compareIn(partition));
+        sources.addAll(query.select().toCollection(RelationsTable.LHS_EID));
+      }
+    }
+    return sources;
+  }
+  
+  public Collection<SlicedEntityImpl> getContained(Entity type, Collection<Integer> entityIDs) {
+    Collection<SlicedEntityImpl> contained = new ArrayList<>();
+    for (Collection<Integer> partition : partition(entityIDs)) {
+      try (SelectQuery query = exec.createSelectQuery(EntitiesTable.ENTITY_ID.compareEquals(RelationsTable.RHS_EID))) {
+        query.addSelect(EntitiesTable.FQN, EntitiesTable.MODIFIERS, EntitiesTable.ENTITY_ID, EntitiesTable.PROJECT_ID, EntitiesTable.ENTITY_TYPE, EntitiesTable.FILE_ID, EntitiesTable.OFFSET, EntitiesTable.LENGTH);
+        query.andWhere(EntitiesTable.ENTITY_TYPE.compareEquals(type), RelationsTable.LHS_EID.compareIn(partition), RelationsTable.RELATION_TYPE.compareEquals(Relation.CONTAINS), EntitiesTable.ENTITY_TYPE.compareEquals(Entity.INITIALIZER));
+        contained.addAll(query.select().toCollection(entityConstructor));
+      }
+    }
+    return contained;
+  }
+  
+  public Map<Integer, Collection<SlicedImportImpl>> getImports(Collection<Integer> fileIDs) {
+    Map<Integer, Collection<SlicedImportImpl>> imports = new HashMap<>();
+    for (Integer fileID : fileIDs) {
+      imports.put(fileID, new ArrayList<SlicedImportImpl>());
+    }
+    for (Collection<Integer> partition : partition(fileIDs)) {
+      try (SelectQuery query = exec.createSelectQuery(ImportsTable.TABLE)) {
+        query.addSelect(ImportsTable.FILE_ID, ImportsTable.STATIC, ImportsTable.ON_DEMAND, ImportsTable.EID, ImportsTable.OFFSET, ImportsTable.LENGTH);
+        query.andWhere(ImportsTable.FILE_ID.compareIn(partition));
+        TypedQueryResult result = query.select();
+        while (result.next()) {
+          imports.get(result.getResult(ImportsTable.FILE_ID)).add(new SlicedImportImpl(result));
+        }
+      }
+    }
+    return imports;
+  }
+  
   @Override
   public void close() {
     IOUtils.close(conn);
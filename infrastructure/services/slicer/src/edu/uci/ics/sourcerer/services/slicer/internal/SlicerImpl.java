@@ -25,12 +25,16 @@ import edu.uci.ics.sourcerer.util.io.IOUtils;
 public class SlicerImpl extends AbstractSlicerImpl {
   private SlicerDatabaseAccessor db;
   
-  private SlicerImpl() {
-    db = SlicerDatabaseAccessor.create();
+  private SlicerImpl(SlicerDatabaseAccessor db) {
+    this.db = db;
   }
   
   public static SlicerImpl create() {
-    return new SlicerImpl();
+    return new SlicerImpl(SlicerDatabaseAccessor.create());
+  }
+  
+  public static SlicerImpl create(RelationGraph graph) {
+    return new SlicerImpl(GraphSlicerDatabaseAccessor.create(graph));
   }
 
   @Override
@@ -103,31 +103,9 @@ public abstract class AbstractFileSet implements FileSet {
 
   protected void populateFileSet() {
     if (AbstractRepository.CLEAR_CACHES.getValue() || !cache.exists() || !readCache()) {
-      Deque<RepoFileImpl> stack = new LinkedList<>();
-      stack.add(root.getFile());
-      while (!stack.isEmpty()) {
-        RepoFileImpl dir = stack.pop();
-        Collection<RepoFileImpl> children = dir.getChildren();
-        // See if this directory has a "trunk"
-        RepoFileImpl trunk = null;
-        for (RepoFileImpl child : children) {
-          if (child.isDirectory() && child.getName().equals("trunk")) {
-            trunk = child;
-            break;
-          }
-        }
-        // If there's a trunk, follow only that
-        if (trunk != null) {
-          stack.push(trunk);
-        } else {
-          for (RepoFileImpl child : children) {          
-            if (child.isDirectory()) {
-              stack.push(child);
-            } else {
-              addFile(child);
-            }
-          }
-        }
+      // The directory walk is split across threads, but files are added in serial order
+      for (RepoFileImpl file : ParallelScanner.listFiles(root.getFile())) {
+        addFile(file);
       }
       
       cache.getParentFile().mkdirs();
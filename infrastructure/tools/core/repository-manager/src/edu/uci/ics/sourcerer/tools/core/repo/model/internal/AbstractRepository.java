@@ -21,7 +21,9 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
@@ -79,14 +81,30 @@ public abstract class AbstractRepository<Project extends AbstractRepoProject<? e
             logger.log(Level.SEVERE, "Unable to load project cache: " + cache.toString(), e);
           }
         }
-        Pattern pattern = Pattern.compile("\\d*");
+        final Pattern pattern = Pattern.compile("\\d*");
+        List<File> batches = new ArrayList<>();
         for (File batch : repoRoot.toFile().listFiles()) {
           if (batch.isDirectory() && pattern.matcher(batch.getName()).matches()) {
+            batches.add(batch);
+          }
+        }
+        // List the batches in parallel, then add them in directory order
+        List<List<Integer>> checkouts = ParallelScanner.map(batches, new ParallelScanner.Mapper<File, List<Integer>>() {
+          @Override
+          public List<Integer> map(File batch) {
+            List<Integer> result = new ArrayList<>();
             for (File checkout : batch.listFiles()) {
               if (pattern.matcher(checkout.getName()).matches()) {
-                batchSet.add(Integer.valueOf(batch.getName()), Integer.valueOf(checkout.getName()));
+                result.add(Integer.valueOf(checkout.getName()));
               }
             }
+            return result;
+          }
+        });
+        for (int i = 0; i < batches.size(); i++) {
+          Integer batch = Integer.valueOf(batches.get(i).getName());
+          for (Integer checkout : checkouts.get(i)) {
+            batchSet.add(batch, checkout);
           }
         }
         SimpleSerializer writer = null;
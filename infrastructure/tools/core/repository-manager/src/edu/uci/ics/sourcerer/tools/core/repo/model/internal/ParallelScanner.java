@@ -0,0 +1,172 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.core.repo.model.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+
+/**
+ * Fork-join helpers for scanning the repository when its caches are cold.
+ * Results always come back in the order the serial scan would produce
+ * them, so the caches written afterwards do not depend on the thread
+ * count.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class ParallelScanner {
+  public static final Argument<Integer> SCAN_THREADS = new IntegerArgument("scan-threads", Runtime.getRuntime().availableProcessors(), "Threads used to scan the repository when its caches are cold.").permit();
+  
+  private static final int BATCH = 16;
+  
+  private static ForkJoinPool pool;
+  private static int poolSize;
+  
+  private ParallelScanner() {}
+  
+  public static interface Mapper<I, O> {
+    public O map(I item);
+  }
+  
+  private static synchronized ForkJoinPool getPool() {
+    int threads = SCAN_THREADS.getValue();
+    if (pool == null || poolSize != threads) {
+      if (pool != null) {
+        pool.shutdown();
+      }
+      pool = new ForkJoinPool(threads);
+      poolSize = threads;
+    }
+    return pool;
+  }
+  
+  public static boolean isParallel() {
+    return SCAN_THREADS.getValue() > 1;
+  }
+  
+  /**
+   * Applies <code>mapper</code> to every item, returning the results in
+   * item order.
+   */
+  public static <I, O> List<O> map(List<? extends I> items, Mapper<? super I, ? extends O> mapper) {
+    @SuppressWarnings("unchecked")
+    O[] results = (O[]) new Object[items.size()];
+    if (isParallel() && items.size() > BATCH) {
+      getPool().invoke(new MapTask<I, O>(items, mapper, results, 0, items.size()));
+    } else {
+      for (int i = 0; i < results.length; i++) {
+        results[i] = mapper.map(items.get(i));
+      }
+    }
+    return Arrays.asList(results);
+  }
+  
+  private static class MapTask<I, O> extends RecursiveTask<Void> {
+    private static final long serialVersionUID = 1L;
+    
+    private final List<? extends I> items;
+    private final Mapper<? super I, ? extends O> mapper;
+    private final O[] results;
+    private final int start;
+    private final int end;
+    
+    private MapTask(List<? extends I> items, Mapper<? super I, ? extends O> mapper, O[] results, int start, int end) {
+      this.items = items;
+      this.mapper = mapper;
+      this.results = results;
+      this.start = start;
+      this.end = end;
+    }
+    
+    @Override
+    protected Void compute() {
+      if (end - start <= BATCH) {
+        for (int i = start; i < end; i++) {
+          results[i] = mapper.map(items.get(i));
+        }
+      } else {
+        int mid = (start + end) >>> 1;
+        MapTask<I, O> left = new MapTask<>(items, mapper, results, start, mid);
+        left.fork();
+        new MapTask<>(items, mapper, results, mid, end).compute();
+        left.join();
+      }
+      return null;
+    }
+  }
+  
+  /**
+   * Lists the files beneath <code>root</code>, following only the
+   * <code>trunk</code> of any directory that has one.
+   */
+  static List<RepoFileImpl> listFiles(RepoFileImpl root) {
+    ListTask task = new ListTask(root);
+    if (isParallel()) {
+      return getPool().invoke(task);
+    } else {
+      return task.compute();
+    }
+  }
+  
+  private static class ListTask extends RecursiveTask<List<RepoFileImpl>> {
+    private static final long serialVersionUID = 1L;
+    
+    private final RepoFileImpl dir;
+    
+    private ListTask(RepoFileImpl dir) {
+      this.dir = dir;
+    }
+    
+    @Override
+    protected List<RepoFileImpl> compute() {
+      Collection<RepoFileImpl> children = dir.getChildren();
+      // See if this directory has a "trunk"
+      for (RepoFileImpl child : children) {
+        if (child.isDirectory() && child.getName().equals("trunk")) {
+          return new ListTask(child).compute();
+        }
+      }
+      
+      // Files come first, then each subdirectory in reverse, as a depth-first stack would produce
+      List<RepoFileImpl> files = new ArrayList<>();
+      List<ListTask> subdirs = new ArrayList<>();
+      for (RepoFileImpl child : children) {
+        if (child.isDirectory()) {
+          ListTask task = new ListTask(child);
+          if (inForkJoinPool()) {
+            task.fork();
+          }
+          subdirs.add(task);
+        } else {
+          files.add(child);
+        }
+      }
+      for (int i = subdirs.size() - 1; i >= 0; i--) {
+        ListTask task = subdirs.get(i);
+        files.addAll(inForkJoinPool() ? task.join() : task.compute());
+      }
+      return files;
+    }
+  }
+}
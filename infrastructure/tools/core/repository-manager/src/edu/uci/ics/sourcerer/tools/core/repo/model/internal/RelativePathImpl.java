@@ -37,7 +37,7 @@ final class RelativePathImpl implements RelativePath {
     this.relativePath = relativePath;
   }
   
-  private static RelativePathImpl intern(String relativePath) {
+  private static synchronized RelativePathImpl intern(String relativePath) {
     relativePath = relativePath.intern();
     RelativePathImpl path = interned.get(relativePath);
     if (path == null) {
@@ -0,0 +1,55 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.benchmarks;
+
+import java.io.IOException;
+
+/**
+ * A single hot path, timed in passes over the synthetic data.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public abstract class Benchmark {
+  private final String name;
+  
+  protected Benchmark(String name) {
+    this.name = name;
+  }
+  
+  public final String getName() {
+    return name;
+  }
+  
+  /**
+   * Prepares the inputs. Not timed.
+   */
+  protected abstract void setup(SyntheticData data) throws IOException;
+  
+  /**
+   * Number of operations performed by each call to <code>run</code>.
+   */
+  protected abstract int getOperationCount();
+  
+  /**
+   * Makes one pass over the inputs. The result should depend on all
+   * the work done, so that none of it can be optimized away.
+   */
+  protected abstract long run() throws IOException;
+  
+  protected void teardown() {}
+}
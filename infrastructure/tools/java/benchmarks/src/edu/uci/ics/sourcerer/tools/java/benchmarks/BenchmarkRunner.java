@@ -0,0 +1,185 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.benchmarks;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.FileArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Runs each benchmark through a number of warmup iterations, followed by
+ * the measured ones. Every iteration repeats passes over the data until
+ * <code>benchmark-iteration-millis</code> have elapsed, and is scored in
+ * nanoseconds per operation.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class BenchmarkRunner {
+  public static final Argument<String> FILTER = new StringArgument("benchmark-filter", "", "Only runs the benchmarks whose names contain this.");
+  public static final Argument<Integer> WARMUP_ITERATIONS = new IntegerArgument("benchmark-warmup-iterations", 5, "Number of untimed iterations per benchmark.");
+  public static final Argument<Integer> ITERATIONS = new IntegerArgument("benchmark-iterations", 10, "Number of timed iterations per benchmark.");
+  public static final Argument<Integer> ITERATION_MILLIS = new IntegerArgument("benchmark-iteration-millis", 1000, "Minimum length of each iteration.");
+  public static final Argument<File> RESULTS = new FileArgument("benchmark-results", "File to write the results to.").permit();
+  public static final Argument<File> BASELINE = new FileArgument("benchmark-baseline", "Results file to compare against.").permit();
+  
+  // Keeps the results of each pass live
+  private static volatile long sink;
+  
+  private BenchmarkRunner() {}
+  
+  private static class Result {
+    private final String name;
+    private final double mean;
+    private final double stdDev;
+    
+    private Result(String name, double mean, double stdDev) {
+      this.name = name;
+      this.mean = mean;
+      this.stdDev = stdDev;
+    }
+  }
+  
+  public static void runBenchmarks(Collection<? extends Benchmark> benchmarks) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Running benchmarks");
+    
+    SyntheticData data = null;
+    try {
+      task.start("Generating synthetic data from " + SyntheticData.TEST_REPO.getValue().getPath());
+      data = SyntheticData.create();
+      task.report(data.getTypes().size() + " types, " + data.getMethods().size() + " methods and " + data.getClassFiles().size() + " class files");
+      task.finish();
+    } catch (IOException e) {
+      task.exception(e);
+      task.finish();
+      return;
+    }
+    
+    Map<String, Result> baseline = readResults();
+    List<Result> results = new ArrayList<>();
+    for (Benchmark benchmark : benchmarks) {
+      if (benchmark.getName().contains(FILTER.getValue())) {
+        task.start("Benchmarking " + benchmark.getName());
+        try {
+          Result result = run(benchmark, data);
+          results.add(result);
+          Result base = baseline.get(result.name);
+          if (base == null) {
+            task.report(String.format("%,.1f ns/op (+/- %,.1f)", result.mean, result.stdDev));
+          } else {
+            task.report(String.format("%,.1f ns/op (+/- %,.1f), %+.1f%% against the baseline of %,.1f ns/op", result.mean, result.stdDev, 100 * (result.mean - base.mean) / base.mean, base.mean));
+          }
+          task.finish();
+        } catch (IOException e) {
+          task.exception(e);
+        }
+      }
+    }
+    
+    writeResults(results);
+    task.finish();
+  }
+  
+  private static Result run(Benchmark benchmark, SyntheticData data) throws IOException {
+    benchmark.setup(data);
+    try {
+      for (int i = 0; i < WARMUP_ITERATIONS.getValue(); i++) {
+        iterate(benchmark);
+      }
+      double[] scores = new double[ITERATIONS.getValue()];
+      double sum = 0;
+      for (int i = 0; i < scores.length; i++) {
+        scores[i] = iterate(benchmark);
+        sum += scores[i];
+      }
+      double mean = sum / scores.length;
+      double variance = 0;
+      for (double score : scores) {
+        variance += (score - mean) * (score - mean);
+      }
+      return new Result(benchmark.getName(), mean, scores.length > 1 ? Math.sqrt(variance / (scores.length - 1)) : 0);
+    } finally {
+      benchmark.teardown();
+    }
+  }
+  
+  private static double iterate(Benchmark benchmark) throws IOException {
+    long minimum = ITERATION_MILLIS.getValue() * 1000000l;
+    long operations = 0;
+    long result = 0;
+    long start = System.nanoTime();
+    long elapsed = 0;
+    do {
+      result += benchmark.run();
+      operations += benchmark.getOperationCount();
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < minimum);
+    sink += result;
+    return (double) elapsed / operations;
+  }
+  
+  private static Map<String, Result> readResults() {
+    Map<String, Result> results = new HashMap<>();
+    if (BASELINE.hasValue()) {
+      try (BufferedReader reader = IOUtils.createBufferedReader(BASELINE.getValue())) {
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          if (!line.startsWith("#") && !line.trim().isEmpty()) {
+            String[] parts = line.split("\t");
+            results.put(parts[0], new Result(parts[0], Double.parseDouble(parts[1]), Double.parseDouble(parts[2])));
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        logger.log(Level.SEVERE, "Unable to read baseline: " + BASELINE.getValue().getPath(), e);
+      }
+    }
+    return results;
+  }
+  
+  private static void writeResults(List<Result> results) {
+    if (RESULTS.hasValue()) {
+      try (BufferedWriter writer = IOUtils.makeBufferedWriter(RESULTS.getValue())) {
+        writer.write("# benchmark\tns/op\tstddev");
+        writer.newLine();
+        writer.write("# java " + System.getProperty("java.version") + ", " + Runtime.getRuntime().availableProcessors() + " processors, scale " + SyntheticData.SCALE.getValue());
+        writer.newLine();
+        for (Result result : results) {
+          writer.write(String.format("%s\t%.2f\t%.2f", result.name, result.mean, result.stdDev));
+          writer.newLine();
+        }
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Unable to write results: " + RESULTS.getValue().getPath(), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.benchmarks;
+
+import java.util.List;
+
+import edu.uci.ics.sourcerer.tools.java.component.model.fqn.FqnNode;
+
+/**
+ * Builds a fresh fqn tree from the synthetic types, then looks each of
+ * them up again.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class FqnNodeBenchmark extends Benchmark {
+  private List<String> types;
+  
+  public FqnNodeBenchmark() {
+    super("fqn-node-get-child");
+  }
+  
+  @Override
+  protected void setup(SyntheticData data) {
+    types = data.getTypes();
+  }
+  
+  @Override
+  protected int getOperationCount() {
+    return 2 * types.size();
+  }
+  
+  @Override
+  protected long run() {
+    FqnNode root = FqnNode.createRoot();
+    long result = 0;
+    for (String type : types) {
+      result += root.getChild(type, '.').getName().length();
+    }
+    for (String type : types) {
+      result += root.getChild(type, '.').getName().length();
+    }
+    return result;
+  }
+}
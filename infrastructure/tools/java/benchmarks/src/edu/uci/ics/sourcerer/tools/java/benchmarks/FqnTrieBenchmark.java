@@ -0,0 +1,116 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.benchmarks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import edu.uci.ics.sourcerer.tools.java.component.model.fqn.FqnNode;
+import edu.uci.ics.sourcerer.tools.java.component.model.fqn.FqnTrie;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Looks up every fqn of a large corpus, in random order, from either an
+ * {@link FqnNode} tree or an {@link FqnTrie}. The corpus copies each
+ * synthetic type under a new simple name until it is
+ * <code>benchmark-fqn-count</code> long, so packages end up with
+ * thousands of children. The heap taken up by the structure is reported
+ * once it is released.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class FqnTrieBenchmark extends Benchmark {
+  public static final Argument<Integer> FQN_COUNT = new IntegerArgument("benchmark-fqn-count", 1000000, "Number of fqns in the lookup corpus.");
+  
+  private final boolean trie;
+  private String[] corpus;
+  private FqnNode root;
+  private FqnTrie fqns;
+  private long usedMemory;
+  
+  public FqnTrieBenchmark(boolean trie) {
+    super(trie ? "fqn-trie-lookup" : "fqn-node-lookup");
+    this.trie = trie;
+  }
+  
+  @Override
+  protected void setup(SyntheticData data) {
+    List<String> types = data.getTypes();
+    corpus = new String[FQN_COUNT.getValue()];
+    for (int i = 0; i < corpus.length; i++) {
+      corpus[i] = types.get(i % types.size()) + "_" + (i / types.size());
+    }
+    
+    if (trie) {
+      fqns = FqnTrie.create();
+      for (String fqn : corpus) {
+        fqns.getChild(fqn, '.');
+      }
+    } else {
+      root = FqnNode.createRoot();
+      for (String fqn : corpus) {
+        root.getChild(fqn, '.');
+      }
+    }
+    usedMemory = getUsedMemory();
+    
+    Collections.shuffle(Arrays.asList(corpus), new Random(0));
+  }
+  
+  private static long getUsedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+  
+  @Override
+  protected int getOperationCount() {
+    return corpus.length;
+  }
+  
+  @Override
+  protected long run() {
+    long result = 0;
+    if (trie) {
+      for (String fqn : corpus) {
+        result += fqns.lookup(fqn, '.');
+      }
+    } else {
+      for (String fqn : corpus) {
+        result += root.lookup(fqn, '.').getName().length();
+      }
+    }
+    return result;
+  }
+  
+  @Override
+  protected void teardown() {
+    // Measured by difference, as whatever else is live stays in both
+    root = null;
+    fqns = null;
+    long used = usedMemory - getUsedMemory();
+    TaskProgressLogger.get().report(String.format("%,d fqns held in %,.1f MB, %.1f bytes per fqn", corpus.length, used / (1024. * 1024.), (double) used / corpus.length));
+    corpus = null;
+  }
+}
@@ -0,0 +1,67 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
+import edu.uci.ics.sourcerer.util.Pair;
+import edu.uci.ics.sourcerer.util.type.TypeUtils;
+
+/**
+ * Renders the entity and relation inserts for each synthetic method, as
+ * the insert batchers do.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class InsertBenchmark extends Benchmark {
+  private List<Pair<String, String>> methods;
+  
+  public InsertBenchmark() {
+    super("insert-to-string");
+  }
+  
+  @Override
+  protected void setup(SyntheticData data) {
+    methods = new ArrayList<>();
+    for (String method : data.getMethods()) {
+      methods.add(TypeUtils.breakParams(method));
+    }
+  }
+  
+  @Override
+  protected int getOperationCount() {
+    return 2 * methods.size();
+  }
+  
+  @Override
+  protected long run() {
+    long result = 0;
+    int id = 0;
+    for (Pair<String, String> method : methods) {
+      result += EntitiesTable.createInsert(Entity.METHOD, method.getFirst(), method.getSecond(), 1).toString().length();
+      result += RelationsTable.makeInsert(Relation.CALLS, RelationClass.INTERNAL, id, id + 1, 1, id++).toString().length();
+    }
+    return result;
+  }
+}
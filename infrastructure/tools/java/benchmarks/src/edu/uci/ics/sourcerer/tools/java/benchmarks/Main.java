@@ -0,0 +1,53 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.benchmarks;
+
+import java.util.Arrays;
+
+import edu.uci.ics.sourcerer.tools.java.component.model.jar.ClusterIdentifierBenchmark;
+import edu.uci.ics.sourcerer.tools.java.component.model.jar.Fingerprint;
+import edu.uci.ics.sourcerer.tools.java.component.model.jar.FingerprintBenchmark;
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class Main {
+  public static final Command RUN_BENCHMARKS = new Command("run-benchmarks", "Times the pipeline hot paths against synthetic data.") {
+    @Override
+    protected void action() {
+      BenchmarkRunner.runBenchmarks(Arrays.asList(
+          new SimpleDeserializerBenchmark(),
+          new TypeUtilsBenchmark(),
+          new FqnNodeBenchmark(),
+          new FqnTrieBenchmark(true),
+          new FqnTrieBenchmark(false),
+          new FingerprintBenchmark(Fingerprint.Mode.HASH),
+          new FingerprintBenchmark(Fingerprint.Mode.NAME),
+          new FingerprintBenchmark(Fingerprint.Mode.TYPE),
+          new InsertBenchmark(),
+          new ClusterIdentifierBenchmark(1.),
+          new ClusterIdentifierBenchmark(.8)));
+    }
+  }.setProperties(SyntheticData.TEST_REPO, SyntheticData.TEST_CLASSES, SyntheticData.SCALE, FqnTrieBenchmark.FQN_COUNT,
+      BenchmarkRunner.FILTER, BenchmarkRunner.WARMUP_ITERATIONS, BenchmarkRunner.ITERATIONS, BenchmarkRunner.ITERATION_MILLIS);
+  
+  public static void main(String[] args) {
+    Command.execute(args, Main.class);
+  }
+}
@@ -0,0 +1,84 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.EntityEX;
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.tools.java.model.types.Location;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifier;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifiers;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.SimpleSerializer;
+import edu.uci.ics.sourcerer.util.type.TypeUtils;
+
+/**
+ * Reads back an entities file written for the synthetic methods.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class SimpleDeserializerBenchmark extends Benchmark {
+  private File file;
+  private int count;
+  
+  public SimpleDeserializerBenchmark() {
+    super("simple-deserializer");
+  }
+  
+  @Override
+  protected void setup(SyntheticData data) throws IOException {
+    Collection<EntityEX> entities = new ArrayList<>();
+    Modifiers modifiers = Modifiers.make(Modifier.PUBLIC, Modifier.STATIC);
+    int offset = 0;
+    for (String method : data.getMethods()) {
+      String params = TypeUtils.breakParams(method).getSecond();
+      Location location = new Location(null, method.replace('.', '/') + ".java", offset, method.length());
+      entities.add(new EntityEX(Entity.METHOD, TypeUtils.getMethodName(method), params, TypeUtils.erase(params), modifiers, null, location));
+      offset += method.length();
+    }
+    count = entities.size();
+    
+    file = File.createTempFile("entities", ".txt");
+    try (SimpleSerializer serializer = IOUtils.makeSimpleSerializer(file)) {
+      serializer.serialize(entities);
+    }
+  }
+  
+  @Override
+  protected int getOperationCount() {
+    return count;
+  }
+  
+  @Override
+  protected long run() throws IOException {
+    long result = 0;
+    for (EntityEX entity : IOUtils.deserialize(EntityEX.class, file, true)) {
+      result += entity.getFqn().length() + entity.getLocation().getOffset();
+    }
+    return result;
+  }
+  
+  @Override
+  protected void teardown() {
+    file.delete();
+  }
+}
@@ -0,0 +1,208 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.FileArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+
+/**
+ * Type and method fqns scraped from the sources of the extractor's
+ * test repository, replicated across <code>benchmark-scale</code>
+ * synthetic packages, plus the class files compiled from it.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class SyntheticData {
+  public static final Argument<File> TEST_REPO = new FileArgument("benchmark-test-repo", new File("../infrastructure/tools/java/extractor/test-repo"), "Test repository the synthetic data is generated from.");
+  public static final Argument<File> TEST_CLASSES = new FileArgument("benchmark-classes", new File("dist/benchmark-classes.jar"), "Jar of classes compiled from the test repository.");
+  public static final Argument<Integer> SCALE = new IntegerArgument("benchmark-scale", 100, "Number of synthetic copies of the test repository.");
+  
+  private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/|//[^\n]*", Pattern.DOTALL);
+  private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+  private static final Pattern TYPE = Pattern.compile("\\b(?:class|interface|enum)\\s+(\\w+)");
+  private static final Pattern METHOD = Pattern.compile("(\\w+)\\s*\\(([^()]*)\\)\\s*(?:throws[^{;]*)?\\{");
+  private static final Pattern SIMPLE_NAME = Pattern.compile("(?<![\\w.])([A-Z]\\w*)");
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList("if", "for", "while", "switch", "catch", "synchronized", "return", "new"));
+  
+  private final List<String> types;
+  private final List<String> methods;
+  private final List<byte[]> classFiles;
+  
+  private SyntheticData(List<String> types, List<String> methods, List<byte[]> classFiles) {
+    this.types = types;
+    this.methods = methods;
+    this.classFiles = classFiles;
+  }
+  
+  static SyntheticData create() throws IOException {
+    Collection<File> sources = new ArrayList<>();
+    collectSources(TEST_REPO.getValue(), sources);
+    
+    Map<String, String> typeNames = new HashMap<>();
+    List<String> baseTypes = new ArrayList<>();
+    List<String> baseMethods = new ArrayList<>();
+    List<String> contents = new ArrayList<>();
+    for (File source : sources) {
+      StringBuilder builder = new StringBuilder();
+      for (String line : FileUtils.readFileToCollection(source)) {
+        builder.append(line).append('\n');
+      }
+      String content = COMMENT.matcher(builder).replaceAll("");
+      contents.add(content);
+      String pkg = getPackage(content);
+      for (Matcher matcher = TYPE.matcher(content); matcher.find();) {
+        String fqn = pkg + matcher.group(1);
+        if (!typeNames.containsKey(matcher.group(1))) {
+          typeNames.put(matcher.group(1), fqn);
+          baseTypes.add(fqn);
+        }
+      }
+    }
+    
+    int i = 0;
+    for (File source : sources) {
+      String content = contents.get(i++);
+      String owner = getPackage(content) + source.getName().substring(0, source.getName().length() - 5);
+      for (Matcher matcher = METHOD.matcher(content); matcher.find();) {
+        if (!KEYWORDS.contains(matcher.group(1))) {
+          baseMethods.add(owner + "." + matcher.group(1) + "(" + getParams(matcher.group(2), typeNames) + ")");
+        }
+      }
+    }
+    
+    List<String> types = new ArrayList<>(baseTypes.size() * SCALE.getValue());
+    List<String> methods = new ArrayList<>(baseMethods.size() * SCALE.getValue());
+    for (int copy = 0; copy < SCALE.getValue(); copy++) {
+      for (String type : baseTypes) {
+        types.add("p" + copy + "." + type);
+      }
+      for (String method : baseMethods) {
+        methods.add("p" + copy + "." + method);
+      }
+    }
+    
+    List<byte[]> classFiles = new ArrayList<>();
+    try (JarFile jar = new JarFile(TEST_CLASSES.getValue())) {
+      for (JarEntry entry : Collections.list(jar.entries())) {
+        if (entry.getName().endsWith(".class")) {
+          classFiles.add(IOUtils.getInputStreamAsByteArray(jar.getInputStream(entry), (int) entry.getSize()));
+        }
+      }
+    }
+    
+    return new SyntheticData(types, methods, classFiles);
+  }
+  
+  private static void collectSources(File dir, Collection<File> sources) {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      Arrays.sort(files);
+      for (File file : files) {
+        if (file.isDirectory()) {
+          collectSources(file, sources);
+        } else if (file.getName().endsWith(".java")) {
+          sources.add(file);
+        }
+      }
+    }
+  }
+  
+  private static String getPackage(String content) {
+    Matcher matcher = PACKAGE.matcher(content);
+    return matcher.find() ? matcher.group(1) + "." : "";
+  }
+  
+  private static String getParams(String params, Map<String, String> typeNames) {
+    StringBuilder result = new StringBuilder();
+    int depth = 0;
+    int start = 0;
+    for (int i = 0; i <= params.length(); i++) {
+      char c = i < params.length() ? params.charAt(i) : ',';
+      if (c == '<') {
+        depth++;
+      } else if (c == '>') {
+        depth--;
+      } else if (c == ',' && depth == 0) {
+        String param = params.substring(start, i).trim().replaceAll("@\\w+\\s*|\\bfinal\\s+", "");
+        int space = param.lastIndexOf(' ');
+        if (space > 0) {
+          String type = param.substring(0, space).trim().replace("...", "[]");
+          if (result.length() > 0) {
+            result.append(',');
+          }
+          result.append(qualify(type, typeNames));
+        }
+        start = i + 1;
+      }
+    }
+    return result.toString();
+  }
+  
+  private static String qualify(String type, Map<String, String> typeNames) {
+    Matcher matcher = SIMPLE_NAME.matcher(type);
+    StringBuffer result = new StringBuffer();
+    while (matcher.find()) {
+      String name = matcher.group(1);
+      String fqn = typeNames.get(name);
+      if (fqn == null) {
+        // Single letters are most likely type variables
+        fqn = name.length() == 1 ? name : "java.lang." + name;
+      }
+      matcher.appendReplacement(result, fqn);
+    }
+    matcher.appendTail(result);
+    return result.toString().replaceAll("\\?\\s+extends\\s+", "?+").replaceAll("\\?\\s+super\\s+", "?-").replace(" ", "");
+  }
+  
+  /**
+   * Dotted type fqns.
+   */
+  public List<String> getTypes() {
+    return types;
+  }
+  
+  /**
+   * Method fqns, with fully qualified parameters.
+   */
+  public List<String> getMethods() {
+    return methods;
+  }
+  
+  public List<byte[]> getClassFiles() {
+    return classFiles;
+  }
+}
@@ -0,0 +1,89 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uci.ics.sourcerer.util.Pair;
+import edu.uci.ics.sourcerer.util.type.TypeUtils;
+
+/**
+ * Breaks apart and erases every synthetic method fqn and its parameters.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class TypeUtilsBenchmark extends Benchmark {
+  private List<String> methods;
+  private List<String> params;
+  
+  public TypeUtilsBenchmark() {
+    super("type-utils");
+  }
+  
+  @Override
+  protected void setup(SyntheticData data) {
+    methods = data.getMethods();
+    params = new ArrayList<>();
+    for (String method : methods) {
+      String sig = TypeUtils.breakParams(method).getSecond();
+      int depth = 0;
+      int start = 1;
+      for (int i = 1; i < sig.length(); i++) {
+        char c = sig.charAt(i);
+        if (c == '<') {
+          depth++;
+        } else if (c == '>') {
+          depth--;
+        } else if ((c == ',' && depth == 0) || i == sig.length() - 1) {
+          if (i > start) {
+            params.add(sig.substring(start, i));
+          }
+          start = i + 1;
+        }
+      }
+    }
+  }
+  
+  @Override
+  protected int getOperationCount() {
+    return methods.size() + params.size();
+  }
+  
+  @Override
+  protected long run() {
+    long result = 0;
+    for (String method : methods) {
+      result += TypeUtils.erase(method).length();
+      Pair<String, String> parts = TypeUtils.breakParams(method);
+      result += TypeUtils.countParams(parts.getSecond());
+      result += TypeUtils.breakMethod(method).getSecond().length();
+    }
+    for (String param : params) {
+      if (TypeUtils.isArray(param)) {
+        result += TypeUtils.breakArray(param).getSecond();
+      } else if (TypeUtils.isParametrizedType(param)) {
+        result += TypeUtils.getBaseType(param).length();
+        result += TypeUtils.breakParametrizedType(param).size();
+      } else {
+        result += param.length();
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,78 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.model.jar;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.java.benchmarks.Benchmark;
+import edu.uci.ics.sourcerer.tools.java.benchmarks.SyntheticData;
+import edu.uci.ics.sourcerer.tools.java.component.identifier.internal.ClusterIdentifier;
+
+/**
+ * Identifies the clusters in a {@link SyntheticJarCollection}.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class ClusterIdentifierBenchmark extends Benchmark {
+  private static final int JARS_PER_SCALE = 5;
+  private static final int LIBRARIES_PER_SCALE = 2;
+  
+  private final double threshold;
+  private JarCollection jars;
+  private Level level;
+  
+  public ClusterIdentifierBenchmark(double threshold) {
+    super(threshold >= 1. ? "cluster-identifier-full" : "cluster-identifier-" + threshold);
+    this.threshold = threshold;
+  }
+  
+  @Override
+  protected void setup(SyntheticData data) {
+    // Not registered by the benchmark command
+    ClusterIdentifier.COMPATIBILITY_THRESHOLD.permit().setValue(threshold);
+    
+    int scale = SyntheticData.SCALE.getValue();
+    jars = SyntheticJarCollection.create(0, LIBRARIES_PER_SCALE * scale, JARS_PER_SCALE * scale);
+    
+    // Keep the per-pass task logging quiet
+    level = logger.getLevel();
+    logger.setLevel(Level.WARNING);
+  }
+  
+  @Override
+  protected int getOperationCount() {
+    return jars.size();
+  }
+  
+  @Override
+  protected long run() {
+    if (threshold >= 1.) {
+      return ClusterIdentifier.identifyFullyMatchingClusters(jars).size();
+    } else {
+      return ClusterIdentifier.identifyClusters(jars).size();
+    }
+  }
+  
+  @Override
+  protected void teardown() {
+    logger.setLevel(level);
+    jars = null;
+  }
+}
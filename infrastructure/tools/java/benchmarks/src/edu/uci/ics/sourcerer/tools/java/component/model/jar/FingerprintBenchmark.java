@@ -0,0 +1,62 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.model.jar;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import edu.uci.ics.sourcerer.tools.java.benchmarks.Benchmark;
+import edu.uci.ics.sourcerer.tools.java.benchmarks.SyntheticData;
+
+/**
+ * Fingerprints the compiled test repository classes. Lives in this package
+ * because {@link Fingerprint#create} is package private.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class FingerprintBenchmark extends Benchmark {
+  private final Fingerprint.Mode mode;
+  private List<byte[]> classFiles;
+  
+  public FingerprintBenchmark(Fingerprint.Mode mode) {
+    super("fingerprint-" + mode.name().toLowerCase());
+    this.mode = mode;
+  }
+  
+  @Override
+  protected void setup(SyntheticData data) {
+    // Not registered by the benchmark command, as each benchmark picks its own mode
+    Fingerprint.FINGERPRINT_MODE.permit().setValue(mode);
+    classFiles = data.getClassFiles();
+  }
+  
+  @Override
+  protected int getOperationCount() {
+    return classFiles.size();
+  }
+  
+  @Override
+  protected long run() throws IOException {
+    long result = 0;
+    for (byte[] classFile : classFiles) {
+      result += Fingerprint.create(new ByteArrayInputStream(classFile), classFile.length).hashCode();
+    }
+    return result;
+  }
+}
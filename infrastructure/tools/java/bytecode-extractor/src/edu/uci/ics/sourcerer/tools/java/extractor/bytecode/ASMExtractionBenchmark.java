@@ -0,0 +1,102 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.extractor.bytecode;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.EntityWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.FileWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.LocalVariableWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.RelationWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepository;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Compares single-threaded ASM extraction of the Maven jars against
+ * {@link ParallelASMExtractor}, writing to a scratch directory.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class ASMExtractionBenchmark {
+  public static final Argument<Integer> JAR_COUNT = new IntegerArgument("benchmark-jar-count", 500, "Number of Maven jars to extract.");
+  
+  private ASMExtractionBenchmark() {}
+  
+  public static void run() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    WriterBundle.ENTITY_WRITER.setValue(EntityWriterImpl.class);
+    WriterBundle.RELATION_WRITER.setValue(RelationWriterImpl.class);
+    WriterBundle.FILE_WRITER.setValue(FileWriterImpl.class);
+    WriterBundle.LOCAL_VARIABLE_WRITER.setValue(LocalVariableWriterImpl.class);
+    
+    task.start("Benchmarking ASM jar extraction");
+    
+    JavaRepository repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(JavaRepositoryFactory.INPUT_REPO);
+    List<JarFile> jars = new ArrayList<>();
+    for (JarFile jar : repo.getMavenJarFiles()) {
+      if (jars.size() == JAR_COUNT.getValue()) {
+        break;
+      }
+      jars.add(jar);
+    }
+    
+    // The baseline matches the old path: one jar at a time, entries read serially
+    int threads = ParallelASMExtractor.THREAD_COUNT.getValue();
+    int readers = ASMExtractor.ENTRY_READER_THREADS.getValue();
+    ASMExtractor.ENTRY_READER_THREADS.setValue(1);
+    run(jars, 1, task);
+    ASMExtractor.ENTRY_READER_THREADS.setValue(readers);
+    run(jars, threads, task);
+    
+    task.finish();
+  }
+  
+  private static void run(List<JarFile> jars, int threads, TaskProgressLogger task) {
+    final File output = new File(FileUtils.getTempDir(), "asm-benchmark");
+    FileUtils.delete(output);
+    
+    task.start("Extracting " + jars.size() + " jars with " + threads + " threads");
+    ParallelASMExtractor.THREAD_COUNT.setValue(threads);
+    new ParallelASMExtractor<JarFile>() {
+      private final AtomicInteger next = new AtomicInteger();
+      
+      @Override
+      protected File getJarFile(JarFile jar) {
+        return jar.getFile().toFile();
+      }
+      
+      @Override
+      protected WriterBundle createWriters(JarFile jar) {
+        return new WriterBundle(new File(output, Integer.toString(next.getAndIncrement())));
+      }
+    }.extract(jars);
+    task.finish();
+    
+    FileUtils.delete(output);
+  }
+}
@@ -20,14 +20,23 @@ package edu.uci.ics.sourcerer.tools.java.extractor.bytecode;
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.logging.Level;
@@ -59,12 +68,17 @@ import edu.uci.ics.sourcerer.tools.java.model.types.Metrics;
 import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
 import edu.uci.ics.sourcerer.util.Helper;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class ASMExtractor implements Closeable {
+  public static final Argument<Integer> ENTRY_READER_THREADS = new IntegerArgument("asm-entry-reader-threads", 4, "Threads used to read the class files of a large jar.").permit();
+  public static final Argument<Integer> LARGE_JAR_ENTRIES = new IntegerArgument("asm-large-jar-entries", 2000, "Number of class files at which a jar's entries are read in parallel.").permit();
+  
   private WriterBundle writers;
   
   private FileWriter fileWriter;
@@ -96,28 +110,31 @@ public class ASMExtractor implements Closeable {
     IOUtils.close(writers);
   }
   
-  public void extractJar(java.io.File file) {
+  /**
+   * Extracts every class file in the jar, returning the number of class
+   * files read. Jars with at least <code>LARGE_JAR_ENTRIES</code> class
+   * files have their entries read and inflated by a pool of threads,
+   * though they are still visited in order on the calling thread.
+   */
+  public int extractJar(java.io.File file) {
     TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Extracting class files", "class files extracted", 500);
+    int count = 0;
     try (JarFile jar = new JarFile(file)) {
+      List<JarEntry> entries = new ArrayList<>();
       Enumeration<JarEntry> en = jar.entries();
       while (en.hasMoreElements()) {
         JarEntry entry = en.nextElement();
         if (entry.getName().endsWith(".class")) {
-//          String pkgFqn = convertNameToFqn(entry.getName());
-//          location = new Location(pkgFqn, null, null, null);
-//          int last = pkgFqn.lastIndexOf('.', pkgFqn.lastIndexOf('.') - 1);
-//          String name = pkgFqn.substring(last + 1);
-//          if (last == -1) {
-//            logger.severe("No pkg for: " + entry.getName());
-//            pkgFqn = "default";
-//          } else {
-//            pkgFqn = pkgFqn.substring(0, last);
-//          }
-          
-//          entityWriter.writeEntity(Entity.PACKAGE, pkgFqn, 0, null, null);
-          
-//          fqnStack.push(pkgFqn, Entity.PACKAGE);
+          entries.add(entry);
+        }
+      }
+      
+      int threads = ENTRY_READER_THREADS.getValue();
+      if (threads > 1 && entries.size() >= LARGE_JAR_ENTRIES.getValue()) {
+        count = extractEntriesInParallel(jar, entries, threads, task);
+      } else {
+        for (JarEntry entry : entries) {
           try {
             ClassReader reader = new ClassReader(jar.getInputStream(entry));
             reader.accept(classVisitor, 0);
@@ -128,6 +145,7 @@ public class ASMExtractor implements Closeable {
           fqnStack.pop();
           location = null;
           task.progress();
+          count++;
         }
       }
       task.finish();
@@ -136,6 +154,44 @@ public class ASMExtractor implements Closeable {
     }
 
     FindBugsRunner.runFindBugs(file, writers.getOutput());
+    return count;
+  }
+  
+  private int extractEntriesInParallel(final JarFile jar, List<JarEntry> entries, int threads, TaskProgressLogger task) throws InterruptedException {
+    ExecutorService readers = Executors.newFixedThreadPool(threads);
+    try {
+      // Keep a bounded window of reads in flight, consuming them in entry order
+      Deque<Future<byte[]>> pending = new LinkedList<>();
+      Iterator<JarEntry> iter = entries.iterator();
+      int count = 0;
+      for (JarEntry next : entries) {
+        while (iter.hasNext() && pending.size() < threads * 4) {
+          final JarEntry entry = iter.next();
+          pending.add(readers.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+              return IOUtils.getInputStreamAsByteArray(jar.getInputStream(entry), (int) Math.max(entry.getSize(), 1024));
+            }
+          }));
+        }
+        try {
+          ClassReader reader = new ClassReader(pending.remove().get());
+          reader.accept(classVisitor, 0);
+        } catch (ExecutionException e) {
+          logger.log(Level.SEVERE, "Error reading class file: " + next.getName(), e.getCause());
+        } catch (Exception e) {
+          logger.log(Level.SEVERE, "Error reading class file: " + next.getName(), e);
+        }
+        
+        fqnStack.pop();
+        location = null;
+        task.progress();
+        count++;
+      }
+      return count;
+    } finally {
+      readers.shutdownNow();
+    }
   }
   
   public void extract(byte[] bytes) {
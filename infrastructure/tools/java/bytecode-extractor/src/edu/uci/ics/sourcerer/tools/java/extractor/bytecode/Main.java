@@ -19,7 +19,9 @@ package edu.uci.ics.sourcerer.tools.java.extractor.bytecode;
 
 import java.io.File;
 
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.FindBugsRunner;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.arguments.Command;
 
@@ -34,6 +36,14 @@ public class Main {
       extractor.extract(FileUtils.getFileAsByteArray(new File("/home/jossher/research/Sourcerer/Foo.class")));
     }
   };
+  
+  public static final Command BENCHMARK_ASM_EXTRACTION = new Command("benchmark-asm-extraction", "Compares serial and parallel ASM extraction of the Maven jars.") {
+    @Override
+    protected void action() {
+      ASMExtractionBenchmark.run();
+    }
+  }.setProperties(JavaRepositoryFactory.INPUT_REPO, ASMExtractionBenchmark.JAR_COUNT, ParallelASMExtractor.THREAD_COUNT, ASMExtractor.ENTRY_READER_THREADS, ASMExtractor.LARGE_JAR_ENTRIES, FindBugsRunner.FINDBUGS_JAR);
+  
   public static void main(String[] args) {
     Command.execute(args, Main.class);
   }
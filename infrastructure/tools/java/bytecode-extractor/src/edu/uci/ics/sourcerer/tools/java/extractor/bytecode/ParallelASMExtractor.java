@@ -0,0 +1,128 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.extractor.bytecode;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
+import edu.uci.ics.sourcerer.util.Nullerator;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.Logging;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Runs the ASM extractor over many jars at once. Every jar gets its own
+ * {@link WriterBundle} and {@link ASMExtractor}, so the threads share
+ * nothing but the queue of jars.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public abstract class ParallelASMExtractor<T> {
+  public static final Argument<Integer> THREAD_COUNT = new IntegerArgument("asm-extraction-threads", 4, "Number of jars extracted at once by the ASM extractor.").permit();
+  
+  private final AtomicInteger jarCount = new AtomicInteger();
+  private final AtomicInteger classCount = new AtomicInteger();
+  private volatile boolean stopped = false;
+  
+  /**
+   * Returns the jar to extract for <code>item</code>.
+   */
+  protected abstract File getJarFile(T item);
+  
+  /**
+   * Returns the writers for <code>item</code>, or null if it should be
+   * skipped. May be called by several threads at once.
+   */
+  protected abstract WriterBundle createWriters(T item);
+  
+  /**
+   * Called once the writers for <code>item</code> have been closed. May be
+   * called by several threads at once.
+   */
+  protected void finished(T item, boolean succeeded) {}
+  
+  public final void extract(Iterable<? extends T> items) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    int numThreads = THREAD_COUNT.getValue();
+    final Nullerator<T> nullerator = Nullerator.createNullerator(items, "Thread %s now extracting: %s");
+    
+    task.start("Extracting jars with " + numThreads + " threads");
+    long start = System.currentTimeMillis();
+    Collection<Thread> threads = new ArrayList<>(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      Thread t = new Thread("asm-extractor-" + i) {
+        @Override
+        public void run() {
+          Logging.addThreadLogger();
+          for (T item = nullerator.next(); item != null && !stopped; item = nullerator.next()) {
+            extract(item);
+          }
+          Logging.removeThreadLogger();
+        }
+      };
+      threads.add(t);
+      t.start();
+    }
+    
+    for (Thread t : threads) {
+      try {
+        t.join();
+      } catch (InterruptedException e) {
+        logger.log(Level.SEVERE, "Interrupted, stopping extraction", e);
+        stopped = true;
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    
+    double seconds = Math.max(System.currentTimeMillis() - start, 1) / 1000.;
+    task.report(String.format("%d jars (%d class files) in %.1f seconds: %.2f jars/s, %.1f class files/s", jarCount.get(), classCount.get(), seconds, jarCount.get() / seconds, classCount.get() / seconds));
+    task.finish();
+  }
+  
+  private void extract(T item) {
+    WriterBundle writers = createWriters(item);
+    if (writers != null) {
+      boolean succeeded = false;
+      try (ASMExtractor extractor = new ASMExtractor(writers)) {
+        classCount.addAndGet(extractor.extractJar(getJarFile(item)));
+        succeeded = true;
+      } catch (Exception e) {
+        logger.log(Level.SEVERE, "Error extracting " + item, e);
+      }
+      jarCount.incrementAndGet();
+      finished(item, succeeded);
+    }
+  }
+  
+  public int getJarCount() {
+    return jarCount.get();
+  }
+  
+  public int getClassCount() {
+    return classCount.get();
+  }
+}
@@ -17,7 +17,11 @@
  */
 package edu.uci.ics.sourcerer.tools.java.component.identifier.internal;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
@@ -30,6 +34,7 @@ import edu.uci.ics.sourcerer.tools.java.component.model.jar.VersionedFqnNode;
 import edu.uci.ics.sourcerer.util.Averager;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.DoubleArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 
 /**
@@ -39,6 +44,7 @@ public class ClusterIdentifier {
   private ClusterIdentifier() {}
   
   public static final Argument<Double> COMPATIBILITY_THRESHOLD = new DoubleArgument("compatibility-threshold", 1., "");
+  public static final Argument<Integer> CLUSTER_THREADS = new IntegerArgument("cluster-threads", Runtime.getRuntime().availableProcessors(), "Threads used to identify and merge clusters.").permit();
   
   private static boolean areCompatible(Cluster one, Cluster two) {
     // Do a pairwise comparison of every FQN. Calculate the conditional
@@ -73,12 +79,14 @@ public class ClusterIdentifier {
           for (VersionedFqnNode otherFqn : two.getCoreFqns()) {
             JarSet fqnJars = fqn.getJars();
             JarSet otherFqnJars = otherFqn.getJars();
+            // The intersection is symmetric, so only compute it once
+            double shared = fqnJars.getIntersectionSize(otherFqnJars);
             // Conditional probability of other given this
             // # shared jars / total jars in this
-            otherGivenThis.addValue((double) fqnJars.getIntersectionSize(otherFqnJars) / fqnJars.size());
+            otherGivenThis.addValue(shared / fqnJars.size());
             // Conditional probabilty for this given other
             // # shared jars / total jars in other
-            thisGivenOther.addValue((double) otherFqnJars.getIntersectionSize(fqnJars) / otherFqnJars.size());
+            thisGivenOther.addValue(shared / otherFqnJars.size());
           }
         }
         return otherGivenThis.getMean() >= threshold && thisGivenOther.getMean() >= threshold;
@@ -86,65 +94,60 @@ public class ClusterIdentifier {
     }
   }
   
-  private static boolean areFullyCompatible(Cluster one, Cluster two) {
-//    if (one.getJars() == two.getJars()) {
-//      return true;
-//    } else if (one.getJars().isSubset(two.getJars()) && two.getJars().isSubset(one.getJars())) {
-//      System.out.println("foo");
-//      return true;
-//    } else {
-//      return false;
-//    }
-    return one.getJars() == two.getJars();
-  }
-  
+  /**
+   * Groups the fqns by the jars they appear in. Every fqn that occurs in
+   * exactly the same set of jars ends up in the same cluster, which is
+   * what merging fully compatible clusters up the fqn tree produces.
+   * Since JarSets are interned, they index the fqns directly, so no pair
+   * of clusters is ever compared.
+   * 
+   * Clusters are returned in the post-order of their first fqn.
+   */
   public static ClusterCollection identifyFullyMatchingClusters(JarCollection jars) {
     TaskProgressLogger task = TaskProgressLogger.get();
     
     task.start("Identifying fully matching clusters in " + jars.size() + " jar files");
     
-    Multimap<VersionedFqnNode, Cluster> clusterMap = ArrayListMultimap.create();
+    // Leaves always start out as clusters, other nodes only if they appear in jars themselves
+    List<VersionedFqnNode> fqns = new ArrayList<>();
+    for (VersionedFqnNode fqn : jars.getRoot().getPostOrderIterable()) {
+      if (!fqn.hasChildren() || fqn.getJars().size() > 0) {
+        fqns.add(fqn);
+      }
+    }
     
-    // Explore the tree in post-order
-    for (VersionedFqnNode parent : jars.getRoot().getPostOrderIterable()) {
-      // If it's a leaf, then it starts out as a trivial cluster
-      if (!parent.hasChildren()) {
-        clusterMap.put(parent, Cluster.create(parent));
-      } 
-      // If it has children, see what children always co-occur
-      else {
-        // Check if the node itself should be a cluster
-        if (parent.getJars().size() > 0) {
-          clusterMap.put(parent, Cluster.create(parent));
-        }
-        for (VersionedFqnNode child : parent.getChildren()) {
-          // Match the clusters from the children with the current clusters for this node
-          for (Cluster childCluster : clusterMap.get(child)) {
-            Cluster match = null;
-            // Which clusters have already been found for this fragment?
-            for (Cluster parentCluster : clusterMap.get(parent)) {
-              if (areFullyCompatible(childCluster, parentCluster)) {
-                // We found a match!
-                match = parentCluster;
-                // There can be only one, so break
-                break;
-              }
-            }
-            // If we found a match, merge
-            if (match != null) {
-              match.mergeCore(childCluster);
-            }
-            // Otherwise, promote the cluster
-            else {
-              clusterMap.put(parent, childCluster);
-            }
+    // Index each partition of the fqns by JarSet
+    List<Map<JarSet, Cluster>> partitions = ParallelClusterer.map(ParallelClusterer.partition(fqns), new ParallelClusterer.Mapper<List<VersionedFqnNode>, Map<JarSet, Cluster>>() {
+      @Override
+      public Map<JarSet, Cluster> map(List<VersionedFqnNode> partition) {
+        Map<JarSet, Cluster> clusters = new LinkedHashMap<>();
+        for (VersionedFqnNode fqn : partition) {
+          Cluster cluster = Cluster.create(fqn);
+          Cluster match = clusters.get(fqn.getJars());
+          if (match == null) {
+            clusters.put(fqn.getJars(), cluster);
+          } else {
+            match.mergeCore(cluster);
           }
-          clusterMap.removeAll(child);
+        }
+        return clusters;
+      }
+    });
+    
+    // Merge the partitions in order, so the first cluster for each JarSet wins
+    Map<JarSet, Cluster> clusterMap = new LinkedHashMap<>();
+    for (Map<JarSet, Cluster> partition : partitions) {
+      for (Map.Entry<JarSet, Cluster> entry : partition.entrySet()) {
+        Cluster match = clusterMap.get(entry.getKey());
+        if (match == null) {
+          clusterMap.put(entry.getKey(), entry.getValue());
+        } else {
+          match.mergeCore(entry.getValue());
         }
       }
     }
     
-    ClusterCollection clusters = ClusterCollection.create(clusterMap.get(jars.getRoot()));
+    ClusterCollection clusters = ClusterCollection.create(clusterMap.values());
     
     task.report("Identified " + clusters.size() + " fully matching clusters");
     
@@ -19,13 +19,16 @@ package edu.uci.ics.sourcerer.tools.java.component.identifier.internal;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.logging.Level;
 
 import com.google.common.collect.HashMultiset;
@@ -75,101 +78,91 @@ public class ClusterMerger {
    * This fixes the problem from above, but runs the risk of the issue mentioned above as well.
    */
   
+  // Below this many jars, scanning the versions is not worth forking
+  private static final int PARALLEL_JAR_COUNT = 64;
+  
+  private static class VersionScan {
+    private final Set<VersionedFqnNode> potentials = new HashSet<>();
+    private final Set<VersionedFqnNode> partials = new HashSet<>();
+  }
+  
   public static void mergeByVersions(ClusterCollection clusters) {
     TaskProgressLogger task = TaskProgressLogger.get();
     
     task.start("Merging " + clusters.size() + " clusters by matching versions");
     
-    TreeSet<Cluster> sortedClusters = new TreeSet<>(Cluster.DESCENDING_SIZE_COMPARATOR);
+    // Stable sort, so clusters of the same size keep their collection order
+    List<Cluster> sortedClusters = new ArrayList<>(clusters.getClusters());
+    Collections.sort(sortedClusters, new Comparator<Cluster>() {
+      @Override
+      public int compare(Cluster o1, Cluster o2) {
+        return -Integer.compare(o1.getJars().size(), o2.getJars().size());
+      }
+    });
     Map<VersionedFqnNode, Cluster> fqnToCluster = new HashMap<>();
-    for (Cluster cluster : clusters) {
-      sortedClusters.add(cluster);
+    for (Cluster cluster : sortedClusters) {
       for (VersionedFqnNode fqn : cluster.getCoreFqns()) {
         fqnToCluster.put(fqn, cluster);
       }
     }
     
     Collection<Cluster> remainingClusters = new LinkedList<>();
-    Set<VersionedFqnNode> usedFqns = new HashSet<>();
+    Set<Cluster> mergedClusters = new HashSet<>();
+    final Set<VersionedFqnNode> usedFqns = new HashSet<>();
     task.start("Merging clusters", "clusters examined", 500);
     // Starting from the most important jar
     // For each cluster
-    while (!sortedClusters.isEmpty()) {
-      Cluster biggest = sortedClusters.pollFirst();
+    for (final Cluster biggest : sortedClusters) {
+      if (mergedClusters.contains(biggest)) {
+        continue;
+      }
       remainingClusters.add(biggest);
 
       usedFqns.addAll(biggest.getCoreFqns());
       // Repeatedly add new fqns to the cluster, until no new ones can be added
       boolean addedSomething = true;
       while (addedSomething) {
-        Set<VersionedFqnNode> globalPotentials = new HashSet<>();
-        Set<VersionedFqnNode> globalPartials = new HashSet<>();
-
         // For each version, find any fqns that always occur
-        for (ClusterVersion version : biggest.getVersions()) {
-          Multiset<VersionedFqnNode> potentials = HashMultiset.create();
-          for (Jar jar : version.getJars()) {
-            for (FqnVersion fqn : jar.getFqns()) {
-              if (!usedFqns.contains(fqn.getFqn())) {
-                potentials.add(fqn.getFqn());
-              }
-            }
+        // The versions are independent, so they can be scanned in parallel
+        ParallelClusterer.Mapper<ClusterVersion, VersionScan> scanner = new ParallelClusterer.Mapper<ClusterVersion, VersionScan>() {
+          @Override
+          public VersionScan map(ClusterVersion version) {
+            return scan(biggest, version, usedFqns);
           }
-          
-          int max = version.getJars().size();
-          for (VersionedFqnNode fqn : potentials.elementSet()) {
-            if (potentials.count(fqn) > max) {
-              logger.severe("wtf! " + fqn.getFqn());
-              // Check the jars for duplicates
-              for (Jar jar : version.getJars()) {
-                for (FqnVersion node : jar.getFqns()) {
-                  if (node.getFqn() == fqn) {
-                    logger.severe(jar.getJar().getProperties().HASH.getValue() + " " + node.getFingerprint().serialize());
-                  }
-                }
-              }
-            }
-            if (potentials.count(fqn) == max && fqn.getJars().isSubset(biggest.getJars())) {
-              globalPotentials.add(fqn);
-            } else {
-              globalPartials.add(fqn);
-            }
+        };
+        List<ClusterVersion> versions = new ArrayList<>(biggest.getVersions());
+        List<VersionScan> scans = null;
+        if (biggest.getJars().size() < PARALLEL_JAR_COUNT) {
+          scans = new ArrayList<>(versions.size());
+          for (ClusterVersion version : versions) {
+            scans.add(scanner.map(version));
           }
+        } else {
+          scans = ParallelClusterer.map(versions, scanner);
+        }
+        
+        Set<VersionedFqnNode> globalPotentials = new HashSet<>();
+        Set<VersionedFqnNode> globalPartials = new HashSet<>();
+        for (VersionScan scan : scans) {
+          globalPotentials.addAll(scan.potentials);
+          globalPartials.addAll(scan.partials);
         }
         
         globalPotentials.removeAll(globalPartials);
         
         // Collect the clusters we plan on merging
-        Set<Cluster> newClusters = new HashSet<>();
         for (VersionedFqnNode fqn : globalPotentials) {
           Cluster newCluster = fqnToCluster.get(fqn);
           if (newCluster == null) {
             logger.log(Level.SEVERE, "Unable to find cluster for: " + fqn.getFqn());
           } else {
-            newClusters.add(newCluster);
+            // Remove the cluster from the queue
+            mergedClusters.add(newCluster);
             usedFqns.add(fqn);
             biggest.addVersionedCore(fqn);
           }
         }
         
-//        // Verify the clusters
-//        for (Cluster cluster : newClusters) {
-//          for (VersionedFqnNode fqn : cluster.getCoreFqns()) {
-//            if (!globalPotentials.contains(fqn)) {
-//              logger.severe("Cluster included without fqn: " + fqn.getFqn());
-//              // Every node should have the same JarSet
-//              for (VersionedFqnNode node : cluster.getCoreFqns()) {
-//                logger.severe(" " + node.getFqn() + " " + globalPotentials.contains(node) + " " + globalPartials.contains(node) + " " + usedFqns.contains(node) + " "+ node.getJars().hashCode());
-//              }
-//            }
-//          }
-//        }
-        
-//        usedFqns.addAll(globalPotentials);
-        
-        // Remove the clusters from the queue
-        sortedClusters.removeAll(newClusters);
-        
         addedSomething = !globalPotentials.isEmpty();
       }
 
@@ -183,4 +176,41 @@ public class ClusterMerger {
     task.report(clusters.size() + " clusters remain");
     task.finish();
   }
+  
+  /**
+   * Splits the unused fqns in the jars of this version into those that
+   * occur in every jar (and nowhere outside the cluster), and the rest.
+   */
+  private static VersionScan scan(Cluster biggest, ClusterVersion version, Set<VersionedFqnNode> usedFqns) {
+    Multiset<VersionedFqnNode> potentials = HashMultiset.create();
+    for (Jar jar : version.getJars()) {
+      for (FqnVersion fqn : jar.getFqns()) {
+        if (!usedFqns.contains(fqn.getFqn())) {
+          potentials.add(fqn.getFqn());
+        }
+      }
+    }
+    
+    VersionScan scan = new VersionScan();
+    int max = version.getJars().size();
+    for (VersionedFqnNode fqn : potentials.elementSet()) {
+      if (potentials.count(fqn) > max) {
+        logger.severe("wtf! " + fqn.getFqn());
+        // Check the jars for duplicates
+        for (Jar jar : version.getJars()) {
+          for (FqnVersion node : jar.getFqns()) {
+            if (node.getFqn() == fqn) {
+              logger.severe(jar.getJar().getProperties().HASH.getValue() + " " + node.getFingerprint().serialize());
+            }
+          }
+        }
+      }
+      if (potentials.count(fqn) == max && fqn.getJars().isSubset(biggest.getJars())) {
+        scan.potentials.add(fqn);
+      } else {
+        scan.partials.add(fqn);
+      }
+    }
+    return scan;
+  }
 }
@@ -0,0 +1,119 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.identifier.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join helper for cluster identification and merging. Results always
+ * come back in item order, so the clusters do not depend on the thread
+ * count.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class ParallelClusterer {
+  private static ForkJoinPool pool;
+  private static int poolSize;
+  
+  private ParallelClusterer() {}
+  
+  static interface Mapper<I, O> {
+    public O map(I item);
+  }
+  
+  private static synchronized ForkJoinPool getPool() {
+    int threads = ClusterIdentifier.CLUSTER_THREADS.getValue();
+    if (pool == null || poolSize != threads) {
+      if (pool != null) {
+        pool.shutdown();
+      }
+      pool = new ForkJoinPool(threads);
+      poolSize = threads;
+    }
+    return pool;
+  }
+  
+  static int getThreadCount() {
+    return Math.max(1, ClusterIdentifier.CLUSTER_THREADS.getValue());
+  }
+  
+  /**
+   * Splits the items into contiguous partitions, a few per thread so that
+   * uneven partitions still balance out.
+   */
+  static <T> List<List<T>> partition(List<T> items) {
+    int count = Math.min(items.size(), getThreadCount() * 4);
+    List<List<T>> partitions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      partitions.add(items.subList((int) ((long) items.size() * i / count), (int) ((long) items.size() * (i + 1) / count)));
+    }
+    return partitions;
+  }
+  
+  /**
+   * Applies <code>mapper</code> to every item, returning the results in
+   * item order. Each item is expected to be a sizable piece of work.
+   */
+  static <I, O> List<O> map(List<? extends I> items, Mapper<? super I, ? extends O> mapper) {
+    @SuppressWarnings("unchecked")
+    O[] results = (O[]) new Object[items.size()];
+    if (getThreadCount() > 1 && items.size() > 1) {
+      getPool().invoke(new MapTask<I, O>(items, mapper, results, 0, items.size()));
+    } else {
+      for (int i = 0; i < results.length; i++) {
+        results[i] = mapper.map(items.get(i));
+      }
+    }
+    return Arrays.asList(results);
+  }
+  
+  private static class MapTask<I, O> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    
+    private final List<? extends I> items;
+    private final Mapper<? super I, ? extends O> mapper;
+    private final O[] results;
+    private final int start;
+    private final int end;
+    
+    private MapTask(List<? extends I> items, Mapper<? super I, ? extends O> mapper, O[] results, int start, int end) {
+      this.items = items;
+      this.mapper = mapper;
+      this.results = results;
+      this.start = start;
+      this.end = end;
+    }
+    
+    @Override
+    protected void compute() {
+      if (end - start == 1) {
+        results[start] = mapper.map(items.get(start));
+      } else {
+        int mid = (start + end) >>> 1;
+        MapTask<I, O> left = new MapTask<>(items, mapper, results, start, mid);
+        left.fork();
+        new MapTask<>(items, mapper, results, mid, end).compute();
+        left.join();
+      }
+    }
+  }
+}
@@ -31,6 +31,8 @@ import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 import edu.uci.ics.sourcerer.util.io.InvalidFileFormatException;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryReader;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryWriter;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 
 /**
@@ -399,6 +401,88 @@ public abstract class AbstractFqnNode<T extends AbstractFqnNode<T>> implements C
     }
   }
 
+  /**
+   * Binary counterpart of the Saver. Nodes are written in pre-order, as
+   * their name and the index of their parent.
+   */
+  public abstract class BinarySaver {
+    protected BinarySaver() {}
+    
+    protected abstract void save(StringDictionaryWriter writer, T node) throws IOException;
+    
+    public void save(StringDictionaryWriter writer) throws IOException {
+      int count = 0;
+      for (@SuppressWarnings("unused") T node : getPreOrderIterable()) {
+        count++;
+      }
+      writer.writeInt(count);
+      // The ancestors of the current node, with their indices
+      Deque<T> ancestors = new LinkedList<>();
+      Deque<Integer> ancestorIndices = new LinkedList<>();
+      count = 0;
+      for (T node : getPreOrderIterable()) {
+        while (!ancestors.isEmpty() && ancestors.peek() != node.parent) {
+          ancestors.pop();
+          ancestorIndices.pop();
+        }
+        writer.writeString(node.name);
+        writer.writeInt(ancestors.isEmpty() ? -1 : ancestorIndices.peek());
+        save(writer, node);
+        ancestors.push(node);
+        ancestorIndices.push(count++);
+      }
+    }
+  }
+  
+  public abstract class BinaryLoader {
+    protected BinaryLoader() {}
+    
+    protected abstract void load(StringDictionaryReader reader, T node) throws IOException;
+    
+    @SuppressWarnings("unchecked")
+    public void load(StringDictionaryReader reader) throws IOException {
+      TaskProgressLogger task = TaskProgressLogger.get();
+      task.start("Loading prefix tree", "nodes loaded", 1_000_000);
+      int count = reader.readInt();
+      if (count < 1) {
+        throw new InvalidFileFormatException("Expected at least the root node, received " + count);
+      }
+      ArrayList<T> nodes = new ArrayList<>(count);
+      // The last child added to each node, as the children arrive in order
+      ArrayList<T> lastChildren = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        String name = reader.readString();
+        int parentIndex = reader.readInt();
+        T node = null;
+        // Special check for the root node
+        if (i == 0) {
+          if (name != null || parentIndex != -1) {
+            throw new InvalidFileFormatException("Expected null for root name and parent, received " + name + " " + parentIndex);
+          }
+          node = (T) AbstractFqnNode.this;
+        } else if (parentIndex < 0 || parentIndex >= i) {
+          throw new InvalidFileFormatException("Invalid parent for node " + name + ": " + parentIndex);
+        } else {
+          T parent = nodes.get(parentIndex);
+          node = create(name, parent);
+          // Hook it up properly
+          T lastChild = lastChildren.get(parentIndex);
+          if (lastChild == null) {
+            parent.firstChild = node;
+          } else {
+            lastChild.sibling = node;
+          }
+          lastChildren.set(parentIndex, node);
+        }
+        nodes.add(node);
+        lastChildren.add(null);
+        load(reader, node);
+        task.progress();
+      }
+      task.finish();
+    }
+  }
+
   @Override
   public String toString() {
     return getFqn();
@@ -0,0 +1,320 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.model.fqn;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Array backed alternative to the {@link AbstractFqnNode} trees, for fqn
+ * sets too large to give every fragment its own object. Nodes are int
+ * ids, fragment names are interned into a dictionary, and children are
+ * found through a single open addressing table keyed on the parent and
+ * the name id, rather than by walking a sibling list.
+ * 
+ * Not thread safe.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class FqnTrie {
+  public static final int ROOT = 0;
+  public static final int MISSING = -1;
+  
+  private static final int INITIAL_CAPACITY = 16;
+  
+  // Name dictionary, the table holds name id + 1
+  private String[] names;
+  private int[] nameTable;
+  private int nameCount;
+  
+  // Nodes. Since the root is never a child, 0 marks a missing child or sibling.
+  private int[] parents;
+  private int[] nameIds;
+  private int[] firstChildren;
+  private int[] siblings;
+  private int size;
+  
+  // Child table, holds node + 1
+  private int[] childTable;
+  
+  private FqnTrie(int capacity) {
+    capacity = Integer.highestOneBit(Math.max(capacity, INITIAL_CAPACITY) - 1) << 1;
+    names = new String[capacity];
+    nameTable = new int[capacity << 1];
+    parents = new int[capacity];
+    nameIds = new int[capacity];
+    firstChildren = new int[capacity];
+    siblings = new int[capacity];
+    childTable = new int[capacity << 1];
+    parents[ROOT] = MISSING;
+    nameIds[ROOT] = MISSING;
+    size = 1;
+  }
+  
+  public static FqnTrie create() {
+    return new FqnTrie(INITIAL_CAPACITY);
+  }
+  
+  /**
+   * Sized up front for the expected number of nodes.
+   */
+  public static FqnTrie create(int expectedSize) {
+    return new FqnTrie(expectedSize);
+  }
+  
+  /**
+   * Copies an existing tree. Its nodes can then be mapped with
+   * {@link #lookup(AbstractFqnNode)}.
+   */
+  public static FqnTrie create(AbstractFqnNode<?> root) {
+    FqnTrie trie = create();
+    trie.addAll(ROOT, root);
+    return trie;
+  }
+  
+  private void addAll(int node, AbstractFqnNode<?> fqn) {
+    for (AbstractFqnNode<?> child = fqn.firstChild; child != null; child = child.sibling) {
+      addAll(getChild(node, child.name, 0, child.name.length(), true), child);
+    }
+  }
+  
+  private static int hash(String fqn, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + fqn.charAt(i);
+    }
+    return hash;
+  }
+  
+  private static int mix(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    return hash ^ (hash >>> 13);
+  }
+  
+  private int getNameId(String fqn, int start, int end, boolean add) {
+    int length = end - start;
+    int hash = hash(fqn, start, end);
+    int mask = nameTable.length - 1;
+    for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask) {
+      int id = nameTable[slot] - 1;
+      if (id == MISSING) {
+        if (add) {
+          if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount << 1);
+          }
+          id = nameCount++;
+          names[id] = length == fqn.length() ? fqn : fqn.substring(start, end);
+          nameTable[slot] = id + 1;
+          if (nameCount << 1 > nameTable.length) {
+            rehashNames();
+          }
+        }
+        return id;
+      } else {
+        String name = names[id];
+        if (name.hashCode() == hash && name.length() == length && fqn.regionMatches(start, name, 0, length)) {
+          return id;
+        }
+      }
+    }
+  }
+  
+  private void rehashNames() {
+    nameTable = new int[nameTable.length << 1];
+    int mask = nameTable.length - 1;
+    for (int id = 0; id < nameCount; id++) {
+      int slot = mix(names[id].hashCode()) & mask;
+      while (nameTable[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      nameTable[slot] = id + 1;
+    }
+  }
+  
+  private static int hash(int parent, int nameId) {
+    return mix(parent * 0x9e3779b9 + nameId);
+  }
+  
+  private int getChild(int parent, String fqn, int start, int end, boolean add) {
+    int nameId = getNameId(fqn, start, end, add);
+    if (nameId == MISSING) {
+      return MISSING;
+    }
+    int mask = childTable.length - 1;
+    for (int slot = hash(parent, nameId) & mask;; slot = (slot + 1) & mask) {
+      int node = childTable[slot] - 1;
+      if (node == MISSING) {
+        if (add) {
+          node = addNode(parent, nameId);
+          childTable[slot] = node + 1;
+          if (size << 1 > childTable.length) {
+            rehashChildren();
+          }
+        }
+        return node;
+      } else if (parents[node] == parent && nameIds[node] == nameId) {
+        return node;
+      }
+    }
+  }
+  
+  private int addNode(int parent, int nameId) {
+    if (size == parents.length) {
+      int capacity = size << 1;
+      parents = Arrays.copyOf(parents, capacity);
+      nameIds = Arrays.copyOf(nameIds, capacity);
+      firstChildren = Arrays.copyOf(firstChildren, capacity);
+      siblings = Arrays.copyOf(siblings, capacity);
+    }
+    int node = size++;
+    parents[node] = parent;
+    nameIds[node] = nameId;
+    siblings[node] = firstChildren[parent];
+    firstChildren[parent] = node;
+    return node;
+  }
+  
+  private void rehashChildren() {
+    childTable = new int[childTable.length << 1];
+    int mask = childTable.length - 1;
+    for (int node = 1; node < size; node++) {
+      int slot = hash(parents[node], nameIds[node]) & mask;
+      while (childTable[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      childTable[slot] = node + 1;
+    }
+  }
+  
+  private int walk(int node, String fqn, char sep, boolean add) {
+    int start = 0;
+    for (int sepIdx = fqn.indexOf(sep); node != MISSING; sepIdx = fqn.indexOf(sep, start)) {
+      if (sepIdx == -1) {
+        return getChild(node, fqn, start, fqn.length(), add);
+      } else {
+        node = getChild(node, fqn, start, sepIdx, add);
+        start = sepIdx + 1;
+      }
+    }
+    return MISSING;
+  }
+  
+  /**
+   * Finds the node for the fqn, adding it if necessary.
+   */
+  public int getChild(String fqn, char sep) {
+    return walk(ROOT, fqn, sep, true);
+  }
+  
+  public int getChild(int node, String fqn, char sep) {
+    return walk(node, fqn, sep, true);
+  }
+  
+  /**
+   * Finds the node for the fqn, or <code>MISSING</code>.
+   */
+  public int lookup(String fqn, char sep) {
+    return walk(ROOT, fqn, sep, false);
+  }
+  
+  public int lookup(int node, String fqn, char sep) {
+    return walk(node, fqn, sep, false);
+  }
+  
+  /**
+   * Finds the node with the same fqn as a node from another tree,
+   * or <code>MISSING</code>.
+   */
+  public int lookup(AbstractFqnNode<?> fqn) {
+    if (fqn.parent == null) {
+      return ROOT;
+    } else {
+      int parent = lookup(fqn.parent);
+      if (parent == MISSING) {
+        return MISSING;
+      } else {
+        return getChild(parent, fqn.name, 0, fqn.name.length(), false);
+      }
+    }
+  }
+  
+  public int getParent(int node) {
+    return parents[node];
+  }
+  
+  public String getName(int node) {
+    return node == ROOT ? null : names[nameIds[node]];
+  }
+  
+  public String getFqn(int node) {
+    if (node == ROOT) {
+      return "(root)";
+    } else {
+      StringBuilder fqn = new StringBuilder();
+      appendFqn(node, fqn);
+      return fqn.toString();
+    }
+  }
+  
+  private void appendFqn(int node, StringBuilder fqn) {
+    if (parents[node] != ROOT) {
+      appendFqn(parents[node], fqn);
+      fqn.append('.');
+    }
+    fqn.append(names[nameIds[node]]);
+  }
+  
+  public boolean hasChildren(int node) {
+    return firstChildren[node] != 0;
+  }
+  
+  /**
+   * The children of the node, sorted by name like those of an
+   * {@link AbstractFqnNode}.
+   */
+  public int[] getChildren(int node) {
+    int count = 0;
+    for (int child = firstChildren[node]; child != 0; child = siblings[child]) {
+      count++;
+    }
+    Integer[] children = new Integer[count];
+    count = 0;
+    for (int child = firstChildren[node]; child != 0; child = siblings[child]) {
+      children[count++] = child;
+    }
+    Arrays.sort(children, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return names[nameIds[o1]].compareTo(names[nameIds[o2]]);
+      }
+    });
+    int[] result = new int[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = children[i];
+    }
+    return result;
+  }
+  
+  /**
+   * Number of nodes, including the root.
+   */
+  public int size() {
+    return size;
+  }
+}
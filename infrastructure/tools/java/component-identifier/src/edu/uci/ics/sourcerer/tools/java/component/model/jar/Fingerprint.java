@@ -26,6 +26,8 @@ import java.util.Scanner;
 import edu.uci.ics.sourcerer.util.io.CustomSerializable;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryReader;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryWriter;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.EnumArgument;
 
@@ -46,6 +48,11 @@ public abstract class Fingerprint implements CustomSerializable {
 
   Fingerprint() {}
   
+  /**
+   * Writes the fingerprint for the binary jar collection cache.
+   */
+  void write(StringDictionaryWriter writer) throws IOException {}
+  
   private static class LengthFingerprint extends Fingerprint {
     private final long length;
     
@@ -74,6 +81,11 @@ public abstract class Fingerprint implements CustomSerializable {
     public String serialize() {
       return Long.toString(length);
     }
+    
+    @Override
+    void write(StringDictionaryWriter writer) throws IOException {
+      writer.writeLong(length);
+    }
   }
   
   private static class HashFingerprint extends Fingerprint {
@@ -110,6 +122,12 @@ public abstract class Fingerprint implements CustomSerializable {
     public String serialize() {
       return length + " " + hash;
     }
+    
+    @Override
+    void write(StringDictionaryWriter writer) throws IOException {
+      writer.writeLong(length);
+      writer.writeString(hash);
+    }
   }
  
   private static final Fingerprint BASE_FINGERPRINT = new Fingerprint() {
@@ -120,7 +138,11 @@ public abstract class Fingerprint implements CustomSerializable {
   };
   
   static Fingerprint create(InputStream is, long length) throws IOException {
-    switch (FINGERPRINT_MODE.getValue()) {
+    return create(FINGERPRINT_MODE.getValue(), is, length);
+  }
+  
+  static Fingerprint create(Mode mode, InputStream is, long length) throws IOException {
+    switch (mode) {
       case NONE:
         return BASE_FINGERPRINT;
       case LENGTH:
@@ -132,7 +154,25 @@ public abstract class Fingerprint implements CustomSerializable {
       case TYPE:
         return TypeFingerprint.create(is);
       default:
-        logger.severe("Unknown fingerprint mode: " + FINGERPRINT_MODE.getValue());
+        logger.severe("Unknown fingerprint mode: " + mode);
+        return null;
+    }
+  }
+  
+  static Fingerprint read(Mode mode, StringDictionaryReader reader) throws IOException {
+    switch (mode) {
+      case NONE:
+        return BASE_FINGERPRINT;
+      case LENGTH:
+        return new LengthFingerprint(reader.readLong());
+      case HASH:
+        return new HashFingerprint(reader.readLong(), reader.readString());
+      case NAME:
+        return NameFingerprint.read(reader);
+      case TYPE:
+        return TypeFingerprint.read(reader);
+      default:
+        logger.severe("Unknown fingerprint mode: " + mode);
         return null;
     }
   }
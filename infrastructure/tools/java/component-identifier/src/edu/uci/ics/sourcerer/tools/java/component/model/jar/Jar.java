@@ -25,12 +25,25 @@ import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class Jar {
+  private final JarCollection collection;
   private final JarFile jar;
+  // Dense within the collection, so that JarSets can be bitmaps
+  private final int ordinal;
   private final Collection<FqnVersion> fqns;
   
-  Jar(JarFile jar) {
+  Jar(JarCollection collection, JarFile jar) {
+    this.collection = collection;
     this.jar = jar;
     fqns = new ArrayList<>();
+    ordinal = collection.register(this);
+  }
+  
+  JarCollection getCollection() {
+    return collection;
+  }
+  
+  int getOrdinal() {
+    return ordinal;
   }
   
   void addFqn(FqnVersion fqn) {
@@ -48,6 +61,7 @@ public class Jar {
   
   @Override
   public String toString() {
-    return jar.toString();
+    // Synthetic jars have no file
+    return jar == null ? "jar " + ordinal : jar.toString();
   }
 }
@@ -22,24 +22,39 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.lang.ref.Reference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
+import edu.uci.ics.sourcerer.tools.java.component.model.jar.JarReader.JarContents;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepository;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
 import edu.uci.ics.sourcerer.util.io.InvalidFileFormatException;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryReader;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryWriter;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.RelativeFileArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger.Checkpoint;
@@ -49,13 +64,38 @@ import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger.Checkpoint;
  */
 public class JarCollection implements Iterable<Jar> {
   public static final Argument<File> JAR_COLLECTION_CACHE = new RelativeFileArgument("jar-collection-cache", "jar-collection-cache", Arguments.CACHE, "Cache for jar collection.").permit();
+  public static final Argument<Integer> JAR_READER_THREADS = new IntegerArgument("jar-reader-threads", Runtime.getRuntime().availableProcessors(), "Number of jars read at once when building the jar collection.").permit();
   
   private final Map<String, Jar> jars;
   private final VersionedFqnNode rootFragment;
   
-  private JarCollection() {
+  // Jars by ordinal, and the interned sets of them
+  private volatile Jar[] byOrdinal;
+  private int ordinalCount;
+  final Map<OrdinalBitmap, Reference<JarSet>> jarSets;
+  
+  JarCollection() {
     jars = new HashMap<>();
     rootFragment = VersionedFqnNode.createRoot();
+    byOrdinal = new Jar[1024];
+    ordinalCount = 0;
+    jarSets = new WeakHashMap<>();
+  }
+  
+  synchronized int register(Jar jar) {
+    int ordinal = ordinalCount++;
+    Jar[] jars = byOrdinal;
+    if (ordinal == jars.length) {
+      jars = Arrays.copyOf(jars, jars.length * 2);
+    }
+    jars[ordinal] = jar;
+    // Republish so readers see the new entry
+    byOrdinal = jars;
+    return ordinal;
+  }
+  
+  Jar getJar(int ordinal) {
+    return byOrdinal[ordinal];
   }
     
   public static JarCollection create() {
@@ -69,16 +109,18 @@ public class JarCollection implements Iterable<Jar> {
     JarCollection jars = new JarCollection();
     JavaRepository repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(JavaRepositoryFactory.INPUT_REPO);
     
-    task.start("Adding jars", "jars added", 500);
+    List<JarFile> jarFiles = new ArrayList<>();
     for (String hash : jarHashes) {
       JarFile jar = repo.getJarFile(hash);
       if (jar == null) {
         logger.warning("Unknown jar: " + hash);
       } else {
-        task.progress();
-        jars.add(jar);
+        jarFiles.add(jar);
       }
     }
+    
+    task.start("Adding jars", "jars added", 500);
+    jars.addAll(jarFiles);
     task.finish();
     
     task.finish();
@@ -87,144 +129,219 @@ public class JarCollection implements Iterable<Jar> {
   }
   
   public static JarCollection create(Argument<File> repoDir, Argument<File> cacheDirArg) {
+    return create(JavaRepositoryFactory.INSTANCE.loadJavaRepository(repoDir), cacheDirArg.getValue());
+  }
+  
+  static JarCollection create(JavaRepository repo, File cacheDir) {
     TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Building jar collection");
     
-    JarCollection jars = new JarCollection();
-    JavaRepository repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(repoDir);
-    
     task.report("Checking for cache...");
-    File cacheDir = cacheDirArg.getValue();
-    File cache = new File(cacheDir, Fingerprint.FINGERPRINT_MODE.getValue() + ".cache");
+    File cache = new File(cacheDir, Fingerprint.FINGERPRINT_MODE.getValue() + ".bin");
+    // Older collections were cached as text
+    File textCache = new File(cacheDir, Fingerprint.FINGERPRINT_MODE.getValue() + ".cache");
     if (cache.exists()) {
       Checkpoint checkpoint = task.checkpoint();
       task.report(" Cache found");
-      task.start("Loading jars", "jars loaded", 0);
-      try (BufferedReader reader = IOUtils.createBufferedReader(cache)) {
-        // Read the number of jars
-        int count = Integer.parseInt(reader.readLine());
-        // Read the jars
-        Jar[] jarMapping = new Jar[count];
-        for (int i = 0; i < count; i++) {
-          String hash = reader.readLine();
-          Jar jar = new Jar(repo.getJarFile(hash));
-          jarMapping[i] = jar;
-          jars.jars.put(hash, jar);
-          task.progress();
-        }
+      try {
+        JarCollection jars = loadBinary(cache, repo);
         task.finish();
-        // Load the tree
-        jars.rootFragment.createLoader(jarMapping).load(reader);
+        return jars;
+      } catch (IOException | NullPointerException | InvalidFileFormatException | IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+        logger.log(Level.SEVERE, "Error loading jar collection cache", e);
+        checkpoint.activate();
+      }
+    } else if (textCache.exists()) {
+      Checkpoint checkpoint = task.checkpoint();
+      task.report(" Text cache found");
+      try {
+        JarCollection jars = loadText(textCache, repo);
+        jars.saveCache(cache);
         task.finish();
         return jars;
       } catch (IOException | NullPointerException | InvalidFileFormatException | IllegalArgumentException e) {
         logger.log(Level.SEVERE, "Error loading jar collection cache", e);
         checkpoint.activate();
-        jars = new JarCollection();
       }
     } else {
       task.report("Cache not found, loading...");
     }
     
+    JarCollection jars = new JarCollection();
+    
     task.start("Adding maven jars", "jars added", 500);
-    for (JarFile jar : repo.getMavenJarFiles()) {
-      jars.add(jar);
-      task.progress();
-    }
+    jars.addAll(repo.getMavenJarFiles());
     task.finish();
     
     task.start("Adding project jars", "jars added", 500);
-    for (JarFile jar : repo.getProjectJarFiles()) {
-      jars.add(jar);
-      task.progress();
-    }
+    jars.addAll(repo.getProjectJarFiles());
     task.finish();
     
     task.report(jars.size() + " jars added to collection");
     task.finish();
     
+    jars.saveCache(cache);
+    
+    return jars;
+  }
+  
+  private void saveCache(File cache) {
+    TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Saving cache");
-    try (BufferedWriter writer = IOUtils.makeBufferedWriter(FileUtils.ensureWriteable(cache))) {
-      // Write out the jar count
-      writer.write(Integer.toString(jars.size()));
-      writer.newLine();
-      // Write out the jars
-      Map<Jar, Integer> jarMapping = new HashMap<>();
-      int count = 0;
-      for (Jar jar : jars) {
-        jarMapping.put(jar, count++);
-        writer.write(jar.getJar().getProperties().HASH.getValue());
-        writer.newLine();
-      }
-      // Write out the tree
-      jars.rootFragment.createSaver(jarMapping).save(writer);
+    try {
+      saveBinary(cache);
     } catch (IOException e) {
       logger.log(Level.SEVERE, "Error writing jar collection cache", e);
     }
     task.finish();
-    
+  }
+  
+  static JarCollection loadBinary(File file, JavaRepository repo) throws IOException {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    JarCollection jars = new JarCollection();
+    StringDictionaryReader reader = StringDictionaryReader.create(file);
+    Fingerprint.Mode mode = Fingerprint.Mode.values()[reader.readInt()];
+    if (mode != Fingerprint.FINGERPRINT_MODE.getValue()) {
+      throw new InvalidFileFormatException("Cache is for fingerprint mode " + mode);
+    }
+    // Read the jars
+    task.start("Loading jars", "jars loaded", 0);
+    Jar[] jarMapping = new Jar[reader.readInt()];
+    for (int i = 0; i < jarMapping.length; i++) {
+      String hash = reader.readString();
+      Jar jar = new Jar(jars, repo.getJarFile(hash));
+      jarMapping[i] = jar;
+      jars.jars.put(hash, jar);
+      task.progress();
+    }
+    task.finish();
+    // Load the tree
+    jars.rootFragment.createBinaryLoader(mode, jarMapping).load(reader);
+    if (!reader.isFinished()) {
+      throw new InvalidFileFormatException("Unexpected content after the jar collection");
+    }
     return jars;
   }
   
-  public void save(File file) {
-    // Let's see if we can save things more speedily
-    try (BufferedWriter writer = IOUtils.makeBufferedWriter(file)) {
-      Map<Jar, Integer> jarMap = new HashMap<>();
-      int count = 0;
-      // Write out a line for each jar, just containing the hash
+  void saveBinary(File file) throws IOException {
+    StringDictionaryWriter writer = StringDictionaryWriter.create();
+    writer.writeInt(Fingerprint.FINGERPRINT_MODE.getValue().ordinal());
+    // Write out the jars
+    writer.writeInt(jars.size());
+    Map<Jar, Integer> jarMapping = new HashMap<>();
+    for (Map.Entry<String, Jar> entry : jars.entrySet()) {
+      jarMapping.put(entry.getValue(), jarMapping.size());
+      writer.writeString(entry.getKey());
+    }
+    // Write out the tree
+    rootFragment.createBinarySaver(jarMapping).save(writer);
+    writer.save(file);
+  }
+  
+  static JarCollection loadText(File file, JavaRepository repo) throws IOException {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    JarCollection jars = new JarCollection();
+    try (BufferedReader reader = IOUtils.createBufferedReader(file)) {
+      // Read the number of jars
+      task.start("Loading jars", "jars loaded", 0);
+      int count = Integer.parseInt(reader.readLine());
+      // Read the jars
+      Jar[] jarMapping = new Jar[count];
+      for (int i = 0; i < count; i++) {
+        String hash = reader.readLine();
+        Jar jar = new Jar(jars, repo.getJarFile(hash));
+        jarMapping[i] = jar;
+        jars.jars.put(hash, jar);
+        task.progress();
+      }
+      task.finish();
+      // Load the tree
+      jars.rootFragment.createLoader(jarMapping).load(reader);
+    }
+    return jars;
+  }
+  
+  void saveText(File file) throws IOException {
+    try (BufferedWriter writer = IOUtils.makeBufferedWriter(FileUtils.ensureWriteable(file))) {
+      // Write out the jar count
+      writer.write(Integer.toString(jars.size()));
+      writer.newLine();
+      // Write out the jars
+      Map<Jar, Integer> jarMapping = new HashMap<>();
       for (Map.Entry<String, Jar> entry : jars.entrySet()) {
+        jarMapping.put(entry.getValue(), jarMapping.size());
         writer.write(entry.getKey());
         writer.newLine();
-        jarMap.put(entry.getValue(), count++);
       }
-      // Write out the entire tree, starting at the root
-      
-    } catch (IOException e) {
-      logger.log(Level.SEVERE, "Error saving jar collection");
+      // Write out the tree
+      rootFragment.createSaver(jarMapping).save(writer);
     }
   }
   
-  private void add(JarFile jar) {
-    Jar newJar = new Jar(jar);
-    Map<String, Long> names = new HashMap<>();
-    // If there are duplicates, always go with the first entry
-    try (ZipInputStream zis = new ZipInputStream(new FileInputStream(jar.getFile().toFile()))) {
-      for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
-        if (entry.getName().endsWith(".class")) {
-          Long length = names.get(entry.getName());
-          if (length == null) {
-            names.put(entry.getName(), entry.getSize());
-          }
-        }
+  /**
+   * Reads the jars on a pool of threads, but adds them to the tree in
+   * order, so the collection does not depend on the thread count.
+   */
+  private void addAll(Collection<? extends JarFile> jarFiles) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    final Set<Fingerprint.Mode> modes = EnumSet.of(Fingerprint.FINGERPRINT_MODE.getValue());
+    int threads = JAR_READER_THREADS.getValue();
+    if (threads <= 1) {
+      for (JarFile jar : jarFiles) {
+        add(JarReader.read(jar, modes));
+        task.progress();
       }
-    } catch (IOException | IllegalArgumentException e) {
-      logger.log(Level.SEVERE, "Error reading jar file: " + jar, e);
-      return;
-    }
-    
-    try (ZipInputStream zis = new ZipInputStream(new FileInputStream(jar.getFile().toFile()))) {
-      for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
-        if (entry.getName().endsWith(".class")) {
-          // Should i include this entry?
-          Long length = names.get(entry.getName());
-          if (length != null && length.longValue() == entry.getSize()) {
-            names.remove(entry.getName());
-            String fqn = entry.getName();
-            fqn = fqn.substring(0, fqn.lastIndexOf('.'));
-            newJar.addFqn(rootFragment.getChild(fqn, '/').getVersion(Fingerprint.create(zis, entry.getSize())));
+    } else {
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      try {
+        // Only read so far ahead, to bound the memory held by the contents
+        Deque<Future<JarContents>> pending = new ArrayDeque<>();
+        Iterator<? extends JarFile> iter = jarFiles.iterator();
+        while (iter.hasNext() || !pending.isEmpty()) {
+          while (iter.hasNext() && pending.size() < threads * 4) {
+            final JarFile jar = iter.next();
+            pending.add(pool.submit(new Callable<JarContents>() {
+              @Override
+              public JarContents call() {
+                return JarReader.read(jar, modes);
+              }
+            }));
+          }
+          try {
+            add(pending.poll().get());
+          } catch (ExecutionException e) {
+            logger.log(Level.SEVERE, "Error reading jar file", e.getCause());
           }
+          task.progress();
         }
+      } catch (InterruptedException e) {
+        logger.log(Level.SEVERE, "Interrupted while reading jar files", e);
+        Thread.currentThread().interrupt();
+      } finally {
+        pool.shutdownNow();
       }
-      // Make sure it's non-empty
-      if (!newJar.getFqns().isEmpty()) {
-        jars.put(jar.getProperties().HASH.getValue(), newJar);
+    }
+  }
+  
+  private void add(JarContents contents) {
+    // Make sure it's non-empty
+    if (contents != null && !contents.getFqns().isEmpty()) {
+      Jar newJar = new Jar(this, contents.getJar());
+      List<String> fqns = contents.getFqns();
+      List<Fingerprint> fingerprints = contents.getFingerprints(Fingerprint.FINGERPRINT_MODE.getValue());
+      for (int i = 0; i < fqns.size(); i++) {
+        newJar.addFqn(rootFragment.getChild(fqns.get(i), '/').getVersion(fingerprints.get(i)));
       }
-    } catch (IOException | IllegalArgumentException e) {
-      // If there were errors, just throw the jar out
-      logger.log(Level.SEVERE, "Error reading jar file: " + jar, e);
-      logger.severe("Would like to remove");
+      jars.put(contents.getJar().getProperties().HASH.getValue(), newJar);
     }
-    
+  }
+  
+  /**
+   * Adds a jar whose contents have already been populated, bypassing the
+   * repository. For building synthetic collections.
+   */
+  void add(String hash, Jar jar) {
+    jars.put(hash, jar);
   }
   
   public Jar getJar(String hash) {
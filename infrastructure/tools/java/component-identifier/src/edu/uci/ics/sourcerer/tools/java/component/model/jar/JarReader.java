@@ -0,0 +1,121 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.model.jar;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
+
+/**
+ * Reads the class names out of a jar in a single pass, fingerprinting
+ * each class in any number of modes as it goes. Safe to use from several
+ * threads at once.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class JarReader {
+  private JarReader() {}
+  
+  static class JarContents {
+    private final JarFile jar;
+    private final List<String> fqns;
+    private final Map<Fingerprint.Mode, List<Fingerprint>> fingerprints;
+    
+    private JarContents(JarFile jar, Set<Fingerprint.Mode> modes) {
+      this.jar = jar;
+      fqns = new ArrayList<>();
+      fingerprints = new EnumMap<>(Fingerprint.Mode.class);
+      for (Fingerprint.Mode mode : modes) {
+        fingerprints.put(mode, new ArrayList<Fingerprint>());
+      }
+    }
+    
+    JarFile getJar() {
+      return jar;
+    }
+    
+    /**
+     * The classes in the jar, in slash-separated form.
+     */
+    List<String> getFqns() {
+      return fqns;
+    }
+    
+    /**
+     * The fingerprint of each class, in the same order as the fqns.
+     */
+    List<Fingerprint> getFingerprints(Fingerprint.Mode mode) {
+      return fingerprints.get(mode);
+    }
+  }
+  
+  /**
+   * Returns null if the jar could not be read.
+   */
+  static JarContents read(JarFile jar, Set<Fingerprint.Mode> modes) {
+    // The class itself is only needed beyond the length
+    boolean needsBytes = false;
+    for (Fingerprint.Mode mode : modes) {
+      needsBytes |= mode != Fingerprint.Mode.NONE && mode != Fingerprint.Mode.LENGTH;
+    }
+    
+    JarContents contents = new JarContents(jar, modes);
+    Set<String> names = new HashSet<>();
+    byte[] buff = new byte[8192];
+    try (ZipInputStream zis = new ZipInputStream(new FileInputStream(jar.getFile().toFile()))) {
+      for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+        // If there are duplicates, always go with the first entry
+        if (entry.getName().endsWith(".class") && names.add(entry.getName())) {
+          // The length comes from the entry header, as it always has
+          long length = entry.getSize();
+          byte[] bytes = null;
+          if (needsBytes) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(length > 0 ? (int) length : buff.length);
+            for (int read = zis.read(buff); read > 0; read = zis.read(buff)) {
+              bos.write(buff, 0, read);
+            }
+            bytes = bos.toByteArray();
+          }
+          String fqn = entry.getName();
+          contents.fqns.add(fqn.substring(0, fqn.lastIndexOf('.')));
+          for (Map.Entry<Fingerprint.Mode, List<Fingerprint>> fingerprints : contents.fingerprints.entrySet()) {
+            fingerprints.getValue().add(Fingerprint.create(fingerprints.getKey(), bytes == null ? null : new ByteArrayInputStream(bytes), length));
+          }
+        }
+      }
+      return contents;
+    } catch (IOException | IllegalArgumentException e) {
+      logger.log(Level.SEVERE, "Error reading jar file: " + jar, e);
+      return null;
+    }
+  }
+}
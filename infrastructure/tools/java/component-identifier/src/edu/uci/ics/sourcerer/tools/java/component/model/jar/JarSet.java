@@ -19,135 +19,153 @@ package edu.uci.ics.sourcerer.tools.java.component.model.jar;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
-import java.util.WeakHashMap;
-
-import com.google.common.collect.ImmutableSet;
+import java.util.NoSuchElementException;
 
 /**
+ * Interned set of jars, stored as a compressed bitmap of jar ordinals.
+ * Ordinals are only meaningful within a {@link JarCollection}, so every
+ * non-empty set belongs to the collection of its jars, which also holds
+ * its intern table.
+ * 
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class JarSet implements Iterable<Jar> {
-  private final static Map<Set<Jar>, Reference<JarSet>> sets = new WeakHashMap<>();
-  private final Set<Jar> jars;
+  private static final JarSet EMPTY = new JarSet(null, OrdinalBitmap.EMPTY);
+  
+  private final JarCollection collection;
+  private final OrdinalBitmap jars;
 
-  private JarSet(Set<Jar> jars) {
+  private JarSet(JarCollection collection, OrdinalBitmap jars) {
+    this.collection = collection;
     this.jars = jars;
   }
   
-  private static JarSet create(Set<Jar> set) {
-    Reference<JarSet> ref = sets.get(set);
-    JarSet result = ref == null ? null : ref.get();
-    if (result == null) {
-      result = new JarSet(ImmutableSet.copyOf(set));
-      sets.put(result.jars, new WeakReference<>(result));
+  private static JarSet create(JarCollection collection, OrdinalBitmap set) {
+    synchronized (collection.jarSets) {
+      Reference<JarSet> ref = collection.jarSets.get(set);
+      JarSet result = ref == null ? null : ref.get();
+      if (result == null) {
+        result = new JarSet(collection, set);
+        collection.jarSets.put(result.jars, new WeakReference<>(result));
+      }
+      return result;
     }
-    return result;
   }
   
   public static JarSet create() {
-    return create(ImmutableSet.<Jar>of());
+    return EMPTY;
   }
   
   public static JarSet create(Jar jar) {
-    return create(ImmutableSet.<Jar>of(jar));
+    return create(jar.getCollection(), OrdinalBitmap.create(jar.getOrdinal()));
+  }
+  
+  private JarCollection getCollection(JarCollection other) {
+    if (collection == null) {
+      return other;
+    } else if (other == null || other == collection) {
+      return collection;
+    } else {
+      throw new IllegalArgumentException("Jars from different collections may not be mixed.");
+    }
   }
   
   public JarSet add(Jar jar) {
-    if (jars.contains(jar)) {
+    JarCollection owner = getCollection(jar.getCollection());
+    OrdinalBitmap set = jars.add(jar.getOrdinal());
+    if (set == jars) {
       return this;
     } else {
-      Set<Jar> set = new HashSet<>(jars);
-      set.add(jar);
-      return create(set);
+      return create(owner, set);
     }
   }
   
-//  public JarSet remove(Jar jar) {
-//    if (jars.contains(jar)) {
-//      int hashCode = 0;
-//      for (Jar j : jars) {
-//        if (j != jar) {
-//          hashCode += j.hashCode();
-//        }
-//      }
-//      for (JarSet set : sets.get(hashCode)) {
-//        if (set.jars.size() == jars.size() - 1 && !set.jars.contains(jar) && jars.containsAll(set.jars)) {
-//          return set;
-//        }
-//      }
-//      Set<Jar> newSet = new HashSet<>(jars);
-//      newSet.remove(jar);
-//      JarSet set = new JarSet(newSet);
-//      sets.put(hashCode, set);
-//      return set;
-//    } else {
-//      return this;
-//    }
-//  }
-  
   public JarSet merge(JarSet other) {
-    if (jars.containsAll(other.jars)) {
+    if (this == other) {
       return this;
-    } else if (other.jars.containsAll(jars)) {
-      return other;
     } else {
-      Set<Jar> newSet = new HashSet<>();
-      newSet.addAll(jars);
-      newSet.addAll(other.jars);
-      return create(newSet);
+      JarCollection owner = getCollection(other.collection);
+      OrdinalBitmap set = jars.or(other.jars);
+      if (set.cardinality() == jars.cardinality()) {
+        return this;
+      } else if (set.cardinality() == other.jars.cardinality()) {
+        return other;
+      } else {
+        return create(owner, set);
+      }
     }
   }
   
   public boolean contains(Jar jar) {
-    return jars.contains(jar);
+    return jar.getCollection() == collection && jars.contains(jar.getOrdinal());
   }
   
   public int getIntersectionSize(JarSet other) {
-    int count = 0;
-    for (Jar jar : jars) {
-      if (other.jars.contains(jar)) {
-        count++;
-      }
+    if (this == other) {
+      return jars.cardinality();
+    } else {
+      getCollection(other.collection);
+      return jars.andCardinality(other.jars);
     }
-    return count;
   }
   
   /**
    * Is this JarSet a subset of the argument?
    */
   public boolean isSubset(JarSet other) {
-    for (Jar jar : jars) {
-      if (!other.jars.contains(jar)) {
-        return false;
-      }
+    if (this == other) {
+      return true;
+    } else {
+      getCollection(other.collection);
+      return jars.isSubset(other.jars);
     }
-    return true;
   }
   
   public int size() {
-    return jars.size();
+    return jars.cardinality();
   }
   
   public boolean isEmpty() {
-    return jars.isEmpty();
+    return jars.cardinality() == 0;
   }
   
-//  @Override
-//  public int hashCode() {
-//    return jars.hashCode();
-//  }
-
   @Override
   public Iterator<Jar> iterator() {
-    return jars.iterator();
+    final int[] ordinals = jars.toArray();
+    return new Iterator<Jar>() {
+      private int index = 0;
+      
+      @Override
+      public boolean hasNext() {
+        return index < ordinals.length;
+      }
+      
+      @Override
+      public Jar next() {
+        if (index < ordinals.length) {
+          return collection.getJar(ordinals[index++]);
+        } else {
+          throw new NoSuchElementException();
+        }
+      }
+      
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
   }
   
   @Override
   public String toString() {
-    return jars.toString();
+    StringBuilder builder = new StringBuilder("[");
+    for (Jar jar : this) {
+      if (builder.length() > 1) {
+        builder.append(", ");
+      }
+      builder.append(jar);
+    }
+    return builder.append(']').toString();
   }
 }
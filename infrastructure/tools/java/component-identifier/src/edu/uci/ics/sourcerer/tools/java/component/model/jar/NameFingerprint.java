@@ -32,6 +32,8 @@ import org.objectweb.asm.Opcodes;
 
 import edu.uci.ics.sourcerer.util.io.LineBuilder;
 import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryReader;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryWriter;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -48,7 +50,6 @@ public class NameFingerprint extends Fingerprint {
     super();
   }
   
-  private static FingerprintClassVisitor CLASS_VISITOR = new FingerprintClassVisitor();
   private static class FingerprintClassVisitor extends ClassVisitor {
     private NameFingerprint fingerprint;
     private Collection<String> fields;
@@ -106,8 +107,29 @@ public class NameFingerprint extends Fingerprint {
   
   static NameFingerprint create(InputStream is) throws IOException {
     ClassReader reader = new ClassReader(is);
-    reader.accept(CLASS_VISITOR, 0);
-    return CLASS_VISITOR.createFingerprint();
+    // Jars are read in parallel, so each class gets its own visitor
+    FingerprintClassVisitor visitor = new FingerprintClassVisitor();
+    reader.accept(visitor, 0);
+    return visitor.createFingerprint();
+  }
+  
+  static NameFingerprint read(StringDictionaryReader reader) throws IOException {
+    NameFingerprint fingerprint = new NameFingerprint();
+    fingerprint.superName = reader.readString();
+    fingerprint.interfaces = reader.readStrings();
+    fingerprint.fields = reader.readStrings();
+    fingerprint.methods = reader.readStrings();
+    fingerprint.innerClasses = reader.readStrings();
+    return fingerprint;
+  }
+  
+  @Override
+  void write(StringDictionaryWriter writer) throws IOException {
+    writer.writeString(superName);
+    writer.writeStrings(interfaces);
+    writer.writeStrings(fields);
+    writer.writeStrings(methods);
+    writer.writeStrings(innerClasses);
   }
   
   @Override
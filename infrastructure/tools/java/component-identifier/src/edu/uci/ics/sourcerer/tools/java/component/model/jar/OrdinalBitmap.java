@@ -0,0 +1,429 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.model.jar;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed bitmap of non-negative ints, split roaring-style
+ * into 2^16 value chunks. Sparse chunks are stored as sorted arrays,
+ * dense ones as plain bitmaps.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class OrdinalBitmap {
+  private static final int ARRAY_MAX = 4096;
+  private static final int BITMAP_WORDS = 1 << 10;
+  
+  static final OrdinalBitmap EMPTY = new OrdinalBitmap(new char[0], new Container[0]);
+  
+  private final char[] keys;
+  private final Container[] containers;
+  private final int cardinality;
+  private final int hashCode;
+  
+  private OrdinalBitmap(char[] keys, Container[] containers) {
+    this.keys = keys;
+    this.containers = containers;
+    int cardinality = 0;
+    int hashCode = 0;
+    for (int i = 0; i < keys.length; i++) {
+      cardinality += containers[i].cardinality();
+      hashCode = 31 * (31 * hashCode + keys[i]) + containers[i].hashCode();
+    }
+    this.cardinality = cardinality;
+    this.hashCode = hashCode;
+  }
+  
+  static OrdinalBitmap create(int value) {
+    return EMPTY.add(value);
+  }
+  
+  int cardinality() {
+    return cardinality;
+  }
+  
+  boolean contains(int value) {
+    int index = Arrays.binarySearch(keys, high(value));
+    return index >= 0 && containers[index].contains(low(value));
+  }
+  
+  OrdinalBitmap add(int value) {
+    char high = high(value);
+    int index = Arrays.binarySearch(keys, high);
+    if (index >= 0) {
+      Container container = containers[index].add(low(value));
+      if (container == containers[index]) {
+        return this;
+      } else {
+        Container[] newContainers = containers.clone();
+        newContainers[index] = container;
+        return new OrdinalBitmap(keys, newContainers);
+      }
+    } else {
+      index = -index - 1;
+      char[] newKeys = new char[keys.length + 1];
+      Container[] newContainers = new Container[keys.length + 1];
+      System.arraycopy(keys, 0, newKeys, 0, index);
+      System.arraycopy(containers, 0, newContainers, 0, index);
+      newKeys[index] = high;
+      newContainers[index] = new ArrayContainer(new char[] { low(value) });
+      System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+      System.arraycopy(containers, index, newContainers, index + 1, keys.length - index);
+      return new OrdinalBitmap(newKeys, newContainers);
+    }
+  }
+  
+  OrdinalBitmap or(OrdinalBitmap other) {
+    char[] newKeys = new char[keys.length + other.keys.length];
+    Container[] newContainers = new Container[newKeys.length];
+    int count = 0;
+    int i = 0, j = 0;
+    while (i < keys.length && j < other.keys.length) {
+      if (keys[i] < other.keys[j]) {
+        newKeys[count] = keys[i];
+        newContainers[count++] = containers[i++];
+      } else if (keys[i] > other.keys[j]) {
+        newKeys[count] = other.keys[j];
+        newContainers[count++] = other.containers[j++];
+      } else {
+        newKeys[count] = keys[i];
+        newContainers[count++] = containers[i++].or(other.containers[j++]);
+      }
+    }
+    for (; i < keys.length; i++) {
+      newKeys[count] = keys[i];
+      newContainers[count++] = containers[i];
+    }
+    for (; j < other.keys.length; j++) {
+      newKeys[count] = other.keys[j];
+      newContainers[count++] = other.containers[j];
+    }
+    return new OrdinalBitmap(Arrays.copyOf(newKeys, count), Arrays.copyOf(newContainers, count));
+  }
+  
+  int andCardinality(OrdinalBitmap other) {
+    int count = 0;
+    int i = 0, j = 0;
+    while (i < keys.length && j < other.keys.length) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        count += containers[i++].andCardinality(other.containers[j++]);
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Is every value in this bitmap also in the argument?
+   */
+  boolean isSubset(OrdinalBitmap other) {
+    if (cardinality > other.cardinality) {
+      return false;
+    }
+    int j = 0;
+    for (int i = 0; i < keys.length; i++) {
+      while (j < other.keys.length && other.keys[j] < keys[i]) {
+        j++;
+      }
+      if (j == other.keys.length || other.keys[j] != keys[i] || !containers[i].isSubset(other.containers[j])) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * The values, in ascending order.
+   */
+  int[] toArray() {
+    int[] values = new int[cardinality];
+    int pos = 0;
+    for (int i = 0; i < keys.length; i++) {
+      pos = containers[i].fill(keys[i] << 16, values, pos);
+    }
+    return values;
+  }
+  
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+  
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (o instanceof OrdinalBitmap) {
+      OrdinalBitmap other = (OrdinalBitmap) o;
+      return hashCode == other.hashCode && cardinality == other.cardinality && Arrays.equals(keys, other.keys) && Arrays.equals(containers, other.containers);
+    } else {
+      return false;
+    }
+  }
+  
+  private static char high(int value) {
+    return (char) (value >>> 16);
+  }
+  
+  private static char low(int value) {
+    return (char) value;
+  }
+  
+  /**
+   * Holds the low 16 bits of the values sharing a chunk. A container with
+   * more than ARRAY_MAX values is always a bitmap, and never otherwise,
+   * so equal contents imply equal representations.
+   */
+  private static abstract class Container {
+    abstract int cardinality();
+    abstract boolean contains(char value);
+    abstract Container add(char value);
+    abstract Container or(Container other);
+    abstract int andCardinality(Container other);
+    abstract boolean isSubset(Container other);
+    abstract int fill(int high, int[] values, int pos);
+  }
+  
+  private static final class ArrayContainer extends Container {
+    private final char[] values;
+    
+    private ArrayContainer(char[] values) {
+      this.values = values;
+    }
+    
+    @Override
+    int cardinality() {
+      return values.length;
+    }
+    
+    @Override
+    boolean contains(char value) {
+      return Arrays.binarySearch(values, value) >= 0;
+    }
+    
+    @Override
+    Container add(char value) {
+      int index = Arrays.binarySearch(values, value);
+      if (index >= 0) {
+        return this;
+      } else if (values.length == ARRAY_MAX) {
+        return toBitmap().add(value);
+      } else {
+        index = -index - 1;
+        char[] newValues = new char[values.length + 1];
+        System.arraycopy(values, 0, newValues, 0, index);
+        newValues[index] = value;
+        System.arraycopy(values, index, newValues, index + 1, values.length - index);
+        return new ArrayContainer(newValues);
+      }
+    }
+    
+    @Override
+    Container or(Container other) {
+      if (other instanceof BitmapContainer) {
+        return other.or(this);
+      } else {
+        char[] otherValues = ((ArrayContainer) other).values;
+        char[] newValues = new char[values.length + otherValues.length];
+        int count = 0;
+        int i = 0, j = 0;
+        while (i < values.length && j < otherValues.length) {
+          if (values[i] < otherValues[j]) {
+            newValues[count++] = values[i++];
+          } else if (values[i] > otherValues[j]) {
+            newValues[count++] = otherValues[j++];
+          } else {
+            newValues[count++] = values[i++];
+            j++;
+          }
+        }
+        for (; i < values.length; i++) {
+          newValues[count++] = values[i];
+        }
+        for (; j < otherValues.length; j++) {
+          newValues[count++] = otherValues[j];
+        }
+        ArrayContainer result = new ArrayContainer(Arrays.copyOf(newValues, count));
+        return count > ARRAY_MAX ? result.toBitmap() : result;
+      }
+    }
+    
+    @Override
+    int andCardinality(Container other) {
+      int count = 0;
+      if (other instanceof BitmapContainer) {
+        for (char value : values) {
+          if (other.contains(value)) {
+            count++;
+          }
+        }
+      } else {
+        char[] otherValues = ((ArrayContainer) other).values;
+        int i = 0, j = 0;
+        while (i < values.length && j < otherValues.length) {
+          if (values[i] < otherValues[j]) {
+            i++;
+          } else if (values[i] > otherValues[j]) {
+            j++;
+          } else {
+            count++;
+            i++;
+            j++;
+          }
+        }
+      }
+      return count;
+    }
+    
+    @Override
+    boolean isSubset(Container other) {
+      return values.length <= other.cardinality() && andCardinality(other) == values.length;
+    }
+    
+    @Override
+    int fill(int high, int[] out, int pos) {
+      for (char value : values) {
+        out[pos++] = high | value;
+      }
+      return pos;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof ArrayContainer && Arrays.equals(values, ((ArrayContainer) o).values);
+    }
+    
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(values);
+    }
+    
+    private BitmapContainer toBitmap() {
+      long[] words = new long[BITMAP_WORDS];
+      for (char value : values) {
+        words[value >>> 6] |= 1l << value;
+      }
+      return new BitmapContainer(words, values.length);
+    }
+  }
+  
+  private static final class BitmapContainer extends Container {
+    private final long[] words;
+    private final int cardinality;
+    
+    private BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+    
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+    
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] & (1l << value)) != 0;
+    }
+    
+    @Override
+    Container add(char value) {
+      if (contains(value)) {
+        return this;
+      } else {
+        long[] newWords = words.clone();
+        newWords[value >>> 6] |= 1l << value;
+        return new BitmapContainer(newWords, cardinality + 1);
+      }
+    }
+    
+    @Override
+    Container or(Container other) {
+      long[] newWords = words.clone();
+      if (other instanceof BitmapContainer) {
+        long[] otherWords = ((BitmapContainer) other).words;
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          newWords[i] |= otherWords[i];
+        }
+      } else {
+        for (char value : ((ArrayContainer) other).values) {
+          newWords[value >>> 6] |= 1l << value;
+        }
+      }
+      int count = 0;
+      for (long word : newWords) {
+        count += Long.bitCount(word);
+      }
+      return new BitmapContainer(newWords, count);
+    }
+    
+    @Override
+    int andCardinality(Container other) {
+      if (other instanceof BitmapContainer) {
+        long[] otherWords = ((BitmapContainer) other).words;
+        int count = 0;
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          count += Long.bitCount(words[i] & otherWords[i]);
+        }
+        return count;
+      } else {
+        return other.andCardinality(this);
+      }
+    }
+    
+    @Override
+    boolean isSubset(Container other) {
+      // Arrays never hold enough values to contain a bitmap
+      if (other instanceof BitmapContainer) {
+        long[] otherWords = ((BitmapContainer) other).words;
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          if ((words[i] & ~otherWords[i]) != 0) {
+            return false;
+          }
+        }
+        return true;
+      } else {
+        return false;
+      }
+    }
+    
+    @Override
+    int fill(int high, int[] out, int pos) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        for (long word = words[i]; word != 0; word &= word - 1) {
+          out[pos++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+        }
+      }
+      return pos;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof BitmapContainer && Arrays.equals(words, ((BitmapContainer) o).words);
+    }
+    
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(words);
+    }
+  }
+}
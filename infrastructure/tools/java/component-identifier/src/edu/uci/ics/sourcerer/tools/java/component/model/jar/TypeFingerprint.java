@@ -39,6 +39,8 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryReader;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryWriter;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -50,7 +52,6 @@ public class TypeFingerprint extends Fingerprint {
     this.fingerprint = fingerprint;
   }
   
-  private static FingerprintClassVisitor CLASS_VISITOR = new FingerprintClassVisitor();
   private static class FingerprintClassVisitor extends ClassVisitor {
     private StringBuilder result;
     private Collection<String> fields;
@@ -158,8 +159,10 @@ public class TypeFingerprint extends Fingerprint {
   static TypeFingerprint create(InputStream is) throws IOException {
     try {
       ClassReader reader = new ClassReader(is);
-      reader.accept(CLASS_VISITOR, 0);
-      return new TypeFingerprint(CLASS_VISITOR.createFingerprint());
+      // Jars are read in parallel, so each class gets its own visitor
+      FingerprintClassVisitor visitor = new FingerprintClassVisitor();
+      reader.accept(visitor, 0);
+      return new TypeFingerprint(visitor.createFingerprint());
     } catch (Exception e) {
       return new TypeFingerprint("ERROR");
     }
@@ -191,6 +194,15 @@ public class TypeFingerprint extends Fingerprint {
     return fingerprint;
   }
   
+  static TypeFingerprint read(StringDictionaryReader reader) throws IOException {
+    return new TypeFingerprint(reader.readString());
+  }
+  
+  @Override
+  void write(StringDictionaryWriter writer) throws IOException {
+    writer.writeString(fingerprint);
+  }
+  
   public static ObjectDeserializer<Fingerprint> makeDeserializer() {
     return new ObjectDeserializer<Fingerprint>() {
       @Override
@@ -29,6 +29,8 @@ import edu.uci.ics.sourcerer.tools.java.component.model.fqn.AbstractFqnNode;
 import edu.uci.ics.sourcerer.util.MutableSingletonMap;
 import edu.uci.ics.sourcerer.util.io.InvalidFileFormatException;
 import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryReader;
+import edu.uci.ics.sourcerer.util.io.StringDictionaryWriter;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -144,6 +146,40 @@ public class VersionedFqnNode extends AbstractFqnNode<VersionedFqnNode> {
     };
   }
   
+  protected BinarySaver createBinarySaver(final Map<Jar, Integer> jarMapping) {
+    return new BinarySaver() {
+      @Override
+      protected void save(StringDictionaryWriter writer, VersionedFqnNode node) throws IOException {
+        writer.writeInt(node.versions.size());
+        for (FqnVersion version : node.versions.values()) {
+          version.getFingerprint().write(writer);
+          writer.writeInt(version.getJars().size());
+          for (Jar jar : version.getJars()) {
+            writer.writeInt(jarMapping.get(jar));
+          }
+        }
+      }
+    };
+  }
+  
+  protected BinaryLoader createBinaryLoader(final Fingerprint.Mode mode, final Jar[] jarMapping) {
+    return new BinaryLoader() {
+      @Override
+      protected void load(StringDictionaryReader reader, VersionedFqnNode node) throws IOException {
+        for (int versionCount = reader.readInt(); versionCount > 0; versionCount--) {
+          FqnVersion version = node.getVersion(Fingerprint.read(mode, reader));
+          for (int jarCount = reader.readInt(); jarCount > 0; jarCount--) {
+            int jar = reader.readInt();
+            if (jar < 0 || jar >= jarMapping.length) {
+              throw new InvalidFileFormatException("Missing jar!");
+            }
+            jarMapping[jar].addFqn(version);
+          }
+        }
+      }
+    };
+  }
+  
 //  
 //  public Iterable<VersionedFqnNode> getPackageIterable() {
 //    // We want all the nodes that are the direct parent of a node with a version 
@@ -0,0 +1,267 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.identifier.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.Assert;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+
+import edu.uci.ics.sourcerer.tools.java.component.model.cluster.Cluster;
+import edu.uci.ics.sourcerer.tools.java.component.model.cluster.ClusterCollection;
+import edu.uci.ics.sourcerer.tools.java.component.model.cluster.ClusterVersion;
+import edu.uci.ics.sourcerer.tools.java.component.model.jar.FqnVersion;
+import edu.uci.ics.sourcerer.tools.java.component.model.jar.Jar;
+import edu.uci.ics.sourcerer.tools.java.component.model.jar.JarCollection;
+import edu.uci.ics.sourcerer.tools.java.component.model.jar.SyntheticJarCollection;
+import edu.uci.ics.sourcerer.tools.java.component.model.jar.VersionedFqnNode;
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+
+/**
+ * Checks the parallel cluster identification and merging against the
+ * original sequential algorithms.
+ * 
+ * Identification is equivalent to the original. Merging is not: the
+ * original took clusters of equal size in hash code order, which varies
+ * from run to run, while ClusterMerger now takes them in collection order.
+ * That is a deliberate change of behavior. Which cluster absorbs a cluster
+ * that fits into several of equal size can differ, so the merges are only
+ * compared by the clusters that survive and by the fqns they cover.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class ClusterIdentifierTest {
+  public static final Command COMMAND = new Command("test", "Run a junit test.") {
+    @Override
+    protected void action() {
+    }
+  }.setProperties(ClusterIdentifier.CLUSTER_THREADS);
+  
+  private static final long[] SEEDS = { 0, 1, 2 };
+  private static final int[] THREADS = { 1, 2, 4 };
+  
+  @BeforeClass
+  public static void initialize() {
+    // Initializes the logging, which can only be done once
+    Command.execute(new String[] { "--test" }, ClusterIdentifierTest.class);
+  }
+  
+  @Test
+  public void testFullyMatchingClusters() {
+    for (long seed : SEEDS) {
+      JarCollection jars = SyntheticJarCollection.create(seed, 300, 2000);
+      Set<List<Object>> expected = toSignatures(identifyFullyMatchingClustersSequentially(jars));
+      List<List<Object>> first = null;
+      for (int threads : THREADS) {
+        ClusterIdentifier.CLUSTER_THREADS.setValue(threads);
+        List<List<Object>> actual = toOrderedSignatures(ClusterIdentifier.identifyFullyMatchingClusters(jars));
+        Assert.assertEquals(expected, new HashSet<>(actual));
+        // The order must not depend on the thread count either
+        if (first == null) {
+          first = actual;
+        } else {
+          Assert.assertEquals(first, actual);
+        }
+      }
+    }
+  }
+  
+  @Test
+  public void testMergeByVersions() {
+    for (long seed : SEEDS) {
+      JarCollection jars = SyntheticJarCollection.create(seed, 300, 2000);
+      ClusterCollection sequential = identifyFullyMatchingClustersSequentially(jars);
+      int identified = sequential.size();
+      mergeByVersionsSequentially(sequential);
+      // Make sure the merging actually did something
+      Assert.assertTrue(sequential.size() < identified);
+      Set<List<Object>> expectedCores = toCoreSignatures(sequential);
+      Multiset<VersionedFqnNode> expectedFqns = toMergedFqns(sequential);
+      List<List<Object>> first = null;
+      for (int threads : THREADS) {
+        ClusterIdentifier.CLUSTER_THREADS.setValue(threads);
+        ClusterCollection clusters = ClusterIdentifier.identifyFullyMatchingClusters(jars);
+        ClusterMerger.mergeByVersions(clusters);
+        Assert.assertEquals(expectedCores, toCoreSignatures(clusters));
+        Assert.assertEquals(expectedFqns, toMergedFqns(clusters));
+        // Unlike the original, the result must not vary at all
+        if (first == null) {
+          first = toOrderedSignatures(clusters);
+        } else {
+          Assert.assertEquals(first, toOrderedSignatures(clusters));
+        }
+      }
+    }
+  }
+  
+  private static List<Object> toSignature(Cluster cluster) {
+    return Arrays.<Object>asList(cluster.getJars(), new HashSet<>(cluster.getCoreFqns()), new HashSet<>(cluster.getVersionFqns()));
+  }
+  
+  /**
+   * Ignores the fqns absorbed from other clusters.
+   */
+  private static Set<List<Object>> toCoreSignatures(ClusterCollection clusters) {
+    Set<List<Object>> signatures = new HashSet<>();
+    for (Cluster cluster : clusters) {
+      signatures.add(Arrays.<Object>asList(cluster.getJars(), new HashSet<>(cluster.getCoreFqns())));
+    }
+    return signatures;
+  }
+  
+  /**
+   * Ignores which cluster each fqn ended up in.
+   */
+  private static Multiset<VersionedFqnNode> toMergedFqns(ClusterCollection clusters) {
+    Multiset<VersionedFqnNode> fqns = HashMultiset.create();
+    for (Cluster cluster : clusters) {
+      fqns.addAll(cluster.getCoreFqns());
+      fqns.addAll(cluster.getVersionFqns());
+    }
+    return fqns;
+  }
+  
+  private static Set<List<Object>> toSignatures(ClusterCollection clusters) {
+    return new HashSet<>(toOrderedSignatures(clusters));
+  }
+  
+  private static List<List<Object>> toOrderedSignatures(ClusterCollection clusters) {
+    List<List<Object>> signatures = new ArrayList<>();
+    for (Cluster cluster : clusters) {
+      signatures.add(toSignature(cluster));
+    }
+    return signatures;
+  }
+  
+  /**
+   * The original single threaded identification, merging the fully
+   * compatible clusters of each fqn fragment on the way up the tree.
+   */
+  private static ClusterCollection identifyFullyMatchingClustersSequentially(JarCollection jars) {
+    Multimap<VersionedFqnNode, Cluster> clusterMap = ArrayListMultimap.create();
+    
+    for (VersionedFqnNode parent : jars.getRoot().getPostOrderIterable()) {
+      if (!parent.hasChildren()) {
+        clusterMap.put(parent, Cluster.create(parent));
+      } else {
+        if (parent.getJars().size() > 0) {
+          clusterMap.put(parent, Cluster.create(parent));
+        }
+        for (VersionedFqnNode child : parent.getChildren()) {
+          for (Cluster childCluster : clusterMap.get(child)) {
+            Cluster match = null;
+            for (Cluster parentCluster : clusterMap.get(parent)) {
+              if (childCluster.getJars() == parentCluster.getJars()) {
+                match = parentCluster;
+                break;
+              }
+            }
+            if (match != null) {
+              match.mergeCore(childCluster);
+            } else {
+              clusterMap.put(parent, childCluster);
+            }
+          }
+          clusterMap.removeAll(child);
+        }
+      }
+    }
+    
+    return ClusterCollection.create(clusterMap.get(jars.getRoot()));
+  }
+  
+  /**
+   * The original single threaded merging.
+   */
+  private static void mergeByVersionsSequentially(ClusterCollection clusters) {
+    TreeSet<Cluster> sortedClusters = new TreeSet<>(Cluster.DESCENDING_SIZE_COMPARATOR);
+    Map<VersionedFqnNode, Cluster> fqnToCluster = new HashMap<>();
+    for (Cluster cluster : clusters) {
+      sortedClusters.add(cluster);
+      for (VersionedFqnNode fqn : cluster.getCoreFqns()) {
+        fqnToCluster.put(fqn, cluster);
+      }
+    }
+    
+    Collection<Cluster> remainingClusters = new LinkedList<>();
+    Set<VersionedFqnNode> usedFqns = new HashSet<>();
+    while (!sortedClusters.isEmpty()) {
+      Cluster biggest = sortedClusters.pollFirst();
+      remainingClusters.add(biggest);
+
+      usedFqns.addAll(biggest.getCoreFqns());
+      boolean addedSomething = true;
+      while (addedSomething) {
+        Set<VersionedFqnNode> globalPotentials = new HashSet<>();
+        Set<VersionedFqnNode> globalPartials = new HashSet<>();
+
+        for (ClusterVersion version : biggest.getVersions()) {
+          Multiset<VersionedFqnNode> potentials = HashMultiset.create();
+          for (Jar jar : version.getJars()) {
+            for (FqnVersion fqn : jar.getFqns()) {
+              if (!usedFqns.contains(fqn.getFqn())) {
+                potentials.add(fqn.getFqn());
+              }
+            }
+          }
+          
+          int max = version.getJars().size();
+          for (VersionedFqnNode fqn : potentials.elementSet()) {
+            if (potentials.count(fqn) == max && fqn.getJars().isSubset(biggest.getJars())) {
+              globalPotentials.add(fqn);
+            } else {
+              globalPartials.add(fqn);
+            }
+          }
+        }
+        
+        globalPotentials.removeAll(globalPartials);
+        
+        Set<Cluster> newClusters = new HashSet<>();
+        for (VersionedFqnNode fqn : globalPotentials) {
+          Cluster newCluster = fqnToCluster.get(fqn);
+          newClusters.add(newCluster);
+          usedFqns.add(fqn);
+          biggest.addVersionedCore(fqn);
+        }
+        
+        sortedClusters.removeAll(newClusters);
+        
+        addedSomething = !globalPotentials.isEmpty();
+      }
+    }
+    
+    clusters.reset(remainingClusters);
+  }
+}
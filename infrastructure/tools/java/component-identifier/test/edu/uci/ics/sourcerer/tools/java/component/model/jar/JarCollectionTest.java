@@ -0,0 +1,236 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.model.jar;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import junit.framework.Assert;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepository;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
+import edu.uci.ics.sourcerer.tools.java.repo.model.ModifiableJavaProject;
+import edu.uci.ics.sourcerer.tools.java.repo.model.ModifiableJavaRepository;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+
+/**
+ * Builds jar collections from a few of the library jars, and checks that
+ * the single pass reader and the binary cache agree with the original
+ * two pass reader and the text cache.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class JarCollectionTest {
+  public static final Command COMMAND = new Command("test", "Run a junit test.") {
+    @Override
+    protected void action() {
+    }
+  }.setProperties(JarCollection.JAR_READER_THREADS);
+  
+  private static final String[] JARS = { "asm-4.0_RC2.jar", "slf4j-api-1.6.6.jar", "jcl-over-slf4j-1.6.6.jar", "httpcore-4.2.1.jar", "httpmime-4.2.jar" };
+  private static final Fingerprint.Mode[] MODES = { Fingerprint.Mode.LENGTH, Fingerprint.Mode.HASH, Fingerprint.Mode.NAME, Fingerprint.Mode.TYPE };
+  
+  private static File folder;
+  private static JavaRepository repo;
+  
+  @BeforeClass
+  public static void initialize() throws IOException {
+    // Initializes the logging, which can only be done once
+    Command.execute(new String[] { "--test" }, JarCollectionTest.class);
+    
+    folder = Files.createTempDirectory("jar-collection-test").toFile();
+    File content = new File(folder, "content");
+    content.mkdirs();
+    File lib = findLib();
+    for (String jar : JARS) {
+      Files.copy(new File(lib, jar).toPath(), new File(content, jar).toPath());
+    }
+    
+    // Neither is registered by the test command, as both are set per test
+    JavaRepositoryFactory.INPUT_REPO.permit().setValue(new File(folder, "repo"));
+    Fingerprint.FINGERPRINT_MODE.permit();
+    ModifiableJavaRepository modifiable = JavaRepositoryFactory.INSTANCE.loadModifiableJavaRepository(JavaRepositoryFactory.INPUT_REPO);
+    ModifiableJavaProject project = modifiable.createBatch().createProject();
+    project.addContent(content);
+    modifiable.aggregateJarFiles();
+    
+    repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(JavaRepositoryFactory.INPUT_REPO);
+    Assert.assertEquals(JARS.length, repo.getProjectJarFiles().size());
+  }
+  
+  /**
+   * The sourcerer.lib system property, set by the build, or else the lib
+   * directory above wherever this class was loaded from.
+   */
+  private static File findLib() {
+    String property = System.getProperty("sourcerer.lib");
+    if (property != null) {
+      return new File(property);
+    }
+    try {
+      File dir = new File(JarCollectionTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      for (; dir != null; dir = dir.getParentFile()) {
+        File lib = new File(dir, "lib");
+        if (new File(lib, JARS[0]).exists()) {
+          return lib;
+        }
+      }
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException(e);
+    }
+    throw new IllegalStateException("Unable to find the lib directory, set sourcerer.lib");
+  }
+  
+  @AfterClass
+  public static void cleanUp() {
+    FileUtils.delete(folder);
+  }
+  
+  @Test
+  public void testSinglePassReader() throws IOException {
+    for (JarFile jar : repo.getProjectJarFiles()) {
+      JarReader.JarContents contents = JarReader.read(jar, EnumSet.of(Fingerprint.Mode.NONE, MODES));
+      for (Fingerprint.Mode mode : MODES) {
+        Map<String, Fingerprint> expected = readInTwoPasses(jar, mode);
+        Assert.assertEquals(expected.size(), contents.getFqns().size());
+        List<Fingerprint> fingerprints = contents.getFingerprints(mode);
+        for (int i = 0; i < fingerprints.size(); i++) {
+          Fingerprint fingerprint = expected.get(contents.getFqns().get(i));
+          Assert.assertEquals(fingerprint, fingerprints.get(i));
+          Assert.assertEquals(fingerprint.serialize(), fingerprints.get(i).serialize());
+        }
+      }
+    }
+  }
+  
+  @Test
+  public void testCaches() throws IOException {
+    for (Fingerprint.Mode mode : MODES) {
+      Fingerprint.FINGERPRINT_MODE.setValue(mode);
+      List<String> first = null;
+      for (int threads : new int[] { 1, 4 }) {
+        JarCollection.JAR_READER_THREADS.setValue(threads);
+        File cacheDir = new File(folder, "cache-" + mode + "-" + threads);
+        JarCollection jars = JarCollection.create(repo, cacheDir);
+        List<String> expected = describe(jars);
+        Assert.assertEquals(JARS.length, jars.size());
+        
+        // The thread count must not matter
+        if (first == null) {
+          first = expected;
+        } else {
+          Assert.assertEquals(first, expected);
+        }
+        
+        // The binary cache was written on creation, and must load identically
+        Assert.assertEquals(expected, describe(JarCollection.create(repo, cacheDir)));
+        
+        // As must the text cache
+        File textCache = new File(cacheDir, mode + ".cache");
+        jars.saveText(textCache);
+        Assert.assertEquals(expected, describe(JarCollection.loadText(textCache, repo)));
+        
+        // Text caches get converted to binary ones
+        File binaryCache = new File(cacheDir, mode + ".bin");
+        Assert.assertTrue(binaryCache.delete());
+        Assert.assertEquals(expected, describe(JarCollection.create(repo, cacheDir)));
+        Assert.assertTrue(binaryCache.exists());
+        Assert.assertEquals(expected, describe(JarCollection.loadBinary(binaryCache, repo)));
+      }
+    }
+  }
+  
+  /**
+   * The original reader, which made one pass to find the first entry for
+   * each class, and a second to fingerprint it.
+   */
+  private static Map<String, Fingerprint> readInTwoPasses(JarFile jar, Fingerprint.Mode mode) throws IOException {
+    Map<String, Long> names = new HashMap<>();
+    try (ZipInputStream zis = new ZipInputStream(new FileInputStream(jar.getFile().toFile()))) {
+      for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+        if (entry.getName().endsWith(".class") && !names.containsKey(entry.getName())) {
+          names.put(entry.getName(), entry.getSize());
+        }
+      }
+    }
+    Map<String, Fingerprint> fingerprints = new HashMap<>();
+    try (ZipInputStream zis = new ZipInputStream(new FileInputStream(jar.getFile().toFile()))) {
+      for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+        if (entry.getName().endsWith(".class")) {
+          Long length = names.get(entry.getName());
+          if (length != null && length.longValue() == entry.getSize()) {
+            names.remove(entry.getName());
+            String fqn = entry.getName();
+            fingerprints.put(fqn.substring(0, fqn.lastIndexOf('.')), Fingerprint.create(mode, zis, entry.getSize()));
+          }
+        }
+      }
+    }
+    return fingerprints;
+  }
+  
+  /**
+   * Lists every node with its versions and their jars, and every jar with
+   * its classes.
+   */
+  private static List<String> describe(JarCollection jars) {
+    List<String> description = new ArrayList<>();
+    for (VersionedFqnNode node : jars.getRoot().getPreOrderIterable()) {
+      List<String> versions = new ArrayList<>();
+      for (FqnVersion version : node.getVersions()) {
+        List<String> hashes = new ArrayList<>();
+        for (Jar jar : version.getJars()) {
+          hashes.add(jar.getJar().getProperties().HASH.getValue());
+        }
+        Collections.sort(hashes);
+        versions.add(version.getFingerprint().serialize() + " " + hashes);
+      }
+      Collections.sort(versions);
+      description.add((node == jars.getRoot() ? "" : node.getFqn()) + " " + versions);
+    }
+    List<String> jarDescriptions = new ArrayList<>();
+    for (Jar jar : jars) {
+      List<String> fqns = new ArrayList<>();
+      for (FqnVersion fqn : jar.getFqns()) {
+        fqns.add(fqn.getFqn().getFqn() + " " + fqn.getFingerprint().serialize());
+      }
+      Collections.sort(fqns);
+      jarDescriptions.add(jar.getJar().getProperties().HASH.getValue() + " " + fqns);
+    }
+    Collections.sort(jarDescriptions);
+    description.addAll(jarDescriptions);
+    return description;
+  }
+}
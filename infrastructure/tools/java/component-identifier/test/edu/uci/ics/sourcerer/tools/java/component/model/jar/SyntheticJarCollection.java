@@ -0,0 +1,117 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.model.jar;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds jar collections without a repository, for tests and benchmarks.
+ * Each jar bundles a few versions of popular libraries, plus some classes
+ * of its own. Some libraries are always shipped together with their
+ * neighbor. Some packages share their name with a class, so there are
+ * fqn nodes that both have children and appear in jars.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class SyntheticJarCollection {
+  private SyntheticJarCollection() {}
+  
+  public static JarCollection create(long seed, int libraryCount, int jarCount) {
+    // Fingerprints are just the version that last changed each class
+    Fingerprint.FINGERPRINT_MODE.permit().setValue(Fingerprint.Mode.LENGTH);
+    Random random = new Random(seed);
+    
+    // Each version of a library drops a few of its classes, and changes some others
+    List<List<List<String>>> libraries = new ArrayList<>();
+    List<List<List<Integer>>> fingerprints = new ArrayList<>();
+    for (int lib = 0; lib < libraryCount; lib++) {
+      List<String> classes = new ArrayList<>();
+      for (int pkg = 0, pkgs = 1 + random.nextInt(3); pkg < pkgs; pkg++) {
+        if (random.nextInt(3) == 0) {
+          classes.add("org/lib" + lib + "/pkg" + pkg);
+        }
+        for (int cls = 0, clss = 2 + random.nextInt(8); cls < clss; cls++) {
+          classes.add("org/lib" + lib + "/pkg" + pkg + "/Class" + cls);
+        }
+      }
+      List<List<String>> versions = new ArrayList<>();
+      List<List<Integer>> versionFingerprints = new ArrayList<>();
+      int[] lastChanged = new int[classes.size()];
+      for (int v = 0, vs = 1 + random.nextInt(4); v < vs; v++) {
+        List<String> version = new ArrayList<>();
+        List<Integer> versionFingerprint = new ArrayList<>();
+        for (int cls = 0; cls < classes.size(); cls++) {
+          if (random.nextInt(4) == 0) {
+            lastChanged[cls] = v;
+          }
+          if (random.nextInt(10) > 0) {
+            version.add(classes.get(cls));
+            versionFingerprint.add(lastChanged[cls]);
+          }
+        }
+        versions.add(version);
+        versionFingerprints.add(versionFingerprint);
+      }
+      libraries.add(versions);
+      fingerprints.add(versionFingerprints);
+    }
+    
+    JarCollection jars = new JarCollection();
+    for (int j = 0; j < jarCount; j++) {
+      Jar jar = new Jar(jars, null);
+      for (int lib = 0, libs = 1 + random.nextInt(4); lib < libs; lib++) {
+        // Skew towards the earlier, more popular libraries
+        double skew = random.nextDouble();
+        int picked = (int) (skew * skew * libraryCount);
+        int version = random.nextInt(libraries.get(picked).size());
+        add(jars, jar, libraries.get(picked).get(version), fingerprints.get(picked).get(version));
+        // Every third library always comes with the next one
+        if (picked % 3 == 0 && picked + 1 < libraryCount) {
+          version = Math.min(version, libraries.get(picked + 1).size() - 1);
+          add(jars, jar, libraries.get(picked + 1).get(version), fingerprints.get(picked + 1).get(version));
+        }
+      }
+      for (int cls = 0, clss = random.nextInt(5); cls < clss; cls++) {
+        jar.addFqn(jars.getRoot().getChild("com/jar" + j + "/Class" + cls, '/').getVersion(createFingerprint(0)));
+      }
+      jars.add("synthetic-" + j, jar);
+    }
+    return jars;
+  }
+  
+  private static void add(JarCollection jars, Jar jar, List<String> fqns, List<Integer> fingerprints) {
+    for (int i = 0; i < fqns.size(); i++) {
+      VersionedFqnNode node = jars.getRoot().getChild(fqns.get(i), '/');
+      // A jar may bundle the same library twice
+      if (!node.getJars().contains(jar)) {
+        jar.addFqn(node.getVersion(createFingerprint(fingerprints.get(i))));
+      }
+    }
+  }
+  
+  private static Fingerprint createFingerprint(int length) {
+    try {
+      return Fingerprint.create(null, length);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
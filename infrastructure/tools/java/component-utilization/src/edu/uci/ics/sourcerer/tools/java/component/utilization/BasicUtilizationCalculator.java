@@ -80,7 +80,7 @@ public class BasicUtilizationCalculator extends DatabaseRunnable {
     }
     task.finish();
     
-    BatchInserter inserter = exec.makeInFileInserter(FileUtils.getTempDir(), ComponentMetricsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(FileUtils.getTempDir(), ComponentMetricsTable.TABLE);
 
     task.start("Computing metric for libraries", "libraries processed", 500);
     try (SelectQuery getJars = exec.createSelectQuery(ComponentRelationsTable.TABLE);
@@ -83,7 +83,7 @@ public class FqnUtilizationCalculator extends DatabaseRunnable {
     }
     task.finish();
     
-    BatchInserter inserter = exec.makeInFileInserter(FileUtils.getTempDir(), ComponentMetricsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(FileUtils.getTempDir(), ComponentMetricsTable.TABLE);
     
     Map<Integer, Set<Integer>> clusterProjectUtilization = new HashMap<>();
     Map<Integer, Set<Integer>> clusterFileUtilization = new HashMap<>();
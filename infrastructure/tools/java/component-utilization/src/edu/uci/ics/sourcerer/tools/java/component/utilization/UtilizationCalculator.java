@@ -85,7 +85,7 @@ public class UtilizationCalculator extends DatabaseRunnable {
     
     task.start("Computing PROJECTS_USING and FILES_USING metrics");
     {
-      BatchInserter inserter = exec.makeInFileInserter(FileUtils.getTempDir(), ComponentMetricsTable.TABLE);
+      BatchInserter inserter = exec.makeBatchInserter(FileUtils.getTempDir(), ComponentMetricsTable.TABLE);
 
       task.start("Computing metric for libraries", "libraries processed", 500);
       try (SelectQuery getJars = exec.createSelectQuery(ComponentRelationsTable.TABLE);
@@ -142,7 +142,7 @@ public class UtilizationCalculator extends DatabaseRunnable {
         
     task.start("Computing PROJECTS_USING_FQN and FILES_USING_FQN metrics");
     {
-      BatchInserter inserter = exec.makeInFileInserter(FileUtils.getTempDir(), ComponentMetricsTable.TABLE);
+      BatchInserter inserter = exec.makeBatchInserter(FileUtils.getTempDir(), ComponentMetricsTable.TABLE);
       Map<Integer, Set<Integer>> clusterProjectUtilization = new HashMap<>();
       Map<Integer, Set<Integer>> clusterFileUtilization = new HashMap<>();
       Map<Integer, Integer> clusterUses = new HashMap<>();
@@ -21,9 +21,12 @@ import edu.uci.ics.sourcerer.tools.java.component.identifier.RepositoryGenerator
 import edu.uci.ics.sourcerer.tools.java.component.model.jar.Fingerprint;
 import edu.uci.ics.sourcerer.tools.java.component.model.repo.ComponentRepository;
 import edu.uci.ics.sourcerer.tools.java.db.exported.ComponentVerifier;
+import edu.uci.ics.sourcerer.tools.java.db.importer.BinaryFormatConverter;
 import edu.uci.ics.sourcerer.tools.java.db.importer.ComponentImporter;
 import edu.uci.ics.sourcerer.tools.java.db.importer.DatabaseInitializer;
+import edu.uci.ics.sourcerer.tools.java.db.importer.InserterBenchmark;
 import edu.uci.ics.sourcerer.tools.java.db.importer.ParallelDatabaseImporter;
+import edu.uci.ics.sourcerer.tools.java.db.importer.TransientReadBenchmark;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.arguments.Command;
@@ -120,6 +123,38 @@ public class Main {
         ParallelDatabaseImporter.STRUCTURAL_ONLY,
         FileUtils.TEMP_DIR);
   
+  public static final Command CONVERT_TO_BINARY =
+    new Command("convert-to-binary", "Converts the entities, relations and files of an extracted repository to the binary format.") {
+      protected void action() {
+        BinaryFormatConverter.convertRepository();
+      }
+    }.setProperties(
+        JavaRepositoryFactory.INPUT_REPO);
+  
+  public static final Command BENCHMARK_INSERTERS =
+    new Command("benchmark-inserters", "Compares the temp file and streaming inserters on the files, entities and relations tables.") {
+      protected void action() {
+        InserterBenchmark.benchmarkInserters();
+      }
+    }.setProperties(
+        DatabaseConnectionFactory.DATABASE_URL, 
+        DatabaseConnectionFactory.DATABASE_USER, 
+        DatabaseConnectionFactory.DATABASE_PASSWORD,
+        DatabaseConnectionFactory.INSERT_BATCH_SIZE,
+        DatabaseConnectionFactory.INSERT_BATCH_BYTES,
+        DatabaseConnectionFactory.INSERT_QUEUE_SIZE,
+        InserterBenchmark.BENCHMARK_ROWS,
+        FileUtils.TEMP_DIR);
+  
+  public static final Command BENCHMARK_TRANSIENT_READS =
+    new Command("benchmark-transient-reads", "Compares transient and materialized reads of a compressed project's relations.") {
+      protected void action() {
+        TransientReadBenchmark.benchmarkTransientReads();
+      }
+    }.setProperties(
+        TransientReadBenchmark.BENCHMARK_RELATIONS,
+        FileUtils.TEMP_DIR);
+  
   public static final Command ADD_COMPONENTS =
     new Command("add-components", "Identifies and adds components to the database.") {
       protected void action() {
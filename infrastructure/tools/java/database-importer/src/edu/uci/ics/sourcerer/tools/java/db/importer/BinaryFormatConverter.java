@@ -0,0 +1,71 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedList;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.BinaryConverter;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.Extracted;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaRepository;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Rewrites the entities, relations and files of an extracted repository
+ * in the binary columnar format.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class BinaryFormatConverter {
+  private BinaryFormatConverter() {}
+  
+  public static void convertRepository() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    task.start("Converting extracted repository to the binary format");
+    
+    task.start("Loading extracted repository");
+    ExtractedJavaRepository repo = JavaRepositoryFactory.INSTANCE.loadExtractedJavaRepository(JavaRepositoryFactory.INPUT_REPO);
+    Collection<Extracted> extracted = new LinkedList<>();
+    extracted.addAll(repo.getLibraryJarFiles());
+    extracted.addAll(repo.getMavenJarFiles());
+    extracted.addAll(repo.getProjectJarFiles());
+    extracted.addAll(repo.getProjects());
+    task.finish();
+    
+    int converted = 0;
+    task.start("Converting " + extracted.size() + " extracted jars and projects", "items processed", 500);
+    for (Extracted item : extracted) {
+      try {
+        if (BinaryConverter.convert(item.getExtractionDir().toFile(), item.getCompressedFile().toFile())) {
+          converted++;
+        }
+      } catch (IOException e) {
+        task.report("Unable to convert " + item.getExtractionDir());
+        task.reportException(e);
+      }
+      task.progress();
+    }
+    task.finish();
+    task.report(converted + " converted");
+    
+    task.finish();
+  }
+}
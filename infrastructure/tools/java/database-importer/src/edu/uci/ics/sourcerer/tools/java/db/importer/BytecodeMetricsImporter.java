@@ -115,7 +115,7 @@ public class BytecodeMetricsImporter extends DatabaseImporter {
           }
           
           if (fileMap.size() > 0) {
-            BatchInserter inserter = exec.makeInFileInserter(tempDir, FileMetricsTable.TABLE);
+            BatchInserter inserter = exec.makeBatchInserter(tempDir, FileMetricsTable.TABLE);
             ReaderBundle reader = ReaderBundle.create(jar.getExtractionDir().toFile(), jar.getCompressedFile().toFile());
             
             task.start("Adding bytecode metrics for " + fileMap.size() + " class files", "files processed");
@@ -143,7 +143,7 @@ public class BytecodeMetricsImporter extends DatabaseImporter {
             inserter.insert();
             task.finish();
             
-            inserter = exec.makeInFileInserter(tempDir, EntityMetricsTable.TABLE);
+            inserter = exec.makeBatchInserter(tempDir, EntityMetricsTable.TABLE);
             task.start("Adding bytecode metrics for entities", "entities processed");
             for (EntityEX entity : reader.getTransientEntities()) {
               Location loc = entity.getLocation();
@@ -118,7 +118,7 @@ public class ComponentImporter extends DatabaseRunnable {
     TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Importing clusters");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, ComponentsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, ComponentsTable.TABLE);
     
     task.start("Processing clusters", "clusters processed");
     for (@SuppressWarnings("unused") Cluster cluster : clusters) {
@@ -154,7 +154,7 @@ public class ComponentImporter extends DatabaseRunnable {
     TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Importing cluster versions");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, ComponentsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, ComponentsTable.TABLE);
     
     task.start("Processing cluster versions", "cluster versions processed");
     for (Cluster cluster : clusters) {
@@ -215,7 +215,7 @@ public class ComponentImporter extends DatabaseRunnable {
     
     if (jars.size() > jarMap.size()) {
       task.start("Importing additional jars");
-      BatchInserter inserter = exec.makeInFileInserter(tempDir, ProjectsTable.TABLE);
+      BatchInserter inserter = exec.makeBatchInserter(tempDir, ProjectsTable.TABLE);
 
       task.start("Processing jars", "jars processed");
       for (Jar jar : jars) {
@@ -277,7 +277,7 @@ public class ComponentImporter extends DatabaseRunnable {
     TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Importing fqns");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, TypesTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, TypesTable.TABLE);
     
     task.start("Processing fqns", "fqns processed");
     for (Map.Entry<Cluster, Integer> entry : clusterMap.entrySet()) {
@@ -325,7 +325,7 @@ public class ComponentImporter extends DatabaseRunnable {
     TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Importing fqn versions");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, TypeVersionsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, TypeVersionsTable.TABLE);
     
     task.start("Processing fqn versions", "fqns processed");
     for (Map.Entry<VersionedFqnNode, Integer> entry : fqnMap.entrySet()) {
@@ -364,7 +364,7 @@ public class ComponentImporter extends DatabaseRunnable {
     TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Importing libraries");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, ComponentsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, ComponentsTable.TABLE);
     
     task.start("Processing libraries", "librariesprocessed");
     for (@SuppressWarnings("unused") Library library : repo.getLibraries()) {
@@ -400,7 +400,7 @@ public class ComponentImporter extends DatabaseRunnable {
     TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Importing library versions");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, ComponentsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, ComponentsTable.TABLE);
     
     task.start("Processing library versions", "library versions processed");
     for (Map.Entry<Library, Integer> entry : libraryMap.entrySet()) {
@@ -440,7 +440,7 @@ public class ComponentImporter extends DatabaseRunnable {
     TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Importing cluster relations");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, ComponentRelationsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, ComponentRelationsTable.TABLE);
     
     task.start("Processing cluster to cluster version mapping", "mappings processed");
     for (Cluster cluster : clusters) {
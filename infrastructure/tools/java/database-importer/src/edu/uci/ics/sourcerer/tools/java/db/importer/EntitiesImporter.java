@@ -107,7 +107,7 @@ public abstract class EntitiesImporter extends DatabaseImporter {
     task.start("Inserting files");
     
     task.start("Processing files", "files processed");
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, FilesTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, FilesTable.TABLE);
     
     for (FileEX file : reader.getTransientFiles()) {
       inserter.addInsert(FilesTable.createInsert(file, projectID));
@@ -126,7 +126,7 @@ public abstract class EntitiesImporter extends DatabaseImporter {
     task.start("Inserting file metrics");
     
     task.start("Processing files", "files processed");
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, FileMetricsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, FileMetricsTable.TABLE);
     
     Map<Metric, Averager<Double>> projectMetrics = new EnumMap<>(Metric.class);
     
@@ -182,7 +182,7 @@ public abstract class EntitiesImporter extends DatabaseImporter {
     task.start("Inserting problems");
 
     task.start("Processing problems", "problems processed");
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, ProblemsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, ProblemsTable.TABLE);
     
     for (ProblemEX problem : reader.getTransientProblems()) {
       Integer fileID = fileMap.get(problem.getPath());
@@ -206,7 +206,7 @@ public abstract class EntitiesImporter extends DatabaseImporter {
     task.start("Inserting entities");
 
     task.start("Processing entities", "entities processed");
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, EntitiesTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, EntitiesTable.TABLE);
     
     Set<String> usedFqns = new HashSet<>();
     for (EntityEX entity : reader.getTransientEntities()) {
@@ -85,8 +85,8 @@ public class FindBugsImporter extends DatabaseImporter {
       this.projectID = projectID;
       this.packageMap = packageMap;
       this.fileMap = fileMap;
-      entityInserter = exec.makeInFileInserter(FileUtils.getTempDir(), EntityMetricsTable.TABLE);
-      fileInserter = exec.makeInFileInserter(FileUtils.getTempDir(), FileMetricsTable.TABLE);
+      entityInserter = exec.makeBatchInserter(FileUtils.getTempDir(), EntityMetricsTable.TABLE);
+      fileInserter = exec.makeBatchInserter(FileUtils.getTempDir(), FileMetricsTable.TABLE);
     }
     
     private Double readAtt(Attributes attributes, String name) {
@@ -0,0 +1,145 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer;
+
+import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.FilesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.FileEX;
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.tools.java.model.types.File;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
+
+/**
+ * Compares the temp file and streaming batch inserters on the files,
+ * entities and relations tables. Rows are written under an unused
+ * project id and deleted afterwards.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class InserterBenchmark {
+  public static final Argument<Integer> BENCHMARK_ROWS = new IntegerArgument("benchmark-rows", 100000, "Number of rows to insert into each table.");
+  
+  private static final Integer BENCHMARK_PROJECT = Integer.valueOf(0);
+  
+  private InserterBenchmark() {}
+  
+  private static abstract class RowMaker {
+    abstract DatabaseTable getTable();
+    abstract Insert make(int row);
+    abstract void delete(DeleteStatement delete);
+  }
+  
+  private static final RowMaker FILES = new RowMaker() {
+    private final FileEX file = new FileEX();
+    
+    @Override
+    DatabaseTable getTable() {
+      return FilesTable.TABLE;
+    }
+    
+    @Override
+    Insert make(int row) {
+      return FilesTable.createInsert(file.update(File.SOURCE, "File" + row + ".java", null, "src/pkg" + (row % 100) + "/File" + row + ".java"), BENCHMARK_PROJECT);
+    }
+    
+    @Override
+    void delete(DeleteStatement delete) {
+      delete.andWhere(FilesTable.PROJECT_ID.compareEquals(BENCHMARK_PROJECT));
+    }
+  };
+  
+  private static final RowMaker ENTITIES = new RowMaker() {
+    @Override
+    DatabaseTable getTable() {
+      return EntitiesTable.TABLE;
+    }
+    
+    @Override
+    Insert make(int row) {
+      return EntitiesTable.createInsert(Entity.CLASS, "pkg" + (row % 100) + ".Type" + row, BENCHMARK_PROJECT);
+    }
+    
+    @Override
+    void delete(DeleteStatement delete) {
+      delete.andWhere(EntitiesTable.PROJECT_ID.compareEquals(BENCHMARK_PROJECT));
+    }
+  };
+  
+  private static final RowMaker RELATIONS = new RowMaker() {
+    @Override
+    DatabaseTable getTable() {
+      return RelationsTable.TABLE;
+    }
+    
+    @Override
+    Insert make(int row) {
+      return RelationsTable.makeInsert(Relation.CALLS, RelationClass.INTERNAL, row, row + 1, BENCHMARK_PROJECT);
+    }
+    
+    @Override
+    void delete(DeleteStatement delete) {
+      delete.andWhere(RelationsTable.PROJECT_ID.compareEquals(BENCHMARK_PROJECT));
+    }
+  };
+  
+  public static void benchmarkInserters() {
+    new DatabaseRunnable() {
+      @Override
+      protected void action() {
+        TaskProgressLogger task = TaskProgressLogger.get();
+        int rows = BENCHMARK_ROWS.getValue();
+        
+        task.start("Benchmarking batch inserters with " + rows + " rows per table");
+        for (RowMaker maker : new RowMaker[] { FILES, ENTITIES, RELATIONS }) {
+          task.start("Benchmarking " + maker.getTable().getName());
+          long inFile = time(maker, exec.makeInFileInserter(FileUtils.getTempDir(), maker.getTable()), rows);
+          long streaming = time(maker, exec.makeStreamingInserter(maker.getTable()), rows);
+          task.report(String.format("in-file:   %,d ms (%,.0f rows/s)", inFile, rows * 1000.0 / Math.max(1, inFile)));
+          task.report(String.format("streaming: %,d ms (%,.0f rows/s)", streaming, rows * 1000.0 / Math.max(1, streaming)));
+          task.finish();
+        }
+        task.finish();
+      }
+      
+      private long time(RowMaker maker, BatchInserter inserter, int rows) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < rows; i++) {
+          inserter.addInsert(maker.make(i));
+        }
+        inserter.insert();
+        long elapsed = System.currentTimeMillis() - start;
+        
+        DeleteStatement delete = exec.createDeleteStatement(maker.getTable());
+        maker.delete(delete);
+        delete.execute();
+        return elapsed;
+      }
+    }.run();
+  }
+}
@@ -23,8 +23,10 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.JavaLibraryTypeModel;
@@ -107,6 +109,7 @@ public final class ParallelDatabaseImporter {
         }
       });
     }
+    unknowns.close();
     
     task.finish();
   }
@@ -140,48 +143,7 @@ public final class ParallelDatabaseImporter {
       return;
     }
     
-    importFilterJars(jars, new ImporterFactory<ExtractedJarFile>() {
-      @Override
-      public String message() {
-        return "jar entity import";
-      }
-      
-      @Override
-      public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-        return new JarEntitiesImporter(nullerator);
-      }
-    });
-    
-    final JavaLibraryTypeModel javaModel = JavaLibraryTypeModel.createJavaLibraryTypeModel();
-    final UnknownEntityCache unknowns = UnknownEntityCache.makeUnknownEntityCache(task);
-    
-    importFilterJars(jars, new ImporterFactory<ExtractedJarFile>() {
-      @Override
-      public String message() {
-        return "jar structural relation import";
-      }
-      
-      @Override
-      public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-        return new JarStructuralRelationsImporter(nullerator, javaModel, unknowns);
-      }
-    });
-    
-    if (STRUCTURAL_ONLY.getValue()) {
-      task.report("Skipping referential relation import");
-    } else {
-      importFilterJars(jars, new ImporterFactory<ExtractedJarFile>() {
-        @Override
-        public String message() {
-          return "referential relation import";
-        }
-        
-        @Override
-        public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-          return new JarReferentialRelationsImporter(nullerator, javaModel, unknowns);
-        }
-      });
-    }
+    importJars(jars);
     
     task.finish();
   }
@@ -196,85 +158,10 @@ public final class ParallelDatabaseImporter {
       return;
     }
     
-    importMavenJars(repo, new ImporterFactory<ExtractedJarFile>() {
-      @Override
-      public String message() {
-        return "maven entity import";
-      }
-      
-      @Override
-      public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-        return new JarEntitiesImporter(nullerator);
-      }
-    });
-    
-    importProjectJars(repo, new ImporterFactory<ExtractedJarFile>() {
-      @Override
-      public String message() {
-        return "project entity import";
-      }
-      
-      @Override
-      public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-        return new JarEntitiesImporter(nullerator);
-      }
-    });
-   
-
-    final JavaLibraryTypeModel javaModel = JavaLibraryTypeModel.createJavaLibraryTypeModel();
-    final UnknownEntityCache unknowns = UnknownEntityCache.makeUnknownEntityCache(task);
-    
-    importMavenJars(repo, new ImporterFactory<ExtractedJarFile>() {
-      @Override
-      public String message() {
-        return "maven structural relation import";
-      }
-      
-      @Override
-      public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-        return new JarStructuralRelationsImporter(nullerator, javaModel, unknowns);
-      }
-    });
-    
-    importProjectJars(repo, new ImporterFactory<ExtractedJarFile>() {
-      @Override
-      public String message() {
-        return "project structural relation import";
-      }
-      
-      @Override
-      public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-        return new JarStructuralRelationsImporter(nullerator, javaModel, unknowns);
-      }
-    });
-    
-    if (STRUCTURAL_ONLY.getValue()) {
-      task.report("Skipping referential relation import");
-    } else {
-      importMavenJars(repo, new ImporterFactory<ExtractedJarFile>() {
-        @Override
-        public String message() {
-          return "referential relation import";
-        }
-        
-        @Override
-        public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-          return new JarReferentialRelationsImporter(nullerator, javaModel, unknowns);
-        }
-      });
-      
-      importProjectJars(repo, new ImporterFactory<ExtractedJarFile>() {
-        @Override
-        public String message() {
-          return "referential relation import";
-        }
-        
-        @Override
-        public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
-          return new JarReferentialRelationsImporter(nullerator, javaModel, unknowns);
-        }
-      });
-    }
+    Collection<ExtractedJarFile> jars = new LinkedList<>();
+    jars.addAll(repo.getMavenJarFiles());
+    jars.addAll(repo.getProjectJarFiles());
+    importJars(jars);
     
     task.finish();
   }
@@ -290,7 +177,11 @@ public final class ParallelDatabaseImporter {
       return;
     }
     
-    importProjects(repo, new ImporterFactory<ExtractedJavaProject>() {
+    final JavaLibraryTypeModel javaModel = JavaLibraryTypeModel.createJavaLibraryTypeModel();
+    final UnknownEntityCache unknowns = UnknownEntityCache.makeUnknownEntityCache(task);
+    
+    List<ImporterFactory<ExtractedJavaProject>> stages = new ArrayList<>();
+    stages.add(new ImporterFactory<ExtractedJavaProject>() {
       @Override
       public String message() {
         return "entity import";
@@ -302,11 +193,7 @@ public final class ParallelDatabaseImporter {
       }
     });
     
-    
-    final JavaLibraryTypeModel javaModel = JavaLibraryTypeModel.createJavaLibraryTypeModel();
-    final UnknownEntityCache unknowns = UnknownEntityCache.makeUnknownEntityCache(task);
-    
-    importProjects(repo, new ImporterFactory<ExtractedJavaProject>() {
+    stages.add(new ImporterFactory<ExtractedJavaProject>() {
       @Override
       public String message() {
         return "structural relation import";
@@ -321,7 +208,7 @@ public final class ParallelDatabaseImporter {
     if (STRUCTURAL_ONLY.getValue()) {
       task.report("Skipping referential relation import");
     } else {
-      importProjects(repo, new ImporterFactory<ExtractedJavaProject>() {
+      stages.add(new ImporterFactory<ExtractedJavaProject>() {
         @Override
         public String message() {
           return "referential relation import";
@@ -334,6 +221,9 @@ public final class ParallelDatabaseImporter {
       });
     }
     
+    runStages(repo.getProjects(), stages);
+    unknowns.close();
+    
     task.finish();
   }
   
@@ -437,6 +327,57 @@ public final class ParallelDatabaseImporter {
     task.finish();
   }
   
+  private static void importJars(Iterable<? extends ExtractedJarFile> jars) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    final JavaLibraryTypeModel javaModel = JavaLibraryTypeModel.createJavaLibraryTypeModel();
+    final UnknownEntityCache unknowns = UnknownEntityCache.makeUnknownEntityCache(task);
+    
+    List<ImporterFactory<ExtractedJarFile>> stages = new ArrayList<>();
+    stages.add(new ImporterFactory<ExtractedJarFile>() {
+      @Override
+      public String message() {
+        return "jar entity import";
+      }
+      
+      @Override
+      public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
+        return new JarEntitiesImporter(nullerator);
+      }
+    });
+    
+    stages.add(new ImporterFactory<ExtractedJarFile>() {
+      @Override
+      public String message() {
+        return "jar structural relation import";
+      }
+      
+      @Override
+      public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
+        return new JarStructuralRelationsImporter(nullerator, javaModel, unknowns);
+      }
+    });
+    
+    if (STRUCTURAL_ONLY.getValue()) {
+      task.report("Skipping referential relation import");
+    } else {
+      stages.add(new ImporterFactory<ExtractedJarFile>() {
+        @Override
+        public String message() {
+          return "jar referential relation import";
+        }
+        
+        @Override
+        public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
+          return new JarReferentialRelationsImporter(nullerator, javaModel, unknowns);
+        }
+      });
+    }
+    
+    runStages(jars, stages);
+    unknowns.close();
+  }
+  
   private static interface ImporterFactory<T> {
     public DatabaseImporter create(Nullerator<T> nullerator);
     public String message();
@@ -446,10 +387,6 @@ public final class ParallelDatabaseImporter {
     runThreads(Nullerator.createNullerator(repo.getLibraryJarFiles(), "Thread %s now processing: %s"), factory);
   }
   
-  private static void importFilterJars(Iterable<? extends ExtractedJarFile> jars, ImporterFactory<ExtractedJarFile> factory) {
-    runThreads(Nullerator.createNullerator(jars, "Thread %s now processing: %s"), factory);
-  }
-  
   private static void importMavenJars(ExtractedJavaRepository repo, ImporterFactory<ExtractedJarFile> factory) {
     runThreads(Nullerator.createNullerator(repo.getMavenJarFiles(), "Thread %s now processing: %s"), factory);
   }
@@ -458,8 +395,56 @@ public final class ParallelDatabaseImporter {
     runThreads(Nullerator.createNullerator(repo.getProjectJarFiles(), "Thread %s now processing: %s"), factory);
   }
   
-  private static void importProjects(ExtractedJavaRepository repo, ImporterFactory<ExtractedJavaProject> factory) {
-    runThreads(Nullerator.createNullerator(repo.getProjects(), "Thread %s now processing: %s"), factory);
+  /**
+   * Runs every stage at once, with each item moving to its next stage
+   * as soon as it finishes the previous one. Java libraries are not
+   * imported this way, as their relations resolve against the entities
+   * of all the other libraries.
+   */
+  private static <T> void runStages(Iterable<? extends T> items, List<ImporterFactory<T>> factories) {
+    int numThreads = THREAD_COUNT.getValue();
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    String[] names = new String[factories.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = factories.get(i).message();
+    }
+    final StageScheduler<T> scheduler = StageScheduler.create(items, numThreads, names);
+    
+    task.start("Performing " + Arrays.toString(names) + " with " + numThreads + " concurrent items");
+    Collection<Thread> threads = new ArrayList<>(numThreads * names.length);
+    for (int stage = 0; stage < names.length; stage++) {
+      for (int i = 0; i < numThreads; i++) {
+        final DatabaseImporter importer = factories.get(stage).create(scheduler.getStage(stage));
+        final int index = stage;
+        scheduler.addWorker(index);
+        // Lets the scheduler release whatever a failed importer was holding
+        Thread thread = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              importer.run();
+            } catch (RuntimeException e) {
+              logger.log(Level.SEVERE, "Import thread failed", e);
+            } finally {
+              scheduler.removeWorker(index);
+            }
+          }
+        });
+        thread.start();
+        threads.add(thread);
+      }
+    }
+    
+    for (Thread t : threads) {
+      try {
+        t.join();
+      } catch (InterruptedException e) {
+        logger.log(Level.SEVERE, "Thread interrupted", e);
+      }
+    }
+    scheduler.report(task);
+    task.finish();
   }
   
   private static <T> void runThreads(Nullerator<T> nullerator, ImporterFactory<T> factory) {
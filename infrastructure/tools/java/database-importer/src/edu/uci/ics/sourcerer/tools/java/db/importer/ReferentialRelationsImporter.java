@@ -42,6 +42,7 @@ public abstract class ReferentialRelationsImporter extends RelationsImporter {
     projectModel = ProjectTypeModel.createVirtualProjectTypeModel(task, exec, projectID, externalProjects, javaModel, unknowns);
     
     insertReferentialRelations(reader, projectID);
+    projectModel.flush();
     
     fileMap.clear();
     projectModel = null;
@@ -50,7 +51,7 @@ public abstract class ReferentialRelationsImporter extends RelationsImporter {
   private void insertReferentialRelations(ReaderBundle reader, Integer projectID) {
     task.start("Inserting relations");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, RelationsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, RelationsTable.TABLE);
     
     task.start("Processing referential relations", "relations processed");
     for (RelationEX relation : reader.getTransientRelations()) {
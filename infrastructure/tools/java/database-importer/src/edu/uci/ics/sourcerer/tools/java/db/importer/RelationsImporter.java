@@ -40,6 +40,12 @@ public abstract class RelationsImporter extends DatabaseImporter {
     this.javaModel = javaModel;
     this.unknowns = unknowns;
   }
+  
+  @Override
+  protected void cleanup() {
+    unknowns.flush(exec);
+    super.cleanup();
+  }
     
   protected Integer getLHS(String fqn, Integer projectID) {
     if (fqn.indexOf('#') >= 0) {
@@ -0,0 +1,201 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.sourcerer.util.Nullerator;
+import edu.uci.ics.sourcerer.util.io.logging.Logging;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Moves items through a sequence of import stages. An item becomes
+ * available to a stage as soon as it has finished the previous one, rather
+ * than once every item has. The number of items being processed at once,
+ * across all the stages, is bounded by a shared pool of permits. Idle
+ * permits go to the latest stage with waiting work, so items drain out of
+ * the pipeline before new ones are started. Items held by a worker that
+ * dies, or left in a stage with no workers remaining, are dropped so that
+ * the later stages can still finish.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class StageScheduler<T> {
+  private final List<Stage> stages;
+  private int available;
+  
+  private StageScheduler(Iterable<? extends T> items, int permits, String ... stageNames) {
+    stages = new ArrayList<>();
+    available = permits;
+    for (String name : stageNames) {
+      stages.add(new Stage(stages.size(), name));
+    }
+    for (T item : items) {
+      stages.get(0).ready.add(item);
+    }
+  }
+  
+  static <T> StageScheduler<T> create(Iterable<? extends T> items, int permits, String ... stageNames) {
+    return new StageScheduler<>(items, permits, stageNames);
+  }
+  
+  Nullerator<T> getStage(int stage) {
+    return stages.get(stage);
+  }
+  
+  /**
+   * Registers a thread that will work on the stage, before it starts.
+   */
+  synchronized void addWorker(int stage) {
+    stages.get(stage).workers++;
+  }
+  
+  /**
+   * Must be called by every worker thread as it exits, however it exits.
+   */
+  synchronized void removeWorker(int stage) {
+    stages.get(stage).removeWorker(Thread.currentThread());
+    notifyAll();
+  }
+  
+  void report(TaskProgressLogger task) {
+    for (Stage stage : stages) {
+      double seconds = stage.busy / 1_000_000_000.0;
+      task.report(String.format("%s: %d items, %.1fs busy, %.2f items/s", stage.name, stage.completed, seconds, seconds == 0 ? 0 : stage.completed / seconds));
+      if (stage.dropped > 0) {
+        task.report(String.format("%s: %d items dropped", stage.name, stage.dropped));
+      }
+    }
+  }
+  
+  private class Stage extends Nullerator<T> {
+    private final int index;
+    private final String name;
+    private final Deque<T> ready;
+    private final Map<Thread, T> current;
+    private final Map<Thread, Long> started;
+    private int waiting;
+    private int workers;
+    
+    private int completed;
+    private int dropped;
+    private long busy;
+    
+    private Stage(int index, String name) {
+      super(null, null);
+      this.index = index;
+      this.name = name;
+      ready = new ArrayDeque<>();
+      current = new HashMap<>();
+      started = new HashMap<>();
+    }
+    
+    private boolean isExhausted() {
+      return ready.isEmpty() && current.isEmpty() && isFed();
+    }
+    
+    private boolean isFed() {
+      return index == 0 || stages.get(index - 1).isExhausted();
+    }
+    
+    private void add(T item) {
+      if (workers == 0) {
+        drop(item);
+      } else {
+        ready.add(item);
+      }
+    }
+    
+    private void drop(T item) {
+      dropped++;
+      logger.severe("Dropping " + item + " from " + name);
+    }
+    
+    private void removeWorker(Thread thread) {
+      // The thread failed part way through its item
+      T abandoned = current.remove(thread);
+      if (abandoned != null) {
+        started.remove(thread);
+        available++;
+        drop(abandoned);
+      }
+      if (--workers == 0) {
+        while (!ready.isEmpty()) {
+          drop(ready.poll());
+        }
+      }
+    }
+    
+    private boolean isPreempted() {
+      for (int i = index + 1; i < stages.size(); i++) {
+        Stage later = stages.get(i);
+        if (later.waiting > 0 && !later.ready.isEmpty()) {
+          return true;
+        }
+      }
+      return false;
+    }
+    
+    @Override
+    public T next() {
+      Thread thread = Thread.currentThread();
+      synchronized (StageScheduler.this) {
+        T done = current.remove(thread);
+        if (done != null) {
+          completed++;
+          busy += System.nanoTime() - started.remove(thread);
+          available++;
+          if (index + 1 < stages.size()) {
+            stages.get(index + 1).add(done);
+          }
+          StageScheduler.this.notifyAll();
+        }
+        while (true) {
+          if (!ready.isEmpty() && available > 0 && !isPreempted()) {
+            T next = ready.poll();
+            available--;
+            current.put(thread, next);
+            started.put(thread, System.nanoTime());
+            TaskProgressLogger.get().report(Logging.THREAD_INFO, String.format("Thread %s now processing %s for %s", thread.getName(), next, name));
+            return next;
+          } else if (ready.isEmpty() && isFed()) {
+            StageScheduler.this.notifyAll();
+            return null;
+          } else {
+            waiting++;
+            try {
+              StageScheduler.this.wait();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              return null;
+            } finally {
+              waiting--;
+            }
+          }
+        }
+      }
+    }
+  }
+}
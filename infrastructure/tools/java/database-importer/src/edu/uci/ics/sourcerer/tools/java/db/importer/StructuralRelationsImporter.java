@@ -99,6 +99,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
     insertStructuralRelations(reader, projectID);
     insertImports(reader, projectID);
     insertComments(reader, projectID);
+    projectModel.flush();
     
     fileMap.clear();
     projectModel = null;
@@ -107,7 +108,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
   private void insertRemainingEntities(ReaderBundle reader, Integer projectID) {
     task.start("Inserting local variables, parameters and type entities", "entities inserted");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, EntitiesTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, EntitiesTable.TABLE);
     
     TaskProgressLogger processTask = task.createChild();
     processTask.start("Processing local variables and parameters file", "variables processed");
@@ -135,7 +136,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
     task.start("Inserting entity metrics");
     
     task.start("Processing entities", "entities processed");
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, EntityMetricsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, EntityMetricsTable.TABLE);
     
     for (EntityEX entity : reader.getTransientEntities()) {
       Integer fileID = getFileID(entity.getLocation());
@@ -166,7 +167,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
   private void insertStructuralRelations(ReaderBundle reader, Integer projectID) {
     task.start("Inserting relations");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, RelationsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, RelationsTable.TABLE);
     
     task.start("Processing local variables & parameters", "variables processed");
     Iterator<Integer> localVars = getLocalVariables.select(projectID);
@@ -233,7 +234,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
   private void insertImports(ReaderBundle reader, Integer projectID) {
     task.start("Inserting imports");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, ImportsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, ImportsTable.TABLE);
     
     task.start("Processing imports", "imports processed");
     for (ImportEX imp : reader.getTransientImports()) {
@@ -261,7 +262,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
   private void insertComments(ReaderBundle reader, Integer projectID) {
     task.start("Inserting comments");
     
-    BatchInserter inserter = exec.makeInFileInserter(tempDir, CommentsTable.TABLE);
+    BatchInserter inserter = exec.makeBatchInserter(tempDir, CommentsTable.TABLE);
     
     task.start("Processing comments", "comments processed");
     for (CommentEX comment : reader.getTransientComments()) {
@@ -0,0 +1,135 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.logging.Level;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.ReaderBundle;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.RelationWriter;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.RelationWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.model.types.Location;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Reads the relations of a generated compressed project both transiently
+ * and as a collection, reporting time and heap growth for each. Meant to
+ * be run with a small -Xmx, where only the transient read should finish.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class TransientReadBenchmark {
+  public static final Argument<Integer> BENCHMARK_RELATIONS = new IntegerArgument("benchmark-relations", 2000000, "Number of relations in the generated project.");
+  
+  private TransientReadBenchmark() {}
+  
+  public static void benchmarkTransientReads() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    int rows = BENCHMARK_RELATIONS.getValue();
+    
+    task.start("Benchmarking reads of a compressed project with " + rows + " relations");
+    File dir = new File(FileUtils.getTempDir(), "transient-benchmark");
+    File zip = new File(dir.getParentFile(), "transient-benchmark.zip");
+    FileUtils.delete(dir);
+    
+    task.start("Generating compressed project");
+    WriterBundle.RELATION_WRITER.setValue(RelationWriterImpl.class);
+    try (WriterBundle writers = new WriterBundle(dir)) {
+      RelationWriter writer = writers.getRelationWriter();
+      for (int i = 0; i < rows; i++) {
+        String type = "pkg" + (i % 100) + ".Type" + (i % 5000);
+        writer.writeRelation(Relation.CALLS, type + ".method" + i + "()", "pkg" + (i % 97) + ".Other" + (i % 3000) + ".target()", new Location(type, null, i, 20));
+      }
+    }
+    if (!compress(dir, zip)) {
+      task.finish();
+      task.finish();
+      return;
+    }
+    task.report("Compressed to " + (zip.length() / 1024) + " KB");
+    task.finish();
+    
+    Runtime runtime = Runtime.getRuntime();
+    task.report("Maximum heap: " + (runtime.maxMemory() / (1024 * 1024)) + " MB");
+    
+    // Transient read, reusing one relation
+    {
+      System.gc();
+      long base = runtime.totalMemory() - runtime.freeMemory();
+      long peak = base;
+      int count = 0;
+      long start = System.currentTimeMillis();
+      for (RelationEX relation : ReaderBundle.create(dir, zip).getTransientRelations()) {
+        if (relation != null && ++count % 10000 == 0) {
+          peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+        }
+      }
+      long elapsed = System.currentTimeMillis() - start;
+      task.report(String.format("transient:    %,d relations in %,d ms, peak heap growth %,d KB", count, elapsed, (peak - base) / 1024));
+    }
+    
+    // Materialized read
+    {
+      System.gc();
+      long base = runtime.totalMemory() - runtime.freeMemory();
+      long start = System.currentTimeMillis();
+      try {
+        Collection<RelationEX> relations = ReaderBundle.create(dir, zip).getRelations();
+        long peak = runtime.totalMemory() - runtime.freeMemory();
+        long elapsed = System.currentTimeMillis() - start;
+        task.report(String.format("materialized: %,d relations in %,d ms, heap growth %,d KB", relations.size(), elapsed, (peak - base) / 1024));
+      } catch (OutOfMemoryError e) {
+        task.report("materialized: ran out of memory after " + (System.currentTimeMillis() - start) + " ms");
+      }
+    }
+    
+    FileUtils.delete(dir);
+    zip.delete();
+    task.finish();
+  }
+  
+  private static boolean compress(File dir, File zip) {
+    try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+      for (File file : dir.listFiles()) {
+        zos.putNextEntry(new ZipEntry(file.getName()));
+        FileUtils.writeFileToStream(file, zos);
+        zos.closeEntry();
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error compressing benchmark project.", e);
+      return false;
+    }
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    return true;
+  }
+}
@@ -19,6 +19,8 @@ package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
@@ -28,6 +30,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
@@ -39,6 +42,10 @@ import edu.uci.ics.sourcerer.tools.java.model.types.Project;
 import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
 import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
 import edu.uci.ics.sourcerer.util.Pair;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.RelativeFileArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.util.type.TypeUtils;
 import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
@@ -49,14 +56,29 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class JavaLibraryTypeModel {
+  public static final Argument<Boolean> USE_SNAPSHOT = new BooleanArgument("java-library-snapshot", true, "Load the Java library type model from a memory-mapped snapshot.").permit();
+  public static final Argument<File> SNAPSHOT_FILE = new RelativeFileArgument("java-library-snapshot-file", "java-library-model.snapshot", Arguments.CACHE, "Snapshot of the Java library type model.").permit();
+  
+  private static JavaLibraryTypeSnapshot sharedSnapshot;
+  private static String sharedFingerprint;
+  
   private Map<String, ModeledEntity> entities;
   private Map<Integer, ModeledEntity> reverseMap;
   
+  private JavaLibraryTypeSnapshot snapshot;
+  private ModeledEntity[] materialized;
+  
   private JavaLibraryTypeModel() {
     entities = new HashMap<>();
     reverseMap = new HashMap<>();
   }
   
+  private JavaLibraryTypeModel(JavaLibraryTypeSnapshot snapshot) {
+    this();
+    this.snapshot = snapshot;
+    this.materialized = new ModeledEntity[snapshot.getEntityCount()];
+  }
+  
   private void add(String fqn, ModeledEntity entity) {
     if (entities.containsKey(fqn)) {
       logger.severe("Duplicate FQN: " + fqn);
@@ -66,6 +88,84 @@ public class JavaLibraryTypeModel {
   }
   
   public static JavaLibraryTypeModel createJavaLibraryTypeModel() {
+    if (!USE_SNAPSHOT.getValue()) {
+      return loadJavaLibraryTypeModel();
+    }
+    final String fingerprint = computeFingerprint();
+    synchronized (JavaLibraryTypeModel.class) {
+      if (sharedSnapshot == null || !fingerprint.equals(sharedFingerprint)) {
+        File file = SNAPSHOT_FILE.getValue();
+        TaskProgressLogger task = TaskProgressLogger.get();
+        try {
+          sharedSnapshot = JavaLibraryTypeSnapshot.load(file, fingerprint);
+        } catch (IOException e) {
+          logger.log(Level.SEVERE, "Unable to load Java library snapshot", e);
+          sharedSnapshot = null;
+        }
+        if (sharedSnapshot == null) {
+          JavaLibraryTypeModel model = loadJavaLibraryTypeModel();
+          task.start("Writing Java library snapshot to " + file.getPath());
+          try {
+            JavaLibraryTypeSnapshot.write(file, fingerprint, model.entities);
+            sharedSnapshot = JavaLibraryTypeSnapshot.load(file, fingerprint);
+          } catch (IOException e) {
+            logger.log(Level.SEVERE, "Unable to write Java library snapshot", e);
+          }
+          task.finish();
+          if (sharedSnapshot == null) {
+            return model;
+          }
+        } else {
+          task.report("Mapped Java library snapshot from " + file.getPath());
+        }
+        sharedFingerprint = fingerprint;
+      }
+      return new JavaLibraryTypeModel(sharedSnapshot);
+    }
+  }
+  
+  /**
+   * Summarizes the state of the Java library projects, so that a stale
+   * snapshot is never used.
+   */
+  private static String computeFingerprint() {
+    final StringBuilder fingerprint = new StringBuilder();
+    new DatabaseRunnable() {
+      @Override
+      public void action() {
+        Collection<Integer> libraries = null;
+        try (SelectQuery query = exec.createSelectQuery(ProjectsTable.TABLE)) {
+          query.addSelect(ProjectsTable.PROJECT_ID);
+          query.andWhere(ProjectsTable.PROJECT_TYPE.compareEquals(Project.JAVA_LIBRARY));
+          query.orderBy(ProjectsTable.PROJECT_ID, true);
+          libraries = query.select().toCollection(ProjectsTable.PROJECT_ID);
+        }
+        fingerprint.append(libraries);
+        try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+          query.setCount(true);
+          query.andWhere(EntitiesTable.ENTITY_TYPE.compareEquals(Entity.PRIMITIVE));
+          fingerprint.append(':').append(query.select().toCount());
+        }
+        if (!libraries.isEmpty()) {
+          try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+            query.setCount(true);
+            query.andWhere(EntitiesTable.PROJECT_ID.compareIn(libraries));
+            fingerprint.append(':').append(query.select().toCount());
+          }
+          try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+            query.addSelect(EntitiesTable.ENTITY_ID);
+            query.andWhere(EntitiesTable.PROJECT_ID.compareIn(libraries));
+            query.orderBy(EntitiesTable.ENTITY_ID, false);
+            query.setLimit(1);
+            fingerprint.append(':').append(query.select().toSingleton(EntitiesTable.ENTITY_ID, true));
+          }
+        }
+      }
+    }.run();
+    return fingerprint.toString();
+  }
+  
+  private static JavaLibraryTypeModel loadJavaLibraryTypeModel() {
     final JavaLibraryTypeModel model = new JavaLibraryTypeModel();
     new DatabaseRunnable() {
       @Override
@@ -175,12 +275,51 @@ public class JavaLibraryTypeModel {
     return model;
   }
   
-  ModeledEntity getEntity(Integer entityID) {
-    return reverseMap.get(entityID);
+  /**
+   * Creates (once) the ModeledEntity for a snapshot index, along with its
+   * parents.
+   */
+  private ModeledEntity materialize(int index) {
+    ModeledEntity entity = materialized[index];
+    if (entity == null) {
+      entity = new ModeledEntity(snapshot.getFQN(index), snapshot.getType(index), snapshot.getEntityID(index), RelationClass.JAVA_LIBRARY);
+      materialized[index] = entity;
+      for (int parent : snapshot.getParents(index)) {
+        entity.addParent(materialize(parent));
+      }
+    }
+    return entity;
+  }
+  
+  private ModeledEntity lookup(String fqn) {
+    ModeledEntity entity = entities.get(fqn);
+    if (entity == null && snapshot != null && !entities.containsKey(fqn)) {
+      int index = snapshot.find(fqn);
+      if (index >= 0) {
+        entity = materialize(index);
+        entities.put(fqn, entity);
+      }
+    }
+    return entity;
+  }
+  
+  synchronized ModeledEntity getEntity(Integer entityID) {
+    if (snapshot == null) {
+      return reverseMap.get(entityID);
+    } else {
+      int index = snapshot.findByID(entityID);
+      if (index >= 0) {
+        Entity type = snapshot.getType(index);
+        if (type == Entity.CLASS || type == Entity.ENUM || type == Entity.ANNOTATION || type == Entity.INTERFACE) {
+          return materialize(index);
+        }
+      }
+      return null;
+    }
   }
   
   synchronized ModeledEntity getEntity(String fqn) {
-    return entities.get(fqn);
+    return lookup(fqn);
   }
   
   synchronized ModeledEntity getVirtualEntity(String fqn) {
@@ -188,6 +327,10 @@ public class JavaLibraryTypeModel {
     if (entities.containsKey(fqn)) {
       return entities.get(fqn);
     }
+    ModeledEntity known = lookup(fqn);
+    if (known != null) {
+      return known;
+    }
     
     // Is it a method or a field?
     if (TypeUtils.isMethod(fqn)) {
@@ -199,7 +342,7 @@ public class JavaLibraryTypeModel {
       }
       
       // Can we find the receiver type?
-      ModeledEntity receiver = entities.get(parts.getFirst());
+      ModeledEntity receiver = lookup(parts.getFirst());
       
       // No receiver, no virtual resolution
       if (receiver == null) {
@@ -217,7 +360,7 @@ public class JavaLibraryTypeModel {
             if (!seen.contains(parent)) {
               seen.add(parent);
               // See if the parent has the method
-              ModeledEntity method = entities.get(parent.getFQN() + "." + parts.getSecond());
+              ModeledEntity method = lookup(parent.getFQN() + "." + parts.getSecond());
               if (method == null) {
                 stack.add(parent);
               } else if (parent.getType() == Entity.INTERFACE) {
@@ -267,7 +410,7 @@ public class JavaLibraryTypeModel {
       String fieldName = fqn.substring(dot + 1);
       
       // Can we find the receiver type?
-      ModeledEntity receiver = entities.get(receiverFQN);
+      ModeledEntity receiver = lookup(receiverFQN);
       
       // No receiver, no virtual resolution
       if (receiver == null) {
@@ -284,7 +427,7 @@ public class JavaLibraryTypeModel {
             if (!seen.contains(parent)) {
               seen.add(parent);
               // See if the parent has the field
-              ModeledEntity field = entities.get(parent.getFQN() + "." + fieldName);
+              ModeledEntity field = lookup(parent.getFQN() + "." + fieldName);
               if (field == null) {
                 stack.add(parent);
               } else {
@@ -0,0 +1,321 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+
+/**
+ * Immutable, memory-mapped image of the Java library type model. Keys are
+ * stored sorted by their UTF-8 bytes, so lookups are binary searches over
+ * the mapped file and nothing is copied onto the heap until an entity is
+ * actually resolved.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class JavaLibraryTypeSnapshot {
+  private static final int MAGIC = 0x534A4C4D;
+  private static final int VERSION = 1;
+  
+  private static final Entity[] TYPES = Entity.values();
+  
+  private final MappedByteBuffer buffer;
+  private final int keyCount;
+  private final int entityCount;
+  
+  private final int keyOffsets;
+  private final int keyEntities;
+  private final int entityIDs;
+  private final int entityTypes;
+  private final int fqnOffsets;
+  private final int parentStarts;
+  private final int parents;
+  private final int strings;
+  
+  private JavaLibraryTypeSnapshot(MappedByteBuffer buffer, int start) {
+    this.buffer = buffer;
+    keyCount = buffer.getInt(start);
+    entityCount = buffer.getInt(start + 4);
+    int parentCount = buffer.getInt(start + 8);
+    keyOffsets = start + 16;
+    keyEntities = keyOffsets + 4 * (keyCount + 1);
+    entityIDs = keyEntities + 4 * keyCount;
+    entityTypes = entityIDs + 4 * entityCount;
+    fqnOffsets = entityTypes + entityCount;
+    parentStarts = fqnOffsets + 4 * (entityCount + 1);
+    parents = parentStarts + 4 * (entityCount + 1);
+    strings = parents + 4 * parentCount;
+  }
+  
+  /**
+   * Maps the snapshot, returning null if it is missing, corrupt or was
+   * built from a different state of the database.
+   */
+  static JavaLibraryTypeSnapshot load(File file, String fingerprint) throws IOException {
+    if (!file.exists()) {
+      return null;
+    }
+    int start = 0;
+    try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+      if (dis.readInt() != MAGIC || dis.readInt() != VERSION || !fingerprint.equals(dis.readUTF())) {
+        return null;
+      }
+      start = 8 + 2 + fingerprint.getBytes(StandardCharsets.UTF_8).length;
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      return new JavaLibraryTypeSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), start);
+    }
+  }
+  
+  /**
+   * Writes the contents of the model to a new snapshot.
+   */
+  static void write(File file, String fingerprint, Map<String, ModeledEntity> model) throws IOException {
+    // Number the entities in id order
+    final Map<ModeledEntity, Integer> index = new IdentityHashMap<>();
+    List<ModeledEntity> entities = new ArrayList<>();
+    for (ModeledEntity entity : model.values()) {
+      if (entity != null && !index.containsKey(entity)) {
+        index.put(entity, null);
+        entities.add(entity);
+      }
+    }
+    Collections.sort(entities, new Comparator<ModeledEntity>() {
+      @Override
+      public int compare(ModeledEntity o1, ModeledEntity o2) {
+        return Integer.compare(o1.getEntityID(), o2.getEntityID());
+      }
+    });
+    for (int i = 0; i < entities.size(); i++) {
+      index.put(entities.get(i), i);
+    }
+    
+    // Sort the keys by their bytes
+    List<byte[]> keys = new ArrayList<>();
+    final Map<byte[], ModeledEntity> keyMap = new IdentityHashMap<>();
+    for (Map.Entry<String, ModeledEntity> entry : model.entrySet()) {
+      if (entry.getValue() != null) {
+        byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        keys.add(key);
+        keyMap.put(key, entry.getValue());
+      }
+    }
+    Collections.sort(keys, new Comparator<byte[]>() {
+      @Override
+      public int compare(byte[] o1, byte[] o2) {
+        return JavaLibraryTypeSnapshot.compare(o1, o2, 0, o2.length);
+      }
+    });
+    
+    byte[][] fqns = new byte[entities.size()][];
+    int parentCount = 0;
+    for (int i = 0; i < fqns.length; i++) {
+      fqns[i] = entities.get(i).getFQN().getBytes(StandardCharsets.UTF_8);
+      parentCount += entities.get(i).getParents().size();
+    }
+    
+    File tmp = new File(file.getPath() + ".tmp");
+    file.getParentFile().mkdirs();
+    DataOutputStream dos = null;
+    try {
+      dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      dos.writeInt(MAGIC);
+      dos.writeInt(VERSION);
+      dos.writeUTF(fingerprint);
+      dos.writeInt(keys.size());
+      dos.writeInt(entities.size());
+      dos.writeInt(parentCount);
+      dos.writeInt(0);
+      
+      // Key offsets
+      int offset = 0;
+      for (byte[] key : keys) {
+        dos.writeInt(offset);
+        offset += key.length;
+      }
+      dos.writeInt(offset);
+      // Key entities
+      for (byte[] key : keys) {
+        dos.writeInt(index.get(keyMap.get(key)));
+      }
+      // Entity ids and types
+      for (ModeledEntity entity : entities) {
+        dos.writeInt(entity.getEntityID());
+      }
+      for (ModeledEntity entity : entities) {
+        dos.writeByte(entity.getType().ordinal());
+      }
+      // Fqn offsets
+      for (byte[] fqn : fqns) {
+        dos.writeInt(offset);
+        offset += fqn.length;
+      }
+      dos.writeInt(offset);
+      // Parents
+      int start = 0;
+      for (ModeledEntity entity : entities) {
+        dos.writeInt(start);
+        start += entity.getParents().size();
+      }
+      dos.writeInt(start);
+      for (ModeledEntity entity : entities) {
+        for (ModeledEntity parent : entity.getParents()) {
+          dos.writeInt(index.get(parent));
+        }
+      }
+      // Strings
+      for (byte[] key : keys) {
+        dos.write(key);
+      }
+      for (byte[] fqn : fqns) {
+        dos.write(fqn);
+      }
+      dos.close();
+      dos = null;
+      if (file.exists() && !file.delete()) {
+        throw new IOException("Unable to replace " + file.getPath());
+      }
+      if (!tmp.renameTo(file)) {
+        throw new IOException("Unable to rename " + tmp.getPath());
+      }
+    } finally {
+      IOUtils.close(dos);
+      tmp.delete();
+    }
+  }
+  
+  /**
+   * Compares an array against a section of the mapped buffer (or against
+   * another array when used for sorting), by unsigned byte value.
+   */
+  private static int compare(byte[] a, byte[] b, int bStart, int bLength) {
+    int length = Math.min(a.length, bLength);
+    for (int i = 0; i < length; i++) {
+      int diff = (a[i] & 0xFF) - (b[bStart + i] & 0xFF);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return a.length - bLength;
+  }
+  
+  private int compare(byte[] key, int keyIndex) {
+    int start = buffer.getInt(keyOffsets + 4 * keyIndex);
+    int length = buffer.getInt(keyOffsets + 4 * (keyIndex + 1)) - start;
+    start += strings;
+    int min = Math.min(key.length, length);
+    for (int i = 0; i < min; i++) {
+      int diff = (key[i] & 0xFF) - (buffer.get(start + i) & 0xFF);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return key.length - length;
+  }
+  
+  /**
+   * Returns the index of the entity with the given key, or -1.
+   */
+  int find(String fqn) {
+    byte[] key = fqn.getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = keyCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compare(key, mid);
+      if (cmp > 0) {
+        low = mid + 1;
+      } else if (cmp < 0) {
+        high = mid - 1;
+      } else {
+        return buffer.getInt(keyEntities + 4 * mid);
+      }
+    }
+    return -1;
+  }
+  
+  /**
+   * Returns the index of the entity with the given id, or -1.
+   */
+  int findByID(int entityID) {
+    int low = 0;
+    int high = entityCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int value = buffer.getInt(entityIDs + 4 * mid);
+      if (value < entityID) {
+        low = mid + 1;
+      } else if (value > entityID) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+  
+  int getEntityCount() {
+    return entityCount;
+  }
+  
+  int getEntityID(int entity) {
+    return buffer.getInt(entityIDs + 4 * entity);
+  }
+  
+  Entity getType(int entity) {
+    return TYPES[buffer.get(entityTypes + entity)];
+  }
+  
+  String getFQN(int entity) {
+    int start = buffer.getInt(fqnOffsets + 4 * entity);
+    int end = buffer.getInt(fqnOffsets + 4 * (entity + 1));
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(strings + start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+  
+  int[] getParents(int entity) {
+    int start = buffer.getInt(parentStarts + 4 * entity);
+    int end = buffer.getInt(parentStarts + 4 * (entity + 1));
+    int[] result = new int[end - start];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = buffer.getInt(parents + 4 * (start + i));
+    }
+    return result;
+  }
+}
@@ -65,9 +65,9 @@ public class ModeledEntity {
     return type;
   }
   
-//  public Integer getEntityID() {
-//    return entityID;
-//  }
+  Integer getEntityID() {
+    return entityID;
+  }
   
   public RelationClass getRelationClass() {
     return rClass;
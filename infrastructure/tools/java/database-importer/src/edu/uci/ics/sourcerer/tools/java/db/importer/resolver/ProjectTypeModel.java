@@ -19,6 +19,7 @@ package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.EnumSet;
@@ -34,8 +35,13 @@ import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
 import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
 import edu.uci.ics.sourcerer.util.Pair;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.util.type.TypeUtils;
+import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.Insert;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
 import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
 import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
@@ -44,6 +50,8 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class ProjectTypeModel {
+  public static final Argument<Boolean> DEFER_TYPE_ENTITIES = new BooleanArgument("defer-type-entities", true, "Batch the creation of array, wildcard, type variable and parametrized type entities, writing them once per project.").permit();
+  
   private Map<String, ModeledEntity> entities;
   private Map<Integer, ModeledEntity> reverseMap;
   private LibraryTypeModel libraryModel;
@@ -53,12 +61,19 @@ public class ProjectTypeModel {
   private QueryExecutor exec;
   private Integer projectID;
   
+  private ReservedEntityIDs ids;
+  private File relationDir;
+  private BatchInserter relationInserter;
+  
   private ProjectTypeModel(QueryExecutor exec, Integer projectID, LibraryTypeModel libraryModel, UnknownEntityCache unknowns) {
     this.exec = exec;
     this.projectID = projectID;
     this.libraryModel = libraryModel;
     this.unknowns = unknowns;
     this.entities = new HashMap<>();
+    if (DEFER_TYPE_ENTITIES.getValue()) {
+      ids = new ReservedEntityIDs(projectID, 1000);
+    }
   }
   
   private void add(String fqn, ModeledEntity entity) {
@@ -184,6 +199,47 @@ public class ProjectTypeModel {
     return model;
   }
   
+  private Integer insertEntity(Entity type, String fqn, Integer multi) {
+    if (ids == null) {
+      return exec.insertWithKey(EntitiesTable.createInsert(type, fqn, multi, projectID));
+    } else {
+      Integer entityID = ids.nextID(exec);
+      if (entityID != null) {
+        ids.assign(entityID, type, fqn, null, multi);
+      }
+      return entityID;
+    }
+  }
+  
+  private void insertRelation(Relation type, Integer lhsEid, ModeledEntity rhs) {
+    Insert insert = RelationsTable.makeInsert(type, rhs.getRelationClass(), lhsEid, rhs.getEntityID(exec, projectID), projectID);
+    if (relationInserter == null) {
+      // Honors --streaming-inserts, like the importers' own relation inserts.
+      // The importers write their relations to the thread's temp dir, so
+      // this needs a file of its own.
+      relationDir = new File(FileUtils.getTempDir(), "type-model");
+      relationDir.mkdirs();
+      relationInserter = exec.makeBatchInserter(relationDir, RelationsTable.TABLE);
+    }
+    relationInserter.addInsert(insert);
+  }
+  
+  /**
+   * Writes the deferred type entities and their relations. Must be called
+   * once the project has been imported.
+   */
+  public void flush() {
+    if (ids != null) {
+      ids.release(exec);
+    }
+    if (relationInserter != null) {
+      relationInserter.insert();
+      relationInserter = null;
+      FileUtils.delete(relationDir);
+      relationDir = null;
+    }
+  }
+  
   private ModeledEntity getTypeEntity(String fqn) {
     if (TypeUtils.isArray(fqn)) {
       Pair<String, Integer> arrayInfo = TypeUtils.breakArray(fqn);
@@ -193,7 +249,7 @@ public class ProjectTypeModel {
       }
       
       // Insert the array entity
-      Integer entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.ARRAY, fqn, arrayInfo.getSecond(), projectID));
+      Integer entityID = insertEntity(Entity.ARRAY, fqn, arrayInfo.getSecond());
       ModeledEntity entity = new ModeledEntity(fqn, Entity.ARRAY, entityID, RelationClass.NOT_APPLICABLE);
       add(fqn, entity);
       
@@ -201,14 +257,14 @@ public class ProjectTypeModel {
       ModeledEntity component = getEntity(arrayInfo.getFirst());
 
       // Add has elements of relation
-      exec.insert(RelationsTable.makeInsert(Relation.HAS_ELEMENTS_OF, component.getRelationClass(), entityID, component.getEntityID(exec, projectID), projectID));
+      insertRelation(Relation.HAS_ELEMENTS_OF, entityID, component);
   
       return entity;
     }
     
     if (TypeUtils.isWildcard(fqn)) {
       // Insert the wildcard entity
-      Integer entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.WILDCARD, fqn, projectID));
+      Integer entityID = insertEntity(Entity.WILDCARD, fqn, null);
       ModeledEntity entity = new ModeledEntity(fqn, Entity.WILDCARD, entityID, RelationClass.NOT_APPLICABLE);
       add(fqn, entity);
       
@@ -216,9 +272,9 @@ public class ProjectTypeModel {
       if (!TypeUtils.isUnboundedWildcard(fqn)) {
         ModeledEntity bound = getEntity(TypeUtils.getWildcardBound(fqn));
         if (TypeUtils.isLowerBound(fqn)) {
-          exec.insert(RelationsTable.makeInsert(Relation.HAS_LOWER_BOUND, bound.getRelationClass(), entityID, bound.getEntityID(exec, projectID), projectID));
+          insertRelation(Relation.HAS_LOWER_BOUND, entityID, bound);
         } else {
-          exec.insert(RelationsTable.makeInsert(Relation.HAS_UPPER_BOUND, bound.getRelationClass(), entityID, bound.getEntityID(exec, projectID), projectID));
+          insertRelation(Relation.HAS_UPPER_BOUND, entityID, bound);
         }
       }
       
@@ -227,14 +283,14 @@ public class ProjectTypeModel {
     
     if (TypeUtils.isTypeVariable(fqn)) {
       // Insert the type variable entity
-      Integer entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.TYPE_VARIABLE, fqn, projectID));
+      Integer entityID = insertEntity(Entity.TYPE_VARIABLE, fqn, null);
       ModeledEntity entity = new ModeledEntity(fqn, Entity.TYPE_VARIABLE, entityID, RelationClass.NOT_APPLICABLE);
       add(fqn, entity);
       
       // Insert the bound relations
       for (String bound : TypeUtils.breakTypeVariable(fqn)) {
         ModeledEntity boundEntity = getEntity(bound);
-        exec.insert(RelationsTable.makeInsert(Relation.HAS_UPPER_BOUND, boundEntity.getRelationClass(), entityID, boundEntity.getEntityID(exec, projectID), projectID));
+        insertRelation(Relation.HAS_UPPER_BOUND, entityID, boundEntity);
       }
       
       return entity;
@@ -242,18 +298,18 @@ public class ProjectTypeModel {
     
     if (TypeUtils.isParametrizedType(fqn)) {
       // Insert the parametrized type entity
-      Integer entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.PARAMETERIZED_TYPE, fqn, projectID));
+      Integer entityID = insertEntity(Entity.PARAMETERIZED_TYPE, fqn, null);
       ModeledEntity entity = new ModeledEntity(fqn, Entity.PARAMETERIZED_TYPE, entityID, RelationClass.NOT_APPLICABLE);
       add(fqn, entity);
       
       // Add the has base type relation
       ModeledEntity baseType = getEntity(TypeUtils.getBaseType(fqn));
-      exec.insert(RelationsTable.makeInsert(Relation.HAS_BASE_TYPE, baseType.getRelationClass(), entityID, baseType.getEntityID(exec, projectID), projectID));
+      insertRelation(Relation.HAS_BASE_TYPE, entityID, baseType);
       
       // Insert the type arguments
       for (String arg : TypeUtils.breakParametrizedType(fqn)) {
         ModeledEntity argEntity = getEntity(arg);
-        exec.insert(RelationsTable.makeInsert(Relation.HAS_TYPE_ARGUMENT, argEntity.getRelationClass(), entityID, argEntity.getEntityID(exec, projectID), projectID));
+        insertRelation(Relation.HAS_TYPE_ARGUMENT, entityID, argEntity);
       }
       
       return entity; 
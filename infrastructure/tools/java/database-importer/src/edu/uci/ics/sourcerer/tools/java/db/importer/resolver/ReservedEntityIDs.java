@@ -0,0 +1,297 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.java.db.schema.CommentsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ImportsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
+
+/**
+ * Hands out entity ids for a project without a round trip per entity.
+ * Ids come from blocks of placeholder rows reserved with a single insert,
+ * and the real entity values are written over them in bulk by flush.
+ * 
+ * Each block is tagged with a token unique to its owner, of the form
+ * <code>&lt;reserved&gt;millis:uuid:block</code>, so that importers running
+ * in different processes never pick up or delete one another's blocks.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class ReservedEntityIDs {
+  public static final Argument<Integer> STALE_RESERVATION_HOURS = new IntegerArgument("stale-reservation-hours", 24, "Age after which reserved entity ids left behind by another import are deleted.").permit();
+  
+  private static final String RESERVED = "<reserved>";
+  private static final int IN_LIST_SIZE = 1000;
+  
+  private final Integer projectID;
+  private final int blockSize;
+  private final String owner;
+  private final List<String> tokens;
+  private int blockCount;
+  
+  private volatile IDBlock block;
+  
+  private final Queue<String> pending;
+  private final AtomicInteger pendingCount;
+  
+  ReservedEntityIDs(Integer projectID, int blockSize) {
+    this.projectID = projectID;
+    this.blockSize = blockSize;
+    owner = RESERVED + System.currentTimeMillis() + ":" + UUID.randomUUID() + ":";
+    tokens = new ArrayList<>();
+    pending = new ConcurrentLinkedQueue<>();
+    pendingCount = new AtomicInteger();
+  }
+  
+  private static class IDBlock {
+    private final Integer[] ids;
+    private final AtomicInteger next;
+    
+    private IDBlock(Integer[] ids) {
+      this.ids = ids;
+      next = new AtomicInteger();
+    }
+  }
+  
+  Integer nextID(QueryExecutor exec) {
+    while (true) {
+      IDBlock current = block;
+      if (current != null) {
+        int index = current.next.getAndIncrement();
+        if (index < current.ids.length) {
+          return current.ids[index];
+        }
+      }
+      synchronized (this) {
+        if (block == current) {
+          block = reserveBlock(exec);
+          if (block == null) {
+            return null;
+          }
+        }
+      }
+    }
+  }
+  
+  private IDBlock reserveBlock(QueryExecutor exec) {
+    String token = owner + blockCount++;
+    tokens.add(token);
+    String row = EntitiesTable.createInsert(Entity.UNKNOWN, token, RESERVED, projectID).toString();
+    StringBuilder sql = new StringBuilder("INSERT INTO ");
+    sql.append(EntitiesTable.TABLE.getName()).append(" VALUES ").append(row);
+    for (int i = 1; i < blockSize; i++) {
+      sql.append(',').append(row);
+    }
+    exec.executeUpdate(sql.toString());
+    
+    try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+      query.addSelect(EntitiesTable.ENTITY_ID);
+      query.andWhere(EntitiesTable.PROJECT_ID.compareEquals(projectID).and(EntitiesTable.FQN.compareEquals(token)));
+      List<Integer> ids = new ArrayList<>(query.select().toCollection(EntitiesTable.ENTITY_ID));
+      if (ids.isEmpty()) {
+        logger.log(Level.SEVERE, "Unable to reserve entity ids for " + projectID);
+        return null;
+      } else {
+        return new IDBlock(ids.toArray(new Integer[ids.size()]));
+      }
+    }
+  }
+  
+  /**
+   * Queues the values of a reserved entity, returning the number of
+   * entities waiting to be flushed.
+   */
+  int assign(Integer entityID, Entity type, String fqn, String params, Integer multi) {
+    StringBuilder row = new StringBuilder("(");
+    row.append(EntitiesTable.ENTITY_ID.to(entityID));
+    row.append(',').append(EntitiesTable.ENTITY_TYPE.to(type));
+    row.append(',').append(EntitiesTable.FQN.to(fqn));
+    row.append(',').append(EntitiesTable.PARAMS.to(params));
+    row.append(',').append(EntitiesTable.MULTI.to(multi));
+    row.append(')');
+    pending.add(row.toString());
+    return pendingCount.incrementAndGet();
+  }
+  
+  void flush(QueryExecutor exec) {
+    int maxBytes = DatabaseConnectionFactory.INSERT_BATCH_BYTES.getValue();
+    StringBuilder sql = null;
+    for (String row = pending.poll(); row != null; row = pending.poll()) {
+      pendingCount.decrementAndGet();
+      if (sql != null && sql.length() + row.length() > maxBytes) {
+        execute(exec, sql);
+        sql = null;
+      }
+      if (sql == null) {
+        sql = new StringBuilder("INSERT INTO ");
+        sql.append(EntitiesTable.TABLE.getName()).append(" (");
+        sql.append(EntitiesTable.ENTITY_ID.getName()).append(',');
+        sql.append(EntitiesTable.ENTITY_TYPE.getName()).append(',');
+        sql.append(EntitiesTable.FQN.getName()).append(',');
+        sql.append(EntitiesTable.PARAMS.getName()).append(',');
+        sql.append(EntitiesTable.MULTI.getName()).append(") VALUES ");
+      } else {
+        sql.append(',');
+      }
+      sql.append(row);
+    }
+    if (sql != null) {
+      execute(exec, sql);
+    }
+  }
+  
+  private static void execute(QueryExecutor exec, StringBuilder sql) {
+    sql.append(" ON DUPLICATE KEY UPDATE ");
+    update(sql, EntitiesTable.ENTITY_TYPE.getName()).append(',');
+    update(sql, EntitiesTable.FQN.getName()).append(',');
+    update(sql, EntitiesTable.PARAMS.getName()).append(',');
+    update(sql, EntitiesTable.MULTI.getName());
+    exec.executeUpdate(sql.toString());
+  }
+  
+  private static StringBuilder update(StringBuilder sql, String column) {
+    return sql.append(column).append("=VALUES(").append(column).append(')');
+  }
+  
+  /**
+   * Flushes the pending entities and deletes the reserved ids of this
+   * owner that were never assigned.
+   */
+  synchronized void release(QueryExecutor exec) {
+    flush(exec);
+    delete(exec, tokens);
+    tokens.clear();
+    block = null;
+  }
+  
+  /**
+   * Deletes the reserved ids left behind by interrupted imports. As the
+   * owner of a block may still be running, only blocks older than
+   * <code>stale-reservation-hours</code> are removed. An interrupted import
+   * may also have written rows that refer to ids it never flushed, so those
+   * ids are kept.
+   */
+  void releaseStale(QueryExecutor exec) {
+    long cutoff = System.currentTimeMillis() - STALE_RESERVATION_HOURS.getValue() * 3_600_000l;
+    Set<Integer> stale = new HashSet<>();
+    try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+      query.addSelect(EntitiesTable.ENTITY_ID, EntitiesTable.FQN);
+      query.andWhere(EntitiesTable.PROJECT_ID.compareEquals(projectID).and(EntitiesTable.PARAMS.compareEquals(RESERVED)));
+      TypedQueryResult result = query.select();
+      while (result.next()) {
+        if (getReservationTime(result.getResult(EntitiesTable.FQN)) < cutoff) {
+          stale.add(result.getResult(EntitiesTable.ENTITY_ID));
+        }
+      }
+    }
+    if (!stale.isEmpty()) {
+      int reserved = stale.size();
+      removeReferenced(exec, stale, RelationsTable.TABLE, RelationsTable.LHS_EID);
+      removeReferenced(exec, stale, RelationsTable.TABLE, RelationsTable.RHS_EID);
+      removeReferenced(exec, stale, ImportsTable.TABLE, ImportsTable.EID);
+      removeReferenced(exec, stale, CommentsTable.TABLE, CommentsTable.CONTAINING_EID);
+      removeReferenced(exec, stale, CommentsTable.TABLE, CommentsTable.FOLLOWING_EID);
+      removeReferenced(exec, stale, EntityMetricsTable.TABLE, EntityMetricsTable.ENTITY_ID);
+      if (stale.size() < reserved) {
+        logger.warning("Keeping " + (reserved - stale.size()) + " stale reserved entity ids for " + projectID + " that are still referenced");
+      }
+      if (!stale.isEmpty()) {
+        logger.info("Deleting " + stale.size() + " stale reserved entity ids for " + projectID);
+        for (Collection<Integer> partition : partition(stale)) {
+          DeleteStatement delete = exec.createDeleteStatement(EntitiesTable.TABLE);
+          delete.andWhere(EntitiesTable.PROJECT_ID.compareEquals(projectID).and(EntitiesTable.PARAMS.compareEquals(RESERVED)).and(EntitiesTable.ENTITY_ID.compareIn(partition)));
+          delete.execute();
+        }
+      }
+    }
+  }
+  
+  private static void removeReferenced(QueryExecutor exec, Set<Integer> entityIDs, DatabaseTable table, Column<Integer> column) {
+    for (Collection<Integer> partition : partition(entityIDs)) {
+      try (SelectQuery query = exec.createSelectQuery(table)) {
+        query.setDistinct(true);
+        query.addSelect(column);
+        query.andWhere(column.compareIn(partition));
+        entityIDs.removeAll(query.select().toCollection(column));
+      }
+    }
+  }
+  
+  /**
+   * Splits ids into IN-lists of bounded size.
+   */
+  private static List<Collection<Integer>> partition(Collection<Integer> entityIDs) {
+    List<Collection<Integer>> partitions = new ArrayList<>();
+    Iterator<Integer> iter = entityIDs.iterator();
+    while (iter.hasNext()) {
+      Collection<Integer> partition = new ArrayList<>(Math.min(IN_LIST_SIZE, entityIDs.size()));
+      while (iter.hasNext() && partition.size() < IN_LIST_SIZE) {
+        partition.add(iter.next());
+      }
+      partitions.add(partition);
+    }
+    return partitions;
+  }
+  
+  /**
+   * Tokens without a time predate the owner tags, and count as stale.
+   */
+  private static long getReservationTime(String token) {
+    int end = token.indexOf(':');
+    if (token.startsWith(RESERVED) && end > RESERVED.length()) {
+      try {
+        return Long.parseLong(token.substring(RESERVED.length(), end));
+      } catch (NumberFormatException e) {}
+    }
+    return Long.MIN_VALUE;
+  }
+  
+  private void delete(QueryExecutor exec, Collection<String> tokens) {
+    if (!tokens.isEmpty()) {
+      DeleteStatement delete = exec.createDeleteStatement(EntitiesTable.TABLE);
+      delete.andWhere(EntitiesTable.PROJECT_ID.compareEquals(projectID).and(EntitiesTable.PARAMS.compareEquals(RESERVED)).and(EntitiesTable.FQN.compareIn(tokens)));
+      delete.execute();
+    }
+  }
+}
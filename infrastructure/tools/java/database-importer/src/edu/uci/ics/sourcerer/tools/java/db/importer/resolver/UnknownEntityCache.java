@@ -19,8 +19,8 @@ package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
@@ -38,11 +38,15 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class UnknownEntityCache  {
+  private static final int BLOCK_SIZE = 1000;
+  private static final int FLUSH_SIZE = 1000;
+  
   private Integer unknownsProject;
-  private Map<String, ModeledEntity> unknowns;
+  private final ConcurrentMap<String, ModeledEntity> unknowns;
+  private ReservedEntityIDs ids;
   
   private UnknownEntityCache() {
-    unknowns = new HashMap<>();
+    unknowns = new ConcurrentHashMap<>();
   }
   
   public static UnknownEntityCache makeUnknownEntityCache(final TaskProgressLogger task) {
@@ -59,6 +63,9 @@ public class UnknownEntityCache  {
           cache.unknownsProject = query.select().toSingleton(ProjectsTable.PROJECT_ID, false);
         }
         
+        cache.ids = new ReservedEntityIDs(cache.unknownsProject, BLOCK_SIZE);
+        cache.ids.releaseStale(exec);
+        
         try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
           query.addSelect(EntitiesTable.ENTITY_ID, EntitiesTable.FQN, EntitiesTable.PARAMS);
           query.andWhere(EntitiesTable.PROJECT_ID.compareEquals(cache.unknownsProject));
@@ -82,26 +89,55 @@ public class UnknownEntityCache  {
     return cache;
   }
   
-  synchronized ModeledEntity getUnknown(QueryExecutor exec, String fqn) {
+  ModeledEntity getUnknown(QueryExecutor exec, String fqn) {
     ModeledEntity entity = unknowns.get(fqn);
     if (entity == null) {
-      Integer entityID = null;
-      if (TypeUtils.isMethod(fqn)) {
-        String name = TypeUtils.getMethodName(fqn);
-        entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.UNKNOWN, name, fqn.substring(name.length()), unknownsProject));
-      } else {
-        entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.UNKNOWN, fqn, unknownsProject));
-      }
+      Integer entityID = ids.nextID(exec);
       if (entityID == null) {
         logger.log(Level.SEVERE, "Error inserting unknown: " + fqn);
         return null;
       } else {
         entity = new ModeledEntity(fqn, Entity.UNKNOWN, entityID, RelationClass.UNKNOWN);
-        unknowns.put(fqn, entity);
-        return entity;
+        ModeledEntity existing = unknowns.putIfAbsent(fqn, entity);
+        if (existing == null) {
+          // If another thread got there first, the id is left unused and deleted on close
+          int pending = 0;
+          if (TypeUtils.isMethod(fqn)) {
+            String name = TypeUtils.getMethodName(fqn);
+            pending = ids.assign(entityID, Entity.UNKNOWN, name, fqn.substring(name.length()), null);
+          } else {
+            pending = ids.assign(entityID, Entity.UNKNOWN, fqn, null, null);
+          }
+          if (pending >= FLUSH_SIZE) {
+            ids.flush(exec);
+          }
+          return entity;
+        } else {
+          return existing;
+        }
       }
     } else {
       return entity;
     }
   }
+  
+  /**
+   * Writes the unknowns added since the last flush.
+   */
+  public void flush(QueryExecutor exec) {
+    ids.flush(exec);
+  }
+  
+  /**
+   * Writes any remaining unknowns and deletes the unused reserved ids.
+   * Must only be called once every importer using the cache is done.
+   */
+  public void close() {
+    new DatabaseRunnable() {
+      @Override
+      public void action() {
+        ids.release(exec);
+      }
+    }.run();
+  }
 }
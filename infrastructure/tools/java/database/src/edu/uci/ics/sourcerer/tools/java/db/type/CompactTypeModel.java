@@ -0,0 +1,138 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.type;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Keeps the entities in an open-addressed table keyed by the primitive
+ * entity id, avoiding a boxed key and map entry per entity.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class CompactTypeModel extends TypeModel {
+  private int[] keys;
+  private ModeledEntity[] values;
+  private int size;
+  
+  CompactTypeModel(TypeModel parentModel) {
+    super(parentModel);
+    keys = new int[64];
+    values = new ModeledEntity[64];
+  }
+  
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+  
+  private int indexOf(int key) {
+    int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    // Empty slots have no value, so a key of 0 needs no special handling
+    while (values[i] != null && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+  
+  @Override
+  void add(ModeledEntity entity) {
+    if ((size + 1) * 4 > keys.length * 3) {
+      int[] oldKeys = keys;
+      ModeledEntity[] oldValues = values;
+      keys = new int[oldKeys.length * 2];
+      values = new ModeledEntity[oldValues.length * 2];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldValues[i] != null) {
+          int slot = indexOf(oldKeys[i]);
+          keys[slot] = oldKeys[i];
+          values[slot] = oldValues[i];
+        }
+      }
+    }
+    int key = entity.getEntityID();
+    int slot = indexOf(key);
+    if (values[slot] == null) {
+      size++;
+    }
+    keys[slot] = key;
+    values[slot] = entity;
+  }
+  
+  @Override
+  boolean contains(Integer entityID) {
+    return getLocal(entityID) != null;
+  }
+  
+  @Override
+  ModeledEntity getLocal(Integer entityID) {
+    if (entityID == null) {
+      return null;
+    } else {
+      return values[indexOf(entityID)];
+    }
+  }
+  
+  @Override
+  public Collection<? extends ModeledEntity> getEntities() {
+    return new AbstractCollection<ModeledEntity>() {
+      @Override
+      public Iterator<ModeledEntity> iterator() {
+        return new Iterator<ModeledEntity>() {
+          private int next = advance(0);
+          
+          private int advance(int i) {
+            while (i < values.length && values[i] == null) {
+              i++;
+            }
+            return i;
+          }
+          
+          @Override
+          public boolean hasNext() {
+            return next < values.length;
+          }
+          
+          @Override
+          public ModeledEntity next() {
+            if (next >= values.length) {
+              throw new NoSuchElementException();
+            }
+            ModeledEntity entity = values[next];
+            next = advance(next + 1);
+            return entity;
+          }
+          
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+      
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+}
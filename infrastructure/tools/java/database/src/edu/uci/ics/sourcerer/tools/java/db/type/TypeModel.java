@@ -18,27 +18,25 @@
 package edu.uci.ics.sourcerer.tools.java.db.type;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
-public class TypeModel {
-  private final Map<Integer, ModeledEntity> entities;
+public abstract class TypeModel {
   private final TypeModel parentModel;
   
   TypeModel(TypeModel parentModel) {
-    entities = new HashMap<>();
     this.parentModel = parentModel; 
   }
   
-  void add(ModeledEntity entity) {
-    entities.put(entity.getEntityID(), entity);
-  }
+  abstract void add(ModeledEntity entity);
+  
+  abstract boolean contains(Integer entityID);
+  
+  abstract ModeledEntity getLocal(Integer entityID);
   
   public ModeledEntity get(Integer entityID) {
-    ModeledEntity entity = entities.get(entityID);
+    ModeledEntity entity = getLocal(entityID);
     if (entity == null && parentModel != null) {
       return parentModel.get(entityID);
     } else {
@@ -46,7 +44,5 @@ public class TypeModel {
     }
   }
   
-  public Collection<? extends ModeledEntity> getEntities() {
-    return entities.values();
-  }
+  public abstract Collection<? extends ModeledEntity> getEntities();
 }
@@ -20,6 +20,7 @@ package edu.uci.ics.sourcerer.tools.java.db.type;
 import java.util.Collection;
 import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
@@ -28,8 +29,11 @@ import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
 import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifiers;
 import edu.uci.ics.sourcerer.tools.java.model.types.Project;
 import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnection;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
@@ -42,6 +46,8 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class TypeModelFactory {
+  public static final Argument<Boolean> COMPACT_TYPE_MODEL = new BooleanArgument("compact-type-model", true, "Use the compact, int-keyed type model and share repeated entity values.").permit();
+  
   private TypeModelFactory() {}
   
   public static TypeModel createJavaLibraryTypeModel() {
@@ -69,10 +75,53 @@ public class TypeModelFactory {
     protected final TaskProgressLogger task;
     protected final TypeModel model;
     protected QueryExecutor exec;
+    private final Map<Object, Object> interned;
+    private final Map<Integer, Modifiers> modifiers;
     
     protected ModelCreator(TypeModel parentModel) {
       task = TaskProgressLogger.get();
-      model = new TypeModel(parentModel);
+      if (COMPACT_TYPE_MODEL.getValue()) {
+        model = new CompactTypeModel(parentModel);
+        interned = new HashMap<>();
+        modifiers = new HashMap<>();
+      } else {
+        model = new HashTypeModel(parentModel);
+        interned = null;
+        modifiers = null;
+      }
+    }
+    
+    /**
+     * Shares equal project ids, file ids and strings between
+     * the entities of a compact model.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T intern(T value) {
+      if (value == null || interned == null) {
+        return value;
+      } else {
+        Object existing = interned.get(value);
+        if (existing == null) {
+          interned.put(value, value);
+          return value;
+        } else {
+          return (T) existing;
+        }
+      }
+    }
+    
+    private Modifiers internModifiers(Modifiers value) {
+      if (value == null || modifiers == null) {
+        return value;
+      } else {
+        Modifiers existing = modifiers.get(value.getValue());
+        if (existing == null) {
+          modifiers.put(value.getValue(), value);
+          return value;
+        } else {
+          return existing;
+        }
+      }
     }
     
     // The ENTITIES
@@ -96,7 +145,7 @@ public class TypeModelFactory {
         Entity.DUPLICATE,
         Entity.VIRTUAL_DUPLICATE,
         Entity.WILDCARD);
-    protected static ResultConstructor2<ModeledEntity> ENTITY_CONSTRUCTOR = new ResultConstructor2<ModeledEntity>() {
+    protected final ResultConstructor2<ModeledEntity> ENTITY_CONSTRUCTOR = new ResultConstructor2<ModeledEntity>() {
       @Override
       public void addSelects(SelectQuery query) {
         query.addSelect(
@@ -114,28 +163,28 @@ public class TypeModelFactory {
       public ModeledEntity constructResult(TypedQueryResult result) {
         Entity type = result.getResult(EntitiesTable.ENTITY_TYPE);
         Integer entityID = result.getResult(EntitiesTable.ENTITY_ID);
-        String fqn = result.getResult(EntitiesTable.FQN);
-        Integer fileID = result.getResult(EntitiesTable.FILE_ID);
-        Integer projectID = result.getResult(EntitiesTable.PROJECT_ID);
+        String fqn = intern(result.getResult(EntitiesTable.FQN));
+        Integer fileID = intern(result.getResult(EntitiesTable.FILE_ID));
+        Integer projectID = intern(result.getResult(EntitiesTable.PROJECT_ID));
         
         switch (type) {
           case CLASS:
           case INTERFACE:
           case ENUM:
           case ANNOTATION:
-            return new ModeledDeclaredType(entityID, result.getResult(EntitiesTable.MODIFIERS), fqn, type, fileID, projectID);
+            return new ModeledDeclaredType(entityID, internModifiers(result.getResult(EntitiesTable.MODIFIERS)), fqn, type, fileID, projectID);
           case CONSTRUCTOR:
           case METHOD:
           case ANNOTATION_ELEMENT:
-            return new ModeledMethod(entityID, result.getResult(EntitiesTable.MODIFIERS), fqn, type, fileID, projectID,               
-                result.getResult(EntitiesTable.PARAMS),
-                result.getResult(EntitiesTable.RAW_PARAMS));
+            return new ModeledMethod(entityID, internModifiers(result.getResult(EntitiesTable.MODIFIERS)), fqn, type, fileID, projectID,               
+                intern(result.getResult(EntitiesTable.PARAMS)),
+                intern(result.getResult(EntitiesTable.RAW_PARAMS)));
           case FIELD:
           case ENUM_CONSTANT:
           case INITIALIZER:
           case PARAMETER:
           case LOCAL_VARIABLE:
-            return new ModeledStructuralEntity(entityID, result.getResult(EntitiesTable.MODIFIERS), fqn, type, fileID, projectID);
+            return new ModeledStructuralEntity(entityID, internModifiers(result.getResult(EntitiesTable.MODIFIERS)), fqn, type, fileID, projectID);
           case PACKAGE:
             return new ModeledStructuralEntity(entityID, null, fqn, type, fileID, projectID);
           case PRIMITIVE:
@@ -175,7 +224,10 @@ public class TypeModelFactory {
       public void process(Integer lhsEid, Integer rhsEid) {
         ModeledEntity lhs = model.get(lhsEid);
         ModeledEntity rhs = model.get(rhsEid);
-        if (lhs != null && rhs != null) {
+        if (lhs != null && rhs != null && !model.contains(lhsEid)) {
+          // Parent models may be shared between threads, so they are never modified
+          task.report(Level.SEVERE, type.name() + " relation LHS belongs to the parent model: " + lhs);
+        } else if (lhs != null && rhs != null) {
           boolean lhsValid = lhsType.isInstance(lhs);
           boolean rhsValid = rhsType.isInstance(rhs);
           if (lhsValid && rhsValid) {
@@ -28,7 +28,6 @@ import java.util.regex.Pattern;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectMetricsTable;
-import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
 import edu.uci.ics.sourcerer.tools.java.db.type.ModeledArrayType;
 import edu.uci.ics.sourcerer.tools.java.db.type.ModeledDeclaredType;
 import edu.uci.ics.sourcerer.tools.java.db.type.ModeledDuplicate;
@@ -45,200 +44,193 @@ import edu.uci.ics.sourcerer.util.UniqueChecker;
 import edu.uci.ics.sourcerer.util.UniqueStack;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
-import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
-import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
-public class InternalCouplingCalculator extends Calculator {
+public class InternalCouplingCalculator extends RelationCalculator {
+  private static final Set<Relation> RELATIONS = EnumSet.of(Relation.HOLDS, Relation.RETURNS, Relation.READS, Relation.WRITES, Relation.CALLS, Relation.INSTANTIATES, Relation.CASTS, Relation.CHECKS, Relation.USES, Relation.EXTENDS, Relation.IMPLEMENTS);
+  
   @Override
   public boolean shouldCalculate(ProjectMetricModel metrics) {
     return metrics.missingValue(Metric.EFFERENT_COUPLING_INTERNAL, Metric.AFFERENT_COUPLING_INTERNAL);
   }
 
   @Override
-  public void calculate(QueryExecutor exec, Integer projectID, ProjectMetricModel metrics, TypeModel model) {
-    TaskProgressLogger task = TaskProgressLogger.get();
+  public Set<Relation> getRelationTypes() {
+    return RELATIONS;
+  }
+  
+  @Override
+  public RelationVisitor createVisitor(Integer projectID, ProjectMetricModel metrics, TypeModel model) {
+    return new Visitor(projectID, metrics);
+  }
+  
+  private class Visitor extends RelationVisitor {
+    private final Pattern anon = Pattern.compile(".*\\$\\d+$");
+    private final Integer projectID;
+    private final ProjectMetricModel metrics;
     
-    Pattern anon = Pattern.compile(".*\\$\\d+$"); 
-
-    task.start("Computing internal coupling");
-    Map<ModeledDeclaredType, Set<ModeledDeclaredType>> affMap = new HashMap<>();
-    Map<ModeledStructuralEntity, Set<ModeledDeclaredType>> pkgAffMap = new HashMap<>();
+    private final Map<ModeledDeclaredType, Set<ModeledDeclaredType>> affMap = new HashMap<>();
+    private final Map<ModeledStructuralEntity, Set<ModeledDeclaredType>> pkgAffMap = new HashMap<>();
     
-    Map<ModeledDeclaredType, Set<ModeledDeclaredType>> effMap = new HashMap<>();
-    Map<ModeledStructuralEntity, Set<ModeledDeclaredType>> pkgEffMap = new HashMap<>();
-
+    private final Map<ModeledDeclaredType, Set<ModeledDeclaredType>> effMap = new HashMap<>();
+    private final Map<ModeledStructuralEntity, Set<ModeledDeclaredType>> pkgEffMap = new HashMap<>();
     
-    try (SelectQuery select = exec.createSelectQuery(RelationsTable.TABLE)) {
-      select.addSelect(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
-      select.andWhere(RelationsTable.PROJECT_ID.compareEquals(projectID), RelationsTable.RELATION_TYPE.compareIn(EnumSet.of(Relation.HOLDS, Relation.RETURNS, Relation.READS, Relation.WRITES, Relation.CALLS, Relation.INSTANTIATES, Relation.CASTS, Relation.CHECKS, Relation.USES, Relation.EXTENDS, Relation.IMPLEMENTS)));
-      
-      task.start("Processing relations", "relations processed", 100_000);
-      TypedQueryResult result = select.select();
-      while (result.next()) {
-        Integer lhsEid = result.getResult(RelationsTable.LHS_EID);
-        Integer rhsEid = result.getResult(RelationsTable.RHS_EID);
-        
-        ModeledEntity lhs = model.get(lhsEid);
-        if (lhs == null) {
-          logger.severe("Unable to find model element for: " + lhsEid);
-          continue;
-        }
-        ModeledEntity rhs = model.get(rhsEid);
-        if (rhs == null) {
-          logger.severe("Unable to find model element for: " + rhsEid);
-          continue;
-        }
-        // Handle the Efferent Coupling
-        if (projectID.equals(rhs.getProjectID())) {
-          UniqueStack<ModeledEntity> stack = UniqueStack.create(false);
-          stack.push(lhs);
-          while (stack.hasItems()) {
-            ModeledEntity next = stack.pop();
-            if (next instanceof ModeledStructuralEntity) {
-              if (next.getType() == Entity.PACKAGE) {
-                ModeledStructuralEntity pkg = (ModeledStructuralEntity) next;
-                Set<ModeledDeclaredType> referencedTypes = pkgEffMap.get(pkg);
-                if (referencedTypes == null) {
-                  referencedTypes = new HashSet<>();
-                  pkgEffMap.put(pkg, referencedTypes);
-                }
-                addEff(referencedTypes, projectID, rhs);  
-              } else if (next.getType().is(Entity.CLASS, Entity.INTERFACE, Entity.ENUM) && !anon.matcher(next.getFqn()).matches()) {
-                ModeledDeclaredType dec = (ModeledDeclaredType) next;
-                Set<ModeledDeclaredType> referencedTypes = effMap.get(dec);
-                if (referencedTypes == null) {
-                  referencedTypes = new HashSet<>();
-                  effMap.put(dec, referencedTypes);
-                }
-                addEff(referencedTypes, projectID, rhs);
-                stack.push(dec.getOwner());
-              } else {
-                stack.push(((ModeledStructuralEntity) next).getOwner());
+    private Visitor(Integer projectID, ProjectMetricModel metrics) {
+      this.projectID = projectID;
+      this.metrics = metrics;
+    }
+    
+    @Override
+    public void visit(ModeledEntity lhs, ModeledEntity rhs) {
+      // Handle the Efferent Coupling
+      if (projectID.equals(rhs.getProjectID())) {
+        UniqueStack<ModeledEntity> stack = UniqueStack.create(false);
+        stack.push(lhs);
+        while (stack.hasItems()) {
+          ModeledEntity next = stack.pop();
+          if (next instanceof ModeledStructuralEntity) {
+            if (next.getType() == Entity.PACKAGE) {
+              ModeledStructuralEntity pkg = (ModeledStructuralEntity) next;
+              Set<ModeledDeclaredType> referencedTypes = pkgEffMap.get(pkg);
+              if (referencedTypes == null) {
+                referencedTypes = new HashSet<>();
+                pkgEffMap.put(pkg, referencedTypes);
+              }
+              addEff(referencedTypes, projectID, rhs);  
+            } else if (next.getType().is(Entity.CLASS, Entity.INTERFACE, Entity.ENUM) && !anon.matcher(next.getFqn()).matches()) {
+              ModeledDeclaredType dec = (ModeledDeclaredType) next;
+              Set<ModeledDeclaredType> referencedTypes = effMap.get(dec);
+              if (referencedTypes == null) {
+                referencedTypes = new HashSet<>();
+                effMap.put(dec, referencedTypes);
               }
+              addEff(referencedTypes, projectID, rhs);
+              stack.push(dec.getOwner());
             } else {
-              logger.severe("Unexpected rhs: " + next);
+              stack.push(((ModeledStructuralEntity) next).getOwner());
             }
+          } else {
+            logger.severe("Unexpected rhs: " + next);
           }
         }
-        // Handle the Afferent Coupling
-        if (projectID.equals(rhs.getProjectID())) {
-          // Add to the maps
-          UniqueStack<ModeledEntity> stack = UniqueStack.create(false);
-          stack.push(rhs);
-          while (stack.hasItems()) {
-            ModeledEntity next = stack.pop();
-            if (projectID.equals(next.getProjectID())) {
-              if (next.getType() == Entity.PACKAGE) {
-                ModeledStructuralEntity pkg = (ModeledStructuralEntity) next;
-                Set<ModeledDeclaredType> referencingTypes = pkgAffMap.get(pkg);
+      }
+      // Handle the Afferent Coupling
+      if (projectID.equals(rhs.getProjectID())) {
+        // Add to the maps
+        UniqueStack<ModeledEntity> stack = UniqueStack.create(false);
+        stack.push(rhs);
+        while (stack.hasItems()) {
+          ModeledEntity next = stack.pop();
+          if (projectID.equals(next.getProjectID())) {
+            if (next.getType() == Entity.PACKAGE) {
+              ModeledStructuralEntity pkg = (ModeledStructuralEntity) next;
+              Set<ModeledDeclaredType> referencingTypes = pkgAffMap.get(pkg);
+              if (referencingTypes == null) {
+                referencingTypes = new HashSet<>();
+                pkgAffMap.put(pkg, referencingTypes);
+              }
+              addAff(referencingTypes, lhs);
+            } else if (next.getType() == Entity.PARAMETERIZED_TYPE) {
+              ModeledParametrizedType pType = (ModeledParametrizedType) next;
+              stack.push(pType.getBaseType());
+              stack.pushAll(pType.getTypeArgs());
+            } else if (next.getType() == Entity.ARRAY) {
+              ModeledArrayType aType = (ModeledArrayType) next;
+              stack.push(aType.getElementType());
+            } else if (next.getType().is(Entity.CLASS, Entity.INTERFACE, Entity.ENUM)) {
+              ModeledDeclaredType dec = (ModeledDeclaredType) next;
+              if (!anon.matcher(next.getFqn()).matches()) {
+                Set<ModeledDeclaredType> referencingTypes = affMap.get(dec);
                 if (referencingTypes == null) {
                   referencingTypes = new HashSet<>();
-                  pkgAffMap.put(pkg, referencingTypes);
+                  affMap.put(dec, referencingTypes);
                 }
                 addAff(referencingTypes, lhs);
-              } else if (next.getType() == Entity.PARAMETERIZED_TYPE) {
-                ModeledParametrizedType pType = (ModeledParametrizedType) next;
-                stack.push(pType.getBaseType());
-                stack.pushAll(pType.getTypeArgs());
-              } else if (next.getType() == Entity.ARRAY) {
-                ModeledArrayType aType = (ModeledArrayType) next;
-                stack.push(aType.getElementType());
-              } else if (next.getType().is(Entity.CLASS, Entity.INTERFACE, Entity.ENUM)) {
-                ModeledDeclaredType dec = (ModeledDeclaredType) next;
-                if (!anon.matcher(next.getFqn()).matches()) {
-                  Set<ModeledDeclaredType> referencingTypes = affMap.get(dec);
-                  if (referencingTypes == null) {
-                    referencingTypes = new HashSet<>();
-                    affMap.put(dec, referencingTypes);
-                  }
-                  addAff(referencingTypes, lhs);
-                }
-                stack.push(dec.getOwner());
-              } else if (next.getType().is(Entity.ANNOTATION, Entity.ANNOTATION_ELEMENT)) {
-                // ignore
-              } else if (next.getType().is(Entity.METHOD, Entity.CONSTRUCTOR, Entity.FIELD, Entity.ENUM_CONSTANT, Entity.INITIALIZER)) {
-                stack.push(((ModeledStructuralEntity) next).getOwner());
-              } else if (next.getType().is(Entity.TYPE_VARIABLE, Entity.WILDCARD)) {
-                // ignore, but in theory should look at the bounds
-              } else if (next.getType().is(Entity.DUPLICATE, Entity.VIRTUAL_DUPLICATE)) {
-                ModeledDuplicate dup = (ModeledDuplicate) next;
-                stack.pushAll(dup.getMatches());
-              } else {
-                logger.severe("Unexpected rhs: " + next);
               }
+              stack.push(dec.getOwner());
+            } else if (next.getType().is(Entity.ANNOTATION, Entity.ANNOTATION_ELEMENT)) {
+              // ignore
+            } else if (next.getType().is(Entity.METHOD, Entity.CONSTRUCTOR, Entity.FIELD, Entity.ENUM_CONSTANT, Entity.INITIALIZER)) {
+              stack.push(((ModeledStructuralEntity) next).getOwner());
+            } else if (next.getType().is(Entity.TYPE_VARIABLE, Entity.WILDCARD)) {
+              // ignore, but in theory should look at the bounds
+            } else if (next.getType().is(Entity.DUPLICATE, Entity.VIRTUAL_DUPLICATE)) {
+              ModeledDuplicate dup = (ModeledDuplicate) next;
+              stack.pushAll(dup.getMatches());
+            } else {
+              logger.severe("Unexpected rhs: " + next);
             }
           }
         }
-        task.progress();
       }
-      task.finish();
     }
     
-    task.start("Adding the metrics");
-    Averager<Double> avgInternalEffCoupling = Averager.create();
-    Averager<Double> avgInternalAffCoupling = Averager.create();
-    // Add the eff entity metrics
-    for (Map.Entry<ModeledDeclaredType, Set<ModeledDeclaredType>> entry : effMap.entrySet()) {
-      ModeledDeclaredType entity = entry.getKey();
-      Double internalCoupling = (double) entry.getValue().size();
+    @Override
+    public void finish(QueryExecutor exec) {
+      TaskProgressLogger task = TaskProgressLogger.get();
+      task.start("Adding the internal coupling metrics");
+      Averager<Double> avgInternalEffCoupling = Averager.create();
+      Averager<Double> avgInternalAffCoupling = Averager.create();
+      // Add the eff entity metrics
+      for (Map.Entry<ModeledDeclaredType, Set<ModeledDeclaredType>> entry : effMap.entrySet()) {
+        ModeledDeclaredType entity = entry.getKey();
+        Double internalCoupling = (double) entry.getValue().size();
       
-      if (metrics.missingEntityValue(entity.getEntityID(), Metric.EFFERENT_COUPLING_INTERNAL)) {
-        metrics.setEntityValue(entity.getEntityID(), entity.getFileID(), Metric.EFFERENT_COUPLING_INTERNAL, internalCoupling);
-        exec.insert(EntityMetricsTable.createInsert(projectID, entity.getFileID(), entity.getEntityID(), Metric.EFFERENT_COUPLING_INTERNAL, internalCoupling));
+        if (metrics.missingEntityValue(entity.getEntityID(), Metric.EFFERENT_COUPLING_INTERNAL)) {
+          metrics.setEntityValue(entity.getEntityID(), entity.getFileID(), Metric.EFFERENT_COUPLING_INTERNAL, internalCoupling);
+          exec.insert(EntityMetricsTable.createInsert(projectID, entity.getFileID(), entity.getEntityID(), Metric.EFFERENT_COUPLING_INTERNAL, internalCoupling));
+        }
+        avgInternalEffCoupling.addValue(internalCoupling);
       }
-      avgInternalEffCoupling.addValue(internalCoupling);
-    }
-    // Add the aff entity metrics
-    for (Map.Entry<ModeledDeclaredType, Set<ModeledDeclaredType>> entry : affMap.entrySet()) {
-      ModeledDeclaredType entity = entry.getKey();
-      Double internalCoupling = (double) entry.getValue().size();
+      // Add the aff entity metrics
+      for (Map.Entry<ModeledDeclaredType, Set<ModeledDeclaredType>> entry : affMap.entrySet()) {
+        ModeledDeclaredType entity = entry.getKey();
+        Double internalCoupling = (double) entry.getValue().size();
       
-      if (metrics.missingEntityValue(entity.getEntityID(), Metric.AFFERENT_COUPLING_INTERNAL)) {
-        metrics.setEntityValue(entity.getEntityID(), entity.getFileID(), Metric.AFFERENT_COUPLING_INTERNAL, internalCoupling);
-        exec.insert(EntityMetricsTable.createInsert(projectID, entity.getFileID(), entity.getEntityID(), Metric.AFFERENT_COUPLING_INTERNAL, internalCoupling));
+        if (metrics.missingEntityValue(entity.getEntityID(), Metric.AFFERENT_COUPLING_INTERNAL)) {
+          metrics.setEntityValue(entity.getEntityID(), entity.getFileID(), Metric.AFFERENT_COUPLING_INTERNAL, internalCoupling);
+          exec.insert(EntityMetricsTable.createInsert(projectID, entity.getFileID(), entity.getEntityID(), Metric.AFFERENT_COUPLING_INTERNAL, internalCoupling));
+        }
+        avgInternalAffCoupling.addValue(internalCoupling);
       }
-      avgInternalAffCoupling.addValue(internalCoupling);
-    }
 
-    // Add the eff pkg metrics
-    for (Map.Entry<ModeledStructuralEntity, Set<ModeledDeclaredType>> entry : pkgEffMap.entrySet()) {
-      ModeledStructuralEntity pkg = entry.getKey();
-      Double internalCoupling = (double) entry.getValue().size();
+      // Add the eff pkg metrics
+      for (Map.Entry<ModeledStructuralEntity, Set<ModeledDeclaredType>> entry : pkgEffMap.entrySet()) {
+        ModeledStructuralEntity pkg = entry.getKey();
+        Double internalCoupling = (double) entry.getValue().size();
       
-      if (metrics.missingEntityValue(pkg.getEntityID(), Metric.EFFERENT_COUPLING_INTERNAL)) {
-        metrics.setEntityValue(pkg.getEntityID(), null, Metric.EFFERENT_COUPLING_INTERNAL, internalCoupling);
-        exec.insert(EntityMetricsTable.createInsert(projectID, null, pkg.getEntityID(), Metric.EFFERENT_COUPLING_INTERNAL, internalCoupling));
+        if (metrics.missingEntityValue(pkg.getEntityID(), Metric.EFFERENT_COUPLING_INTERNAL)) {
+          metrics.setEntityValue(pkg.getEntityID(), null, Metric.EFFERENT_COUPLING_INTERNAL, internalCoupling);
+          exec.insert(EntityMetricsTable.createInsert(projectID, null, pkg.getEntityID(), Metric.EFFERENT_COUPLING_INTERNAL, internalCoupling));
+        }
       }
-    }
     
-    // Add the aff pkg metrics
-    for (Map.Entry<ModeledStructuralEntity, Set<ModeledDeclaredType>> entry : pkgAffMap.entrySet()) {
-      ModeledStructuralEntity pkg = entry.getKey();
-      Double internalCoupling = (double) entry.getValue().size();
+      // Add the aff pkg metrics
+      for (Map.Entry<ModeledStructuralEntity, Set<ModeledDeclaredType>> entry : pkgAffMap.entrySet()) {
+        ModeledStructuralEntity pkg = entry.getKey();
+        Double internalCoupling = (double) entry.getValue().size();
       
-      if (metrics.missingEntityValue(pkg.getEntityID(), Metric.AFFERENT_COUPLING_INTERNAL)) {
-        metrics.setEntityValue(pkg.getEntityID(), null, Metric.AFFERENT_COUPLING_INTERNAL, internalCoupling);
-        exec.insert(EntityMetricsTable.createInsert(projectID, null, pkg.getEntityID(), Metric.AFFERENT_COUPLING_INTERNAL, internalCoupling));
+        if (metrics.missingEntityValue(pkg.getEntityID(), Metric.AFFERENT_COUPLING_INTERNAL)) {
+          metrics.setEntityValue(pkg.getEntityID(), null, Metric.AFFERENT_COUPLING_INTERNAL, internalCoupling);
+          exec.insert(EntityMetricsTable.createInsert(projectID, null, pkg.getEntityID(), Metric.AFFERENT_COUPLING_INTERNAL, internalCoupling));
+        }
       }
-    }
 
-    // Add the aff project metric
-    if (metrics.missingValue(Metric.EFFERENT_COUPLING_INTERNAL)) {
-      metrics.setValue(Metric.EFFERENT_COUPLING_INTERNAL, avgInternalEffCoupling);
-      exec.insert(ProjectMetricsTable.createInsert(projectID, Metric.EFFERENT_COUPLING_INTERNAL, avgInternalEffCoupling));
-    }
+      // Add the aff project metric
+      if (metrics.missingValue(Metric.EFFERENT_COUPLING_INTERNAL)) {
+        metrics.setValue(Metric.EFFERENT_COUPLING_INTERNAL, avgInternalEffCoupling);
+        exec.insert(ProjectMetricsTable.createInsert(projectID, Metric.EFFERENT_COUPLING_INTERNAL, avgInternalEffCoupling));
+      }
 
-    // Add the aff project metric
-    if (metrics.missingValue(Metric.AFFERENT_COUPLING_INTERNAL)) {
-      metrics.setValue(Metric.AFFERENT_COUPLING_INTERNAL, avgInternalAffCoupling);
-      exec.insert(ProjectMetricsTable.createInsert(projectID, Metric.AFFERENT_COUPLING_INTERNAL, avgInternalAffCoupling));
+      // Add the aff project metric
+      if (metrics.missingValue(Metric.AFFERENT_COUPLING_INTERNAL)) {
+        metrics.setValue(Metric.AFFERENT_COUPLING_INTERNAL, avgInternalAffCoupling);
+        exec.insert(ProjectMetricsTable.createInsert(projectID, Metric.AFFERENT_COUPLING_INTERNAL, avgInternalAffCoupling));
+      }
+      task.finish();
     }
-    task.finish();
-
-    task.finish();
   }
   
   private void addEff(Set<ModeledDeclaredType> set, Integer projectID, ModeledEntity entity) {
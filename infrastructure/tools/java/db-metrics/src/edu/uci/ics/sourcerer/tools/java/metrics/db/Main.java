@@ -29,7 +29,14 @@ public class Main {
     protected void action() {
       MetricsCalculator.calculateMetrics();
     }
-  }.setProperties(DatabaseConnectionFactory.DATABASE_URL, DatabaseConnectionFactory.DATABASE_USER, DatabaseConnectionFactory.DATABASE_PASSWORD);
+  }.setProperties(DatabaseConnectionFactory.DATABASE_URL, DatabaseConnectionFactory.DATABASE_USER, DatabaseConnectionFactory.DATABASE_PASSWORD, MetricsCalculator.THREAD_COUNT);
+  
+  public static final Command BENCHMARK_TYPE_MODEL = new Command("benchmark-type-model", "Compares the memory used by the original and compact type models.") {
+    @Override
+    protected void action() {
+      TypeModelBenchmark.benchmarkMemory();
+    }
+  }.setProperties(DatabaseConnectionFactory.DATABASE_URL, DatabaseConnectionFactory.DATABASE_USER, DatabaseConnectionFactory.DATABASE_PASSWORD, TypeModelBenchmark.JAR_COUNT);
   
   public static void main(String[] args) {
     Command.execute(args, Main.class);
@@ -17,30 +17,52 @@
  */
 package edu.uci.ics.sourcerer.tools.java.metrics.db;
 
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.FilesTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.db.type.ModeledEntity;
 import edu.uci.ics.sourcerer.tools.java.db.type.TypeModel;
 import edu.uci.ics.sourcerer.tools.java.db.type.TypeModelFactory;
 import edu.uci.ics.sourcerer.tools.java.metrics.db.MetricModelFactory.ProjectMetricModel;
+import edu.uci.ics.sourcerer.tools.java.metrics.db.RelationCalculator.RelationVisitor;
 import edu.uci.ics.sourcerer.tools.java.model.types.File;
 import edu.uci.ics.sourcerer.tools.java.model.types.Project;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
+import edu.uci.ics.sourcerer.util.Nullerator;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.Logging;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.ParallelDatabaseRunnable;
 import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
 import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
 
 /**
+ * Computes the metrics for several projects at once. The Java library
+ * type model is built once and shared, read-only, by every thread. Each
+ * project's relations are read in a single scan, which feeds every
+ * {@link RelationCalculator} that still has work to do.
+ * 
  * @author Joel Ossher (jossher@uci.edu)
  */
-class MetricsCalculator extends DatabaseRunnable {
-  private final TaskProgressLogger task;
-  private final TypeModel javaLibraryModel;
-  private final Calculator[] calculators = {
+class MetricsCalculator extends ParallelDatabaseRunnable {
+  public static final Argument<Integer> THREAD_COUNT = new IntegerArgument("metrics-thread-count", 4, "Number of projects to compute metrics for at once.");
+  
+  private static final Calculator[] CALCULATORS = {
 //      new BytecodeSizeStatistics(),
 //      new NumberOfBaseClassesCalculator(),
 //      new NumberOfBaseInterfacesCalculator(),
@@ -55,37 +77,54 @@ class MetricsCalculator extends DatabaseRunnable {
 //      new ResponseForClassCalculator(),
   };
   
-  private MetricsCalculator() {
-    task = TaskProgressLogger.get();
-    javaLibraryModel = TypeModelFactory.createJavaLibraryTypeModel();
+  private final Nullerator<ProjectEntry> projects;
+  private final TypeModel javaLibraryModel;
+  private final AtomicLongArray times;
+  private TaskProgressLogger task;
+  
+  private MetricsCalculator(Nullerator<ProjectEntry> projects, TypeModel javaLibraryModel, AtomicLongArray times) {
+    this.projects = projects;
+    this.javaLibraryModel = javaLibraryModel;
+    this.times = times;
+  }
+  
+  private static class ProjectEntry {
+    private final Integer projectID;
+    private final Project type;
+    
+    private ProjectEntry(Integer projectID, Project type) {
+      this.projectID = projectID;
+      this.type = type;
+    }
+    
+    @Override
+    public String toString() {
+      return projectID + " (" + type + ")";
+    }
   }
   
   @Override
   protected void action() {
-    // Get the list of projects
-    try (SelectQuery selectProjects = exec.createSelectQuery(ProjectsTable.TABLE);
-         SelectQuery selectJars = exec.createSelectQuery(FilesTable.HASH.compareEquals(ProjectsTable.HASH));
+    Logging.addThreadLogger();
+    task = TaskProgressLogger.get();
+    try (SelectQuery selectJars = exec.createSelectQuery(FilesTable.HASH.compareEquals(ProjectsTable.HASH));
          MetricModelFactory mFact = new MetricModelFactory(exec);) {
-      selectProjects.addSelect(ProjectsTable.PROJECT_ID, ProjectsTable.PROJECT_TYPE);
-      selectProjects.andWhere(ProjectsTable.PROJECT_TYPE.compareIn(EnumSet.of(Project.JAVA_LIBRARY, Project.JAR, Project.MAVEN, Project.CRAWLED)));
-      
       selectJars.addSelect(ProjectsTable.PROJECT_ID);
       ConstantCondition<Integer> equalsProjectID = FilesTable.PROJECT_ID.compareEquals();
       selectJars.andWhere(equalsProjectID, FilesTable.FILE_TYPE.compareEquals(File.JAR));
       
-      task.start("Processing projects", "projects processed", 1);
-      TypedQueryResult result = selectProjects.select();
-      while (result.next()) {
-        Integer projectID = result.getResult(ProjectsTable.PROJECT_ID);
-        Project type = result.getResult(ProjectsTable.PROJECT_TYPE);
-
-        task.progress("Processing project %d (" + projectID + ") in %s");
+      for (ProjectEntry project = projects.next(); project != null; project = projects.next()) {
+        Integer projectID = project.projectID;
+        task.start("Processing project " + project);
+        
         TypeModel model = null;
         ProjectMetricModel metricModel = mFact.createModel(projectID);
-        for (Calculator calc : calculators) {
+        Collection<Integer> fused = new ArrayList<>();
+        for (int i = 0; i < CALCULATORS.length; i++) {
+          Calculator calc = CALCULATORS[i];
           if (calc.shouldCalculate(metricModel)) {
             if (model == null) {
-              switch (type) {
+              switch (project.type) {
                 case JAVA_LIBRARY:
                   model = javaLibraryModel;
                   break;
@@ -101,18 +140,141 @@ class MetricsCalculator extends DatabaseRunnable {
                   model = TypeModelFactory.createProjectTypeModel(projectID, TypeModelFactory.createJarTypeModel(selectJars.select().toCollection(ProjectsTable.PROJECT_ID), javaLibraryModel));
                   break;
                 default:
-                  task.report(Level.SEVERE, "Unexpected project type: " + type + " for " + projectID);
-              } 
+                  task.report(Level.SEVERE, "Unexpected project type: " + project.type + " for " + projectID);
+              }
+              if (model == null) {
+                break;
+              }
+            }
+            if (calc instanceof RelationCalculator) {
+              fused.add(i);
+            } else {
+              long start = System.nanoTime();
+              calc.calculate(exec, projectID, metricModel, model);
+              times.addAndGet(i, System.nanoTime() - start);
             }
-            calc.calculate(exec, projectID, metricModel, model);
           }
         }
+        if (!fused.isEmpty() && model != null) {
+          calculate(projectID, metricModel, model, fused);
+        }
+        task.finish();
+      }
+    } finally {
+      Logging.removeThreadLogger();
+    }
+  }
+  
+  private void calculate(Integer projectID, ProjectMetricModel metricModel, TypeModel model, Collection<Integer> fused) {
+    int[] indices = new int[fused.size()];
+    RelationCalculator[] calcs = new RelationCalculator[fused.size()];
+    RelationVisitor[] visitors = new RelationVisitor[fused.size()];
+    Set<Relation> types = EnumSet.noneOf(Relation.class);
+    RelationClass relationClass = null;
+    int c = 0;
+    for (Integer i : fused) {
+      indices[c] = i;
+      calcs[c] = (RelationCalculator) CALCULATORS[i];
+      visitors[c] = calcs[c].createVisitor(projectID, metricModel, model);
+      types.addAll(calcs[c].getRelationTypes());
+      // Only restrict the class if every calculator wants the same one
+      if (c == 0 || calcs[c].getRelationClass() == relationClass) {
+        relationClass = calcs[c].getRelationClass();
+      } else {
+        relationClass = null;
+      }
+      c++;
+    }
+    
+    try (SelectQuery select = exec.createSelectQuery(RelationsTable.TABLE)) {
+      select.addSelect(RelationsTable.LHS_EID, RelationsTable.RHS_EID, RelationsTable.RELATION_TYPE, RelationsTable.RELATION_CLASS);
+      select.andWhere(RelationsTable.PROJECT_ID.compareEquals(projectID), RelationsTable.RELATION_TYPE.compareIn(types));
+      if (relationClass != null) {
+        select.andWhere(RelationsTable.RELATION_CLASS.compareEquals(relationClass));
+      }
+      
+      task.start("Processing relations", "relations processed", 100_000);
+      TypedQueryResult result = select.select();
+      while (result.next()) {
+        Integer lhsEid = result.getResult(RelationsTable.LHS_EID);
+        Integer rhsEid = result.getResult(RelationsTable.RHS_EID);
+        Relation type = result.getResult(RelationsTable.RELATION_TYPE);
+        RelationClass klass = result.getResult(RelationsTable.RELATION_CLASS);
+        
+        ModeledEntity lhs = model.get(lhsEid);
+        if (lhs == null) {
+          logger.severe("Unable to find model element for: " + lhsEid);
+          continue;
+        }
+        ModeledEntity rhs = model.get(rhsEid);
+        if (rhs == null) {
+          logger.severe("Unable to find model element for: " + rhsEid);
+          continue;
+        }
+        for (int i = 0; i < calcs.length; i++) {
+          if (calcs[i].accepts(type, klass)) {
+            long start = System.nanoTime();
+            visitors[i].visit(lhs, rhs);
+            times.addAndGet(indices[i], System.nanoTime() - start);
+          }
+        }
+        task.progress();
       }
       task.finish();
     }
+    
+    for (int i = 0; i < calcs.length; i++) {
+      long start = System.nanoTime();
+      visitors[i].finish(exec);
+      times.addAndGet(indices[i], System.nanoTime() - start);
+    }
   }
   
   public static void calculateMetrics() {
-    new MetricsCalculator().run();
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    int numThreads = THREAD_COUNT.getValue();
+    task.start("Computing metrics with " + numThreads + " threads");
+    
+    // Get the list of projects
+    final Collection<ProjectEntry> entries = new ArrayList<>();
+    new DatabaseRunnable() {
+      @Override
+      protected void action() {
+        try (SelectQuery selectProjects = exec.createSelectQuery(ProjectsTable.TABLE)) {
+          selectProjects.addSelect(ProjectsTable.PROJECT_ID, ProjectsTable.PROJECT_TYPE);
+          selectProjects.andWhere(ProjectsTable.PROJECT_TYPE.compareIn(EnumSet.of(Project.JAVA_LIBRARY, Project.JAR, Project.MAVEN, Project.CRAWLED)));
+          TypedQueryResult result = selectProjects.select();
+          while (result.next()) {
+            entries.add(new ProjectEntry(result.getResult(ProjectsTable.PROJECT_ID), result.getResult(ProjectsTable.PROJECT_TYPE)));
+          }
+        }
+      }
+    }.run();
+    task.report(entries.size() + " projects to process");
+    
+    TypeModel javaLibraryModel = TypeModelFactory.createJavaLibraryTypeModel();
+    Nullerator<ProjectEntry> nullerator = Nullerator.createNullerator(entries, "Thread %s now processing: %s");
+    AtomicLongArray times = new AtomicLongArray(CALCULATORS.length);
+    
+    List<Thread> threads = new ArrayList<>(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      threads.add(new MetricsCalculator(nullerator, javaLibraryModel, times).start());
+    }
+    for (Thread t : threads) {
+      try {
+        t.join();
+      } catch (InterruptedException e) {
+        logger.log(Level.SEVERE, "Thread interrupted", e);
+      }
+    }
+    
+    task.start("Time spent per calculator");
+    for (int i = 0; i < CALCULATORS.length; i++) {
+      task.report(CALCULATORS[i].getClass().getSimpleName() + ": " + String.format("%.2f", times.get(i) / 1e9) + " seconds");
+    }
+    task.finish();
+    
+    task.finish();
   }
 }
@@ -0,0 +1,108 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.metrics.db;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.Set;
+
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.db.type.ModeledEntity;
+import edu.uci.ics.sourcerer.tools.java.db.type.TypeModel;
+import edu.uci.ics.sourcerer.tools.java.metrics.db.MetricModelFactory.ProjectMetricModel;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
+
+/**
+ * A calculator driven by a single scan of a project's relations. The
+ * {@link MetricsCalculator} fuses the scans of every enabled
+ * <code>RelationCalculator</code>, so each project's relations are only
+ * read once.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public abstract class RelationCalculator extends Calculator {
+  /**
+   * The relation types this calculator needs to see.
+   */
+  public abstract Set<Relation> getRelationTypes();
+  
+  /**
+   * The relation class this calculator needs to see, or <code>null</code>
+   * for every class.
+   */
+  public RelationClass getRelationClass() {
+    return null;
+  }
+  
+  public final boolean accepts(Relation type, RelationClass relationClass) {
+    RelationClass klass = getRelationClass();
+    return getRelationTypes().contains(type) && (klass == null || klass == relationClass);
+  }
+  
+  /**
+   * Creates the state for one project. Calculators are shared between
+   * threads, so all state must live in the visitor.
+   */
+  public abstract RelationVisitor createVisitor(Integer projectID, ProjectMetricModel metrics, TypeModel model);
+  
+  public static abstract class RelationVisitor {
+    public abstract void visit(ModeledEntity lhs, ModeledEntity rhs);
+    public abstract void finish(QueryExecutor exec);
+  }
+  
+  @Override
+  public final void calculate(QueryExecutor exec, Integer projectID, ProjectMetricModel metrics, TypeModel model) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    RelationVisitor visitor = createVisitor(projectID, metrics, model);
+    try (SelectQuery select = exec.createSelectQuery(RelationsTable.TABLE)) {
+      select.addSelect(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
+      select.andWhere(RelationsTable.PROJECT_ID.compareEquals(projectID), RelationsTable.RELATION_TYPE.compareIn(getRelationTypes()));
+      if (getRelationClass() != null) {
+        select.andWhere(RelationsTable.RELATION_CLASS.compareEquals(getRelationClass()));
+      }
+      
+      task.start("Processing relations", "relations processed", 100_000);
+      TypedQueryResult result = select.select();
+      while (result.next()) {
+        Integer lhsEid = result.getResult(RelationsTable.LHS_EID);
+        Integer rhsEid = result.getResult(RelationsTable.RHS_EID);
+        
+        ModeledEntity lhs = model.get(lhsEid);
+        if (lhs == null) {
+          logger.severe("Unable to find model element for: " + lhsEid);
+          continue;
+        }
+        ModeledEntity rhs = model.get(rhsEid);
+        if (rhs == null) {
+          logger.severe("Unable to find model element for: " + rhsEid);
+          continue;
+        }
+        visitor.visit(lhs, rhs);
+        task.progress();
+      }
+      task.finish();
+    }
+    visitor.finish(exec);
+  }
+}
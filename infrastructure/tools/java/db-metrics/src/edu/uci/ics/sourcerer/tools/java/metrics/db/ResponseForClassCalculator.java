@@ -20,6 +20,7 @@ package edu.uci.ics.sourcerer.tools.java.metrics.db;
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -28,7 +29,6 @@ import java.util.regex.Pattern;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectMetricsTable;
-import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
 import edu.uci.ics.sourcerer.tools.java.db.type.ModeledDeclaredType;
 import edu.uci.ics.sourcerer.tools.java.db.type.ModeledDuplicate;
 import edu.uci.ics.sourcerer.tools.java.db.type.ModeledEntity;
@@ -43,101 +43,96 @@ import edu.uci.ics.sourcerer.util.Averager;
 import edu.uci.ics.sourcerer.util.UniqueStack;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
-import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
-import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
-public class ResponseForClassCalculator extends Calculator {
+public class ResponseForClassCalculator extends RelationCalculator {
+  private static final Set<Relation> RELATIONS = EnumSet.of(Relation.CALLS);
+  
   @Override
   public boolean shouldCalculate(ProjectMetricModel metrics) {
     return metrics.missingValue(Metric.RESPONSE_FOR_CLASS);
   }
 
   @Override
-  public void calculate(QueryExecutor exec, Integer projectID, ProjectMetricModel metrics, TypeModel model) {
-    TaskProgressLogger task = TaskProgressLogger.get();
+  public Set<Relation> getRelationTypes() {
+    return RELATIONS;
+  }
+  
+  @Override
+  public RelationVisitor createVisitor(Integer projectID, ProjectMetricModel metrics, TypeModel model) {
+    return new Visitor(projectID, metrics, model);
+  }
+  
+  private class Visitor extends RelationVisitor {
+    private final Pattern anon = Pattern.compile(".*\\$\\d+$");
+    private final Integer projectID;
+    private final ProjectMetricModel metrics;
+    private final TypeModel model;
     
-    Pattern anon = Pattern.compile(".*\\$\\d+$");
+    private final Map<ModeledDeclaredType, Set<ModeledMethod>> methodMap = new HashMap<>();
     
-    task.start("Computing response for a class");
-    Map<ModeledDeclaredType, Set<ModeledMethod>> methodMap = new HashMap<>();
+    private Visitor(Integer projectID, ProjectMetricModel metrics, TypeModel model) {
+      this.projectID = projectID;
+      this.metrics = metrics;
+      this.model = model;
+    }
     
-    try (SelectQuery select = exec.createSelectQuery(RelationsTable.TABLE)) {
-      select.addSelect(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
-      select.andWhere(RelationsTable.PROJECT_ID.compareEquals(projectID), RelationsTable.RELATION_TYPE.compareEquals(Relation.CALLS));
-      
-      task.start("Processing relations", "relations processed", 100_000);
-      TypedQueryResult result = select.select();
-      while (result.next()) {
-        Integer lhsEid = result.getResult(RelationsTable.LHS_EID);
-        Integer rhsEid = result.getResult(RelationsTable.RHS_EID);
-        
-        ModeledEntity lhs = model.get(lhsEid);
-        if (lhs == null) {
-          logger.severe("Unable to find model element for: " + lhsEid);
-          continue;
-        }
-        ModeledEntity rhs = model.get(rhsEid);
-        if (rhs == null) {
-          logger.severe("Unable to find model element for: " + rhsEid);
-          continue;
-        }
-        
-        UniqueStack<ModeledEntity> stack = UniqueStack.create(true);
-        stack.push(lhs);
-        while (stack.hasItems()) {
-          ModeledEntity next = stack.pop();
-          if (next instanceof ModeledStructuralEntity) {
-            ModeledStructuralEntity struct = (ModeledStructuralEntity) next;
-            if (struct.getType().is(Entity.CLASS, Entity.ENUM)) {
-              ModeledDeclaredType dec = (ModeledDeclaredType) struct;
-              Set<ModeledMethod> methods = methodMap.get(dec);
-              if (methods == null) {
-                methods = new HashSet<>();
-                methodMap.put(dec, methods);
-              }
-              add(methods, rhs);
+    @Override
+    public void visit(ModeledEntity lhs, ModeledEntity rhs) {
+      UniqueStack<ModeledEntity> stack = UniqueStack.create(true);
+      stack.push(lhs);
+      while (stack.hasItems()) {
+        ModeledEntity next = stack.pop();
+        if (next instanceof ModeledStructuralEntity) {
+          ModeledStructuralEntity struct = (ModeledStructuralEntity) next;
+          if (struct.getType().is(Entity.CLASS, Entity.ENUM)) {
+            ModeledDeclaredType dec = (ModeledDeclaredType) struct;
+            Set<ModeledMethod> methods = methodMap.get(dec);
+            if (methods == null) {
+              methods = new HashSet<>();
+              methodMap.put(dec, methods);
             }
-            if (struct.getType() != Entity.PACKAGE) {
-              stack.push(struct.getOwner());
-            }
-          } else {
-            logger.severe("Unexpected lhs: " + next);
+            add(methods, rhs);
+          }
+          if (struct.getType() != Entity.PACKAGE) {
+            stack.push(struct.getOwner());
           }
+        } else {
+          logger.severe("Unexpected lhs: " + next);
         }
-        task.progress();
       }
-      task.finish();
     }
     
-    task.start("Computing and adding the metrics");
-    Averager<Double> avgRfc = Averager.create();
-    for (ModeledEntity entity : model.getEntities()) {
-      if (projectID.equals(entity.getProjectID()) && entity.getType().is(Entity.CLASS, Entity.ENUM) && !anon.matcher(entity.getFqn()).matches()) {
-        ModeledDeclaredType dec = (ModeledDeclaredType) entity;
-        Set<ModeledMethod> methods = methodMap.get(dec);
-        if (methods == null) {
-          methods = Collections.emptySet();
-        }
+    @Override
+    public void finish(QueryExecutor exec) {
+      TaskProgressLogger task = TaskProgressLogger.get();
+      task.start("Computing and adding the response for class metrics");
+      Averager<Double> avgRfc = Averager.create();
+      for (ModeledEntity entity : model.getEntities()) {
+        if (projectID.equals(entity.getProjectID()) && entity.getType().is(Entity.CLASS, Entity.ENUM) && !anon.matcher(entity.getFqn()).matches()) {
+          ModeledDeclaredType dec = (ModeledDeclaredType) entity;
+          Set<ModeledMethod> methods = methodMap.get(dec);
+          if (methods == null) {
+            methods = Collections.emptySet();
+          }
           
-        double value = (double) methods.size();
-        if (metrics.missingEntityValue(dec.getEntityID(), Metric.RESPONSE_FOR_CLASS)) {
-          metrics.setEntityValue(dec.getEntityID(), dec.getFileID(), Metric.RESPONSE_FOR_CLASS, value);
-          exec.insert(EntityMetricsTable.createInsert(dec.getProjectID(), dec.getFileID(), dec.getEntityID(), Metric.RESPONSE_FOR_CLASS, value));
+          double value = (double) methods.size();
+          if (metrics.missingEntityValue(dec.getEntityID(), Metric.RESPONSE_FOR_CLASS)) {
+            metrics.setEntityValue(dec.getEntityID(), dec.getFileID(), Metric.RESPONSE_FOR_CLASS, value);
+            exec.insert(EntityMetricsTable.createInsert(dec.getProjectID(), dec.getFileID(), dec.getEntityID(), Metric.RESPONSE_FOR_CLASS, value));
+          }
+          avgRfc.addValue(value);
         }
-        avgRfc.addValue(value);
       }
-    }
       
-    if (metrics.missingValue(Metric.RESPONSE_FOR_CLASS)) {
-      metrics.setValue(Metric.RESPONSE_FOR_CLASS, avgRfc);
-      exec.insert(ProjectMetricsTable.createInsert(projectID, Metric.RESPONSE_FOR_CLASS, avgRfc));
+      if (metrics.missingValue(Metric.RESPONSE_FOR_CLASS)) {
+        metrics.setValue(Metric.RESPONSE_FOR_CLASS, avgRfc);
+        exec.insert(ProjectMetricsTable.createInsert(projectID, Metric.RESPONSE_FOR_CLASS, avgRfc));
+      }
+      task.finish();
     }
-    task.finish();
-    
-    task.finish();
   }
   
   private void add(Set<ModeledMethod> methods, ModeledEntity method) {
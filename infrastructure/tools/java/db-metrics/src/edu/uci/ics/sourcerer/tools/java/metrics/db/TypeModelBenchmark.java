@@ -0,0 +1,103 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.metrics.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
+import edu.uci.ics.sourcerer.tools.java.db.type.TypeModel;
+import edu.uci.ics.sourcerer.tools.java.db.type.TypeModelFactory;
+import edu.uci.ics.sourcerer.tools.java.model.types.Project;
+import edu.uci.ics.sourcerer.util.MemoryStatsReporter;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+
+/**
+ * Loads the Java library type model plus a jar model over the first
+ * <code>type-model-jar-count</code> jars, once with the original model
+ * and once with the compact one, reporting the retained heap of each.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class TypeModelBenchmark {
+  public static final Argument<Integer> JAR_COUNT = new IntegerArgument("type-model-jar-count", 50, "Number of jars in the benchmarked jar model.");
+  
+  private TypeModelBenchmark() {}
+  
+  public static void benchmarkMemory() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Benchmarking type model memory");
+    
+    final Collection<Integer> jarIDs = new ArrayList<>();
+    new DatabaseRunnable() {
+      @Override
+      protected void action() {
+        try (SelectQuery select = exec.createSelectQuery(ProjectsTable.TABLE)) {
+          select.addSelect(ProjectsTable.PROJECT_ID);
+          select.andWhere(ProjectsTable.PROJECT_TYPE.compareIn(EnumSet.of(Project.JAR, Project.MAVEN)));
+          for (Integer projectID : select.select().toIterable(ProjectsTable.PROJECT_ID)) {
+            if (jarIDs.size() == JAR_COUNT.getValue()) {
+              break;
+            }
+            jarIDs.add(projectID);
+          }
+        }
+      }
+    }.run();
+    
+    boolean compact = TypeModelFactory.COMPACT_TYPE_MODEL.getValue();
+    load(false, jarIDs, task);
+    load(true, jarIDs, task);
+    TypeModelFactory.COMPACT_TYPE_MODEL.setValue(compact);
+    
+    task.finish();
+  }
+  
+  private static void load(boolean compact, Collection<Integer> jarIDs, TaskProgressLogger task) {
+    TypeModelFactory.COMPACT_TYPE_MODEL.setValue(compact);
+    task.start("Loading " + (compact ? "compact" : "original") + " models");
+    
+    long base = usedMemory();
+    long start = System.currentTimeMillis();
+    TypeModel libraryModel = TypeModelFactory.createJavaLibraryTypeModel();
+    long libraryTime = System.currentTimeMillis() - start;
+    long library = usedMemory();
+    task.report(String.format("java library: %,d entities in %,d ms, %s", libraryModel.getEntities().size(), libraryTime, MemoryStatsReporter.formatSize(library - base)));
+    
+    start = System.currentTimeMillis();
+    TypeModel jarModel = TypeModelFactory.createJarTypeModel(jarIDs, libraryModel);
+    long jarTime = System.currentTimeMillis() - start;
+    long total = usedMemory();
+    task.report(String.format("%d jars: %,d entities in %,d ms, %s", jarIDs.size(), jarModel.getEntities().size(), jarTime, MemoryStatsReporter.formatSize(total - library)));
+    
+    task.finish();
+  }
+  
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
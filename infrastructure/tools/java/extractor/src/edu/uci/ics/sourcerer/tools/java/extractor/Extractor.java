@@ -28,6 +28,7 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.jdt.core.IClassFile;
 
 import edu.uci.ics.sourcerer.tools.java.extractor.bytecode.ASMExtractor;
+import edu.uci.ics.sourcerer.tools.java.extractor.bytecode.ParallelASMExtractor;
 import edu.uci.ics.sourcerer.tools.java.extractor.eclipse.EclipseExtractor;
 import edu.uci.ics.sourcerer.tools.java.extractor.eclipse.EclipseUtils;
 import edu.uci.ics.sourcerer.tools.java.extractor.missing.MissingTypeResolver;
@@ -145,6 +146,13 @@ public final class Extractor {
       task.finish();
     }
     
+    // ASM needs no workspace, so many jars can be extracted at once
+    if (method == ExtractionMethod.ASM) {
+      extractJarsWithASM(jars, extracted);
+      task.finish();
+      return;
+    }
+    
     for (JarFile jar : jars) {
       task.progress("Extracting " + jar + " (%d of " + jars.size() + ")");
       ModifiableExtractedJarFile extractedJar = extracted.getMatchingJarFile(jar);
@@ -210,6 +218,61 @@ public final class Extractor {
     task.finish();
   }
   
+  private static void extractJarsWithASM(Collection<? extends JarFile> jars, final ModifiableExtractedJavaRepository extracted) {
+    final TaskProgressLogger task = TaskProgressLogger.get();
+    new ParallelASMExtractor<JarFile>() {
+      @Override
+      protected java.io.File getJarFile(JarFile jar) {
+        return jar.getFile().toFile();
+      }
+      
+      @Override
+      protected WriterBundle createWriters(JarFile jar) {
+        ModifiableExtractedJarFile extractedJar = null;
+        synchronized (extracted) {
+          extractedJar = extracted.getMatchingJarFile(jar);
+        }
+        if (Boolean.TRUE.equals(extractedJar.getProperties().EXTRACTED.getValue())) {
+          if (FORCE_REDO.getValue()) {
+            extractedJar.reset(jar);
+          } else {
+            task.report(Logging.THREAD_INFO, jar + " already extracted");
+            if (COMPRESS_OUTPUT.getValue() && !extractedJar.isCompressed()) {
+              extractedJar.compress();
+            }
+            return null;
+          }
+        }
+        
+        // Set up logging, restricted to this thread's records
+        Logging.addThreadFileLogger(extractedJar.getExtractionDir().toFile());
+        return new WriterBundle(extractedJar.getExtractionDir().toFile());
+      }
+      
+      @Override
+      protected void finished(JarFile jar, boolean succeeded) {
+        ModifiableExtractedJarFile extractedJar = null;
+        synchronized (extracted) {
+          extractedJar = extracted.getMatchingJarFile(jar);
+        }
+        
+        // End the error logging
+        Logging.removeFileLogger(extractedJar.getExtractionDir().toFile());
+        
+        // Compress the output
+        if (COMPRESS_OUTPUT.getValue()) {
+          extractedJar.compress();
+        }
+        
+        // Write the properties files
+        ExtractedJarProperties properties = extractedJar.getProperties();
+        properties.EXTRACTED.setValue(succeeded);
+        properties.HAS_SOURCE.setValue(false);
+        properties.save();
+      }
+    }.extract(jars);
+  }
+  
   public static Argument<Boolean> RESOLVE_MISSING_TYPES = new BooleanArgument("resolve-missing-types", false, "Resolve missing types.").setRequiredArguments(DatabaseConnectionFactory.DATABASE_URL, DatabaseConnectionFactory.DATABASE_USER, DatabaseConnectionFactory.DATABASE_PASSWORD);
   public static final Argument<Boolean> INCLUDE_PROJECT_JARS = new BooleanArgument("include-project-jars", true, "Should projects jars be added to the classpath?");
   
@@ -236,27 +299,44 @@ public final class Extractor {
     task.start("Extracting " + projects.size() + " projects", "projects extracted", 1);
     for (JavaProject project : projects) {
       task.progress("Extracting " + project + " (%d of " + projects.size() + ")");
-      ModifiableExtractedJavaProject extractedProject = extracted.getMatchingProject(project);
-      if (Boolean.TRUE.equals(extractedProject.getProperties().EXTRACTED.getValue())) {
-        if (FORCE_REDO.getValue()) {
-          extractedProject.reset(project);
-        } else {
-          task.report("Project already extracted");
-          if (COMPRESS_OUTPUT.getValue() && !extractedProject.isCompressed()) {
-            task.start("Compressing output");
-            extractedProject.compress();
-            task.finish();
-          }
-          continue;
+      extractProject(project, extracted, resolver);
+    }
+    task.finish();
+    
+    IOUtils.close(resolver);
+    
+    task.finish();
+  }
+  
+  /**
+   * Extracts a single project into the output repository, returning false
+   * if it had already been extracted.
+   */
+  static boolean extractProject(JavaProject project, ModifiableExtractedJavaRepository extracted, MissingTypeResolver resolver) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    ModifiableExtractedJavaProject extractedProject = extracted.getMatchingProject(project);
+    if (Boolean.TRUE.equals(extractedProject.getProperties().EXTRACTED.getValue())) {
+      if (FORCE_REDO.getValue()) {
+        extractedProject.reset(project);
+      } else {
+        task.report("Project already extracted");
+        if (COMPRESS_OUTPUT.getValue() && !extractedProject.isCompressed()) {
+          task.start("Compressing output");
+          extractedProject.compress();
+          task.finish();
         }
+        return false;
       }
-      
-      // Set up logging
-      Logging.addFileLogger(extractedProject.getExtractionDir().toFile());
-      
+    }
+    
+    // Set up logging
+    Logging.addFileLogger(extractedProject.getExtractionDir().toFile());
+    
+    try {
       task.report("Getting project contents");
       JavaFileSet files = project.getContent();
-     
+   
       Collection<? extends JarFile> jars = null;
       if (INCLUDE_PROJECT_JARS.getValue() && resolver == null) {
         task.start("Loading " + files.getJarFiles().size() + " jar files into classpath");
@@ -267,11 +347,11 @@ public final class Extractor {
         jars = Collections.emptySet();
         EclipseUtils.initializeProject(Collections.<JarFile>emptyList());
       }
-      
+    
       task.start("Loading " + files.getFilteredJavaFiles().size() + " java files into project");
       Map<JavaFile, IFile> sourceFiles = EclipseUtils.loadFilesIntoProject(files.getFilteredJavaFiles());
       task.finish();
-      
+    
       if (resolver != null) {
         task.start("Resolving missing types");
         jars = resolver.resolveMissingTypes(files.getJarFiles(), sourceFiles);
@@ -280,7 +360,7 @@ public final class Extractor {
         EclipseUtils.addJarsToClasspath(jars);
         task.finish();
       }
-      
+    
       // Set up the writer bundle
       WriterBundle bundle = new WriterBundle(extractedProject.getExtractionDir().toFile());
 
@@ -298,25 +378,20 @@ public final class Extractor {
       try (EclipseExtractor extractor = new EclipseExtractor(bundle)) {
         extractor.extractSourceFiles(sourceFiles);
       }
-
+    } finally {
       // End the error logging
       Logging.removeFileLogger(extractedProject.getExtractionDir().toFile());
+    }
 
-      // Compress the output
-      if (COMPRESS_OUTPUT.getValue()) {
-        extractedProject.compress();
-      }
-      
-      // Write the properties files
-      ExtractedJavaProjectProperties properties = extractedProject.getProperties();
-      properties.EXTRACTED.setValue(true);
-      properties.save();
-      
+    // Compress the output
+    if (COMPRESS_OUTPUT.getValue()) {
+      extractedProject.compress();
     }
-    task.finish();
     
-    IOUtils.close(resolver);
-    
-    task.finish();
+    // Write the properties files
+    ExtractedJavaProjectProperties properties = extractedProject.getProperties();
+    properties.EXTRACTED.setValue(true);
+    properties.save();
+    return true;
   }
 }
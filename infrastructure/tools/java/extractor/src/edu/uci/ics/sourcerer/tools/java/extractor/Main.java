@@ -22,12 +22,17 @@ import org.eclipse.equinox.app.IApplicationContext;
 
 import edu.uci.ics.sourcerer.tools.java.extractor.Extractor.ExtractionMethod;
 import edu.uci.ics.sourcerer.tools.java.extractor.Extractor.JarType;
+import edu.uci.ics.sourcerer.tools.java.extractor.bytecode.ASMExtractor;
+import edu.uci.ics.sourcerer.tools.java.extractor.bytecode.ParallelASMExtractor;
 import edu.uci.ics.sourcerer.tools.java.extractor.eclipse.EclipseUtils;
 import edu.uci.ics.sourcerer.tools.java.extractor.misc.ExtractedRepositoryAnalyzer;
 import edu.uci.ics.sourcerer.tools.java.extractor.misc.UtilizationFilter;
 import edu.uci.ics.sourcerer.tools.java.extractor.missing.MissingTypeIdentifier;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.FindBugsRunner;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.BinaryEntityWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.BinaryFileWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.BinaryRelationWriterImpl;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.CommentWriterImpl;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.EntityWriterImpl;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.FileWriterImpl;
@@ -58,11 +63,17 @@ public class Main implements IApplication {
       
       WriterBundle.IMPORT_WRITER.setValue(ImportWriterImpl.class);
       WriterBundle.PROBLEM_WRITER.setValue(ProblemWriterImpl.class);
-      WriterBundle.ENTITY_WRITER.setValue(EntityWriterImpl.class);
       WriterBundle.LOCAL_VARIABLE_WRITER.setValue(LocalVariableWriterImpl.class);
-      WriterBundle.RELATION_WRITER.setValue(RelationWriterImpl.class);
       WriterBundle.COMMENT_WRITER.setValue(CommentWriterImpl.class);
-      WriterBundle.FILE_WRITER.setValue(FileWriterImpl.class);
+      if (WriterBundle.BINARY_OUTPUT.getValue()) {
+        WriterBundle.ENTITY_WRITER.setValue(BinaryEntityWriterImpl.class);
+        WriterBundle.RELATION_WRITER.setValue(BinaryRelationWriterImpl.class);
+        WriterBundle.FILE_WRITER.setValue(BinaryFileWriterImpl.class);
+      } else {
+        WriterBundle.ENTITY_WRITER.setValue(EntityWriterImpl.class);
+        WriterBundle.RELATION_WRITER.setValue(RelationWriterImpl.class);
+        WriterBundle.FILE_WRITER.setValue(FileWriterImpl.class);
+      }
       WriterBundle.USED_JAR_WRITER.setValue(UsedJarWriterImpl.class);
       WriterBundle.MISSING_TYPE_WRITER.setValue(MissingTypeWriterImpl.class);
       
@@ -90,7 +101,7 @@ public class Main implements IApplication {
       protected void action() {
         Extractor.extractJars(JarType.LIBRARY, ExtractionMethod.ASM);
       }
-    }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, FindBugsRunner.FINDBUGS_JAR);
+    }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, FindBugsRunner.FINDBUGS_JAR, ParallelASMExtractor.THREAD_COUNT, ASMExtractor.ENTRY_READER_THREADS, ASMExtractor.LARGE_JAR_ENTRIES);
     
   public static final Command EXTRACT_LIBRARIES =
     new ExtractorCommand("extract-libraries", "Extract the libraries using Eclipse and Asm.") {
@@ -111,7 +122,7 @@ public class Main implements IApplication {
       protected void action() {
         Extractor.extractJars(JarType.PROJECT, ExtractionMethod.ASM);
       }
-    }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, FindBugsRunner.FINDBUGS_JAR);
+    }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, FindBugsRunner.FINDBUGS_JAR, ParallelASMExtractor.THREAD_COUNT, ASMExtractor.ENTRY_READER_THREADS, ASMExtractor.LARGE_JAR_ENTRIES);
   
   public static final Command EXTRACT_PROJECT_JARS =
     new ExtractorCommand("extract-project-jars", "Extract the jars using Eclipse and Asm.") {
@@ -132,7 +143,7 @@ public class Main implements IApplication {
       protected void action() {
         Extractor.extractJars(JarType.MAVEN, ExtractionMethod.ASM);
       }
-    }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, FindBugsRunner.FINDBUGS_JAR);
+    }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, FindBugsRunner.FINDBUGS_JAR, ParallelASMExtractor.THREAD_COUNT, ASMExtractor.ENTRY_READER_THREADS, ASMExtractor.LARGE_JAR_ENTRIES);
   
   public static final Command EXTRACT_MAVEN_JARS =
     new ExtractorCommand("extract-maven-jars", "Extract the jars using Eclipse and Asm.") {
@@ -146,7 +157,7 @@ public class Main implements IApplication {
       protected void action() {
         Extractor.extractJars(JarType.FILTER, ExtractionMethod.ASM);
       }
-    }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, Extractor.JAR_FILTER.asInput(), FindBugsRunner.FINDBUGS_JAR);
+    }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, Extractor.JAR_FILTER.asInput(), FindBugsRunner.FINDBUGS_JAR, ParallelASMExtractor.THREAD_COUNT, ASMExtractor.ENTRY_READER_THREADS, ASMExtractor.LARGE_JAR_ENTRIES);
     
   public static final Command EXTRACT_FILTER_JARS =
     new ExtractorCommand("extract-filter-jars", "Extract the jars using Eclipse and Asm.") {
@@ -162,6 +173,20 @@ public class Main implements IApplication {
       }
     }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, Extractor.INCLUDE_PROJECT_JARS, Extractor.RESOLVE_MISSING_TYPES);
     
+  public static final Command EXTRACT_PROJECTS_PARALLEL =
+    new Command("extract-projects-parallel", "Extract the projects using several worker processes.") {
+      protected void action() {
+        ParallelProjectExtractor.extractProjects();
+      }
+    }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, Extractor.INCLUDE_PROJECT_JARS, Extractor.RESOLVE_MISSING_TYPES, WriterBundle.BINARY_OUTPUT, ParallelProjectExtractor.WORKER_COUNT, ParallelProjectExtractor.WORKER_COMMAND, ParallelProjectExtractor.WORKSPACE_DIR, ParallelProjectExtractor.PROJECT_TIMEOUT, ParallelProjectExtractor.REPORT_INTERVAL);
+  
+  public static final Command EXTRACT_PROJECTS_WORKER =
+    new ExtractorCommand("extract-projects-worker", "Extract the projects named on standard input (used by extract-projects-parallel).") {
+      protected void action() {
+        ParallelProjectExtractor.runWorker();
+      }
+    }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, Extractor.INCLUDE_PROJECT_JARS, Extractor.RESOLVE_MISSING_TYPES, WriterBundle.BINARY_OUTPUT);
+    
   public static final Command IDENTIFY_EXTERNAL_TYPES =
     new Command("identify-external-types", "Identified the external types") {
       protected void action() {
@@ -0,0 +1,347 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.extractor;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.java.extractor.eclipse.EclipseExtractor;
+import edu.uci.ics.sourcerer.tools.java.extractor.missing.MissingTypeResolver;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaProject;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepository;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaProjectProperties;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ModifiableExtractedJavaProject;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ModifiableExtractedJavaRepository;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.RelativeFileArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
+
+/**
+ * Extracts projects with a pool of worker processes, each with its own
+ * Eclipse workspace. The supervisor hands out one project at a time, so a
+ * project that crashes or hangs its worker costs only that project; the
+ * worker is restarted and the project is marked so that later runs skip it.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class ParallelProjectExtractor {
+  public static final Argument<Integer> WORKER_COUNT = new IntegerArgument("extraction-workers", 4, "Number of worker processes.");
+  public static final Argument<String> WORKER_COMMAND = new StringArgument("worker-command", "Command that launches the extractor application. {workspace} is replaced with the worker's workspace.");
+  public static final Argument<File> WORKSPACE_DIR = new RelativeFileArgument("worker-workspace-dir", "workspaces", FileUtils.TEMP_DIR, "Directory holding the worker workspaces.");
+  public static final Argument<Integer> PROJECT_TIMEOUT = new IntegerArgument("project-timeout", 60, "Minutes a worker may spend on one project before it is killed.");
+  public static final Argument<Integer> REPORT_INTERVAL = new IntegerArgument("report-interval", 60, "Seconds between throughput reports.");
+  
+  private static final String EXTRACTED = "@extracted ";
+  private static final String SKIPPED = "@skipped ";
+  private static final String FAILED = "@failed ";
+  
+  private final ModifiableExtractedJavaRepository extracted;
+  private final Queue<String> queue;
+  private final AtomicInteger completed;
+  private final AtomicInteger failed;
+  private final AtomicInteger crashed;
+  
+  private ParallelProjectExtractor(ModifiableExtractedJavaRepository extracted) {
+    this.extracted = extracted;
+    queue = new ConcurrentLinkedQueue<>();
+    completed = new AtomicInteger();
+    failed = new AtomicInteger();
+    crashed = new AtomicInteger();
+  }
+  
+  public static void extractProjects() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    task.start("Performing project extraction with " + WORKER_COUNT.getValue() + " workers");
+    
+    // Load the input repository
+    JavaRepository repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(JavaRepositoryFactory.INPUT_REPO);
+    // Load the output repository
+    ModifiableExtractedJavaRepository extracted = JavaRepositoryFactory.INSTANCE.loadModifiableExtractedJavaRepository(JavaRepositoryFactory.OUTPUT_REPO);
+    
+    ParallelProjectExtractor supervisor = new ParallelProjectExtractor(extracted);
+    
+    task.start("Loading projects");
+    Collection<? extends JavaProject> projects = repo.getProjects();
+    int skipped = 0;
+    for (JavaProject project : projects) {
+      ExtractedJavaProjectProperties props = extracted.getMatchingProject(project).getProperties();
+      if (!Extractor.FORCE_REDO.getValue() && (Boolean.TRUE.equals(props.EXTRACTED.getValue()) || Boolean.TRUE.equals(props.EXTRACTION_CRASHED.getValue()))) {
+        skipped++;
+      } else {
+        supervisor.queue.add(project.getLocation().toString());
+      }
+    }
+    task.finish();
+    task.report(skipped + " of " + projects.size() + " projects already extracted or previously crashed");
+    
+    supervisor.run(task);
+    
+    task.finish();
+  }
+  
+  private void run(TaskProgressLogger task) {
+    int total = queue.size();
+    task.start("Extracting " + total + " projects");
+    
+    List<Worker> workers = new ArrayList<>();
+    for (int i = 0, max = Math.min(WORKER_COUNT.getValue(), total); i < max; i++) {
+      Worker worker = new Worker(i);
+      workers.add(worker);
+      worker.start();
+    }
+    
+    long start = System.currentTimeMillis();
+    long timeout = PROJECT_TIMEOUT.getValue() * 60l * 1000l;
+    long interval = REPORT_INTERVAL.getValue() * 1000l;
+    long lastReport = start;
+    boolean alive = true;
+    while (alive) {
+      alive = false;
+      for (Worker worker : workers) {
+        try {
+          worker.join(1000);
+        } catch (InterruptedException e) {
+          logger.log(Level.SEVERE, "Interrupted waiting for workers", e);
+          Thread.currentThread().interrupt();
+          return;
+        }
+        alive |= worker.isAlive();
+        worker.checkTimeout(timeout);
+      }
+      long now = System.currentTimeMillis();
+      if (now - lastReport >= interval || !alive) {
+        lastReport = now;
+        int done = completed.get() + failed.get() + crashed.get();
+        double minutes = (now - start) / 60000.;
+        task.report(String.format("%d of %d projects done (%d failed, %d crashed), %.1f projects/min", done, total, failed.get(), crashed.get(), minutes == 0 ? 0. : done / minutes));
+      }
+    }
+    
+    task.finish();
+  }
+  
+  private synchronized void markCrashed(String path) {
+    ModifiableExtractedJavaProject project = extracted.getProject(path);
+    if (project == null) {
+      logger.severe("Unable to find crashed project: " + path);
+    } else {
+      ExtractedJavaProjectProperties props = project.getProperties();
+      props.EXTRACTION_CRASHED.setValue(true);
+      props.save();
+    }
+  }
+  
+  private class Worker extends Thread {
+    private final int id;
+    private final File workspace;
+    private Process process;
+    private BufferedReader fromWorker;
+    private PrintStream toWorker;
+    
+    private volatile String current;
+    private volatile long started;
+    
+    private Worker(int id) {
+      super("extraction-worker-" + id);
+      this.id = id;
+      this.workspace = new File(WORKSPACE_DIR.getValue(), "worker-" + id);
+    }
+    
+    private boolean launch() {
+      List<String> command = new ArrayList<>();
+      for (String part : WORKER_COMMAND.getValue().trim().split("\\s+")) {
+        command.add(part.replace("{workspace}", workspace.getPath()));
+      }
+      command.add("--" + Main.EXTRACT_PROJECTS_WORKER.getName());
+      for (Argument<?> arg : Arrays.<Argument<?>>asList(
+          JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO,
+          Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT, Extractor.INCLUDE_PROJECT_JARS, Extractor.RESOLVE_MISSING_TYPES,
+          WriterBundle.BINARY_OUTPUT, EclipseExtractor.BATCH_AST_CREATION, EclipseExtractor.AST_BATCH_SIZE,
+          DatabaseConnectionFactory.DATABASE_URL, DatabaseConnectionFactory.DATABASE_USER)) {
+        if (arg.hasValue()) {
+          command.add("--" + arg.getName());
+          command.add(String.valueOf(arg.getValue()));
+        }
+      }
+      
+      workspace.mkdirs();
+      try {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        process = builder.start();
+        fromWorker = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        toWorker = new PrintStream(process.getOutputStream(), true);
+        // The password goes over stdin rather than the visible command line
+        String password = null;
+        if (Extractor.RESOLVE_MISSING_TYPES.getValue()) {
+          password = DatabaseConnectionFactory.DATABASE_PASSWORD.getValue();
+        }
+        toWorker.println(password == null ? "" : password);
+        return true;
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Unable to launch worker " + id + ": " + command, e);
+        process = null;
+        return false;
+      }
+    }
+    
+    private void kill() {
+      if (process != null) {
+        process.destroy();
+        IOUtils.close(fromWorker, toWorker);
+        process = null;
+      }
+    }
+    
+    private void checkTimeout(long timeout) {
+      String path = current;
+      if (path != null && System.currentTimeMillis() - started > timeout) {
+        logger.severe("Worker " + id + " timed out on " + path);
+        Process p = process;
+        if (p != null) {
+          p.destroy();
+        }
+      }
+    }
+    
+    /**
+     * Forwards the worker's output until it reports on <code>path</code>,
+     * returning null if the worker died first.
+     */
+    private String awaitResult(String path) {
+      try {
+        for (String line = fromWorker.readLine(); line != null; line = fromWorker.readLine()) {
+          if (line.startsWith("@") && line.endsWith(" " + path)) {
+            return line.substring(0, line.length() - path.length());
+          } else {
+            logger.info("[" + id + "] " + line);
+          }
+        }
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Error reading from worker " + id, e);
+      }
+      return null;
+    }
+    
+    @Override
+    public void run() {
+      for (String path = queue.poll(); path != null; path = queue.poll()) {
+        if (process == null && !launch()) {
+          queue.add(path);
+          return;
+        }
+        started = System.currentTimeMillis();
+        current = path;
+        toWorker.println(path);
+        String result = awaitResult(path);
+        current = null;
+        if (result == null) {
+          logger.severe("Worker " + id + " crashed extracting " + path);
+          crashed.incrementAndGet();
+          markCrashed(path);
+          kill();
+        } else if (result.equals(FAILED)) {
+          failed.incrementAndGet();
+        } else {
+          completed.incrementAndGet();
+        }
+      }
+      
+      // Tell the worker to exit
+      if (process != null) {
+        toWorker.println();
+        try {
+          for (String line = fromWorker.readLine(); line != null; line = fromWorker.readLine()) {
+            logger.info("[" + id + "] " + line);
+          }
+          process.waitFor();
+        } catch (IOException e) {
+          logger.log(Level.SEVERE, "Error reading from worker " + id, e);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        kill();
+      }
+    }
+  }
+  
+  /**
+   * Runs inside a worker process, extracting the projects named on
+   * standard input and reporting on each to standard output. The first
+   * line of standard input is the database password, which may be empty.
+   */
+  public static void runWorker() {
+    PrintStream out = System.out;
+    
+    JavaRepository repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(JavaRepositoryFactory.INPUT_REPO);
+    ModifiableExtractedJavaRepository extracted = JavaRepositoryFactory.INSTANCE.loadModifiableExtractedJavaRepository(JavaRepositoryFactory.OUTPUT_REPO);
+    
+    MissingTypeResolver resolver = null;
+    try (BufferedReader in = new BufferedReader(new InputStreamReader(System.in))) {
+      String password = in.readLine();
+      if (password != null && !password.isEmpty()) {
+        DatabaseConnectionFactory.DATABASE_PASSWORD.setValue(password);
+      }
+      
+      if (Extractor.RESOLVE_MISSING_TYPES.getValue()) {
+        resolver = MissingTypeResolver.create(repo);
+      }
+      
+      for (String path = in.readLine(); path != null && !path.isEmpty(); path = in.readLine()) {
+        String result = FAILED;
+        try {
+          JavaProject project = repo.getProject(path);
+          if (project == null) {
+            logger.severe("Unable to find project: " + path);
+          } else {
+            result = Extractor.extractProject(project, extracted, resolver) ? EXTRACTED : SKIPPED;
+          }
+        } catch (Exception e) {
+          logger.log(Level.SEVERE, "Error extracting " + path, e);
+        }
+        out.println(result + path);
+        out.flush();
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error reading project list", e);
+    }
+    
+    IOUtils.close(resolver);
+  }
+}
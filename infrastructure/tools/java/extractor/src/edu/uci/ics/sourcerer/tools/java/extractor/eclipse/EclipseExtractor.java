@@ -38,6 +38,7 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.internal.core.BinaryType;
 
@@ -45,6 +46,9 @@ import edu.uci.ics.sourcerer.tools.java.extractor.bytecode.ASMExtractor;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaFile;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 
 /**
@@ -52,6 +56,9 @@ import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
  */
 @SuppressWarnings("restriction")
 public class EclipseExtractor implements Closeable {
+  public static final Argument<Boolean> BATCH_AST_CREATION = new BooleanArgument("batch-ast-creation", false, "Create the ASTs for a project's source files in batches, sharing the binding environment.").permit();
+  public static final Argument<Integer> AST_BATCH_SIZE = new IntegerArgument("ast-batch-size", 250, "Maximum number of source files per AST batch.").permit();
+  
   private final ASTParser parser;
   private final WriterBundle writers;
   private final ReferenceExtractorVisitor visitor;
@@ -234,6 +241,11 @@ public class EclipseExtractor implements Closeable {
     task.start("Extracting " + sourceFiles.size() + " source files", "sources files extracted", 500);
 
     ReferenceExtractorVisitor visitor = new ReferenceExtractorVisitor(writers);
+    if (BATCH_AST_CREATION.getValue()) {
+      extractSourceFilesInBatches(sourceFiles, visitor, task);
+      task.finish();
+      return;
+    }
     for (Map.Entry<JavaFile, IFile> entry : sourceFiles.entrySet()) {
       IFile file = entry.getValue();
       // May put this in if there are still problems
@@ -253,22 +265,71 @@ public class EclipseExtractor implements Closeable {
         continue;
       }
   
-      visitor.setBindingFreeMode(checkForMissingTypes(unit));
-      
-      try {
-        visitor.setCompilationUnitSource(icu.getSource());
-        visitor.setJavaFile(entry.getKey());
-        visitor.setAdvisor(NamingAdvisor.create());
-        unit.accept(visitor);
-      } catch (Exception e) {
-        logger.log(Level.SEVERE, "Error in extracting " + entry.getKey(), e);
-      }
+      extractSourceFile(entry.getKey(), icu, unit, visitor);
       
       task.progress();
     }
     task.finish();
   }
   
+  private void extractSourceFilesInBatches(Map<JavaFile, IFile> sourceFiles, final ReferenceExtractorVisitor visitor, final TaskProgressLogger task) {
+    final Map<ICompilationUnit, JavaFile> batch = new HashMap<>();
+    int batchSize = Math.max(1, AST_BATCH_SIZE.getValue());
+    
+    int remaining = sourceFiles.size();
+    for (Map.Entry<JavaFile, IFile> entry : sourceFiles.entrySet()) {
+      batch.put(JavaCore.createCompilationUnitFrom(entry.getValue()), entry.getKey());
+      remaining--;
+      if (batch.size() == batchSize || remaining == 0) {
+        parser.setStatementsRecovery(true);
+        parser.setResolveBindings(true);
+        parser.setBindingsRecovery(true);
+        
+        // Each unit is visited as soon as it is created, then dropped from the batch
+        ICompilationUnit[] units = batch.keySet().toArray(new ICompilationUnit[batch.size()]);
+        try {
+          parser.createASTs(units, new String[0], new ASTRequestor() {
+            @Override
+            public void acceptAST(ICompilationUnit source, CompilationUnit unit) {
+              extractSourceFile(batch.remove(source), source, unit, visitor);
+              task.progress();
+            }
+          }, null);
+        } catch (Exception e) {
+          logger.log(Level.SEVERE, "Error in creating ASTs for batch, falling back to single files", e);
+        }
+        
+        // Anything the batch did not deliver is retried on its own
+        for (Map.Entry<ICompilationUnit, JavaFile> failed : batch.entrySet()) {
+          parser.setStatementsRecovery(true);
+          parser.setResolveBindings(true);
+          parser.setBindingsRecovery(true);
+          parser.setSource(failed.getKey());
+          try {
+            extractSourceFile(failed.getValue(), failed.getKey(), (CompilationUnit) parser.createAST(null), visitor);
+          } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in creating AST for " + failed.getValue(), e);
+          }
+          task.progress();
+        }
+        batch.clear();
+      }
+    }
+  }
+  
+  private void extractSourceFile(JavaFile file, ICompilationUnit icu, CompilationUnit unit, ReferenceExtractorVisitor visitor) {
+    visitor.setBindingFreeMode(checkForMissingTypes(unit));
+    
+    try {
+      visitor.setCompilationUnitSource(icu.getSource());
+      visitor.setJavaFile(file);
+      visitor.setAdvisor(NamingAdvisor.create());
+      unit.accept(visitor);
+    } catch (Exception e) {
+      logger.log(Level.SEVERE, "Error in extracting " + file, e);
+    }
+  }
+  
   private boolean checkForMissingTypes(CompilationUnit unit) {
     // Check for the classpath problem
     for (IProblem problem : unit.getProblems()) {
@@ -19,6 +19,7 @@ package edu.uci.ics.sourcerer.tools.java.cloning;
 
 import edu.uci.ics.sourcerer.tools.java.cloning.method.dir.DirectoryClusterer;
 import edu.uci.ics.sourcerer.tools.java.cloning.method.fingerprint.FingerprintClusterer;
+import edu.uci.ics.sourcerer.tools.java.cloning.method.fingerprint.MinHashBenchmark;
 import edu.uci.ics.sourcerer.tools.java.cloning.method.fqn.FqnClusterer;
 import edu.uci.ics.sourcerer.tools.java.cloning.method.hash.HashingClusterer;
 import edu.uci.ics.sourcerer.tools.java.cloning.stats.CloningStatistics;
@@ -179,6 +180,13 @@ public class Main {
 //      }
 //    }.setProperties(ImportUsageGenerator.IMPORT_USAGE_LISTING, DatabaseConnection.DATABASE_URL, DatabaseConnection.DATABASE_USER, DatabaseConnection.DATABASE_PASSWORD);
   
+  public static final Command BENCHMARK_MIN_HASH =
+    new Command("benchmark-min-hash", "Compares the MinHash fingerprint index against the exact one on synthetic files.") {
+      protected void action() {
+        MinHashBenchmark.benchmark();
+      }
+    }.setProperties(MinHashBenchmark.FILE_COUNT, FingerprintClusterer.MIN_HASH_BANDS, FingerprintClusterer.MIN_HASH_ROWS, FingerprintClusterer.VERIFY_MIN_HASH_MATCHES, FingerprintClusterer.MINIMUM_JACCARD_INDEX, FingerprintClusterer.MINIMUM_FINGERPRINT_SIZE, FingerprintClusterer.REQUIRE_FINGERPRINT_NAME_MATCH);
+  
   public static void main(String[] args) {
     Command.execute(args, Main.class);
   }
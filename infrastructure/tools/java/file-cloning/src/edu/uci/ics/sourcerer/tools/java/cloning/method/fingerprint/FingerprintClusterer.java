@@ -53,6 +53,10 @@ public class FingerprintClusterer {
   public static final Argument<Boolean> REQUIRE_FINGERPRINT_NAME_MATCH = new BooleanArgument("require-fingerprint-name-match", true, "Give special priority to class names.");
   public static final Argument<Double> MINIMUM_JACCARD_INDEX = new DoubleArgument("minimum-jaccard-index", .75, "Minimum jaccard index to count as a match.");
   public static final Argument<Integer> MINIMUM_FINGERPRINT_SIZE = new IntegerArgument("minimum-fingerprint-size", 5, "Minimum number of fingerprint names.");
+  public static final Argument<Boolean> USE_MIN_HASH_INDEX = new BooleanArgument("use-min-hash-index", false, "Find fingerprint matches with MinHash locality sensitive hashing rather than the exact inverted index.").permit();
+  public static final Argument<Integer> MIN_HASH_BANDS = new IntegerArgument("min-hash-bands", 20, "Number of LSH bands. More bands find more matches.").permit();
+  public static final Argument<Integer> MIN_HASH_ROWS = new IntegerArgument("min-hash-rows", 5, "Number of MinHash values per LSH band. More rows find fewer false candidates.").permit();
+  public static final Argument<Boolean> VERIFY_MIN_HASH_MATCHES = new BooleanArgument("verify-min-hash-matches", true, "Compute the exact jaccard index of MinHash candidates, rather than using the estimate.").permit();
   
   public static void generateFileListing() {
     new DatabaseRunnable() {
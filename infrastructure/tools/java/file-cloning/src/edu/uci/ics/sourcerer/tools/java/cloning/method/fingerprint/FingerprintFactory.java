@@ -22,10 +22,14 @@ package edu.uci.ics.sourcerer.tools.java.cloning.method.fingerprint;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class FingerprintFactory {
-  private NameFingerprintIndex nameIndex;
+  private FingerprintIndex<NameFingerprintKey> nameIndex;
   
   public FingerprintFactory() {
-    nameIndex = new NameFingerprintIndex();
+    if (FingerprintClusterer.USE_MIN_HASH_INDEX.getValue()) {
+      nameIndex = new MinHashFingerprintIndex();
+    } else {
+      nameIndex = new NameFingerprintIndex();
+    }
   }
   
   public NameFingerprintKey getNameFingerprintKey(FingerprintFile file) {
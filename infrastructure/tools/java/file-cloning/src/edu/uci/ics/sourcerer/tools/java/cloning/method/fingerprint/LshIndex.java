@@ -0,0 +1,85 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.cloning.method.fingerprint;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Banded locality sensitive hashing over MinHash signatures. Each band of
+ * <code>rows</code> signature slots is hashed into its own bucket table,
+ * and items sharing any bucket are candidates. Two sets with a Jaccard
+ * index of s become candidates with probability 1 - (1 - s^rows)^bands.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class LshIndex <T> {
+  private final int bands;
+  private final int rows;
+  private final List<Map<Long, Collection<T>>> buckets;
+  
+  public LshIndex(int bands, int rows) {
+    this.bands = bands;
+    this.rows = rows;
+    buckets = new ArrayList<>(bands);
+    for (int i = 0; i < bands; i++) {
+      buckets.add(new HashMap<Long, Collection<T>>());
+    }
+  }
+  
+  public int getSignatureSize() {
+    return bands * rows;
+  }
+  
+  public void add(T item, int[] signature) {
+    for (int band = 0; band < bands; band++) {
+      Map<Long, Collection<T>> table = buckets.get(band);
+      Long key = getBandKey(signature, band);
+      Collection<T> bucket = table.get(key);
+      if (bucket == null) {
+        bucket = new ArrayList<>(2);
+        table.put(key, bucket);
+      }
+      bucket.add(item);
+    }
+  }
+  
+  public Set<T> getCandidates(int[] signature) {
+    Set<T> candidates = new LinkedHashSet<>();
+    for (int band = 0; band < bands; band++) {
+      Collection<T> bucket = buckets.get(band).get(getBandKey(signature, band));
+      if (bucket != null) {
+        candidates.addAll(bucket);
+      }
+    }
+    return candidates;
+  }
+  
+  private long getBandKey(int[] signature, int band) {
+    long key = 1125899906842597l;
+    for (int i = band * rows, max = i + rows; i < max; i++) {
+      key = 31 * key + signature[i];
+    }
+    return key;
+  }
+}
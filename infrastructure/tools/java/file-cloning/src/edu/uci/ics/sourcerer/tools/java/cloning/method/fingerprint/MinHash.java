@@ -0,0 +1,78 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.cloning.method.fingerprint;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Computes MinHash signatures over sets of element hashes. The fraction of
+ * slots on which two signatures agree estimates the Jaccard index of the
+ * sets they were computed from.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class MinHash {
+  private final int[] seeds;
+  
+  public MinHash(int size, long seed) {
+    Random random = new Random(seed);
+    seeds = new int[size];
+    for (int i = 0; i < size; i++) {
+      seeds[i] = random.nextInt();
+    }
+  }
+  
+  public int getSize() {
+    return seeds.length;
+  }
+  
+  public int[] createSignature(int[] elements) {
+    int[] signature = new int[seeds.length];
+    Arrays.fill(signature, Integer.MAX_VALUE);
+    for (int element : elements) {
+      for (int i = 0; i < seeds.length; i++) {
+        int hash = mix(element ^ seeds[i]);
+        if (hash < signature[i]) {
+          signature[i] = hash;
+        }
+      }
+    }
+    return signature;
+  }
+  
+  public static double estimateJaccardIndex(int[] first, int[] second) {
+    int matches = 0;
+    for (int i = 0; i < first.length; i++) {
+      if (first[i] == second[i]) {
+        matches++;
+      }
+    }
+    return (double) matches / first.length;
+  }
+  
+  // Murmur3 finalizer, so each seed acts as an independent hash function
+  private static int mix(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
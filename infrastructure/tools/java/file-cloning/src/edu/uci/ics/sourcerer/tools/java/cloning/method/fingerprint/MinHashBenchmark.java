@@ -0,0 +1,168 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.cloning.method.fingerprint;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Compares the MinHash index against the exact inverted index on synthetic
+ * files. Member names are drawn with a heavy skew towards a few popular
+ * ones, and a share of the files are lightly mutated clones of earlier
+ * ones. A pair counts as a match when its exact jaccard index reaches
+ * <code>minimum-jaccard-index</code>, and recall is the share of the exact
+ * index's matches that the MinHash index also finds.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class MinHashBenchmark {
+  public static final Argument<Integer> FILE_COUNT = new IntegerArgument("min-hash-benchmark-files", 20000, "Number of synthetic files to cluster.");
+  
+  private static final int VOCABULARY_SIZE = 5000;
+  private static final int TYPE_NAME_COUNT = 200;
+  private static final double CLONE_RATE = .3;
+  
+  private MinHashBenchmark() {}
+  
+  private static class SyntheticFile {
+    private final String name;
+    private final TreeSet<String> fields;
+    private final TreeSet<String> methods;
+    
+    private SyntheticFile(String name, TreeSet<String> fields, TreeSet<String> methods) {
+      this.name = name;
+      this.fields = fields;
+      this.methods = methods;
+    }
+  }
+  
+  private static String draw(Random random, String prefix, int size) {
+    // Cubing skews the draw towards the low, popular, names
+    return prefix + (int) (size * Math.pow(random.nextDouble(), 3));
+  }
+  
+  private static List<SyntheticFile> createFiles() {
+    Random random = new Random(0);
+    List<SyntheticFile> files = new ArrayList<>();
+    for (int i = 0, max = FILE_COUNT.getValue(); i < max; i++) {
+      if (i > 0 && random.nextDouble() < CLONE_RATE) {
+        SyntheticFile original = files.get(random.nextInt(files.size()));
+        TreeSet<String> fields = new TreeSet<>(original.fields);
+        TreeSet<String> methods = new TreeSet<>(original.methods);
+        for (int mutations = random.nextInt(3); mutations > 0; mutations--) {
+          TreeSet<String> members = random.nextBoolean() ? fields : methods;
+          if (random.nextBoolean() && members.size() > 1) {
+            members.remove(members.first());
+          } else {
+            members.add(draw(random, "member", VOCABULARY_SIZE));
+          }
+        }
+        files.add(new SyntheticFile(original.name, fields, methods));
+      } else {
+        TreeSet<String> fields = new TreeSet<>();
+        for (int count = 2 + random.nextInt(9); count > 0; count--) {
+          fields.add(draw(random, "member", VOCABULARY_SIZE));
+        }
+        TreeSet<String> methods = new TreeSet<>();
+        for (int count = 3 + random.nextInt(28); count > 0; count--) {
+          methods.add(draw(random, "member", VOCABULARY_SIZE));
+        }
+        files.add(new SyntheticFile(draw(random, "Type", TYPE_NAME_COUNT), fields, methods));
+      }
+    }
+    return files;
+  }
+  
+  private static class Result {
+    private final long time;
+    private final long candidates;
+    private final Set<Long> matches;
+    
+    private Result(long time, long candidates, Set<Long> matches) {
+      this.time = time;
+      this.candidates = candidates;
+      this.matches = matches;
+    }
+  }
+  
+  private static Result cluster(List<SyntheticFile> files, FingerprintIndex<NameFingerprintKey> index) {
+    double minimum = FingerprintClusterer.MINIMUM_JACCARD_INDEX.getValue();
+    long start = System.currentTimeMillis();
+    
+    Map<NameFingerprintKey, Integer> ids = new IdentityHashMap<>();
+    for (SyntheticFile file : files) {
+      NameFingerprintKey key = new NameFingerprintKey(file.name, file.fields.toArray(new String[file.fields.size()]), file.methods.toArray(new String[file.methods.size()]), index);
+      ids.put(key, ids.size());
+    }
+    
+    long candidates = 0;
+    Set<Long> matches = new HashSet<>();
+    for (Map.Entry<NameFingerprintKey, Integer> entry : ids.entrySet()) {
+      Collection<JaccardIndex> indices = index.getJaccardIndices(entry.getKey());
+      candidates += indices.size();
+      for (JaccardIndex jaccard : indices) {
+        NameFingerprintKey other = (NameFingerprintKey) jaccard.getFingerprintKey();
+        if (entry.getKey().computeJaccardIndex(other) >= minimum) {
+          long first = Math.min(entry.getValue(), ids.get(other));
+          long second = Math.max(entry.getValue(), ids.get(other));
+          matches.add(first << 32 | second);
+        }
+      }
+    }
+    return new Result(System.currentTimeMillis() - start, candidates, matches);
+  }
+  
+  public static void benchmark() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Benchmarking the MinHash fingerprint index");
+    
+    task.start("Generating " + FILE_COUNT.getValue() + " synthetic files");
+    List<SyntheticFile> files = createFiles();
+    task.finish();
+    
+    task.start("Clustering with the exact index");
+    Result exact = cluster(files, new NameFingerprintIndex());
+    task.report(String.format("%,d ms, %,d candidates, %,d matches, %,.0f files/s", exact.time, exact.candidates, exact.matches.size(), 1000. * files.size() / Math.max(1, exact.time)));
+    task.finish();
+    
+    task.start("Clustering with the MinHash index (" + FingerprintClusterer.MIN_HASH_BANDS.getValue() + " bands of " + FingerprintClusterer.MIN_HASH_ROWS.getValue() + " rows)");
+    Result minHash = cluster(files, new MinHashFingerprintIndex());
+    int found = 0;
+    for (Long match : minHash.matches) {
+      if (exact.matches.contains(match)) {
+        found++;
+      }
+    }
+    task.report(String.format("%,d ms, %,d candidates, %,d matches, %,.0f files/s", minHash.time, minHash.candidates, minHash.matches.size(), 1000. * files.size() / Math.max(1, minHash.time)));
+    task.report(String.format("Recall of %.2f%% at %.1fx the speed of the exact index", 100. * found / Math.max(1, exact.matches.size()), (double) exact.time / Math.max(1, minHash.time)));
+    task.finish();
+    
+    task.finish();
+  }
+}
@@ -0,0 +1,110 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.cloning.method.fingerprint;
+
+import static edu.uci.ics.sourcerer.tools.java.cloning.method.fingerprint.FingerprintClusterer.MIN_HASH_BANDS;
+import static edu.uci.ics.sourcerer.tools.java.cloning.method.fingerprint.FingerprintClusterer.MIN_HASH_ROWS;
+import static edu.uci.ics.sourcerer.tools.java.cloning.method.fingerprint.FingerprintClusterer.REQUIRE_FINGERPRINT_NAME_MATCH;
+import static edu.uci.ics.sourcerer.tools.java.cloning.method.fingerprint.FingerprintClusterer.VERIFY_MIN_HASH_MATCHES;
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Alternative to {@link NameFingerprintIndex} that only considers the
+ * fingerprints an LSH index over their MinHash signatures turns up, rather
+ * than every fingerprint sharing a name. Popular names therefore need no
+ * special treatment. As only likely matches are returned, low confidence
+ * matches are mostly absent.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class MinHashFingerprintIndex implements FingerprintIndex<NameFingerprintKey> {
+  private final MinHash minHash;
+  private final LshIndex<NameFingerprintKey> index;
+  private final Map<NameFingerprintKey, int[]> signatures;
+  
+  public MinHashFingerprintIndex() {
+    index = new LshIndex<>(MIN_HASH_BANDS.getValue(), MIN_HASH_ROWS.getValue());
+    minHash = new MinHash(index.getSignatureSize(), 0);
+    signatures = new IdentityHashMap<>();
+  }
+  
+  private int[] getSignature(NameFingerprintKey fingerprint) {
+    int[] signature = signatures.get(fingerprint);
+    if (signature == null) {
+      boolean includeName = !REQUIRE_FINGERPRINT_NAME_MATCH.getValue();
+      String[] fields = fingerprint.getFields();
+      String[] methods = fingerprint.getMethods();
+      int[] elements = new int[fields.length + methods.length + (includeName ? 1 : 0)];
+      int i = 0;
+      // Keep fields and methods with the same name distinct
+      for (String field : fields) {
+        elements[i++] = 31 * field.hashCode() + 1;
+      }
+      for (String method : methods) {
+        elements[i++] = 31 * method.hashCode() + 2;
+      }
+      if (includeName) {
+        elements[i++] = 31 * fingerprint.getName().hashCode() + 3;
+      }
+      signature = minHash.createSignature(elements);
+    }
+    return signature;
+  }
+  
+  @Override
+  public void add(NameFingerprintKey fingerprint) {
+    if (fingerprint.getSize() >= FingerprintClusterer.MINIMUM_FINGERPRINT_SIZE.getValue()) {
+      int[] signature = getSignature(fingerprint);
+      signatures.put(fingerprint, signature);
+      index.add(fingerprint, signature);
+    }
+  }
+  
+  @Override
+  public Collection<JaccardIndex> getJaccardIndices(NameFingerprintKey fingerprint) {
+    if (fingerprint.getSize() >= FingerprintClusterer.MINIMUM_FINGERPRINT_SIZE.getValue()) {
+      int[] signature = getSignature(fingerprint);
+      boolean verify = VERIFY_MIN_HASH_MATCHES.getValue();
+      boolean requireName = REQUIRE_FINGERPRINT_NAME_MATCH.getValue();
+      Collection<JaccardIndex> retval = new ArrayList<>();
+      for (NameFingerprintKey candidate : index.getCandidates(signature)) {
+        if (candidate != fingerprint && (!requireName || fingerprint.getName().equals(candidate.getName()))) {
+          if (verify) {
+            retval.add(new JaccardIndex(candidate, fingerprint.computeJaccardIndex(candidate)));
+          } else {
+            retval.add(new JaccardIndex(candidate, MinHash.estimateJaccardIndex(signature, signatures.get(candidate))));
+          }
+        }
+      }
+      return retval;
+    } else {
+      return Collections.emptyList();
+    }
+  }
+  
+  @Override
+  public void clearPopularNames() {
+    logger.info("Popular names are not cleared from the MinHash fingerprint index.");
+  }
+}
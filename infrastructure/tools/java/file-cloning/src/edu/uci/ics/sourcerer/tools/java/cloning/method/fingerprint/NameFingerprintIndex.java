@@ -37,8 +37,8 @@ public class NameFingerprintIndex implements FingerprintIndex<NameFingerprintKey
   private InvertedIndex<NameFingerprintKey> fieldIndex = new InvertedIndex<NameFingerprintKey>();
   private InvertedIndex<NameFingerprintKey> methodIndex = new InvertedIndex<NameFingerprintKey>();
   int fileCount = 0;
-  private Set<String> excludedFields;
-  private Set<String> excludedMethods;
+  private Set<String> excludedFields = Collections.emptySet();
+  private Set<String> excludedMethods = Collections.emptySet();
   
   @Override
   public void add(NameFingerprintKey fingerprint) {
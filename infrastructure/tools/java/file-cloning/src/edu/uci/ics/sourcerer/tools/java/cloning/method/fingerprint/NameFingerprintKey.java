@@ -32,11 +32,11 @@ public class NameFingerprintKey extends FingerprintKey {
   private String[] fields;
   private String[] methods;
   
-  private NameFingerprintIndex index;
+  private FingerprintIndex<NameFingerprintKey> index;
   
   private Collection<KeyMatch> matches;
   
-  protected NameFingerprintKey(String name, String[] fields, String[] methods, NameFingerprintIndex index) {
+  protected NameFingerprintKey(String name, String[] fields, String[] methods, FingerprintIndex<NameFingerprintKey> index) {
     this.name = name;
     this.fields = fields;
     this.methods = methods;
@@ -44,7 +44,7 @@ public class NameFingerprintKey extends FingerprintKey {
     index.add(this);
   }
 
-  private double computeJaccardIndex(NameFingerprintKey other) {
+  double computeJaccardIndex(NameFingerprintKey other) {
     if (FingerprintClusterer.REQUIRE_FINGERPRINT_NAME_MATCH.getValue()) {
       double intersectionCount = 0;
       double unionCount = 0;
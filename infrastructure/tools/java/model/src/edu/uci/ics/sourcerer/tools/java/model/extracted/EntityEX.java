@@ -30,6 +30,7 @@ import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
  */
 public final class EntityEX implements SimpleSerializable {
   public static final Argument<String> ENTITY_FILE = new StringArgument("entity-file", "entities.txt", "Filename for the extracted entities.").permit();
+  public static final Argument<String> BINARY_ENTITY_FILE = new StringArgument("binary-entity-file", "entities.bin", "Filename for the extracted entities in binary format.").permit();
   
   private Entity type;
   private String fqn;
@@ -72,6 +73,17 @@ public final class EntityEX implements SimpleSerializable {
     return this;
   }
   
+  public EntityEX update(Entity type, String fqn, String signature, String rawSignature, Modifiers modifiers, Metrics metrics, Location location) {
+    this.type = type;
+    this.fqn = fqn;
+    this.signature = signature;
+    this.rawSignature = rawSignature;
+    this.modifiers = modifiers;
+    this.metrics = metrics;
+    this.location = location;
+    return this;
+  }
+  
   public Entity getType() {
     return type;
   }
@@ -28,6 +28,7 @@ import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
  */
 public final class FileEX implements SimpleSerializable {
   public static final Argument<String> FILE_FILE = new StringArgument("file-file", "files.txt", "Filename for the extracted files.").permit();
+  public static final Argument<String> BINARY_FILE_FILE = new StringArgument("binary-file-file", "files.bin", "Filename for the extracted files in binary format.").permit();
   
   private File type;
   private String name;
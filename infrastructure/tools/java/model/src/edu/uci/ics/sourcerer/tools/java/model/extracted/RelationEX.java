@@ -28,6 +28,7 @@ import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
  */
 public final class RelationEX implements SimpleSerializable {
   public static final Argument<String> RELATION_FILE = new StringArgument("relation-file", "relations.txt", "Filename for the extracted relations.").permit();
+  public static final Argument<String> BINARY_RELATION_FILE = new StringArgument("binary-relation-file", "relations.bin", "Filename for the extracted relations in binary format.").permit();
   
   private Relation type;
   private String lhs;
@@ -0,0 +1,255 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.EntityEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.FileEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.ColumnCodec;
+import edu.uci.ics.sourcerer.util.io.ColumnReader;
+import edu.uci.ics.sourcerer.util.io.ColumnWriter;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.SimpleSerializable;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.internal.IOUtilFactory;
+
+/**
+ * Converts the entities, relations and files of an existing extraction
+ * from the text format to the binary columnar format.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class BinaryConverter {
+  private BinaryConverter() {}
+  
+  private static class Conversion<T extends SimpleSerializable> {
+    private final Class<T> klass;
+    private final ColumnCodec<T> codec;
+    private final String textName;
+    private final String binaryName;
+    
+    private Conversion(Class<T> klass, ColumnCodec<T> codec, Argument<String> textName, Argument<String> binaryName) {
+      this.klass = klass;
+      this.codec = codec;
+      this.textName = textName.getValue();
+      this.binaryName = binaryName.getValue();
+    }
+    
+    /**
+     * Returns the number of rows written.
+     */
+    private int convert(Iterable<T> items, File output) throws IOException {
+      int rows = 0;
+      try (ColumnWriter writer = IOUtils.makeColumnWriter(output, codec.getName(), codec.getColumnCount())) {
+        for (T item : items) {
+          codec.write(writer, item);
+          writer.endRow();
+          rows++;
+        }
+      }
+      return rows;
+    }
+  }
+  
+  private static Collection<Conversion<?>> getConversions() {
+    Collection<Conversion<?>> conversions = new LinkedList<>();
+    conversions.add(new Conversion<>(EntityEX.class, ColumnCodec.ENTITY, EntityEX.ENTITY_FILE, EntityEX.BINARY_ENTITY_FILE));
+    conversions.add(new Conversion<>(RelationEX.class, ColumnCodec.RELATION, RelationEX.RELATION_FILE, RelationEX.BINARY_RELATION_FILE));
+    conversions.add(new Conversion<>(FileEX.class, ColumnCodec.FILE, FileEX.FILE_FILE, FileEX.BINARY_FILE_FILE));
+    return conversions;
+  }
+  
+  /**
+   * Returns true if anything was converted.
+   */
+  public static boolean convert(File input, File zip) throws IOException {
+    Collection<Conversion<?>> conversions = getConversions();
+    if (zip.exists()) {
+      return convertCompressed(input, zip, conversions);
+    } else {
+      boolean converted = false;
+      for (Conversion<?> conversion : conversions) {
+        converted |= convertUncompressed(input, conversion);
+      }
+      return converted;
+    }
+  }
+  
+  private static <T extends SimpleSerializable> boolean convertUncompressed(File input, Conversion<T> conversion) throws IOException {
+    File text = new File(input, conversion.textName);
+    if (text.exists()) {
+      File binary = new File(input, conversion.binaryName);
+      File tempBinary = new File(input, conversion.binaryName + ".tmp");
+      try {
+        // The text reader logs and stops on errors, so the text file is
+        // only removed once the binary file is known to hold every row
+        int written = conversion.convert(IOUtils.deserialize(conversion.klass, text, true), tempBinary);
+        int expected;
+        try (BufferedReader reader = IOUtils.createBufferedReader(text)) {
+          expected = countTextRows(reader);
+        }
+        int read = countBinaryRows(tempBinary);
+        if (written != expected || read != expected) {
+          logger.severe("Incomplete conversion of " + text.getPath() + ": " + expected + " rows, " + written + " written and " + read + " read back");
+          return false;
+        }
+        if (!tempBinary.renameTo(binary) && !(binary.delete() && tempBinary.renameTo(binary))) {
+          throw new IOException("Unable to replace " + binary.getPath());
+        }
+      } finally {
+        if (tempBinary.exists()) {
+          tempBinary.delete();
+        }
+      }
+      if (!text.delete()) {
+        logger.severe("Unable to delete: " + text.getPath());
+      }
+      return true;
+    } else {
+      return false;
+    }
+  }
+  
+  private static int countTextRows(BufferedReader reader) throws IOException {
+    // Skip the class name and the field names
+    String line = reader.readLine();
+    int rows = 0;
+    if (!IOUtilFactory.isFinished(line)) {
+      reader.readLine();
+      for (line = reader.readLine(); !IOUtilFactory.isFinished(line); line = reader.readLine()) {
+        rows++;
+      }
+    }
+    return rows;
+  }
+  
+  private static int countBinaryRows(File binary) throws IOException {
+    try (ColumnReader reader = IOUtils.makeColumnReader(binary)) {
+      int rows = 0;
+      while (reader.nextRow()) {
+        rows++;
+      }
+      return rows;
+    }
+  }
+  
+  private static <T extends SimpleSerializable> boolean convertEntry(ZipFile zipFile, Conversion<T> conversion, File output) throws IOException {
+    ZipEntry entry = zipFile.getEntry(conversion.textName);
+    if (entry == null || zipFile.getEntry(conversion.binaryName) != null) {
+      return false;
+    } else {
+      // As with the uncompressed files, the entry is only replaced once the
+      // binary file is known to hold every row
+      boolean verified = false;
+      try {
+        int written;
+        try (InputStream is = zipFile.getInputStream(entry)) {
+          written = conversion.convert(IOUtilFactory.createSimpleDeserializer(is).deserializeToIterable(conversion.klass, false, true), output);
+        }
+        int expected;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(entry)))) {
+          expected = countTextRows(reader);
+        }
+        int read = countBinaryRows(output);
+        if (written != expected || read != expected) {
+          logger.severe("Incomplete conversion of " + conversion.textName + " in " + zipFile.getName() + ": " + expected + " rows, " + written + " written and " + read + " read back");
+        } else {
+          verified = true;
+        }
+        return verified;
+      } finally {
+        if (!verified && output.exists()) {
+          output.delete();
+        }
+      }
+    }
+  }
+  
+  private static boolean convertCompressed(File input, File zip, Collection<Conversion<?>> conversions) throws IOException {
+    File tempZip = new File(input, zip.getName() + ".tmp");
+    Collection<File> converted = new LinkedList<>();
+    try {
+      try (ZipFile zipFile = new ZipFile(zip)) {
+        // Write the binary files next to the zip
+        HashSet<String> replaced = new HashSet<>();
+        for (Conversion<?> conversion : conversions) {
+          File binary = new File(input, conversion.binaryName);
+          if (convertEntry(zipFile, conversion, binary)) {
+            replaced.add(conversion.textName);
+            converted.add(binary);
+          }
+        }
+        if (converted.isEmpty()) {
+          return false;
+        }
+        
+        // Copy the untouched entries, and then add the binary files
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(tempZip))) {
+          zos.setMethod(ZipOutputStream.DEFLATED);
+          zos.setLevel(9);
+          
+          Enumeration<? extends ZipEntry> entries = zipFile.entries();
+          while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!replaced.contains(entry.getName())) {
+              zos.putNextEntry(new ZipEntry(entry.getName()));
+              try (InputStream is = zipFile.getInputStream(entry)) {
+                IOUtils.writeStreamToStream(is, zos);
+              }
+              zos.closeEntry();
+            }
+          }
+          for (File binary : converted) {
+            zos.putNextEntry(new ZipEntry(binary.getName()));
+            FileUtils.writeFileToStream(binary, zos);
+            zos.closeEntry();
+          }
+        }
+      }
+      
+      if (!tempZip.renameTo(zip) && !(zip.delete() && tempZip.renameTo(zip))) {
+        throw new IOException("Unable to replace " + zip.getPath());
+      }
+      return true;
+    } finally {
+      if (tempZip.exists()) {
+        tempZip.delete();
+      }
+      for (File binary : converted) {
+        binary.delete();
+      }
+    }
+  }
+}
@@ -24,6 +24,8 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.logging.Level;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import edu.uci.ics.sourcerer.tools.java.model.extracted.CommentEX;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.EntityEX;
@@ -34,12 +36,17 @@ import edu.uci.ics.sourcerer.tools.java.model.extracted.MissingTypeEX;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.ProblemEX;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.UsedJarEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.ColumnCodec;
 import edu.uci.ics.sourcerer.util.CachedReference;
+import edu.uci.ics.sourcerer.util.io.ColumnReader;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
 import edu.uci.ics.sourcerer.util.io.SimpleSerializable;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 
 /**
+ * Entities, relations and files are read from the binary columnar format
+ * when it is present, falling back to the text format otherwise.
+ * 
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class ReaderBundle {
@@ -49,20 +56,43 @@ public class ReaderBundle {
   private class ReaderReference<T extends SimpleSerializable> extends CachedReference<Collection<T>> {
     private final Class<T> klass;
     private final String entryName;
+    private final ColumnCodec<T> codec;
+    private final String binaryEntryName;
     
     private ReaderReference(Class<T> klass, Argument<String> entry) {
       this.klass = klass;
       this.entryName = entry.getValue();
+      this.codec = null;
+      this.binaryEntryName = null;
+    }
+    
+    private ReaderReference(Class<T> klass, Argument<String> entry, ColumnCodec<T> codec, Argument<String> binaryEntry) {
+      this.klass = klass;
+      this.entryName = entry.getValue();
+      this.codec = codec;
+      this.binaryEntryName = binaryEntry.getValue();
     }
     
     @Override
     protected Collection<T> create() {
+      if (codec != null) {
+        Collection<T> result = ReaderBundle.this.getBinary(codec, binaryEntryName);
+        if (result != null) {
+          return result;
+        }
+      }
       return ReaderBundle.this.get(klass, entryName);
     }
     
     protected Iterable<T> getTransient() {
       Collection<T> result = getIfCached();
       if (result == null) {
+        if (codec != null) {
+          Iterable<T> binary = ReaderBundle.this.getBinaryTransient(codec, binaryEntryName);
+          if (binary != null) {
+            return binary;
+          }
+        }
         return ReaderBundle.this.getTransient(klass, entryName);
       } else {
         return result;
@@ -70,10 +100,10 @@ public class ReaderBundle {
     }
   }
   
-  private ReaderReference<EntityEX> entities = new ReaderReference<EntityEX>(EntityEX.class, EntityEX.ENTITY_FILE);
-  private ReaderReference<FileEX> files = new ReaderReference<FileEX>(FileEX.class, FileEX.FILE_FILE);
+  private ReaderReference<EntityEX> entities = new ReaderReference<EntityEX>(EntityEX.class, EntityEX.ENTITY_FILE, ColumnCodec.ENTITY, EntityEX.BINARY_ENTITY_FILE);
+  private ReaderReference<FileEX> files = new ReaderReference<FileEX>(FileEX.class, FileEX.FILE_FILE, ColumnCodec.FILE, FileEX.BINARY_FILE_FILE);
   private ReaderReference<LocalVariableEX> localVariables = new ReaderReference<LocalVariableEX>(LocalVariableEX.class, LocalVariableEX.LOCAL_VARIABLE_FILE);
-  private ReaderReference<RelationEX> relations = new ReaderReference<RelationEX>(RelationEX.class, RelationEX.RELATION_FILE);
+  private ReaderReference<RelationEX> relations = new ReaderReference<RelationEX>(RelationEX.class, RelationEX.RELATION_FILE, ColumnCodec.RELATION, RelationEX.BINARY_RELATION_FILE);
   private ReaderReference<ProblemEX> problems = new ReaderReference<ProblemEX>(ProblemEX.class, ProblemEX.PROBLEM_FILE);
   private ReaderReference<ImportEX> imports = new ReaderReference<ImportEX>(ImportEX.class, ImportEX.IMPORT_FILE);
   private ReaderReference<CommentEX> comments = new ReaderReference<CommentEX>(CommentEX.class, CommentEX.COMMENT_FILE);
@@ -89,6 +119,68 @@ public class ReaderBundle {
     return new ReaderBundle(input, zip); 
   }
   
+  /**
+   * Returns null if there is no binary file.
+   */
+  private <T extends SimpleSerializable> Collection<T> getBinary(ColumnCodec<T> codec, String fileName) {
+    // Check for the uncompressed file
+    File file = new File(input, fileName);
+    try {
+      if (file.exists()) {
+        try (ColumnReader reader = IOUtils.makeColumnReader(file)) {
+          return codec.readAll(reader);
+        }
+      } else if (zip.exists()) {
+        // Check for the compressed file
+        try (ZipFile zipFile = new ZipFile(zip)) {
+          ZipEntry entry = zipFile.getEntry(fileName);
+          if (entry != null) {
+            try (ColumnReader reader = IOUtils.makeColumnReader(zipFile.getInputStream(entry))) {
+              return codec.readAll(reader);
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error reading extracted file.", e);
+      return Collections.emptyList();
+    }
+    return null;
+  }
+  
+  /**
+   * Returns null if there is no binary file.
+   */
+  private <T extends SimpleSerializable> Iterable<T> getBinaryTransient(ColumnCodec<T> codec, String fileName) {
+    // Check for the uncompressed file
+    File file = new File(input, fileName);
+    if (file.exists()) {
+      try {
+        return codec.iterate(IOUtils.makeColumnReader(file), true);
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Error reading extracted file.", e);
+        return Collections.emptyList();
+      }
+    } else if (zip.exists()) {
+      // Check for the compressed file, streaming directly from the entry
+      ZipFile zipFile = null;
+      try {
+        zipFile = new ZipFile(zip);
+        ZipEntry entry = zipFile.getEntry(fileName);
+        if (entry != null) {
+          return codec.iterate(IOUtils.makeColumnReader(zipFile.getInputStream(entry)), true, zipFile);
+        } else {
+          IOUtils.close(zipFile);
+        }
+      } catch (IOException e) {
+        IOUtils.close(zipFile);
+        logger.log(Level.SEVERE, "Error reading extracted file.", e);
+        return Collections.emptyList();
+      }
+    }
+    return null;
+  }
+  
   private <T extends SimpleSerializable> Collection<T> get(Class<T> klass, String fileName) {
     // Check for the uncompressed file
     File file = new File(input, fileName);
@@ -125,10 +217,10 @@ public class ReaderBundle {
         return Collections.emptyList();
       }
     } else {
-      // Check for the compressed file (not transient)
+      // Check for the compressed file, streaming directly from the entry
       if (zip.exists()) {
         try {
-          return IOUtils.deserialize(klass, zip, fileName);
+          return IOUtils.deserialize(klass, zip, fileName, true);
         } catch (IOException e) {
           logger.log(Level.SEVERE, "Error reading extracted file.", e);
           return Collections.emptyList();
@@ -31,6 +31,7 @@ import edu.uci.ics.sourcerer.tools.java.model.extracted.dummy.DummyRelationWrite
 import edu.uci.ics.sourcerer.tools.java.model.extracted.dummy.DummyUsedJarWriter;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.ClassArgument;
 
 /**
@@ -46,6 +47,7 @@ public final class WriterBundle implements Closeable {
   public static final Argument<Class<?>> FILE_WRITER = new ClassArgument("file-writer", DummyFileWriter.class, "File writer.").permit();
   public static final Argument<Class<?>> USED_JAR_WRITER = new ClassArgument("used-jar-writer", DummyUsedJarWriter.class, "Jar file writer.").permit();
   public static final Argument<Class<?>> MISSING_TYPE_WRITER = new ClassArgument("missing-class-writer", DummyMissingTypeWriter.class, "Missing type writer.").permit();
+  public static final Argument<Boolean> BINARY_OUTPUT = new BooleanArgument("binary-output", false, "Write entities, relations and files in the binary columnar format.").permit();
   
   private ImportWriter importWriter;
   private ProblemWriter problemWriter;
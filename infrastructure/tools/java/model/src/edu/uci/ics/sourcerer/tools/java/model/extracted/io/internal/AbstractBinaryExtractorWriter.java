@@ -0,0 +1,64 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.ExtractorWriter;
+import edu.uci.ics.sourcerer.util.io.ColumnWriter;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.SimpleSerializable;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public abstract class AbstractBinaryExtractorWriter<T extends SimpleSerializable> implements ExtractorWriter {
+  private final ColumnCodec<T> codec;
+  private ColumnWriter writer;
+  
+  protected AbstractBinaryExtractorWriter(File output, ColumnCodec<T> codec) {
+    this.codec = codec;
+    try {
+      writer = IOUtils.makeColumnWriter(output, codec.getName(), codec.getColumnCount());
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to make column writer for " + output.getPath(), e);
+      writer = null;
+    }
+  }
+  
+  public final void close() {
+    IOUtils.close(writer);
+    writer = null;
+  }
+  
+  protected void write(T item) {
+    try {
+      if (writer != null) {
+        codec.write(writer, item);
+        writer.endRow();
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to write item.", e);
+      close();
+    }
+  }
+}
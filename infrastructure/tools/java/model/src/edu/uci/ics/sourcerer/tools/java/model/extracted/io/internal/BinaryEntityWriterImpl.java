@@ -0,0 +1,51 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal;
+
+import java.io.File;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.EntityEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.EntityWriter;
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.tools.java.model.types.Location;
+import edu.uci.ics.sourcerer.tools.java.model.types.Metrics;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class BinaryEntityWriterImpl extends AbstractBinaryExtractorWriter<EntityEX> implements EntityWriter {
+  public BinaryEntityWriterImpl(File output) {
+    super(new File(output, EntityEX.BINARY_ENTITY_FILE.getValue()), ColumnCodec.ENTITY);
+  }
+
+  @Override
+  public void writeEntity(EntityEX entity) {
+    write(entity);
+  }
+
+  private EntityEX trans = new EntityEX();
+  @Override
+  public void writeEntity(Entity type, String fqn, int modifiers, Metrics metrics, Location location) {
+    write(trans.update(type, fqn, null, null, modifiers, metrics, location));
+  }
+  
+  @Override
+  public void writeEntity(Entity type, String fqn, String signature, String rawSignature, int modifiers, Metrics metrics, Location location) {
+    write(trans.update(type, fqn, signature, rawSignature, modifiers, metrics, location));
+  }
+}
@@ -0,0 +1,45 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal;
+
+import java.io.File;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.RelationWriter;
+import edu.uci.ics.sourcerer.tools.java.model.types.Location;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class BinaryRelationWriterImpl extends AbstractBinaryExtractorWriter<RelationEX> implements RelationWriter {
+  public BinaryRelationWriterImpl(File output) {
+    super(new File(output, RelationEX.BINARY_RELATION_FILE.getValue()), ColumnCodec.RELATION);
+  }
+
+  @Override
+  public void writeRelation(RelationEX relation) {
+    write(relation);
+  }
+  
+  private RelationEX trans = new RelationEX();
+  @Override
+  public void writeRelation(Relation type, String lhs, String rhs, Location location) {
+    write(trans.update(type, lhs, rhs, location));
+  }
+}
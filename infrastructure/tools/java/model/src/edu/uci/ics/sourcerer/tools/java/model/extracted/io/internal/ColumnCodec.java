@@ -0,0 +1,290 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.EntityEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.FileEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX;
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.tools.java.model.types.File;
+import edu.uci.ics.sourcerer.tools.java.model.types.Location;
+import edu.uci.ics.sourcerer.tools.java.model.types.Metric;
+import edu.uci.ics.sourcerer.tools.java.model.types.Metrics;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifiers;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.util.io.ColumnReader;
+import edu.uci.ics.sourcerer.util.io.ColumnWriter;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.SimpleSerializable;
+
+/**
+ * Maps the extracted model classes onto the columns of the binary
+ * columnar format, decoding straight into the model objects.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public abstract class ColumnCodec<T extends SimpleSerializable> {
+  private final Class<T> klass;
+  private final int columnCount;
+  
+  private ColumnCodec(Class<T> klass, int columnCount) {
+    this.klass = klass;
+    this.columnCount = columnCount;
+  }
+  
+  public final String getName() {
+    return klass.getName();
+  }
+  
+  public final int getColumnCount() {
+    return columnCount;
+  }
+  
+  public abstract void write(ColumnWriter writer, T item);
+  
+  /**
+   * Reads the current row. If <code>reuse</code> is not null, it is updated
+   * and returned rather than creating a new object.
+   */
+  public abstract T read(ColumnReader reader, T reuse);
+  
+  private void verify(ColumnReader reader) {
+    if (!getName().equals(reader.getName())) {
+      IOUtils.close(reader);
+      throw new IllegalStateException("Specified type does not match file: " + getName() + " vs " + reader.getName());
+    }
+  }
+  
+  public Collection<T> readAll(ColumnReader reader) throws IOException {
+    verify(reader);
+    Collection<T> coll = new LinkedList<>();
+    while (reader.nextRow()) {
+      coll.add(read(reader, null));
+    }
+    return coll;
+  }
+  
+  /**
+   * The reader, and any additional resources, are closed once the iterable is
+   * read to completion.
+   */
+  public Iterable<T> iterate(final ColumnReader reader, final boolean trans, final Closeable ... resources) {
+    verify(reader);
+    return new Iterable<T>() {
+      @Override
+      public Iterator<T> iterator() {
+        return new Iterator<T>() {
+          private boolean open = true;
+          private T reuse = null;
+          private T next = null;
+          
+          @Override
+          public boolean hasNext() {
+            if (next == null && open) {
+              try {
+                if (reader.nextRow()) {
+                  if (trans) {
+                    next = reuse = read(reader, reuse);
+                  } else {
+                    next = read(reader, null);
+                  }
+                } else {
+                  open = false;
+                }
+              } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error reading " + getName(), e);
+                open = false;
+              }
+              if (!open) {
+                IOUtils.close(reader);
+                IOUtils.close(resources);
+              }
+            }
+            return next != null;
+          }
+          
+          @Override
+          public T next() {
+            if (hasNext()) {
+              T ret = next;
+              next = null;
+              return ret;
+            } else {
+              throw new NoSuchElementException();
+            }
+          }
+          
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+  
+  private static final int LOCATION_COLUMNS = 5;
+  private static final int METRICS_COLUMNS = 3;
+  
+  private static void writeLocation(ColumnWriter writer, int column, Location location) {
+    if (location == null) {
+      writer.writeInt(column, 0);
+    } else {
+      writer.writeInt(column, 1);
+      writer.writeString(column + 1, location.getClassFile());
+      writer.writeString(column + 2, location.getPath());
+      writer.writeInteger(column + 3, location.getOffset());
+      writer.writeInteger(column + 4, location.getLength());
+    }
+  }
+  
+  private static Location readLocation(ColumnReader reader, int column) {
+    if (reader.readInt(column) == 0) {
+      return null;
+    } else {
+      String classFile = reader.readString(column + 1);
+      String path = reader.readString(column + 2);
+      Integer offset = reader.readInteger(column + 3);
+      Integer length = reader.readInteger(column + 4);
+      return new Location(classFile, path, offset, length);
+    }
+  }
+  
+  private static void writeMetrics(ColumnWriter writer, int column, Metrics metrics) {
+    if (metrics == null) {
+      writer.writeInteger(column, null);
+    } else {
+      Collection<Map.Entry<Metric, Double>> values = metrics.getMetricValues();
+      writer.writeInteger(column, values.size());
+      for (Map.Entry<Metric, Double> entry : values) {
+        writer.writeString(column + 1, entry.getKey().name());
+        writer.writeDouble(column + 2, entry.getValue());
+      }
+    }
+  }
+  
+  private static Metrics readMetrics(ColumnReader reader, int column) {
+    Integer count = reader.readInteger(column);
+    if (count == null) {
+      return null;
+    } else {
+      Metrics metrics = new Metrics();
+      for (int i = count; i > 0; i--) {
+        metrics.addMetric(Metric.valueOf(reader.readString(column + 1)), reader.readDouble(column + 2));
+      }
+      return metrics;
+    }
+  }
+  
+  private static <E extends Enum<E>> void writeEnum(ColumnWriter writer, int column, E value) {
+    writer.writeString(column, value == null ? null : value.name());
+  }
+  
+  private static <E extends Enum<E>> E readEnum(ColumnReader reader, int column, Class<E> klass) {
+    String name = reader.readString(column);
+    return name == null ? null : Enum.valueOf(klass, name);
+  }
+  
+  public static final ColumnCodec<EntityEX> ENTITY = new ColumnCodec<EntityEX>(EntityEX.class, 5 + METRICS_COLUMNS + LOCATION_COLUMNS) {
+    @Override
+    public void write(ColumnWriter writer, EntityEX entity) {
+      writeEnum(writer, 0, entity.getType());
+      writer.writeString(1, entity.getFqn());
+      writer.writeString(2, entity.getSignature());
+      writer.writeString(3, entity.getRawSignature());
+      Modifiers modifiers = entity.getModifiers();
+      writer.writeInteger(4, modifiers == null ? null : modifiers.getValue());
+      writeMetrics(writer, 5, entity.getMetrics());
+      writeLocation(writer, 5 + METRICS_COLUMNS, entity.getLocation());
+    }
+    
+    @Override
+    public EntityEX read(ColumnReader reader, EntityEX reuse) {
+      Entity type = readEnum(reader, 0, Entity.class);
+      String fqn = reader.readString(1);
+      String signature = reader.readString(2);
+      String rawSignature = reader.readString(3);
+      Integer value = reader.readInteger(4);
+      Modifiers modifiers = value == null ? null : Modifiers.make(value);
+      Metrics metrics = readMetrics(reader, 5);
+      Location location = readLocation(reader, 5 + METRICS_COLUMNS);
+      if (reuse == null) {
+        return new EntityEX(type, fqn, signature, rawSignature, modifiers, metrics, location);
+      } else {
+        return reuse.update(type, fqn, signature, rawSignature, modifiers, metrics, location);
+      }
+    }
+  };
+  
+  public static final ColumnCodec<RelationEX> RELATION = new ColumnCodec<RelationEX>(RelationEX.class, 3 + LOCATION_COLUMNS) {
+    @Override
+    public void write(ColumnWriter writer, RelationEX relation) {
+      writeEnum(writer, 0, relation.getType());
+      writer.writeString(1, relation.getLhs());
+      writer.writeString(2, relation.getRhs());
+      writeLocation(writer, 3, relation.getLocation());
+    }
+    
+    @Override
+    public RelationEX read(ColumnReader reader, RelationEX reuse) {
+      Relation type = readEnum(reader, 0, Relation.class);
+      String lhs = reader.readString(1);
+      String rhs = reader.readString(2);
+      Location location = readLocation(reader, 3);
+      if (reuse == null) {
+        return new RelationEX(type, lhs, rhs, location);
+      } else {
+        return reuse.update(type, lhs, rhs, location);
+      }
+    }
+  };
+  
+  public static final ColumnCodec<FileEX> FILE = new ColumnCodec<FileEX>(FileEX.class, 3 + METRICS_COLUMNS) {
+    @Override
+    public void write(ColumnWriter writer, FileEX file) {
+      writeEnum(writer, 0, file.getType());
+      writer.writeString(1, file.getName());
+      writeMetrics(writer, 2, file.getMetrics());
+      writer.writeString(2 + METRICS_COLUMNS, file.getType() == File.JAR ? file.getHash() : file.getPath());
+    }
+    
+    @Override
+    public FileEX read(ColumnReader reader, FileEX reuse) {
+      File type = readEnum(reader, 0, File.class);
+      String name = reader.readString(1);
+      Metrics metrics = readMetrics(reader, 2);
+      String hashPath = reader.readString(2 + METRICS_COLUMNS);
+      if (reuse == null) {
+        return new FileEX(type, name, metrics, hashPath);
+      } else {
+        return reuse.update(type, name, metrics, hashPath);
+      }
+    }
+  };
+}
@@ -17,10 +17,12 @@
  */
 package edu.uci.ics.sourcerer.tools.java.repo;
 
+import edu.uci.ics.sourcerer.tools.core.repo.model.internal.ParallelScanner;
 import edu.uci.ics.sourcerer.tools.java.repo.importers.MavenImporter;
 import edu.uci.ics.sourcerer.tools.java.repo.jars.JarIdentifier;
 import edu.uci.ics.sourcerer.tools.java.repo.misc.JarRepositoryCloner;
 import edu.uci.ics.sourcerer.tools.java.repo.misc.RepositoryCleaner;
+import edu.uci.ics.sourcerer.tools.java.repo.misc.RepositoryLoadBenchmark;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
 import edu.uci.ics.sourcerer.tools.java.repo.stats.RepositoryStatisticsCalculator;
 import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
@@ -88,6 +90,14 @@ public class Main {
       }
   }.setProperties(JavaRepositoryFactory.INPUT_REPO);
   
+  public static final Command BENCHMARK_COLD_LOAD =
+    new Command("benchmark-cold-load", "Times loading the repository with its caches deleted, serially and in parallel.") {
+      @Override
+      protected void action() {
+        RepositoryLoadBenchmark.benchmarkColdLoad();
+      }
+  }.setProperties(JavaRepositoryFactory.INPUT_REPO, ParallelScanner.SCAN_THREADS);
+  
   public static void main(String[] args) {
     Command.execute(args, Main.class);
   }
@@ -0,0 +1,86 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.repo.misc;
+
+import java.io.File;
+
+import edu.uci.ics.sourcerer.tools.core.repo.model.internal.AbstractFileSet;
+import edu.uci.ics.sourcerer.tools.core.repo.model.internal.AbstractRepository;
+import edu.uci.ics.sourcerer.tools.core.repo.model.internal.ParallelScanner;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaProject;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepository;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Times loading the repository with every cache deleted, first with a
+ * single scan thread and then with {@link ParallelScanner#SCAN_THREADS}.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class RepositoryLoadBenchmark {
+  private RepositoryLoadBenchmark() {}
+  
+  public static void benchmarkColdLoad() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Benchmarking cold repository loads of " + JavaRepositoryFactory.INPUT_REPO.getValue().getPath());
+    
+    int threads = ParallelScanner.SCAN_THREADS.getValue();
+    // Warm up the OS file cache, so only the first load pays for the disk
+    load(1, task);
+    load(1, task);
+    load(threads, task);
+    ParallelScanner.SCAN_THREADS.setValue(threads);
+    
+    task.finish();
+  }
+  
+  private static void load(int threads, TaskProgressLogger task) {
+    clearCaches();
+    ParallelScanner.SCAN_THREADS.setValue(threads);
+    
+    task.start("Loading with " + threads + " scan threads");
+    long start = System.currentTimeMillis();
+    JavaRepository repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(JavaRepositoryFactory.INPUT_REPO);
+    int projects = 0;
+    int files = 0;
+    for (JavaProject project : repo.getProjects()) {
+      projects++;
+      files += project.getContent().getFilteredJavaFiles().size();
+    }
+    task.report("Loaded " + projects + " projects with " + files + " java files in " + (System.currentTimeMillis() - start) + " ms");
+    task.finish();
+  }
+  
+  private static void clearCaches() {
+    File root = JavaRepositoryFactory.INPUT_REPO.getValue();
+    File[] batches = root.listFiles();
+    if (batches != null) {
+      for (File batch : batches) {
+        File[] checkouts = batch.listFiles();
+        if (checkouts != null) {
+          for (File checkout : checkouts) {
+            FileUtils.delete(new File(checkout, AbstractFileSet.CACHE_DIR.getValue()));
+          }
+        }
+      }
+    }
+    FileUtils.delete(new File(root, AbstractRepository.PROJECT_CACHE.getValue()));
+  }
+}
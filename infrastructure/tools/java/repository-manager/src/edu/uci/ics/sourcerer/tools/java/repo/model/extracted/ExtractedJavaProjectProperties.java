@@ -27,6 +27,7 @@ import edu.uci.ics.sourcerer.util.io.properties.Property;
  */
 public class ExtractedJavaProjectProperties extends SourceProjectProperties {
   public Property<Boolean> EXTRACTED = new BooleanProperty("extracted", this);
+  public Property<Boolean> EXTRACTION_CRASHED = new BooleanProperty("extraction-crashed", this);
   
   public ExtractedJavaProjectProperties(RepoFile file) {
     super(file);
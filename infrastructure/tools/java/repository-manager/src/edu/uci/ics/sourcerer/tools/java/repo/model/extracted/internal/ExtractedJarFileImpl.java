@@ -78,9 +78,9 @@ public class ExtractedJarFileImpl implements ModifiableExtractedJarFile, IJar {
       zos.setMethod(ZipOutputStream.DEFLATED);
       zos.setLevel(9);
       
-      // Look at the files in the directory, and only compress those that end in .txt
+      // Look at the files in the directory, and only compress those that end in .txt, .bin or .xml
       for (File file : dir.toFile().listFiles()) {
-        if (file.isFile() && (file.getName().endsWith(".txt") || file.getName().endsWith(".xml"))) {
+        if (file.isFile() && (file.getName().endsWith(".txt") || file.getName().endsWith(".bin") || file.getName().endsWith(".xml"))) {
           ZipEntry entry = new ZipEntry(file.getName());
           zos.putNextEntry(entry);
           FileUtils.writeFileToStream(file, zos);
@@ -69,9 +69,9 @@ class ExtractedJavaProjectImpl extends AbstractRepoProject<ExtractedJavaReposito
       zos.setMethod(ZipOutputStream.DEFLATED);
       zos.setLevel(9);
       
-      // Look at the files in the directory, and only compress those that end in .txt or .xml
+      // Look at the files in the directory, and only compress those that end in .txt, .bin or .xml
       for (File file : loc.getProjectRoot().toFile().listFiles()) {
-        if (file.isFile() && (file.getName().endsWith(".txt") || file.getName().endsWith(".xml"))) {
+        if (file.isFile() && (file.getName().endsWith(".txt") || file.getName().endsWith(".bin") || file.getName().endsWith(".xml"))) {
           ZipEntry entry = new ZipEntry(file.getName());
           zos.putNextEntry(entry);
           FileUtils.writeFileToStream(file, zos);
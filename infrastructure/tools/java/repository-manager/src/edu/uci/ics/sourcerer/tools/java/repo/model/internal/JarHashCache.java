@@ -0,0 +1,221 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.repo.model.internal;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.core.repo.model.RepoFile;
+import edu.uci.ics.sourcerer.tools.core.repo.model.internal.AbstractRepository;
+import edu.uci.ics.sourcerer.tools.core.repo.model.internal.RepoFileImpl;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+
+/**
+ * Remembers the MD5 of every jar hashed in the repository, keyed by its
+ * relative path, size and modification time. New hashes are appended one
+ * line at a time under a lock on a separate lock file, so several processes
+ * can share the cache; when entries are read the last line for a path wins.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class JarHashCache {
+  public static final Argument<String> HASH_CACHE = new StringArgument("jar-hash-cache-file", "jar-hash-cache.txt", "File caching the hashes of the repository's jars.").permit();
+  
+  private final RepoFileImpl cacheFile;
+  private final Map<String, Entry> entries;
+  private int lines;
+  
+  private int hits;
+  private int misses;
+  
+  private static final class Entry {
+    private final long size;
+    private final long modified;
+    private final String hash;
+    
+    private Entry(long size, long modified, String hash) {
+      this.size = size;
+      this.modified = modified;
+      this.hash = hash;
+    }
+  }
+  
+  private JarHashCache(RepoFileImpl cacheFile) {
+    this.cacheFile = cacheFile;
+    entries = new HashMap<>();
+  }
+  
+  static JarHashCache load(RepoFileImpl repoRoot) {
+    JarHashCache cache = new JarHashCache(repoRoot.getChild(HASH_CACHE));
+    if (AbstractRepository.CLEAR_CACHES.getValue()) {
+      cache.cacheFile.delete();
+    } else if (cache.cacheFile.exists()) {
+      cache.read();
+      // Rewrite the file if most of it is superseded lines
+      if (cache.lines > 1000 && cache.lines > 2 * cache.entries.size()) {
+        cache.compact();
+      }
+    }
+    return cache;
+  }
+  
+  private void read() {
+    try (BufferedReader br = new BufferedReader(new InputStreamReader(Files.newInputStream(cacheFile.toFile().toPath()), StandardCharsets.UTF_8))) {
+      for (String line = br.readLine(); line != null; line = br.readLine()) {
+        lines++;
+        // hash size modified path
+        String[] parts = line.split("\t", 4);
+        if (parts.length == 4) {
+          try {
+            entries.put(parts[3], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[0]));
+          } catch (NumberFormatException e) {
+            // Skip lines torn by a crashed writer
+          }
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to read jar hash cache: " + cacheFile, e);
+    }
+  }
+  
+  /**
+   * Locks the file next to the cache. The cache itself is replaced when
+   * compacted, so locking it would not stop writers that opened the old one.
+   * Release the lock by closing its channel.
+   */
+  private FileLock lock() throws IOException {
+    Path lockFile = cacheFile.toFile().toPath().resolveSibling(cacheFile.getName() + ".lock");
+    FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    try {
+      return channel.lock();
+    } catch (IOException e) {
+      IOUtils.close(channel);
+      throw e;
+    }
+  }
+  
+  /**
+   * Writes the compacted cache to a temp file and moves it over the cache
+   * while holding the lock, so a crash leaves either the old file or the
+   * new one.
+   */
+  private void compact() {
+    Path path = cacheFile.toFile().toPath();
+    Path temp = path.resolveSibling(cacheFile.getName() + ".tmp");
+    FileLock lock = null;
+    try {
+      lock = lock();
+      // Pick up anything appended by other processes since the first read
+      lines = 0;
+      read();
+      StringBuilder builder = new StringBuilder();
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        append(builder, entry.getKey(), entry.getValue());
+      }
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(false);
+      }
+      Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      lines = entries.size();
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to compact jar hash cache: " + cacheFile, e);
+      temp.toFile().delete();
+    } finally {
+      if (lock != null) {
+        IOUtils.close(lock.channel());
+      }
+    }
+  }
+  
+  private static void append(StringBuilder builder, String path, Entry entry) {
+    builder.append(entry.hash).append('\t').append(entry.size).append('\t').append(entry.modified).append('\t').append(path).append('\n');
+  }
+  
+  /**
+   * Returns the MD5 of <code>file</code>, only hashing it if it has changed
+   * since it was last hashed.
+   */
+  synchronized String getHash(RepoFile file) {
+    File f = file.toFile();
+    String path = file.getRelativePath().toString();
+    long size = f.length();
+    long modified = f.lastModified();
+    
+    Entry entry = entries.get(path);
+    if (entry != null && entry.size == size && entry.modified == modified) {
+      hits++;
+      return entry.hash;
+    }
+    
+    misses++;
+    String hash = FileUtils.computeHash(f);
+    if (hash != null) {
+      entry = new Entry(size, modified, hash);
+      entries.put(path, entry);
+      
+      StringBuilder builder = new StringBuilder();
+      append(builder, path, entry);
+      FileLock lock = null;
+      try {
+        lock = lock();
+        // Opened under the lock, so it is never a file compact has replaced
+        try (FileChannel channel = FileChannel.open(cacheFile.toFile().toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+          channel.write(ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        lines++;
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Unable to update jar hash cache: " + cacheFile, e);
+      } finally {
+        if (lock != null) {
+          IOUtils.close(lock.channel());
+        }
+      }
+    }
+    return hash;
+  }
+  
+  synchronized int getHits() {
+    return hits;
+  }
+  
+  synchronized int getMisses() {
+    return misses;
+  }
+}
@@ -26,6 +26,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 
@@ -33,6 +34,7 @@ import edu.uci.ics.sourcerer.tools.core.repo.model.ContentFile;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.AbstractFileSet;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.AbstractRepository;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.ContentFileImpl;
+import edu.uci.ics.sourcerer.tools.core.repo.model.internal.ParallelScanner;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaFile;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaFileSet;
@@ -96,8 +98,16 @@ public class JavaFileSetImpl extends AbstractFileSet implements JavaFileSet {
     super.populateFileSet();
     if (AbstractRepository.CLEAR_CACHES.getValue() || !cache.exists() || !readCache()) {
       Map<String, Collection<JavaFileImpl>> map = new HashMap<>();
-      for (ContentFileImpl file : javaFiles) {
-        String pkg = PackageExtractor.extractPackage(file.getFile().toFile());
+      List<ContentFileImpl> sources = new ArrayList<>(javaFiles);
+      List<String> pkgs = ParallelScanner.map(sources, new ParallelScanner.Mapper<ContentFileImpl, String>() {
+        @Override
+        public String map(ContentFileImpl file) {
+          return PackageExtractor.extractPackage(file.getFile().toFile());
+        }
+      });
+      for (int i = 0; i < sources.size(); i++) {
+        ContentFileImpl file = sources.get(i);
+        String pkg = pkgs.get(i);
         if (pkg != null) {
           String key = pkg + file.getFile().getName();
           Collection<JavaFileImpl> files = map.get(key);
@@ -86,9 +86,13 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
   
   private boolean aggregating = false;
   private Map<String, Collection<ContentFile>> aggregationMap;
+  private JarHashCache hashCache;
   
   public JarFileImpl getJarFile(ContentFile file) {
-    String hash = FileUtils.computeHash(file.getFile().toFile());
+    if (hashCache == null) {
+      hashCache = JarHashCache.load(repoRoot);
+    }
+    String hash = hashCache.getHash(file.getFile());
     if (hash == null) {
       return null;
     }
@@ -132,6 +136,9 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
       task.progress();
       project.getContent().init(true, false);
     }
+    if (hashCache != null) {
+      task.report(hashCache.getHits() + " jar hashes reused, " + hashCache.getMisses() + " computed");
+    }
     task.finish();
     
     RepoFileImpl projectDir = repoRoot.getChild(JARS_DIRECTORY).getChild(PROJECT_JARS_DIRECTORY);
@@ -0,0 +1,320 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+
+/**
+ * Bounded pool of database accessors. Each accessor is held by at most one
+ * thread at a time, so the prepared statements it caches are never shared.
+ * Idle accessors are closed after a timeout, and ones that have sat idle
+ * are checked before being handed out again.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class DatabaseAccessorPool<T extends Closeable> {
+  public static final Argument<Integer> POOL_SIZE = new IntegerArgument("db-pool-size", 8, "Maximum number of pooled database accessors.").permit();
+  public static final Argument<Integer> POOL_WAIT_TIMEOUT = new IntegerArgument("db-pool-wait-timeout", 30 * 1000, "Milliseconds to wait for a pooled database accessor.").permit();
+  public static final Argument<Integer> POOL_IDLE_TIMEOUT = new IntegerArgument("db-pool-idle-timeout", 10 * 60 * 1000, "Milliseconds before an idle pooled database accessor is closed.").permit();
+  public static final Argument<Integer> POOL_VALIDATE_AFTER = new IntegerArgument("db-pool-validate-after", 30 * 1000, "Milliseconds of idleness after which a pooled database accessor is checked before use.").permit();
+  
+  private final Instantiator<T> instantiator;
+  private final int size;
+  private final long waitTimeout;
+  private final long idleTimeout;
+  private final long validateAfter;
+  
+  private final Semaphore available;
+  private final Deque<Idle> idle;
+  private final Map<T, Long> borrowed;
+  private Timer timer;
+  
+  private final long startTime;
+  private long created;
+  private long evicted;
+  private long invalid;
+  private long acquired;
+  private long timeouts;
+  private long totalWait;
+  private long maxWait;
+  private long busyTime;
+  private int peak;
+  
+  private class Idle {
+    private final T accessor;
+    private final long since;
+    
+    private Idle(T accessor) {
+      this.accessor = accessor;
+      this.since = System.currentTimeMillis();
+    }
+  }
+  
+  private DatabaseAccessorPool(Instantiator<T> instantiator) {
+    this.instantiator = instantiator;
+    size = POOL_SIZE.getValue();
+    waitTimeout = POOL_WAIT_TIMEOUT.getValue();
+    idleTimeout = POOL_IDLE_TIMEOUT.getValue();
+    validateAfter = POOL_VALIDATE_AFTER.getValue();
+    available = new Semaphore(size, true);
+    idle = new ArrayDeque<>();
+    borrowed = new IdentityHashMap<>();
+    startTime = System.nanoTime();
+  }
+  
+  public static <T extends Closeable> DatabaseAccessorPool<T> create(Instantiator<T> instantiator) {
+    return new DatabaseAccessorPool<>(instantiator);
+  }
+  
+  /**
+   * Returns an accessor for the exclusive use of the calling thread, or
+   * null if none could be obtained. It must be given back with
+   * <code>release</code>.
+   */
+  public T acquire() {
+    long start = System.nanoTime();
+    try {
+      if (!available.tryAcquire(waitTimeout, TimeUnit.MILLISECONDS)) {
+        synchronized (this) {
+          timeouts++;
+        }
+        logger.severe("Timed out waiting for a database accessor: " + toString());
+        return null;
+      }
+    } catch (InterruptedException e) {
+      logger.log(Level.SEVERE, "Interrupted waiting for a database accessor", e);
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    
+    T accessor = null;
+    try {
+      // Reuse the most recently released accessor
+      while (accessor == null) {
+        Idle next = null;
+        synchronized (this) {
+          next = idle.pollLast();
+        }
+        if (next == null) {
+          break;
+        } else if (System.currentTimeMillis() - next.since < validateAfter || instantiator.isValid(next.accessor)) {
+          accessor = next.accessor;
+        } else {
+          synchronized (this) {
+            invalid++;
+          }
+          IOUtils.close(next.accessor);
+        }
+      }
+      if (accessor == null) {
+        accessor = instantiator.create();
+        if (accessor == null) {
+          return null;
+        }
+        synchronized (this) {
+          created++;
+        }
+      }
+    } finally {
+      if (accessor == null) {
+        available.release();
+      }
+    }
+    
+    long now = System.nanoTime();
+    synchronized (this) {
+      long wait = now - start;
+      acquired++;
+      totalWait += wait;
+      maxWait = Math.max(maxWait, wait);
+      borrowed.put(accessor, now);
+      peak = Math.max(peak, borrowed.size());
+      scheduleEviction();
+    }
+    return accessor;
+  }
+  
+  /**
+   * Returns an accessor to the pool.
+   */
+  public void release(T accessor) {
+    if (accessor != null) {
+      synchronized (this) {
+        Long since = borrowed.remove(accessor);
+        if (since == null) {
+          logger.severe("Releasing an accessor that was not acquired from this pool");
+          return;
+        }
+        busyTime += System.nanoTime() - since;
+        idle.addLast(new Idle(accessor));
+      }
+      available.release();
+    }
+  }
+  
+  /**
+   * Closes an accessor that has failed rather than returning it to the pool.
+   */
+  public void invalidate(T accessor) {
+    if (accessor != null) {
+      synchronized (this) {
+        Long since = borrowed.remove(accessor);
+        if (since == null) {
+          logger.severe("Invalidating an accessor that was not acquired from this pool");
+          return;
+        }
+        busyTime += System.nanoTime() - since;
+        invalid++;
+      }
+      IOUtils.close(accessor);
+      available.release();
+    }
+  }
+  
+  private void scheduleEviction() {
+    if (timer == null) {
+      timer = new Timer("db-accessor-pool", true);
+      timer.schedule(new TimerTask() {
+        @Override
+        public void run() {
+          evictIdle(idleTimeout);
+        }
+      }, idleTimeout, idleTimeout);
+    }
+  }
+  
+  private void evictIdle(long timeout) {
+    Deque<T> toClose = new ArrayDeque<>();
+    synchronized (this) {
+      long now = System.currentTimeMillis();
+      for (Iterator<Idle> iter = idle.iterator(); iter.hasNext();) {
+        Idle next = iter.next();
+        if (now - next.since >= timeout) {
+          iter.remove();
+          toClose.add(next.accessor);
+          evicted++;
+        }
+      }
+    }
+    if (!toClose.isEmpty()) {
+      logger.info("Closing " + toClose.size() + " idle database accessors");
+      for (T accessor : toClose) {
+        IOUtils.close(accessor);
+      }
+    }
+  }
+  
+  /**
+   * Closes every idle accessor. Accessors that are still in use are closed
+   * by their holders.
+   */
+  public void destroy() {
+    synchronized (this) {
+      if (timer != null) {
+        timer.cancel();
+        timer = null;
+      }
+    }
+    evictIdle(0);
+  }
+  
+  public synchronized int getSize() {
+    return size;
+  }
+  
+  public synchronized int getActive() {
+    return borrowed.size();
+  }
+  
+  public synchronized int getIdle() {
+    return idle.size();
+  }
+  
+  public synchronized int getPeakActive() {
+    return peak;
+  }
+  
+  public synchronized long getAcquireCount() {
+    return acquired;
+  }
+  
+  public synchronized long getTimeoutCount() {
+    return timeouts;
+  }
+  
+  /**
+   * Mean time spent waiting for an accessor, in milliseconds.
+   */
+  public synchronized double getAverageWait() {
+    return acquired == 0 ? 0 : totalWait / (acquired * 1e6);
+  }
+  
+  /**
+   * Longest time spent waiting for an accessor, in milliseconds.
+   */
+  public synchronized double getMaxWait() {
+    return maxWait / 1e6;
+  }
+  
+  /**
+   * Fraction of the pool's capacity that has been in use since it was
+   * created.
+   */
+  public synchronized double getUtilization() {
+    long busy = busyTime;
+    long now = System.nanoTime();
+    for (Long since : borrowed.values()) {
+      busy += now - since;
+    }
+    return (double) busy / ((now - startTime) * (double) size);
+  }
+  
+  @Override
+  public synchronized String toString() {
+    return String.format("active %d/%d (peak %d), idle %d, created %d, evicted %d, invalid %d, acquired %d, timeouts %d, wait avg %.2fms max %.2fms, utilization %.1f%%",
+        borrowed.size(), size, peak, idle.size(), created, evicted, invalid, acquired, timeouts, getAverageWait(), getMaxWait(), 100 * getUtilization());
+  }
+  
+  public static interface Instantiator <T extends Closeable> {
+    /**
+     * Returns a new accessor, or null if one could not be created.
+     */
+    public T create();
+    
+    /**
+     * Checks that an accessor that has been idle is still usable.
+     */
+    public boolean isValid(T accessor);
+  }
+}
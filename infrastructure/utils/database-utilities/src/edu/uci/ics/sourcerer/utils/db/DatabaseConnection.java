@@ -25,6 +25,7 @@ import java.io.Closeable;
 public interface DatabaseConnection extends Closeable {
   public boolean open();
   public void close();
+  public boolean isValid();
   
   public QueryExecutor getExecutor();
 }
@@ -18,6 +18,8 @@
 package edu.uci.ics.sourcerer.utils.db;
 
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
 import edu.uci.ics.sourcerer.utils.db.internal.InternalDatabaseConnectionFactory;
 
@@ -28,6 +30,10 @@ public abstract class DatabaseConnectionFactory {
   public static final Argument<String> DATABASE_URL = new StringArgument("database-url", "Url of the database.");
   public static final Argument<String> DATABASE_USER = new StringArgument("database-user", "Database user account to use when connecting.");
   public static final Argument<String> DATABASE_PASSWORD = new StringArgument("database-password", null, "Password for the user account.");
+  public static final Argument<Boolean> STREAMING_INSERTS = new BooleanArgument("streaming-inserts", false, "Stream batched inserts to the database rather than staging them in temp files.").permit();
+  public static final Argument<Integer> INSERT_BATCH_SIZE = new IntegerArgument("insert-batch-size", 1000, "Maximum number of rows per streamed insert statement.").permit();
+  public static final Argument<Integer> INSERT_BATCH_BYTES = new IntegerArgument("insert-batch-bytes", 512 * 1024, "Maximum size of a streamed insert statement (must stay under max_allowed_packet).").permit();
+  public static final Argument<Integer> INSERT_QUEUE_SIZE = new IntegerArgument("insert-queue-size", 4, "Number of streamed insert statements that may be pending before adding rows blocks.").permit();
   
   public static final DatabaseConnectionFactory INSTANCE = new InternalDatabaseConnectionFactory();
   
@@ -33,6 +33,8 @@ import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
 public interface QueryExecutor extends Closeable {
   public TableLocker getTableLocker();
   public BatchInserter makeInFileInserter(File tempDir, DatabaseTable table);
+  public BatchInserter makeStreamingInserter(DatabaseTable table);
+  public BatchInserter makeBatchInserter(File tempDir, DatabaseTable table);
 
   // Raw Updates
   public void executeUpdate(String sql);
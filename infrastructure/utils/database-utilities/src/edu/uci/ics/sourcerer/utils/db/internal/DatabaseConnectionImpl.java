@@ -59,6 +59,16 @@ class DatabaseConnectionImpl implements DatabaseConnection {
     }
   }
   
+  @Override
+  public boolean isValid() {
+    try {
+      return connection != null && connection.isValid(5);
+    } catch (SQLException e) {
+      logger.log(Level.SEVERE, "Exception validating connection", e);
+      return false;
+    }
+  }
+  
   @Override
   public QueryExecutor getExecutor() {
     if (connection == null) {
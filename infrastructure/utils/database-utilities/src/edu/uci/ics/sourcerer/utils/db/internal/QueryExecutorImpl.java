@@ -26,6 +26,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.logging.Level;
 
+import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
 import edu.uci.ics.sourcerer.utils.db.Insert;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
 import edu.uci.ics.sourcerer.utils.db.BatchInserter;
@@ -102,6 +103,29 @@ class QueryExecutorImpl implements QueryExecutor {
     return InFileInserter.makeInFileInserter(tempDir, this, table);
   }
   
+  @Override
+  public BatchInserter makeStreamingInserter(DatabaseTable table) {
+    return StreamingInserter.makeStreamingInserter(this, table);
+  }
+  
+  @Override
+  public BatchInserter makeBatchInserter(File tempDir, DatabaseTable table) {
+    if (DatabaseConnectionFactory.STREAMING_INSERTS.getValue()) {
+      return makeStreamingInserter(table);
+    } else {
+      return makeInFileInserter(tempDir, table);
+    }
+  }
+  
+  java.sql.Statement createStatement() {
+    try {
+      return connection.createStatement();
+    } catch (SQLException e) {
+      logger.log(Level.SEVERE, "Unable to create statement", e);
+      return null;
+    }
+  }
+  
   PreparedStatement prepareStatement(String sql) {
     try {
       return connection.prepareStatement(sql);
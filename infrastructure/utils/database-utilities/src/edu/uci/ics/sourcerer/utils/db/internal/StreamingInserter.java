@@ -0,0 +1,184 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+
+/**
+ * Groups inserts into multi-row INSERT statements that a loader thread
+ * issues while further rows are still being added. Once the queue of
+ * pending statements is full, addInsert blocks until the loader catches up.
+ * If the loader stops early, the blocked or next call throws instead.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class StreamingInserter implements BatchInserter {
+  private static final String DONE = new String();
+  
+  private final QueryExecutorImpl executor;
+  private final String tableName;
+  private final String prefix;
+  private final int batchSize;
+  private final int batchBytes;
+  private final BlockingQueue<String> queue;
+  
+  private StringBuilder batch;
+  private int rows;
+  private Thread loader;
+  private volatile boolean stopped;
+  private boolean closed;
+  
+  private StreamingInserter(QueryExecutorImpl executor, DatabaseTable table) {
+    this.executor = executor;
+    tableName = table.getName();
+    prefix = "INSERT INTO " + tableName + " VALUES ";
+    batchSize = Math.max(1, DatabaseConnectionFactory.INSERT_BATCH_SIZE.getValue());
+    batchBytes = Math.max(1, DatabaseConnectionFactory.INSERT_BATCH_BYTES.getValue());
+    queue = new ArrayBlockingQueue<>(Math.max(1, DatabaseConnectionFactory.INSERT_QUEUE_SIZE.getValue()));
+  }
+  
+  static StreamingInserter makeStreamingInserter(QueryExecutorImpl executor, DatabaseTable table) {
+    return new StreamingInserter(executor, table);
+  }
+  
+  @Override
+  public void addInsert(Insert insert) {
+    if (closed) {
+      throw new IllegalStateException("Inserter already used");
+    }
+    if (batch == null) {
+      batch = new StringBuilder(prefix);
+    } else {
+      batch.append(',');
+    }
+    batch.append(insert.toString());
+    if (++rows >= batchSize || batch.length() >= batchBytes) {
+      enqueue();
+    }
+  }
+  
+  @Override
+  public void insert() {
+    if (closed) {
+      throw new IllegalStateException("Inserter already used");
+    }
+    closed = true;
+    if (loader == null) {
+      // Everything fit in one statement, so skip the loader
+      if (batch != null) {
+        Statement statement = executor.createStatement();
+        load(statement, batch.toString());
+        close(statement);
+        batch = null;
+      }
+    } else {
+      enqueue();
+      put(DONE);
+      try {
+        loader.join();
+      } catch (InterruptedException e) {
+        logger.log(Level.SEVERE, "Interrupted waiting for loader", e);
+        Thread.currentThread().interrupt();
+      }
+      checkLoader();
+    }
+  }
+  
+  private void enqueue() {
+    if (batch != null) {
+      if (loader == null) {
+        loader = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            Statement statement = executor.createStatement();
+            boolean done = false;
+            try {
+              for (String sql = queue.take(); sql != DONE; sql = queue.take()) {
+                load(statement, sql);
+              }
+              done = true;
+            } catch (InterruptedException e) {
+              logger.log(Level.SEVERE, "Loader interrupted", e);
+            } finally {
+              if (!done) {
+                // Let the producer fail rather than wait on a full queue
+                stopped = true;
+                queue.clear();
+              }
+              close(statement);
+            }
+          }
+        }, Thread.currentThread().getName() + "-loader");
+        loader.start();
+      }
+      put(batch.toString());
+      batch = null;
+      rows = 0;
+    }
+  }
+  
+  private void put(String sql) {
+    checkLoader();
+    try {
+      while (!queue.offer(sql, 1, TimeUnit.SECONDS)) {
+        checkLoader();
+      }
+    } catch (InterruptedException e) {
+      logger.log(Level.SEVERE, "Interrupted waiting for loader", e);
+      Thread.currentThread().interrupt();
+    }
+  }
+  
+  private void checkLoader() {
+    if (stopped) {
+      throw new IllegalStateException("Loader for " + tableName + " stopped early, so inserts were lost");
+    }
+  }
+  
+  private static void load(Statement statement, String sql) {
+    if (statement != null) {
+      try {
+        statement.executeUpdate(sql);
+      } catch (SQLException e) {
+        logger.log(Level.SEVERE, "Error in batch insert", e);
+      }
+    }
+  }
+  
+  private static void close(Statement statement) {
+    if (statement != null) {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        logger.log(Level.SEVERE, "Unable to close statement", e);
+      }
+    }
+  }
+}
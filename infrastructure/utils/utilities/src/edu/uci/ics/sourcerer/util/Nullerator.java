@@ -30,7 +30,7 @@ public class Nullerator<T> {
   private final String message;
   private Iterator<? extends T> iterator;
   
-  private Nullerator(Iterable<? extends T> iterable, String message) {
+  protected Nullerator(Iterable<? extends T> iterable, String message) {
     this.task = TaskProgressLogger.get();
     this.message = message;
     if (iterable != null) {
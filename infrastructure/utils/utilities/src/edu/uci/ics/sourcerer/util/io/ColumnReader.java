@@ -0,0 +1,37 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads rows written by a {@link ColumnWriter}. Values must be read
+ * in the same order as they were written.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public interface ColumnReader extends Closeable {
+  public String getName();
+  public int getColumnCount();
+  public boolean nextRow() throws IOException;
+  public String readString(int column);
+  public int readInt(int column);
+  public Integer readInteger(int column);
+  public double readDouble(int column);
+}
@@ -0,0 +1,42 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes rows in the binary columnar format read by {@link ColumnReader}.
+ * 
+ * Rows are buffered into blocks, and each block is written one column
+ * at a time. Strings are replaced by indices into a dictionary that is
+ * written incrementally alongside the blocks.
+ * 
+ * Every row must write its columns in the same order, and must be
+ * terminated by a call to {@link #endRow()}.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public interface ColumnWriter extends Closeable {
+  public void writeString(int column, String value);
+  public void writeInt(int column, int value);
+  public void writeInteger(int column, Integer value);
+  public void writeDouble(int column, double value);
+  public void endRow() throws IOException;
+  public void flush() throws IOException;
+}
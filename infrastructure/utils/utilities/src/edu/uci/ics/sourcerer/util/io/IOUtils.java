@@ -28,6 +28,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -36,6 +37,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.logging.Level;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
@@ -129,6 +131,18 @@ public final class IOUtils {
     return IOUtilFactory.makeSimpleDeserializer(file);
   }
   
+  public static ColumnWriter makeColumnWriter(File file, String name, int columnCount) throws IOException {
+    return IOUtilFactory.makeColumnWriter(file, name, columnCount);
+  }
+  
+  public static ColumnReader makeColumnReader(File file) throws IOException {
+    return IOUtilFactory.makeColumnReader(file);
+  }
+  
+  public static ColumnReader makeColumnReader(InputStream is) throws IOException {
+    return IOUtilFactory.createColumnReader(is);
+  }
+  
   /**
    * If the iterable is never read to completion, the file will remain open.
    */
@@ -153,6 +167,38 @@ public final class IOUtils {
     }
   }
   
+  /**
+   * Streams the entry straight from the zip rather than loading it. If the
+   * iterable is never read to completion, the zip will remain open.
+   */
+  public static <T extends SimpleSerializable> Iterable<T> deserialize(Class<T> klass, File zip, String entryName, boolean trans) throws IOException {
+    final ZipFile zipFile = new ZipFile(zip);
+    try {
+      ZipEntry entry = zipFile.getEntry(entryName);
+      if (entry == null) {
+        logger.severe("Unable to locate entry " + entryName + " in " + zip.getPath());
+        zipFile.close();
+        return Collections.emptyList();
+      } else {
+        // Closing the entry closes the zip along with it
+        InputStream is = new FilterInputStream(zipFile.getInputStream(entry)) {
+          @Override
+          public void close() throws IOException {
+            try {
+              super.close();
+            } finally {
+              zipFile.close();
+            }
+          }
+        };
+        return IOUtilFactory.createSimpleDeserializer(is).deserializeToIterable(klass, true, trans);
+      }
+    } catch (IOException | RuntimeException e) {
+      close(zipFile);
+      throw e;
+    }
+  }
+  
   /**
    * If the iterable is never read to completion, the file will remain open.
    */
@@ -19,9 +19,10 @@ package edu.uci.ics.sourcerer.util.io;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.logging.Level;
 
 /**
@@ -37,53 +38,60 @@ public class PackageExtractor {
     IN_PACKAGE;
   };
   
+  private static final int BUFFER_SIZE = 2048;
+  
   public static String extractPackage(File file) {
-    try (BufferedReader br = IOUtils.createBufferedReader(file)) {
+    // Read in bulk, as the declaration is almost always within the first block
+    try (Reader reader = new FileReader(file)) {
+      char[] buff = new char[BUFFER_SIZE];
       StringBuilder word = new StringBuilder();
       State state = State.START;
-      for (int next = br.read(); next != -1; next = br.read()) {
-        if (state == State.START) {
-          if (next == '/') {
-            state = State.SLASH;
-          } else if (next == '{') {
-            return "";
-          } else if (Character.isLetterOrDigit(next)) {
-            word.append((char) next);
-          } else if (word.length() > 0) {
-            if (word.toString().equals("package")) {
-              state = State.IN_PACKAGE;
+      for (int read = reader.read(buff); read != -1; read = reader.read(buff)) {
+        for (int i = 0; i < read; i++) {
+          char next = buff[i];
+          if (state == State.START) {
+            if (next == '/') {
+              state = State.SLASH;
+            } else if (next == '{') {
+              return "";
+            } else if (Character.isLetterOrDigit(next)) {
+              word.append(next);
+            } else if (word.length() > 0) {
+              if (word.toString().equals("package")) {
+                state = State.IN_PACKAGE;
+              }
+              word.setLength(0);
+            }
+          } else if (state == State.SLASH) {
+            if (next == '/') {
+              state = State.IN_LINE_COMMENT;
+            } else if (next == '*') {
+              state = State.IN_BLOCK_COMMENT;
+            } else {
+              state = State.START;
+            }
+          } else if (state == State.IN_LINE_COMMENT) {
+            if (next == '\r' || next == '\n') {
+              state = State.START;
+            }
+          } else if (state == State.IN_BLOCK_COMMENT) {
+            if (next == '*') {
+              state = State.IN_BLOCK_COMMENT_STAR;
+            }
+          } else if (state == State.IN_BLOCK_COMMENT_STAR) {
+            if (next == '/') {
+              state = State.START;
+            } else if (next != '*') {
+              state = State.IN_BLOCK_COMMENT;
+            }
+          } else if (state == State.IN_PACKAGE) {
+            if (next == ';') {
+              return word.toString();
+            } else if (Character.isJavaIdentifierPart(next) || next == '.') {
+              word.append(next);
+            } else if (!Character.isWhitespace(next)) {
+              return null;
             }
-            word.setLength(0);
-          }
-        } else if (state == State.SLASH) {
-          if (next == '/') {
-            state = State.IN_LINE_COMMENT;
-          } else if (next == '*') {
-            state = State.IN_BLOCK_COMMENT;
-          } else {
-            state = State.START;
-          }
-        } else if (state == State.IN_LINE_COMMENT) {
-          if (next == '\r' || next == '\n') {
-            state = State.START;
-          }
-        } else if (state == State.IN_BLOCK_COMMENT) {
-          if (next == '*') {
-            state = State.IN_BLOCK_COMMENT_STAR;
-          }
-        } else if (state == State.IN_BLOCK_COMMENT_STAR) {
-          if (next == '/') {
-            state = State.START;
-          } else if (next != '*') {
-            state = State.IN_BLOCK_COMMENT;
-          }
-        } else if (state == State.IN_PACKAGE) {
-          if (next == ';') {
-            return word.toString();
-          } else if (Character.isJavaIdentifierPart(next) || next == '.') {
-            word.append((char) next);
-          } else if (!Character.isWhitespace(next)) {
-            return null;
           }
         }
       }
@@ -0,0 +1,90 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Reads a file written by {@link StringDictionaryWriter}. The whole file
+ * is loaded with a single read, and decoded from memory.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class StringDictionaryReader {
+  private final String[] strings;
+  private final DataInputStream body;
+  
+  private StringDictionaryReader(String[] strings, DataInputStream body) {
+    this.strings = strings;
+    this.body = body;
+  }
+  
+  public static StringDictionaryReader create(File file) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+    if (in.readInt() != StringDictionaryWriter.MAGIC) {
+      throw new InvalidFileFormatException("Not a string dictionary file: " + file.getPath());
+    }
+    String[] strings = new String[in.readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = in.readUTF();
+    }
+    int length = in.readInt();
+    if (length != in.available()) {
+      throw new InvalidFileFormatException("Expected " + length + " bytes of content, found " + in.available());
+    }
+    return new StringDictionaryReader(strings, in);
+  }
+  
+  public int readInt() throws IOException {
+    return body.readInt();
+  }
+  
+  public long readLong() throws IOException {
+    return body.readLong();
+  }
+  
+  public String readString() throws IOException {
+    int id = body.readInt();
+    if (id == -1) {
+      return null;
+    } else if (id < 0 || id >= strings.length) {
+      throw new InvalidFileFormatException("Invalid string id: " + id);
+    } else {
+      return strings[id];
+    }
+  }
+  
+  public String[] readStrings() throws IOException {
+    String[] values = new String[body.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = readString();
+    }
+    return values;
+  }
+  
+  /**
+   * Has all of the content been read?
+   */
+  public boolean isFinished() throws IOException {
+    return body.available() == 0;
+  }
+}
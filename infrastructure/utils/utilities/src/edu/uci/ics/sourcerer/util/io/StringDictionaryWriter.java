@@ -0,0 +1,105 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a compact binary file made up of ints, longs and strings. Each
+ * distinct string is stored once, in a dictionary at the head of the file,
+ * and referenced everywhere else by its index. Read back with
+ * {@link StringDictionaryReader}.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class StringDictionaryWriter {
+  static final int MAGIC = 0x53444331;
+  
+  private final Map<String, Integer> ids;
+  private final List<String> strings;
+  private final ByteArrayOutputStream bytes;
+  private final DataOutputStream body;
+  
+  private StringDictionaryWriter() {
+    ids = new HashMap<>();
+    strings = new ArrayList<>();
+    bytes = new ByteArrayOutputStream(1 << 16);
+    body = new DataOutputStream(bytes);
+  }
+  
+  public static StringDictionaryWriter create() {
+    return new StringDictionaryWriter();
+  }
+  
+  public void writeInt(int value) throws IOException {
+    body.writeInt(value);
+  }
+  
+  public void writeLong(long value) throws IOException {
+    body.writeLong(value);
+  }
+  
+  /**
+   * Null strings are allowed.
+   */
+  public void writeString(String value) throws IOException {
+    if (value == null) {
+      body.writeInt(-1);
+    } else {
+      Integer id = ids.get(value);
+      if (id == null) {
+        id = strings.size();
+        ids.put(value, id);
+        strings.add(value);
+      }
+      body.writeInt(id);
+    }
+  }
+  
+  public void writeStrings(String[] values) throws IOException {
+    body.writeInt(values.length);
+    for (String value : values) {
+      writeString(value);
+    }
+  }
+  
+  /**
+   * Writes the dictionary, followed by everything written so far.
+   */
+  public void save(File file) throws IOException {
+    body.flush();
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileUtils.ensureWriteable(file)), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(strings.size());
+      for (String string : strings) {
+        out.writeUTF(string);
+      }
+      out.writeInt(bytes.size());
+      bytes.writeTo(out);
+    }
+  }
+}
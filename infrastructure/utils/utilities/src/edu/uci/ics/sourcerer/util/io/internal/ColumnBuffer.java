@@ -0,0 +1,177 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.internal;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer holding a single column of a block.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class ColumnBuffer {
+  static final Charset UTF8 = Charset.forName("UTF-8");
+  
+  private byte[] bytes;
+  private int size;
+  private int pos;
+  
+  ColumnBuffer() {
+    bytes = new byte[256];
+  }
+  
+  void clear() {
+    size = 0;
+    pos = 0;
+  }
+  
+  int size() {
+    return size;
+  }
+  
+  private void ensureCapacity(int extra) {
+    if (size + extra > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + extra));
+    }
+  }
+  
+  void writeByte(int value) {
+    ensureCapacity(1);
+    bytes[size++] = (byte) value;
+  }
+  
+  void writeVarInt(int value) {
+    ensureCapacity(5);
+    while ((value & ~0x7F) != 0) {
+      bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    bytes[size++] = (byte) value;
+  }
+  
+  void writeVarLong(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    bytes[size++] = (byte) value;
+  }
+  
+  void writeInt(int value) {
+    ensureCapacity(4);
+    for (int shift = 24; shift >= 0; shift -= 8) {
+      bytes[size++] = (byte) (value >>> shift);
+    }
+  }
+  
+  void writeLong(long value) {
+    ensureCapacity(8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      bytes[size++] = (byte) (value >>> shift);
+    }
+  }
+  
+  void writeString(String value) {
+    byte[] encoded = value.getBytes(UTF8);
+    writeVarInt(encoded.length);
+    ensureCapacity(encoded.length);
+    System.arraycopy(encoded, 0, bytes, size, encoded.length);
+    size += encoded.length;
+  }
+  
+  int readVarInt() {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = bytes[pos++];
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+  
+  long readVarLong() {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = bytes[pos++];
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+  
+  long readLong() {
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (bytes[pos++] & 0xFF);
+    }
+    return value;
+  }
+  
+  String readString() {
+    int length = readVarInt();
+    String value = new String(bytes, pos, length, UTF8);
+    pos += length;
+    return value;
+  }
+  
+  void writeTo(OutputStream os) throws IOException {
+    os.write(bytes, 0, size);
+  }
+  
+  void readFrom(InputStream is, int length) throws IOException {
+    clear();
+    ensureCapacity(length);
+    while (size < length) {
+      int read = is.read(bytes, size, length - size);
+      if (read < 0) {
+        throw new EOFException("Column truncated after " + size + " of " + length + " bytes.");
+      }
+      size += read;
+    }
+  }
+  
+  static void writeVarInt(OutputStream os, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      os.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    os.write(value);
+  }
+  
+  static int readVarInt(InputStream is) throws IOException {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = is.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+}
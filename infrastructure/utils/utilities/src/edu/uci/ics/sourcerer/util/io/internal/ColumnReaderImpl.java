@@ -0,0 +1,162 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.internal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+import edu.uci.ics.sourcerer.util.io.ColumnReader;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.InvalidFileFormatException;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class ColumnReaderImpl implements ColumnReader {
+  private DataInputStream is;
+  private final String name;
+  private final ColumnBuffer[] columns;
+  private final ArrayList<String> dictionary;
+  
+  private int rows;
+  
+  private ColumnReaderImpl(DataInputStream is, String name, int columnCount) {
+    this.is = is;
+    this.name = name;
+    columns = new ColumnBuffer[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      columns[i] = new ColumnBuffer();
+    }
+    dictionary = new ArrayList<>();
+  }
+  
+  static ColumnReaderImpl create(File file) throws IOException {
+    return create(new FileInputStream(file));
+  }
+  
+  static ColumnReaderImpl create(InputStream input) throws IOException {
+    DataInputStream is = new DataInputStream(new BufferedInputStream(input));
+    try {
+      if (is.readInt() != ColumnWriterImpl.MAGIC) {
+        throw new InvalidFileFormatException("Not a column file.");
+      }
+      int version = ColumnBuffer.readVarInt(is);
+      if (version != ColumnWriterImpl.VERSION) {
+        throw new InvalidFileFormatException("Unsupported column file version: " + version);
+      }
+      String name = readString(is);
+      int columnCount = ColumnBuffer.readVarInt(is);
+      return new ColumnReaderImpl(is, name, columnCount);
+    } catch (IOException | InvalidFileFormatException e) {
+      IOUtils.close(is);
+      throw e;
+    }
+  }
+  
+  private static String readString(DataInputStream is) throws IOException {
+    byte[] bytes = new byte[ColumnBuffer.readVarInt(is)];
+    is.readFully(bytes);
+    return new String(bytes, ColumnBuffer.UTF8);
+  }
+  
+  @Override
+  public String getName() {
+    return name;
+  }
+  
+  @Override
+  public int getColumnCount() {
+    return columns.length;
+  }
+  
+  private boolean readBlock() throws IOException {
+    if (is == null) {
+      return false;
+    }
+    rows = ColumnBuffer.readVarInt(is);
+    if (rows == 0) {
+      close();
+      return false;
+    }
+    int flags = is.readUnsignedByte();
+    if ((flags & ColumnWriterImpl.RESET_DICTIONARY) != 0) {
+      dictionary.clear();
+    }
+    for (int i = ColumnBuffer.readVarInt(is); i > 0; i--) {
+      dictionary.add(readString(is));
+    }
+    for (ColumnBuffer column : columns) {
+      column.readFrom(is, ColumnBuffer.readVarInt(is));
+    }
+    return true;
+  }
+  
+  @Override
+  public boolean nextRow() throws IOException {
+    if (rows == 0 && !readBlock()) {
+      return false;
+    } else {
+      rows--;
+      return true;
+    }
+  }
+  
+  @Override
+  public String readString(int column) {
+    int index = columns[column].readVarInt();
+    if (index == 0) {
+      return null;
+    } else {
+      return dictionary.get(index - 1);
+    }
+  }
+  
+  @Override
+  public int readInt(int column) {
+    int value = columns[column].readVarInt();
+    return (value >>> 1) ^ -(value & 1);
+  }
+  
+  @Override
+  public Integer readInteger(int column) {
+    long value = columns[column].readVarLong();
+    if (value == 0) {
+      return null;
+    } else {
+      int v = (int) (value - 1);
+      return (v >>> 1) ^ -(v & 1);
+    }
+  }
+  
+  @Override
+  public double readDouble(int column) {
+    return Double.longBitsToDouble(columns[column].readLong());
+  }
+  
+  @Override
+  public void close() {
+    IOUtils.close(is);
+    is = null;
+    rows = 0;
+  }
+}
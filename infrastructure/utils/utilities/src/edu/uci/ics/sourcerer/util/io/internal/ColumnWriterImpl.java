@@ -0,0 +1,179 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.uci.ics.sourcerer.util.io.ColumnWriter;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+
+/**
+ * File layout:
+ * <pre>
+ *   magic version name columnCount
+ *   block*
+ *   0
+ * </pre>
+ * where each block is
+ * <pre>
+ *   rowCount flags newStringCount (length bytes)* (columnLength bytes)*
+ * </pre>
+ * All counts and lengths are unsigned varints. Strings are encoded as
+ * dictionary index + 1 (0 for null), ints are zigzag varints, nullable
+ * ints are zigzag varints + 1 (0 for null) and doubles are raw 8 byte values.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class ColumnWriterImpl implements ColumnWriter {
+  static final int MAGIC = 0x53524342;
+  static final int VERSION = 1;
+  static final int RESET_DICTIONARY = 0x1;
+  
+  private static final int BLOCK_SIZE = 4096;
+  private static final int DICTIONARY_LIMIT = 1 << 20;
+  
+  private OutputStream os;
+  private final ColumnBuffer[] columns;
+  private final ColumnBuffer header;
+  
+  private final Map<String, Integer> dictionary;
+  private final ArrayList<String> newStrings;
+  private boolean resetDictionary;
+  
+  private int rows;
+  
+  private ColumnWriterImpl(OutputStream os, int columnCount) {
+    this.os = os;
+    columns = new ColumnBuffer[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      columns[i] = new ColumnBuffer();
+    }
+    header = new ColumnBuffer();
+    dictionary = new HashMap<>();
+    newStrings = new ArrayList<>();
+  }
+  
+  static ColumnWriterImpl create(File file, String name, int columnCount) throws IOException {
+    ColumnWriterImpl writer = new ColumnWriterImpl(new BufferedOutputStream(new FileOutputStream(file)), columnCount);
+    writer.writeHeader(name);
+    return writer;
+  }
+  
+  private void writeHeader(String name) throws IOException {
+    header.clear();
+    header.writeInt(MAGIC);
+    header.writeVarInt(VERSION);
+    header.writeString(name);
+    header.writeVarInt(columns.length);
+    header.writeTo(os);
+  }
+  
+  @Override
+  public void writeString(int column, String value) {
+    if (value == null) {
+      columns[column].writeVarInt(0);
+    } else {
+      Integer index = dictionary.get(value);
+      if (index == null) {
+        index = dictionary.size();
+        dictionary.put(value, index);
+        newStrings.add(value);
+      }
+      columns[column].writeVarInt(index + 1);
+    }
+  }
+  
+  @Override
+  public void writeInt(int column, int value) {
+    columns[column].writeVarInt((value << 1) ^ (value >> 31));
+  }
+  
+  @Override
+  public void writeInteger(int column, Integer value) {
+    if (value == null) {
+      columns[column].writeVarLong(0);
+    } else {
+      int v = value;
+      columns[column].writeVarLong((((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL) + 1);
+    }
+  }
+  
+  @Override
+  public void writeDouble(int column, double value) {
+    columns[column].writeLong(Double.doubleToRawLongBits(value));
+  }
+  
+  @Override
+  public void endRow() throws IOException {
+    if (++rows == BLOCK_SIZE) {
+      writeBlock();
+    }
+  }
+  
+  private void writeBlock() throws IOException {
+    if (rows > 0) {
+      header.clear();
+      header.writeVarInt(rows);
+      header.writeByte(resetDictionary ? RESET_DICTIONARY : 0);
+      header.writeVarInt(newStrings.size());
+      for (String string : newStrings) {
+        header.writeString(string);
+      }
+      header.writeTo(os);
+      for (ColumnBuffer column : columns) {
+        ColumnBuffer.writeVarInt(os, column.size());
+        column.writeTo(os);
+        column.clear();
+      }
+      rows = 0;
+      newStrings.clear();
+      resetDictionary = false;
+      // Keep the dictionary from growing without bound on very large files
+      if (dictionary.size() > DICTIONARY_LIMIT) {
+        dictionary.clear();
+        resetDictionary = true;
+      }
+    }
+  }
+  
+  @Override
+  public void flush() throws IOException {
+    writeBlock();
+    os.flush();
+  }
+  
+  @Override
+  public void close() throws IOException {
+    if (os != null) {
+      try {
+        writeBlock();
+        ColumnBuffer.writeVarInt(os, 0);
+      } finally {
+        IOUtils.close(os);
+        os = null;
+      }
+    }
+  }
+}
@@ -21,6 +21,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
+import edu.uci.ics.sourcerer.util.io.ColumnReader;
+import edu.uci.ics.sourcerer.util.io.ColumnWriter;
 import edu.uci.ics.sourcerer.util.io.SimpleDeserializer;
 import edu.uci.ics.sourcerer.util.io.SimpleSerializer;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
@@ -52,4 +54,23 @@ public final class IOUtilFactory {
   public static SimpleDeserializer createSimpleDeserializer(InputStream is) throws IOException {
     return SimpleDeserializerImpl.create(is);
   }
+  
+  /**
+   * True if the line ends the current section of a simple serialized file.
+   */
+  public static boolean isFinished(String line) {
+    return SimpleSerializerImpl.isFinished(line);
+  }
+  
+  public static ColumnWriter makeColumnWriter(File file, String name, int columnCount) throws IOException {
+    return ColumnWriterImpl.create(file, name, columnCount);
+  }
+  
+  public static ColumnReader makeColumnReader(File file) throws IOException {
+    return ColumnReaderImpl.create(file);
+  }
+  
+  public static ColumnReader createColumnReader(InputStream is) throws IOException {
+    return ColumnReaderImpl.create(is);
+  }
 }
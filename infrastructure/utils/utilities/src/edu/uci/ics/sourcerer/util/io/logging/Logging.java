@@ -183,6 +183,8 @@ public final class Logging {
     try {
       mainThread = Thread.currentThread().getId();
       
+      TaskMetrics.startExporter();
+      
       boolean suppressFileLogging = SUPPRESS_FILE_LOGGING.getValue();
       
       if (suppressFileLogging && !REPORT_TO_CONSOLE.getValue()) {
@@ -322,6 +324,18 @@ public final class Logging {
   }
   
   public synchronized static void addFileLogger(File file) {
+    addFileLogger(file, -1);
+  }
+  
+  /**
+   * Like {@link #addFileLogger(File)}, but only records logged by the
+   * current thread are written to the file.
+   */
+  public synchronized static void addThreadFileLogger(File file) {
+    addFileLogger(file, Thread.currentThread().getId());
+  }
+  
+  private static void addFileLogger(File file, final long threadID) {
     if (!loggingInitialized) {
       throw new IllegalStateException("Logging must be initialized before error logs can be added.");
     } else if (handlerMap.containsKey(file)) {
@@ -334,6 +348,8 @@ public final class Logging {
         
         if (record.getLevel() == RESUME) {
           return "";
+        } else if (threadID != -1 && Thread.currentThread().getId() != threadID) {
+          return "";
         } else if (record.getLevel() == Level.INFO) {
           return Logging.formatInfo(record);
         } else {
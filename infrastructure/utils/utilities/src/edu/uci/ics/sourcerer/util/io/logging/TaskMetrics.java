@@ -0,0 +1,434 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.logging;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.FileArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+
+/**
+ * Machine-readable counters, timers and histograms behind
+ * {@link TaskProgressLogger}.
+ * 
+ * Every metric is striped by thread: each thread gets its own cell, which
+ * only that thread ever writes, so updates are plain ordered stores with no
+ * locking or contention. Cells are summed only when exported. Timers are
+ * recorded in nanoseconds.
+ * 
+ * Task names can embed project or file names, so only the first
+ * <code>--metrics-limit</code> names get their own metrics; later ones are
+ * pooled under {@link #OTHER}. Cells of threads that have finished are
+ * folded into a single row per metric so they don't pile up.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class TaskMetrics {
+  public static final Argument<File> METRICS_FILE = new FileArgument("metrics-file", "File to periodically export task metrics to, as json if it ends in .json and csv otherwise.").permit();
+  public static final Argument<Integer> METRICS_INTERVAL = new IntegerArgument("metrics-interval", 30, "Seconds between task metrics exports.").permit();
+  public static final Argument<Integer> METRICS_LIMIT = new IntegerArgument("metrics-limit", 500, "Maximum number of distinct task metrics, after which new names are pooled.").permit();
+  
+  public static final String OTHER = "(other)";
+  private static final String FINISHED = "(finished)";
+  
+  public static enum Type {
+    COUNTER,
+    TIMER,
+    HISTOGRAM;
+  }
+  
+  private static final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+  private static Thread exporter = null;
+  
+  private TaskMetrics() {}
+  
+  private static class Metric {
+    private final String name;
+    private final Type type;
+    private final Collection<Counter> cells;
+    private Row finished;
+    
+    private Metric(String name, Type type) {
+      this.name = name;
+      this.type = type;
+      this.cells = new CopyOnWriteArrayList<>();
+    }
+    
+    /**
+     * Folds the cells of dead threads into the finished row.
+     */
+    private synchronized void retire() {
+      for (Counter cell : cells) {
+        if (!cell.isLive()) {
+          if (finished == null) {
+            finished = new Row(name, type, FINISHED, cell.values.length());
+          }
+          finished.add(cell);
+          cells.remove(cell);
+        }
+      }
+    }
+  }
+  
+  /**
+   * Creates a new cell for the current thread. Callers should hold onto it
+   * rather than asking again, as {@link TaskProgressLogger} does, unless it
+   * is pooled, in which case every pooled name of a thread shares one cell.
+   */
+  static Counter createCell(String name, Type type) {
+    String key = type.name() + ":" + name;
+    Metric metric = metrics.get(key);
+    boolean pooled = false;
+    if (metric == null && metrics.size() >= METRICS_LIMIT.getValue()) {
+      pooled = true;
+      name = OTHER;
+      key = type.name() + ":" + name;
+      metric = metrics.get(key);
+    }
+    if (metric == null) {
+      metric = new Metric(name, type);
+      Metric old = metrics.putIfAbsent(key, metric);
+      if (old != null) {
+        metric = old;
+      }
+    }
+    metric.retire();
+    Thread thread = Thread.currentThread();
+    if (pooled) {
+      for (Counter cell : metric.cells) {
+        if (cell.owner.get() == thread) {
+          return cell;
+        }
+      }
+    }
+    Counter cell = null;
+    switch (type) {
+      case COUNTER: cell = new Counter(thread, 1); break;
+      case HISTOGRAM: cell = new Histogram(thread); break;
+      case TIMER: cell = new Timer(thread); break;
+    }
+    cell.pooled = pooled;
+    metric.cells.add(cell);
+    return cell;
+  }
+  
+  public static class Counter {
+    private final String thread;
+    private final WeakReference<Thread> owner;
+    protected final AtomicLongArray values;
+    private boolean pooled;
+    
+    private Counter(Thread owner, int size) {
+      this.thread = owner.getName();
+      this.owner = new WeakReference<>(owner);
+      this.values = new AtomicLongArray(size);
+    }
+    
+    boolean isPooled() {
+      return pooled;
+    }
+    
+    private boolean isLive() {
+      Thread t = owner.get();
+      return t != null && t.isAlive();
+    }
+    
+    // Single writer, so there's no need for a CAS
+    protected final void add(int index, long delta) {
+      values.lazySet(index, values.get(index) + delta);
+    }
+    
+    public void increment() {
+      add(0, 1);
+    }
+    
+    public void add(long delta) {
+      add(0, delta);
+    }
+  }
+  
+  public static class Histogram extends Counter {
+    private static final int COUNT = 0;
+    private static final int SUM = 1;
+    private static final int MAX = 2;
+    private static final int BUCKETS = 3;
+    
+    private Histogram(Thread thread) {
+      super(thread, BUCKETS + 65);
+    }
+    
+    /**
+     * Values are bucketed by powers of two.
+     */
+    public void record(long value) {
+      if (value < 0) {
+        value = 0;
+      }
+      add(COUNT, 1);
+      add(SUM, value);
+      if (value > values.get(MAX)) {
+        values.lazySet(MAX, value);
+      }
+      add(BUCKETS + 64 - Long.numberOfLeadingZeros(value), 1);
+    }
+    
+    @Override
+    public void add(long value) {
+      record(value);
+    }
+  }
+  
+  public static final class Timer extends Histogram {
+    private Timer(Thread thread) {
+      super(thread);
+    }
+    
+    public long start() {
+      return System.nanoTime();
+    }
+    
+    public void stop(long start) {
+      record(System.nanoTime() - start);
+    }
+  }
+  
+  public static synchronized void startExporter() {
+    if (METRICS_FILE.hasValue() && exporter == null) {
+      final File file = METRICS_FILE.getValue();
+      final long interval = METRICS_INTERVAL.getValue() * 1000l;
+      exporter = new Thread("metrics-exporter") {
+        @Override
+        public void run() {
+          try {
+            while (true) {
+              Thread.sleep(interval);
+              export(file);
+            }
+          } catch (InterruptedException e) {}
+        }
+      };
+      exporter.setDaemon(true);
+      exporter.start();
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        @Override
+        public void run() {
+          export(file);
+        }
+      });
+    }
+  }
+  
+  private static class Row {
+    private final String name;
+    private final Type type;
+    private final String thread;
+    private final long[] values;
+    
+    private Row(String name, Type type, String thread, int size) {
+      this.name = name;
+      this.type = type;
+      this.thread = thread;
+      this.values = new long[size];
+    }
+    
+    private void add(Counter cell) {
+      for (int i = 0; i < values.length; i++) {
+        add(i, cell.values.get(i));
+      }
+    }
+    
+    private void add(Row row) {
+      for (int i = 0; i < values.length; i++) {
+        add(i, row.values[i]);
+      }
+    }
+    
+    private void add(int i, long value) {
+      if (type != Type.COUNTER && i == Histogram.MAX) {
+        values[i] = Math.max(values[i], value);
+      } else {
+        values[i] += value;
+      }
+    }
+    
+    private long getCount() {
+      return values[0];
+    }
+    
+    private long getSum() {
+      return type == Type.COUNTER ? values[0] : values[Histogram.SUM];
+    }
+    
+    private long getMax() {
+      return type == Type.COUNTER ? 0 : values[Histogram.MAX];
+    }
+    
+    /**
+     * Upper bound of the bucket holding the given quantile.
+     */
+    private long getQuantile(double quantile) {
+      if (type == Type.COUNTER || values[Histogram.COUNT] == 0) {
+        return 0;
+      }
+      long target = (long) Math.ceil(quantile * values[Histogram.COUNT]);
+      long seen = 0;
+      for (int bucket = 0; bucket <= 64; bucket++) {
+        seen += values[Histogram.BUCKETS + bucket];
+        if (seen >= target) {
+          long bound = bucket == 64 ? Long.MAX_VALUE : (1l << bucket) - 1;
+          return Math.min(bound, values[Histogram.MAX]);
+        }
+      }
+      return values[Histogram.MAX];
+    }
+  }
+  
+  /**
+   * One row per metric per thread, followed by a total row with the thread
+   * set to *.
+   */
+  private static List<Row> snapshot() {
+    Map<String, Metric> sorted = new TreeMap<>(metrics);
+    List<Row> rows = new ArrayList<>();
+    for (Metric metric : sorted.values()) {
+      metric.retire();
+      Map<String, Row> threads = new TreeMap<>();
+      Row total = null;
+      synchronized (metric) {
+        if (metric.finished != null) {
+          Row finished = new Row(metric.name, metric.type, FINISHED, metric.finished.values.length);
+          finished.add(metric.finished);
+          threads.put(FINISHED, finished);
+          total = new Row(metric.name, metric.type, "*", finished.values.length);
+          total.add(finished);
+        }
+      }
+      for (Counter cell : metric.cells) {
+        Row row = threads.get(cell.thread);
+        if (row == null) {
+          row = new Row(metric.name, metric.type, cell.thread, cell.values.length());
+          threads.put(cell.thread, row);
+          if (total == null) {
+            total = new Row(metric.name, metric.type, "*", cell.values.length());
+          }
+        }
+        row.add(cell);
+        total.add(cell);
+      }
+      if (total != null) {
+        rows.addAll(threads.values());
+        rows.add(total);
+      }
+    }
+    return rows;
+  }
+  
+  public static synchronized void export(File file) {
+    File tmp = new File(file.getPath() + ".tmp");
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    List<Row> rows = snapshot();
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(tmp))) {
+      if (file.getName().endsWith(".json")) {
+        writeJson(writer, rows);
+      } else {
+        writeCsv(writer, rows);
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to export metrics to " + file.getPath(), e);
+      return;
+    }
+    if (file.exists()) {
+      file.delete();
+    }
+    if (!tmp.renameTo(file)) {
+      logger.severe("Unable to move metrics to " + file.getPath());
+    }
+  }
+  
+  private static void writeCsv(BufferedWriter writer, List<Row> rows) throws IOException {
+    writer.write("name,type,thread,count,sum,max,p50,p95,p99");
+    writer.newLine();
+    for (Row row : rows) {
+      writer.write(csv(row.name) + "," + row.type.name().toLowerCase() + "," + csv(row.thread));
+      writer.write("," + row.getCount() + "," + row.getSum() + "," + row.getMax());
+      writer.write("," + row.getQuantile(.5) + "," + row.getQuantile(.95) + "," + row.getQuantile(.99));
+      writer.newLine();
+    }
+  }
+  
+  private static void writeJson(BufferedWriter writer, List<Row> rows) throws IOException {
+    writer.write("{\"timestamp\":" + System.currentTimeMillis() + ",\"metrics\":[");
+    boolean first = true;
+    for (Row row : rows) {
+      if (first) {
+        first = false;
+      } else {
+        writer.write(",");
+      }
+      writer.newLine();
+      writer.write("{\"name\":" + json(row.name) + ",\"type\":\"" + row.type.name().toLowerCase() + "\",\"thread\":" + json(row.thread));
+      writer.write(",\"count\":" + row.getCount() + ",\"sum\":" + row.getSum() + ",\"max\":" + row.getMax());
+      writer.write(",\"p50\":" + row.getQuantile(.5) + ",\"p95\":" + row.getQuantile(.95) + ",\"p99\":" + row.getQuantile(.99) + "}");
+    }
+    writer.newLine();
+    writer.write("]}");
+    writer.newLine();
+  }
+  
+  private static String csv(String value) {
+    if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+    } else {
+      return value;
+    }
+  }
+  
+  private static String json(String value) {
+    StringBuilder result = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        result.append('\\').append(c);
+      } else if (c < ' ') {
+        result.append(String.format("\\u%04x", (int) c));
+      } else {
+        result.append(c);
+      }
+    }
+    return result.append('"').toString();
+  }
+}
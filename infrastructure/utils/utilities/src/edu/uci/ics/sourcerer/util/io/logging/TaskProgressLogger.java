@@ -20,10 +20,16 @@ package edu.uci.ics.sourcerer.util.io.logging;
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.util.Strings;
+import edu.uci.ics.sourcerer.util.io.logging.TaskMetrics.Counter;
+import edu.uci.ics.sourcerer.util.io.logging.TaskMetrics.Histogram;
+import edu.uci.ics.sourcerer.util.io.logging.TaskMetrics.Timer;
+import edu.uci.ics.sourcerer.util.io.logging.TaskMetrics.Type;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -39,6 +45,7 @@ public class TaskProgressLogger {
   
   private String spaces;
   private final Deque<TaskInfo> tasks;
+  private final Map<String, Counter> metrics = new HashMap<>();
   
   private TaskProgressLogger(Deque<TaskInfo> tasks) {
     this.tasks = tasks;
@@ -65,7 +72,8 @@ public class TaskProgressLogger {
   
   public TaskProgressLogger createChild() {
     TaskProgressLogger child = new TaskProgressLogger(new LinkedList<TaskInfo>());
-    child.tasks.add(new TaskInfo(null, null, tasks.peek().indent, -1));
+    TaskInfo parent = tasks.peek();
+    child.tasks.add(new TaskInfo(null, null, parent.path, parent.indent, -1));
     return child;
   }
   
@@ -84,13 +92,46 @@ public class TaskProgressLogger {
     }
   }
   
+  private Counter getMetric(String name, Type type) {
+    String key = type.name() + ":" + name;
+    Counter metric = metrics.get(key);
+    if (metric == null) {
+      metric = TaskMetrics.createCell(name, type);
+      // Pooled names would only grow the map
+      if (!metric.isPooled()) {
+        metrics.put(key, metric);
+      }
+    }
+    return metric;
+  }
+  
+  /**
+   * The returned metrics belong to the current thread, so should not be
+   * shared with others.
+   */
+  public Counter counter(String name) {
+    return getMetric(name, Type.COUNTER);
+  }
+  
+  public Timer timer(String name) {
+    return (Timer) getMetric(name, Type.TIMER);
+  }
+  
+  public Histogram histogram(String name) {
+    return (Histogram) getMetric(name, Type.HISTOGRAM);
+  }
+  
   public Checkpoint checkpoint() {
     return new Checkpoint(tasks.size());
   }
   
   protected void start(String taskName, int indent, String finishedText, int progressInterval) {
     logger.info(getSpaces(indent) + taskName + "...");
-    tasks.push(new TaskInfo(taskName, finishedText, indent, progressInterval));
+    String path = taskName.replaceAll("\\d+", "#");
+    if (!tasks.isEmpty() && tasks.peek().path != null) {
+      path = tasks.peek().path + "/" + path;
+    }
+    tasks.push(new TaskInfo(taskName, finishedText, path, indent, progressInterval));
   }
   
   public void start(String taskName) {
@@ -117,7 +158,12 @@ public class TaskProgressLogger {
     TaskInfo info = tasks.peek();
     if (info.progressInterval == -1) {
       throw new IllegalStateException("May not progress this task.");
-    } else if (info.progressInterval == 0) {
+    }
+    if (info.progressCounter == null) {
+      info.progressCounter = counter(info.path);
+    }
+    info.progressCounter.increment();
+    if (info.progressInterval == 0) {
       info.count++;
     } else {
       if (++info.count % info.progressInterval == 0) {
@@ -162,6 +208,9 @@ public class TaskProgressLogger {
       throw new IllegalStateException("Cannot finish a non-existant task.");
     } else {
       TaskInfo info = tasks.pop();
+      if (info.path != null) {
+        timer(info.path).stop(info.startNanos);
+      }
       if (info.progressInterval == -1) {
         logger.info(getSpaces(info.indent + 1) + "Finished " + info.taskText + " in " + formatTime(info.startTime));
       } else {
@@ -204,16 +253,21 @@ public class TaskProgressLogger {
   private static class TaskInfo {
     public final String taskText;
     public final String finishedText;
+    public final String path;
     public final int indent;
     public final long startTime;
+    public final long startNanos;
     public int count;
     public int progressInterval;
+    public Counter progressCounter;
     
-    public TaskInfo(String taskText, String finishedText, int indent, int progressInterval) {
+    public TaskInfo(String taskText, String finishedText, String path, int indent, int progressInterval) {
       this.taskText = taskText != null ? taskText.toLowerCase() : null;
       this.finishedText = finishedText;
+      this.path = path;
       this.indent = indent;
       this.startTime = System.currentTimeMillis();
+      this.startNanos = System.nanoTime();
       this.count = 0;
       this.progressInterval = progressInterval;
     }